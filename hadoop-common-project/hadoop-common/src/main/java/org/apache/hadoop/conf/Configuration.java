@@ -1773,6 +1773,31 @@ public long getTimeDuration(String name, long defaultValue, TimeUnit unit) {
     }
   }
 
+  /**
+   * Return time duration in the given time unit. Valid units are encoded in
+   * properties as suffixes: nanoseconds (ns), microseconds (us), milliseconds
+   * (ms), seconds (s), minutes (m), hours (h), and days (d). A value without
+   * a suffix is interpreted in <code>defaultUnit</code>, which allows a
+   * property historically given in a coarse unit to be set more precisely.
+   * @param name Property name
+   * @param defaultValue Value returned if no mapping exists, in
+   *                     <code>defaultUnit</code>.
+   * @param defaultUnit Unit of the default value and of values without a
+   *                    suffix.
+   * @param returnUnit Unit of the returned value.
+   * @throws NumberFormatException If the property stripped of its unit is not
+   *         a number
+   */
+  public long getTimeDuration(String name, long defaultValue,
+      TimeUnit defaultUnit, TimeUnit returnUnit) {
+    String vStr = get(name);
+    if (null == vStr) {
+      return returnUnit.convert(defaultValue, defaultUnit);
+    } else {
+      return getTimeDurationHelper(name, vStr, defaultUnit, returnUnit);
+    }
+  }
+
   public long getTimeDuration(String name, String defaultValue, TimeUnit unit) {
     String vStr = get(name);
     if (null == vStr) {
@@ -1791,12 +1816,18 @@ public long getTimeDuration(String name, String defaultValue, TimeUnit unit) {
    * @param unit Unit to convert the stored property, if it exists.
    */
   public long getTimeDurationHelper(String name, String vStr, TimeUnit unit) {
+    return getTimeDurationHelper(name, vStr, unit, unit);
+  }
+
+  private long getTimeDurationHelper(String name, String vStr,
+      TimeUnit defaultUnit, TimeUnit unit) {
     vStr = vStr.trim();
     vStr = StringUtils.toLowerCase(vStr);
     ParsedTimeDuration vUnit = ParsedTimeDuration.unitFor(vStr);
     if (null == vUnit) {
-      logDeprecation("No unit for " + name + "(" + vStr + ") assuming " + unit);
-      vUnit = ParsedTimeDuration.unitFor(unit);
+      logDeprecation("No unit for " + name + "(" + vStr + ") assuming " +
+          defaultUnit);
+      vUnit = ParsedTimeDuration.unitFor(defaultUnit);
     } else {
       vStr = vStr.substring(0, vStr.lastIndexOf(vUnit.suffix()));
     }
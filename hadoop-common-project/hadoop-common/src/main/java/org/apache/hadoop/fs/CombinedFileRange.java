@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+
+/**
+ * A range read with a single request, covering the ranges of a vectored
+ * read which are close to each other in the file.
+ */
+@InterfaceAudience.Private
+public class CombinedFileRange extends FileRangeImpl {
+  private final List<FileRange> underlying = new ArrayList<>();
+
+  public CombinedFileRange(long offset, long end, FileRange original) {
+    super(offset, (int) (end - offset));
+    this.underlying.add(original);
+  }
+
+  /**
+   * @return the ranges of the vectored read covered by this range.
+   */
+  public List<FileRange> getUnderlying() {
+    return underlying;
+  }
+
+  /**
+   * Extend this range to cover another range, if the gap between them is
+   * small enough and the result not too long.
+   * @param otherOffset the offset of the other range.
+   * @param otherEnd the end of the other range.
+   * @param other the other range, which does not start before this one.
+   * @param minSeek the largest gap to read through rather than skip.
+   * @param maxSize the largest size of a combined range.
+   * @return whether the range was merged.
+   */
+  public boolean merge(long otherOffset, long otherEnd, FileRange other,
+      int minSeek, int maxSize) {
+    long end = getOffset() + getLength();
+    long newEnd = Math.max(end, otherEnd);
+    if (otherOffset - end >= minSeek || newEnd - getOffset() > maxSize) {
+      return false;
+    }
+    setLength((int) (newEnd - getOffset()));
+    underlying.add(other);
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return super.toString() + " combining " + underlying.size() + " ranges";
+  }
+}
@@ -76,6 +76,38 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final int IPC_SERVER_RPC_READ_CONNECTION_QUEUE_SIZE_DEFAULT =
       100;
 
+  /** Whether the RPC server reads requests into pooled buffers. */
+  public static final String IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_KEY =
+      "ipc.server.request.buffer-pool.enabled";
+  /** Default value for IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_KEY. */
+  public static final boolean IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_DEFAULT =
+      false;
+  /** Requests larger than this are not read into pooled buffers. */
+  public static final String
+      IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_KEY =
+      "ipc.server.request.buffer-pool.max-buffer-size";
+  /** Default value for IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_KEY. */
+  public static final int
+      IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_DEFAULT = 64 * 1024;
+  /** The largest total capacity of the idle pooled request buffers. */
+  public static final String
+      IPC_SERVER_REQUEST_BUFFER_POOL_MAX_POOLED_BYTES_KEY =
+      "ipc.server.request.buffer-pool.max-pooled-bytes";
+  /** Default value for IPC_SERVER_REQUEST_BUFFER_POOL_MAX_POOLED_BYTES_KEY. */
+  public static final long
+      IPC_SERVER_REQUEST_BUFFER_POOL_MAX_POOLED_BYTES_DEFAULT =
+      16 * 1024 * 1024;
+
+  /**
+   * How long a call waits for the server state to catch up with the state id
+   * sent by the client, before the client is asked to retry.
+   */
+  public static final String IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_KEY =
+      "ipc.server.coordinated-call.max-wait.ms";
+  /** Default value for IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_KEY. */
+  public static final long IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_DEFAULT =
+      10000;
+
   /** Max request size a server will accept. */
   public static final String IPC_MAXIMUM_DATA_LENGTH =
       "ipc.maximum.data.length";
@@ -336,6 +368,16 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final String  IPC_CLIENT_ASYNC_CALLS_MAX_KEY =
       "ipc.client.async.calls.max";
   public static final int     IPC_CLIENT_ASYNC_CALLS_MAX_DEFAULT = 100;
+  /** Number of connections a client opens in parallel to the same remote. */
+  public static final String IPC_CLIENT_CONNECTIONS_PER_REMOTE_KEY =
+      "ipc.client.connections.per-remote";
+  /** Default value for IPC_CLIENT_CONNECTIONS_PER_REMOTE_KEY. */
+  public static final int IPC_CLIENT_CONNECTIONS_PER_REMOTE_DEFAULT = 1;
+  /** Whether the client pipelines the requests written to a connection. */
+  public static final String IPC_CLIENT_PIPELINED_WRITES_KEY =
+      "ipc.client.pipelined-writes.enabled";
+  /** Default value for IPC_CLIENT_PIPELINED_WRITES_KEY. */
+  public static final boolean IPC_CLIENT_PIPELINED_WRITES_DEFAULT = false;
   public static final String  IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_KEY = "ipc.client.fallback-to-simple-auth-allowed";
   public static final boolean IPC_CLIENT_FALLBACK_TO_SIMPLE_AUTH_ALLOWED_DEFAULT = false;
 
@@ -369,6 +411,9 @@ public class CommonConfigurationKeys extends CommonConfigurationKeysPublic {
   public static final boolean RPC_METRICS_QUANTILE_ENABLE_DEFAULT = false;
   public static final String  RPC_METRICS_PERCENTILES_INTERVALS_KEY =
       "rpc.metrics.percentiles.intervals";
+  public static final String RPC_METRICS_PHASE_TIMING_ENABLE =
+      "rpc.metrics.phase-timing.enable";
+  public static final boolean RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT = false;
   
   /** Allowed hosts for nfs exports */
   public static final String NFS_EXPORTS_ALLOWED_HOSTS_SEPARATOR = ";";
@@ -18,6 +18,9 @@
 package org.apache.hadoop.fs;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.IntFunction;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -85,4 +88,31 @@ void readFully(long position, byte[] buffer, int offset, int length)
    * the read operation completed
    */
   void readFully(long position, byte[] buffer) throws IOException;
+
+  /**
+   * Read a list of ranges of the file. This does not change the current
+   * offset of a file, and is thread-safe.
+   *
+   * Once this returns, the data of each range is set to a future, which
+   * completes with a buffer holding the bytes of the range, or fails with
+   * the exception of reading it, e.g. an EOFException for a range past the
+   * end of the file. The ranges may be read in any order, and in parallel;
+   * implementations may read the ranges close to each other with a single
+   * request. The buffers may be larger than the ranges and shared between
+   * them.
+   *
+   * The default implementation reads each range with
+   * {@link #readFully(long, byte[], int, int)} before returning.
+   *
+   * @param ranges the ranges to read.
+   * @param allocate the function allocating the buffers the data is read
+   *                 into, given their size.
+   * @throws IOException IO problems.
+   * @throws IllegalArgumentException a range has a negative offset or
+   * length.
+   */
+  default void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    VectoredReadUtils.readVectored(this, ranges, allocate);
+  }
 }
@@ -31,4 +31,12 @@ public enum ReadOption {
    * format that has built-in checksums, or for testing purposes.
    */
   SKIP_CHECKSUMS,
+
+  /**
+   * Allow zero-copy reads to memory map local replicas which the DataNode
+   * has not cached, without skipping checksums.  The HDFS client verifies
+   * the checksums of such a replica once, when it first maps it, rather than
+   * on every read.
+   */
+  ALLOW_UNCACHED_MMAP,
 }
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import com.google.common.base.Preconditions;
+import org.apache.hadoop.classification.InterfaceAudience;
+
+/**
+ * Helpers for implementing {@link PositionedReadable#readVectored}.
+ */
+@InterfaceAudience.Private
+public final class VectoredReadUtils {
+
+  /** The default largest gap between ranges to read through. */
+  public static final int DEFAULT_MIN_SEEK = 4 * 1024;
+  /** The default largest size of a combined range. */
+  public static final int DEFAULT_MAX_MERGED_SIZE = 1024 * 1024;
+
+  private VectoredReadUtils() {
+  }
+
+  /**
+   * Read the ranges one by one with
+   * {@link PositionedReadable#readFully(long, byte[], int, int)}.
+   * The futures of the ranges are all complete when this returns.
+   * @param stream the stream to read from.
+   * @param ranges the ranges to read.
+   * @param allocate the function allocating the buffer of a range.
+   */
+  public static void readVectored(PositionedReadable stream,
+      List<? extends FileRange> ranges, IntFunction<ByteBuffer> allocate) {
+    validateRanges(ranges);
+    for (FileRange range : ranges) {
+      range.setData(readRangeFrom(stream, range, allocate));
+    }
+  }
+
+  /**
+   * Read one range with
+   * {@link PositionedReadable#readFully(long, byte[], int, int)}.
+   * @return the completed future of the data of the range.
+   */
+  private static CompletableFuture<ByteBuffer> readRangeFrom(
+      PositionedReadable stream, FileRange range,
+      IntFunction<ByteBuffer> allocate) {
+    CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+    try {
+      ByteBuffer buffer = allocate.apply(range.getLength());
+      if (buffer.hasArray()) {
+        stream.readFully(range.getOffset(), buffer.array(),
+            buffer.arrayOffset() + buffer.position(), range.getLength());
+        buffer.position(buffer.position() + range.getLength());
+      } else {
+        byte[] tmp = new byte[range.getLength()];
+        stream.readFully(range.getOffset(), tmp, 0, tmp.length);
+        buffer.put(tmp);
+      }
+      buffer.flip();
+      result.complete(buffer);
+    } catch (IOException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Check that a range can be read.
+   * @throws IllegalArgumentException if the offset or the length is negative.
+   */
+  public static void validateRange(FileRange range) {
+    Preconditions.checkArgument(range.getOffset() >= 0,
+        "Negative offset in %s", range);
+    Preconditions.checkArgument(range.getLength() >= 0,
+        "Negative length in %s", range);
+  }
+
+  /**
+   * Check all the ranges before any of them is read.
+   * @throws IllegalArgumentException if a range has a negative offset or
+   *         length.
+   */
+  public static void validateRanges(List<? extends FileRange> ranges) {
+    for (FileRange range : ranges) {
+      validateRange(range);
+    }
+  }
+
+  /**
+   * Check the ranges, and set a future of the data of each. The ranges past
+   * the end of the file fail with an EOFException, so they are not combined
+   * with the other ones. The futures of the other ranges are to be completed
+   * by the implementation of the vectored read.
+   * @param ranges the ranges to read.
+   * @param fileLength the length of the file.
+   * @return the ranges to read, sorted by offset.
+   * @throws IllegalArgumentException if a range has a negative offset or
+   *         length; no future is set then.
+   */
+  public static List<FileRange> prepareRanges(
+      List<? extends FileRange> ranges, long fileLength) {
+    validateRanges(ranges);
+    List<FileRange> sorted = new ArrayList<>(ranges.size());
+    for (FileRange range : ranges) {
+      CompletableFuture<ByteBuffer> data = new CompletableFuture<>();
+      range.setData(data);
+      if (range.getOffset() + range.getLength() > fileLength) {
+        data.completeExceptionally(new EOFException(
+            FSExceptionMessages.EOF_IN_READ_FULLY + " " + range
+            + " of a file of length " + fileLength));
+      } else {
+        sorted.add(range);
+      }
+    }
+    sorted.sort(Comparator.comparingLong(FileRange::getOffset));
+    return sorted;
+  }
+
+  /**
+   * Combine the ranges which are close to each other, so each combined
+   * range can be read with a single request.
+   * @param sortedRanges the ranges, sorted by offset.
+   * @param minSeek the largest gap between two ranges to read through.
+   * @param maxSize the largest size of a combined range, unless a single
+   *                range is larger.
+   * @return the combined ranges, in order.
+   */
+  public static List<CombinedFileRange> mergeSortedRanges(
+      List<? extends FileRange> sortedRanges, int minSeek, int maxSize) {
+    List<CombinedFileRange> result = new ArrayList<>();
+    CombinedFileRange current = null;
+    for (FileRange range : sortedRanges) {
+      long start = range.getOffset();
+      long end = start + range.getLength();
+      if (current == null
+          || !current.merge(start, end, range, minSeek, maxSize)) {
+        current = new CombinedFileRange(start, end, range);
+        result.add(current);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param readData the data of a combined range, from its position.
+   * @param readOffset the offset in the file of the combined range.
+   * @param range one of the ranges covered by the combined range.
+   * @return a buffer sharing the bytes of the range with the read data.
+   */
+  public static ByteBuffer sliceTo(ByteBuffer readData, long readOffset,
+      FileRange range) {
+    ByteBuffer slice = readData.duplicate();
+    int start = readData.position()
+        + (int) (range.getOffset() - readOffset);
+    slice.position(start);
+    slice.limit(start + range.getLength());
+    return slice.slice();
+  }
+
+  /**
+   * Complete the futures of the ranges covered by a combined range.
+   * @param combined the combined range.
+   * @param readData the data of the combined range.
+   */
+  public static void completeUnderlying(CombinedFileRange combined,
+      ByteBuffer readData) {
+    for (FileRange range : combined.getUnderlying()) {
+      range.getData().complete(
+          sliceTo(readData, combined.getOffset(), range));
+    }
+  }
+
+  /**
+   * Fail the futures of the ranges covered by a combined range.
+   * @param combined the combined range.
+   * @param t the failure.
+   */
+  public static void failUnderlying(CombinedFileRange combined, Throwable t) {
+    for (FileRange range : combined.getUnderlying()) {
+      range.getData().completeExceptionally(t);
+    }
+  }
+}
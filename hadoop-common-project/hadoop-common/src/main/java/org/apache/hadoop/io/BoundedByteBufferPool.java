@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A ByteBufferPool holding either direct or heap buffers, whose total idle
+ * capacity is bounded.
+ *
+ * Unlike {@link ElasticByteBufferPool}, a buffer returned when the pool is
+ * full is left to the garbage collector. Buffers of the other kind, and
+ * buffers larger than the largest pooled size, are allocated on every
+ * request and never pooled. An idle buffer is only handed out for a request
+ * of at least half its capacity, so that small requests do not hold on to
+ * large buffers.
+ *
+ * The limit of a buffer taken from the pool is the requested length; its
+ * capacity may be larger. The pool counts its hits and the buffers it
+ * allocates, so the allocation rate of its users can be monitored.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class BoundedByteBufferPool implements ByteBufferPool {
+  private final boolean direct;
+  private final int maxBufferSize;
+  private final long maxPooledBytes;
+  /** The idle buffers, by capacity; protected by this. */
+  private final TreeMap<Integer, ArrayDeque<ByteBuffer>> buffers =
+      new TreeMap<>();
+  /** The total capacity of the idle buffers; protected by this. */
+  private long pooledBytes = 0;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong allocations = new AtomicLong();
+  private final AtomicLong allocatedBytes = new AtomicLong();
+  private final AtomicLong droppedBytes = new AtomicLong();
+
+  /**
+   * @param direct whether the pool holds direct or heap buffers.
+   * @param maxBufferSize the capacity of the largest buffer which is pooled.
+   * @param maxPooledBytes the largest total capacity of the idle buffers.
+   */
+  public BoundedByteBufferPool(boolean direct, int maxBufferSize,
+      long maxPooledBytes) {
+    Preconditions.checkArgument(maxBufferSize > 0,
+        "maxBufferSize = %s <= 0", maxBufferSize);
+    Preconditions.checkArgument(maxPooledBytes >= 0,
+        "maxPooledBytes = %s < 0", maxPooledBytes);
+    this.direct = direct;
+    this.maxBufferSize = maxBufferSize;
+    this.maxPooledBytes = maxPooledBytes;
+  }
+
+  @Override
+  public ByteBuffer getBuffer(boolean direct, int length) {
+    if (direct == this.direct && length <= maxBufferSize) {
+      synchronized (this) {
+        Map.Entry<Integer, ArrayDeque<ByteBuffer>> entry =
+            buffers.ceilingEntry(length);
+        if (entry != null && entry.getKey() <= 2L * length) {
+          ByteBuffer buffer = entry.getValue().pollFirst();
+          if (entry.getValue().isEmpty()) {
+            buffers.remove(entry.getKey());
+          }
+          pooledBytes -= buffer.capacity();
+          hits.incrementAndGet();
+          buffer.limit(length);
+          return buffer;
+        }
+      }
+    }
+    allocations.incrementAndGet();
+    allocatedBytes.addAndGet(length);
+    return direct ? ByteBuffer.allocateDirect(length) :
+        ByteBuffer.allocate(length);
+  }
+
+  /**
+   * Return a buffer to the pool. The caller must not use the buffer, or any
+   * view of it, afterwards.
+   */
+  @Override
+  public void putBuffer(ByteBuffer buffer) {
+    final int capacity = buffer.capacity();
+    if (buffer.isDirect() != direct || capacity > maxBufferSize) {
+      return;
+    }
+    buffer.clear();
+    synchronized (this) {
+      if (pooledBytes + capacity <= maxPooledBytes) {
+        ArrayDeque<ByteBuffer> idle = buffers.get(capacity);
+        if (idle == null) {
+          idle = new ArrayDeque<>();
+          buffers.put(capacity, idle);
+        }
+        idle.addFirst(buffer);
+        pooledBytes += capacity;
+        return;
+      }
+    }
+    droppedBytes.addAndGet(capacity);
+  }
+
+  /** @return the number of buffers taken from the pool. */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** @return the number of buffers allocated, as the pool had none. */
+  public long getAllocations() {
+    return allocations.get();
+  }
+
+  /** @return the total capacity of the buffers allocated. */
+  public long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  /** @return the total capacity of the buffers dropped, as it was full. */
+  public long getDroppedBytes() {
+    return droppedBytes.get();
+  }
+
+  /** @return the total capacity of the idle buffers in the pool. */
+  public synchronized long getPooledBytes() {
+    return pooledBytes;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{direct=" + direct
+        + ", maxBufferSize=" + maxBufferSize + ", maxPooledBytes="
+        + maxPooledBytes + ", pooledBytes=" + getPooledBytes() + ", hits="
+        + getHits() + ", allocations=" + getAllocations()
+        + ", allocatedBytes=" + getAllocatedBytes() + ", droppedBytes="
+        + getDroppedBytes() + "}";
+  }
+}
@@ -80,7 +80,7 @@ protected void doDecode(ByteBufferDecodingState decodingState) {
     for (int i = 0; i < getNumDataUnits(); i++) {
       realInputs[i] = decodingState.inputs[validIndexes[i]];
     }
-    RSUtil.encodeData(gfTables, realInputs, decodingState.outputs);
+    encodeData(gfTables, realInputs, decodingState.outputs);
   }
 
   @Override
@@ -100,6 +100,15 @@ protected void doDecode(ByteArrayDecodingState decodingState) {
         decodingState.outputs, decodingState.outputOffsets);
   }
 
+  /**
+   * Multiply the direct buffer inputs by the coefficients in the tables,
+   * adding the products to the outputs.
+   */
+  protected void encodeData(byte[] tables, ByteBuffer[] inputs,
+      ByteBuffer[] outputs) {
+    RSUtil.encodeData(tables, inputs, outputs);
+  }
+
   private <T> void prepareDecoding(T[] inputs, int[] erasedIndexes) {
     int[] tmpValidIndexes = CoderUtil.getValidIndexes(inputs);
     if (Arrays.equals(this.cachedErasedIndexes, erasedIndexes) &&
@@ -337,6 +337,7 @@ static class Call {
     final RPC.RpcKind rpcKind;      // Rpc EngineKind
     boolean done;               // true when call is done
     private final Object externalHandler;
+    private AlignmentContext alignmentContext;
 
     private Call(RPC.RpcKind rpcKind, Writable param) {
       this.rpcKind = rpcKind;
@@ -401,6 +402,14 @@ public synchronized void setRpcResponse(Writable rpcResponse) {
     public synchronized Writable getRpcResponse() {
       return rpcResponse;
     }
+
+    /**
+     * Set the alignment context which exchanges state with the server
+     * through the request and response headers of this call.
+     */
+    void setAlignmentContext(AlignmentContext ac) {
+      this.alignmentContext = ac;
+    }
   }
 
   /** Thread that reads responses and notifies callers.  Each connection owns a
@@ -426,6 +435,7 @@ private class Connection extends Thread {
     private final boolean tcpNoDelay; // if T then disable Nagle's Algorithm
     private final boolean tcpLowLatency; // if T then use low-delay QoS
     private final boolean doPing; //do we need to send ping message
+    private final boolean pipelinedWrites; // if T then batch the writes
     private final int pingInterval; // how often sends ping to the server
     private final int soTimeout; // used by ipc ping and rpc timeout
     private byte[] pingRequest; // ping message
@@ -437,6 +447,17 @@ private class Connection extends Thread {
     private IOException closeException; // close reason
     
     private final Object sendRpcRequestLock = new Object();
+    // requests waiting to be written, if writes are pipelined
+    private final Queue<ResponseBuffer> pendingRequests =
+        new ConcurrentLinkedQueue<ResponseBuffer>();
+    // true while a sender is scheduled to write the pending requests
+    private final AtomicBoolean senderScheduled = new AtomicBoolean();
+    private final Runnable pendingRequestsSender = new Runnable() {
+      @Override
+      public void run() {
+        sendPendingRequests();
+      }
+    };
 
     public Connection(ConnectionId remoteId, int serviceClass) throws IOException {
       this.remoteId = remoteId;
@@ -459,6 +480,7 @@ public Connection(ConnectionId remoteId, int serviceClass) throws IOException {
       this.tcpNoDelay = remoteId.getTcpNoDelay();
       this.tcpLowLatency = remoteId.getTcpLowLatency();
       this.doPing = remoteId.getDoPing();
+      this.pipelinedWrites = remoteId.getPipelinedWrites();
       if (doPing) {
         // construct a RPC header with the callId as the ping callId
         ResponseBuffer buf = new ResponseBuffer();
@@ -1100,12 +1122,26 @@ public void sendRpcRequest(final Call call)
       // Items '1' and '2' are prepared here. 
       RpcRequestHeaderProto header = ProtoUtil.makeRpcRequestHeader(
           call.rpcKind, OperationProto.RPC_FINAL_PACKET, call.id, call.retry,
-          clientId);
+          clientId, call.alignmentContext);
 
       final ResponseBuffer buf = new ResponseBuffer();
       header.writeDelimitedTo(buf);
       RpcWritable.wrap(call.rpcRequest).writeTo(buf);
 
+      if (pipelinedWrites) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(getName() + " queueing #" + call.id
+              + " " + call.rpcRequest);
+        }
+        // the caller does not wait for the write, a failure closes the
+        // connection and so fails the call.
+        pendingRequests.add(buf);
+        if (senderScheduled.compareAndSet(false, true)) {
+          sendParamsExecutor.execute(pendingRequestsSender);
+        }
+        return;
+      }
+
       synchronized (sendRpcRequestLock) {
         Future<?> senderFuture = sendParamsExecutor.submit(new Runnable() {
           @Override
@@ -1152,6 +1188,51 @@ public void run() {
       }
     }
 
+    /**
+     * Write the pending requests to the connection and flush them together.
+     * Only one sender runs at a time for a connection, on the
+     * sendParamsExecutor, so the writes are isolated from interrupts of the
+     * callers.
+     */
+    private void sendPendingRequests() {
+      try {
+        do {
+          synchronized (ipcStreams.out) {
+            int count = 0;
+            ResponseBuffer buf;
+            while ((buf = pendingRequests.poll()) != null) {
+              try {
+                if (!shouldCloseConnection.get()) {
+                  // RpcRequestHeader + RpcRequest
+                  buf.writeTo(ipcStreams.out);
+                  count++;
+                }
+              } finally {
+                IOUtils.closeStream(buf);
+              }
+            }
+            if (count > 0) {
+              ipcStreams.flush();
+              if (LOG.isDebugEnabled()) {
+                LOG.debug(getName() + " sent " + count + " requests");
+              }
+            }
+          }
+          senderScheduled.set(false);
+          // a request queued after the last poll may not have scheduled a
+          // sender, so take over unless another sender has been scheduled
+        } while (!pendingRequests.isEmpty()
+            && senderScheduled.compareAndSet(false, true));
+      } catch (IOException | RuntimeException e) {
+        // exception at this point would leave the connection in an
+        // unrecoverable state (eg half a call left on the wire).
+        // So, close the connection, killing any outstanding calls
+        markClosed(e instanceof IOException ? (IOException) e :
+            new IOException("Failed to send requests", e));
+        pendingRequests.clear();
+      }
+    }
+
     /* Receive a response.
      * Because only one receiver, so no synchronization on in.
      */
@@ -1176,6 +1257,9 @@ private void receiveRpcResponse() {
         if (status == RpcStatusProto.SUCCESS) {
           Writable value = packet.newInstance(valueClass, conf);
           final Call call = calls.remove(callId);
+          if (call.alignmentContext != null) {
+            call.alignmentContext.receiveResponseState(header);
+          }
           call.setRpcResponse(value);
         }
         // verify that packet length was correct
@@ -1379,7 +1463,31 @@ private void checkAsyncCall() throws IOException {
   Writable call(RPC.RpcKind rpcKind, Writable rpcRequest,
       ConnectionId remoteId, int serviceClass,
       AtomicBoolean fallbackToSimpleAuth) throws IOException {
+    return call(rpcKind, rpcRequest, remoteId, serviceClass,
+        fallbackToSimpleAuth, null);
+  }
+
+  /**
+   * Make a call, passing <code>rpcRequest</code>, to the IPC server defined by
+   * <code>remoteId</code>, returning the rpc response.
+   *
+   * @param rpcKind
+   * @param rpcRequest -  contains serialized method and method parameters
+   * @param remoteId - the target rpc server
+   * @param serviceClass - service class for RPC
+   * @param fallbackToSimpleAuth - set to true or false during this method to
+   *   indicate if a secure client falls back to simple auth
+   * @param alignmentContext - state alignment context, may be null
+   * @returns the rpc response
+   * Throws exceptions if there are network problems or if the remote code
+   * threw an exception.
+   */
+  Writable call(RPC.RpcKind rpcKind, Writable rpcRequest,
+      ConnectionId remoteId, int serviceClass,
+      AtomicBoolean fallbackToSimpleAuth, AlignmentContext alignmentContext)
+      throws IOException {
     final Call call = createCall(rpcKind, rpcRequest);
+    call.setAlignmentContext(alignmentContext);
     final Connection connection = getConnection(remoteId, call, serviceClass,
         fallbackToSimpleAuth);
 
@@ -1525,6 +1633,12 @@ private Connection getConnection(ConnectionId remoteId,
      * connectionsId object and with set() method. We need to manage the
      * refs for keys in HashMap properly. For now its ok.
      */
+    final int connectionsPerRemote = remoteId.getConnectionsPerRemote();
+    if (connectionsPerRemote > 1) {
+      // spread the calls over the parallel connections in turn
+      remoteId = remoteId.getParallelConnectionId(
+          Math.floorMod(call.id, connectionsPerRemote), connectionsPerRemote);
+    }
     while (true) {
       // These lines below can be shorten with computeIfAbsent in Java8
       connection = connections.get(remoteId);
@@ -1577,6 +1691,13 @@ public static class ConnectionId {
     private final int pingInterval; // how often sends ping to the server in msecs
     private String saslQop; // here for testing
     private final Configuration conf; // used to get the expected kerberos principal name
+    private final boolean pipelinedWrites; // if T then batch the writes
+    // the number of connections opened in parallel to the same remote
+    private final int connectionsPerRemote;
+    // the index of the connection among the parallel ones to the same remote
+    private final int connectionIndex;
+    // the ids of the parallel connections, see getParallelConnectionId
+    private volatile ConnectionId[] parallelIds;
     
     ConnectionId(InetSocketAddress address, Class<?> protocol, 
                  UserGroupInformation ticket, int rpcTimeout,
@@ -1607,7 +1728,56 @@ public static class ConnectionId {
           CommonConfigurationKeys.IPC_CLIENT_PING_KEY,
           CommonConfigurationKeys.IPC_CLIENT_PING_DEFAULT);
       this.pingInterval = (doPing ? Client.getPingInterval(conf) : 0);
+      this.pipelinedWrites = conf.getBoolean(
+          CommonConfigurationKeys.IPC_CLIENT_PIPELINED_WRITES_KEY,
+          CommonConfigurationKeys.IPC_CLIENT_PIPELINED_WRITES_DEFAULT);
+      this.connectionsPerRemote = Math.max(1, conf.getInt(
+          CommonConfigurationKeys.IPC_CLIENT_CONNECTIONS_PER_REMOTE_KEY,
+          CommonConfigurationKeys.IPC_CLIENT_CONNECTIONS_PER_REMOTE_DEFAULT));
       this.conf = conf;
+      this.connectionIndex = 0;
+    }
+
+    private ConnectionId(ConnectionId id, int connectionIndex) {
+      this.protocol = id.protocol;
+      this.address = id.address;
+      this.ticket = id.ticket;
+      this.rpcTimeout = id.rpcTimeout;
+      this.connectionRetryPolicy = id.connectionRetryPolicy;
+      this.maxIdleTime = id.maxIdleTime;
+      this.maxRetriesOnSasl = id.maxRetriesOnSasl;
+      this.maxRetriesOnSocketTimeouts = id.maxRetriesOnSocketTimeouts;
+      this.tcpNoDelay = id.tcpNoDelay;
+      this.tcpLowLatency = id.tcpLowLatency;
+      this.doPing = id.doPing;
+      this.pingInterval = id.pingInterval;
+      this.pipelinedWrites = id.pipelinedWrites;
+      this.connectionsPerRemote = id.connectionsPerRemote;
+      this.conf = id.conf;
+      this.connectionIndex = connectionIndex;
+    }
+
+    /**
+     * Get the id of one of the connections opened in parallel to the same
+     * remote. The ids are created once per id and then reused.
+     *
+     * @param index the index of the connection, 0 being this id.
+     * @param count the number of parallel connections.
+     */
+    ConnectionId getParallelConnectionId(int index, int count) {
+      if (index == 0) {
+        return this;
+      }
+      ConnectionId[] ids = parallelIds;
+      if (ids == null || ids.length != count) {
+        ids = new ConnectionId[count];
+        ids[0] = this;
+        for (int i = 1; i < count; i++) {
+          ids[i] = new ConnectionId(this, i);
+        }
+        parallelIds = ids;
+      }
+      return ids[index];
     }
     
     InetSocketAddress getAddress() {
@@ -1656,6 +1826,14 @@ boolean getDoPing() {
     int getPingInterval() {
       return pingInterval;
     }
+
+    boolean getPipelinedWrites() {
+      return pipelinedWrites;
+    }
+
+    int getConnectionsPerRemote() {
+      return connectionsPerRemote;
+    }
     
     @VisibleForTesting
     String getSaslQop() {
@@ -1712,7 +1890,8 @@ && isEqual(this.connectionRetryPolicy, that.connectionRetryPolicy)
             && isEqual(this.protocol, that.protocol)
             && this.rpcTimeout == that.rpcTimeout
             && this.tcpNoDelay == that.tcpNoDelay
-            && isEqual(this.ticket, that.ticket);
+            && isEqual(this.ticket, that.ticket)
+            && this.connectionIndex == that.connectionIndex;
       }
       return false;
     }
@@ -1728,6 +1907,7 @@ public int hashCode() {
       result = PRIME * result + rpcTimeout;
       result = PRIME * result + (tcpNoDelay ? 1231 : 1237);
       result = PRIME * result + ((ticket == null) ? 0 : ticket.hashCode());
+      result = PRIME * result + connectionIndex;
       return result;
     }
     
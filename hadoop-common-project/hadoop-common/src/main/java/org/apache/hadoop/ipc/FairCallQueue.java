@@ -43,7 +43,7 @@
  * A queue with multiple levels for each priority.
  */
 public class FairCallQueue<E extends Schedulable> extends AbstractQueue<E>
-  implements BlockingQueue<E> {
+  implements BlockingQueue<E>, MultiLevelCallQueue {
   @Deprecated
   public static final int    IPC_CALLQUEUE_PRIORITY_LEVELS_DEFAULT = 4;
   @Deprecated
@@ -335,13 +335,13 @@ public int remainingCapacity() {
    * MetricsProxy is a singleton because we may init multiple
    * FairCallQueues, but the metrics system cannot unregister beans cleanly.
    */
-  private static final class MetricsProxy implements FairCallQueueMXBean {
+  static final class MetricsProxy implements FairCallQueueMXBean {
     // One singleton per namespace
     private static final HashMap<String, MetricsProxy> INSTANCES =
       new HashMap<String, MetricsProxy>();
 
     // Weakref for delegate, so we don't retain it forever if it can be GC'd
-    private WeakReference<FairCallQueue<? extends Schedulable>> delegate;
+    private WeakReference<MultiLevelCallQueue> delegate;
 
     // Keep track of how many objects we registered
     private int revisionNumber = 0;
@@ -360,15 +360,14 @@ public static synchronized MetricsProxy getInstance(String namespace) {
       return mp;
     }
 
-    public void setDelegate(FairCallQueue<? extends Schedulable> obj) {
-      this.delegate
-          = new WeakReference<FairCallQueue<? extends Schedulable>>(obj);
+    public void setDelegate(MultiLevelCallQueue obj) {
+      this.delegate = new WeakReference<MultiLevelCallQueue>(obj);
       this.revisionNumber++;
     }
 
     @Override
     public int[] getQueueSizes() {
-      FairCallQueue<? extends Schedulable> obj = this.delegate.get();
+      MultiLevelCallQueue obj = this.delegate.get();
       if (obj == null) {
         return new int[]{};
       }
@@ -378,7 +377,7 @@ public int[] getQueueSizes() {
 
     @Override
     public long[] getOverflowedCalls() {
-      FairCallQueue<? extends Schedulable> obj = this.delegate.get();
+      MultiLevelCallQueue obj = this.delegate.get();
       if (obj == null) {
         return new long[]{};
       }
@@ -392,6 +391,7 @@ public long[] getOverflowedCalls() {
   }
 
   // FairCallQueueMXBean
+  @Override
   public int[] getQueueSizes() {
     int numQueues = queues.size();
     int[] sizes = new int[numQueues];
@@ -401,6 +401,7 @@ public int[] getQueueSizes() {
     return sizes;
   }
 
+  @Override
   public long[] getOverflowedCalls() {
     int numQueues = queues.size();
     long[] calls = new long[numQueues];
@@ -0,0 +1,573 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.ipc;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang.NotImplementedException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.ipc.CallQueueManager.CallQueueOverflowException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A lock-free alternative to {@link FairCallQueue}. It schedules calls the
+ * same way: each priority level assigned by the {@link RpcScheduler} has its
+ * own sub-queue, calls overflow to lower priority sub-queues, and handlers
+ * draw from the sub-queues as chosen by the
+ * {@link WeightedRoundRobinMultiplexer}.
+ *
+ * The sub-queues are bounded multi-producer multi-consumer ring buffers, so
+ * readers and handlers never take a lock to add or remove a call. Instead of
+ * a semaphore counting the queued calls, a handler finding all sub-queues
+ * empty spins briefly and then parks until a reader signals it. Readers only
+ * touch the waiter list when handlers are parked, which is rare on a busy
+ * server.
+ *
+ * Use it by setting ipc.[port].callqueue.impl to this class.
+ */
+public class LockFreeFairCallQueue<E extends Schedulable>
+    extends AbstractQueue<E>
+    implements BlockingQueue<E>, MultiLevelCallQueue {
+  public static final Logger LOG =
+      LoggerFactory.getLogger(LockFreeFairCallQueue.class);
+
+  /** How often a handler polls the empty sub-queues before parking. */
+  private static final int SPINS_BEFORE_PARK = 64;
+
+  /* The queues */
+  private final ArrayList<RingBuffer<E>> queues;
+
+  /* Handlers waiting for a call, and callers of put waiting for space */
+  private final Waiters notEmpty = new Waiters();
+  private final Waiters notFull = new Waiters();
+
+  /* Multiplexer picks which queue to draw from */
+  private RpcMultiplexer multiplexer;
+
+  /* Statistic tracking */
+  private final ArrayList<AtomicLong> overflowedCalls;
+
+  /**
+   * Create a LockFreeFairCallQueue.
+   * @param priorityLevels the number of sub-queues
+   * @param capacity the total size of all sub-queues
+   * @param ns the prefix to use for configuration
+   * @param conf the configuration to read from
+   * Notes: the capacity is divided among the sub-queues as in
+   * {@link FairCallQueue}.
+   */
+  public LockFreeFairCallQueue(int priorityLevels, int capacity, String ns,
+      Configuration conf) {
+    if (priorityLevels < 1) {
+      throw new IllegalArgumentException("Number of Priority Levels must be " +
+          "at least 1");
+    }
+    int numQueues = priorityLevels;
+    LOG.info("LockFreeFairCallQueue is in use with " + numQueues +
+        " queues with total capacity of " + capacity);
+
+    this.queues = new ArrayList<RingBuffer<E>>(numQueues);
+    this.overflowedCalls = new ArrayList<AtomicLong>(numQueues);
+    int queueCapacity = Math.max(1, capacity / numQueues);
+    int capacityForFirstQueue = queueCapacity + (capacity % numQueues);
+    for (int i = 0; i < numQueues; i++) {
+      this.queues.add(new RingBuffer<E>(
+          i == 0 ? capacityForFirstQueue : queueCapacity));
+      this.overflowedCalls.add(new AtomicLong(0));
+    }
+
+    this.multiplexer = new WeightedRoundRobinMultiplexer(numQueues, ns, conf);
+    // Make this the active source of metrics
+    FairCallQueue.MetricsProxy mp =
+        FairCallQueue.MetricsProxy.getInstance(ns);
+    mp.setDelegate(this);
+  }
+
+  /**
+   * Remove an element from the queue picked by the multiplexer, or else
+   * from the first non-empty queue in priority order.
+   *
+   * @return the element, or null if all queues were empty
+   */
+  private E removeNextElement() {
+    int priority = multiplexer.getAndAdvanceCurrentIndex();
+    E e = queues.get(priority).poll();
+    for (int idx = 0; e == null && idx < queues.size(); idx++) {
+      e = queues.get(idx).poll();
+    }
+    if (e != null && notFull.hasWaiters()) {
+      notFull.signal();
+    }
+    return e;
+  }
+
+  /* AbstractQueue and BlockingQueue methods */
+
+  /**
+   * Add, put, and offer overflow as in {@link FairCallQueue}:
+   * - Add will move on to the next queue, throw on last queue overflow
+   * - Put will move on to the next queue, block on last queue overflow
+   * - Offer does not attempt other queues on overflow
+   */
+
+  @Override
+  public boolean add(E e) {
+    final int priorityLevel = e.getPriorityLevel();
+    // try offering to all queues.
+    if (!offerQueues(priorityLevel, e, true)) {
+      // only disconnect the lowest priority users that overflow the queue.
+      throw (priorityLevel == queues.size() - 1)
+          ? CallQueueOverflowException.DISCONNECT
+          : CallQueueOverflowException.KEEPALIVE;
+    }
+    return true;
+  }
+
+  @Override
+  public void put(E e) throws InterruptedException {
+    final int priorityLevel = e.getPriorityLevel();
+    // try offering to all but last queue, put on last.
+    if (!offerQueues(priorityLevel, e, false)) {
+      offerQueue(queues.size() - 1, e, Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Offer the element to queue of a specific priority.
+   * @param priority - queue priority
+   * @param e - element to add
+   * @return boolean if added to the given queue
+   */
+  @VisibleForTesting
+  boolean offerQueue(int priority, E e) {
+    if (queues.get(priority).offer(e)) {
+      signalNotEmpty();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Offer the element to queue of a specific priority, waiting for space
+   * until the timeout elapses.
+   * @return boolean if added to the given queue
+   */
+  private boolean offerQueue(int priority, E e, long timeoutNanos)
+      throws InterruptedException {
+    if (offerQueue(priority, e)) {
+      return true;
+    }
+    final long deadline = System.nanoTime() + timeoutNanos;
+    Waiters.Waiter waiter = notFull.add();
+    try {
+      while (!offerQueue(priority, e)) {
+        Waiters.Waiter next = notFull.await(waiter, deadline, timeoutNanos);
+        if (next == null) {
+          return false;
+        }
+        waiter = next;
+      }
+      return true;
+    } finally {
+      notFull.remove(waiter);
+      // pass on a signal this thread may have taken while leaving
+      if (notFull.hasWaiters() && remainingCapacity() > 0) {
+        notFull.signal();
+      }
+    }
+  }
+
+  /**
+   * Offer the element to queue of the given or lower priority.
+   * @param priority - starting queue priority
+   * @param e - element to add
+   * @param includeLast - whether to attempt last queue
+   * @return boolean if added to a queue
+   */
+  private boolean offerQueues(int priority, E e, boolean includeLast) {
+    int lastPriority = queues.size() - (includeLast ? 1 : 2);
+    for (int i = priority; i <= lastPriority; i++) {
+      if (offerQueue(i, e)) {
+        return true;
+      }
+      // Update stats
+      overflowedCalls.get(i).getAndIncrement();
+    }
+    return false;
+  }
+
+  @Override
+  public boolean offer(E e, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return offerQueue(e.getPriorityLevel(), e, unit.toNanos(timeout));
+  }
+
+  @Override
+  public boolean offer(E e) {
+    return offerQueue(e.getPriorityLevel(), e);
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    return poll(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    E e = spinForNextElement();
+    if (e != null) {
+      return e;
+    }
+    final long timeoutNanos = unit.toNanos(timeout);
+    final long deadline = System.nanoTime() + timeoutNanos;
+    Waiters.Waiter waiter = notEmpty.add();
+    try {
+      // check again after registering, a producer may have missed us
+      while ((e = removeNextElement()) == null) {
+        Waiters.Waiter next = notEmpty.await(waiter, deadline, timeoutNanos);
+        if (next == null) {
+          return null;
+        }
+        waiter = next;
+      }
+      return e;
+    } finally {
+      notEmpty.remove(waiter);
+      // A producer may have signalled this handler while it was leaving.
+      // Pass the signal on, so that no call is stranded.
+      if (notEmpty.hasWaiters() && !isEmpty()) {
+        notEmpty.signal();
+      }
+    }
+  }
+
+  /**
+   * poll() provides no strict consistency: it is possible for poll to return
+   * null even though an element is being added to the queue.
+   */
+  @Override
+  public E poll() {
+    return removeNextElement();
+  }
+
+  private E spinForNextElement() {
+    for (int i = 0; i < SPINS_BEFORE_PARK; i++) {
+      E e = removeNextElement();
+      if (e != null) {
+        return e;
+      }
+      Thread.yield();
+    }
+    return null;
+  }
+
+  private void signalNotEmpty() {
+    if (notEmpty.hasWaiters()) {
+      notEmpty.signal();
+    }
+  }
+
+  /**
+   * Peek, like poll, provides no strict consistency.
+   */
+  @Override
+  public E peek() {
+    E e = null;
+    for (int i = 0; e == null && i < queues.size(); i++) {
+      e = queues.get(i).peek();
+    }
+    return e;
+  }
+
+  /**
+   * Size returns the sum of all sub-queue sizes.
+   * Note: size provides no strict consistency, and should not be used to
+   * control queue IO.
+   */
+  @Override
+  public int size() {
+    int size = 0;
+    for (RingBuffer<E> q : queues) {
+      size += q.size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (RingBuffer<E> q : queues) {
+      if (q.size() > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Iterator is not implemented, as it is not needed.
+   */
+  @Override
+  public Iterator<E> iterator() {
+    throw new NotImplementedException();
+  }
+
+  /**
+   * drainTo polls the sub-queues in priority order. As with
+   * {@link FairCallQueue}, draining into another multi-level queue will
+   * likely reschedule the calls.
+   */
+  @Override
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    int drained = 0;
+    for (int i = 0; drained < maxElements && i < queues.size(); i++) {
+      E e;
+      while (drained < maxElements && (e = queues.get(i).poll()) != null) {
+        c.add(e);
+        drained++;
+      }
+    }
+    if (drained > 0 && notFull.hasWaiters()) {
+      notFull.signalAll();
+    }
+    return drained;
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns maximum remaining capacity. This does not reflect how much you can
+   * ideally fit in this queue, as that would depend on the scheduler's
+   * decisions.
+   */
+  @Override
+  public int remainingCapacity() {
+    int sum = 0;
+    for (RingBuffer<E> q : queues) {
+      sum += q.capacity() - q.size();
+    }
+    return sum;
+  }
+
+  // FairCallQueueMXBean
+  @Override
+  public int[] getQueueSizes() {
+    int numQueues = queues.size();
+    int[] sizes = new int[numQueues];
+    for (int i = 0; i < numQueues; i++) {
+      sizes[i] = queues.get(i).size();
+    }
+    return sizes;
+  }
+
+  @Override
+  public long[] getOverflowedCalls() {
+    int numQueues = queues.size();
+    long[] calls = new long[numQueues];
+    for (int i = 0; i < numQueues; i++) {
+      calls[i] = overflowedCalls.get(i).get();
+    }
+    return calls;
+  }
+
+  @VisibleForTesting
+  public void setMultiplexer(RpcMultiplexer newMux) {
+    this.multiplexer = newMux;
+  }
+
+  /**
+   * A bounded multi-producer multi-consumer queue on an array. Each slot has
+   * a sequence number which tells producers and consumers whose turn it is,
+   * so offer and poll only need a CAS on the tail or head position.
+   */
+  @VisibleForTesting
+  static final class RingBuffer<T> {
+    private final int capacity;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong tail = new AtomicLong(0);
+
+    RingBuffer(int capacity) {
+      this.capacity = capacity;
+      this.elements = new AtomicReferenceArray<T>(capacity);
+      this.sequences = new AtomicLongArray(capacity);
+      for (int i = 0; i < capacity; i++) {
+        sequences.set(i, i);
+      }
+    }
+
+    int capacity() {
+      return capacity;
+    }
+
+    boolean offer(T e) {
+      long pos = tail.get();
+      while (true) {
+        final int idx = (int) (pos % capacity);
+        final long diff = sequences.get(idx) - pos;
+        if (diff == 0) {
+          if (tail.compareAndSet(pos, pos + 1)) {
+            elements.lazySet(idx, e);
+            // publish the element to consumers
+            sequences.set(idx, pos + 1);
+            return true;
+          }
+          pos = tail.get();
+        } else if (diff < 0) {
+          return false; // full
+        } else {
+          pos = tail.get();
+        }
+      }
+    }
+
+    T poll() {
+      long pos = head.get();
+      while (true) {
+        final int idx = (int) (pos % capacity);
+        final long diff = sequences.get(idx) - (pos + 1);
+        if (diff == 0) {
+          if (head.compareAndSet(pos, pos + 1)) {
+            final T e = elements.get(idx);
+            elements.lazySet(idx, null);
+            // hand the slot back to producers
+            sequences.set(idx, pos + capacity);
+            return e;
+          }
+          pos = head.get();
+        } else if (diff < 0) {
+          return null; // empty
+        } else {
+          pos = head.get();
+        }
+      }
+    }
+
+    T peek() {
+      final long pos = head.get();
+      final int idx = (int) (pos % capacity);
+      if (sequences.get(idx) != pos + 1) {
+        return null;
+      }
+      return elements.get(idx);
+    }
+
+    int size() {
+      // read head first, so that the result is never negative
+      final long h = head.get();
+      final long t = tail.get();
+      return (int) Math.max(0, Math.min(capacity, t - h));
+    }
+  }
+
+  /**
+   * Threads parked until the queue changes. A thread registers before its
+   * final check of the queue, and a thread changing the queue signals after
+   * its change, so a waiter cannot miss the change it is waiting for.
+   */
+  private static final class Waiters {
+    private static final class Waiter {
+      private final Thread thread = Thread.currentThread();
+      private volatile boolean signalled = false;
+    }
+
+    private final ConcurrentLinkedQueue<Waiter> parked =
+        new ConcurrentLinkedQueue<Waiter>();
+    private final AtomicInteger numWaiters = new AtomicInteger(0);
+
+    boolean hasWaiters() {
+      return numWaiters.get() > 0;
+    }
+
+    Waiter add() {
+      final Waiter waiter = new Waiter();
+      numWaiters.incrementAndGet();
+      parked.add(waiter);
+      return waiter;
+    }
+
+    void remove(Waiter waiter) {
+      if (!waiter.signalled) {
+        parked.remove(waiter);
+      }
+      numWaiters.decrementAndGet();
+    }
+
+    /**
+     * Park until signalled or the deadline passes. The caller must check the
+     * queue again after this returns.
+     *
+     * @return the waiter to use for the next wait, or null on timeout.
+     */
+    Waiter await(Waiter waiter, long deadline, long timeoutNanos)
+        throws InterruptedException {
+      if (waiter.signalled) {
+        // registered again, the caller checks the queue before parking
+        final Waiter next = new Waiter();
+        parked.add(next);
+        return next;
+      }
+      if (timeoutNanos == Long.MAX_VALUE) {
+        LockSupport.park(this);
+      } else {
+        final long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return null;
+        }
+        LockSupport.parkNanos(this, remaining);
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      return waiter;
+    }
+
+    void signal() {
+      final Waiter waiter = parked.poll();
+      if (waiter != null) {
+        waiter.signalled = true;
+        LockSupport.unpark(waiter.thread);
+      }
+    }
+
+    void signalAll() {
+      Waiter waiter;
+      while ((waiter = parked.poll()) != null) {
+        waiter.signalled = true;
+        LockSupport.unpark(waiter.thread);
+      }
+    }
+  }
+}
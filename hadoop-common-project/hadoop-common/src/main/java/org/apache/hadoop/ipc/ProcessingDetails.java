@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.ipc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.util.Time;
+
+/**
+ * The time a call spends in each phase of its processing by the server.
+ *
+ * The phases follow each other, except {@link Phase#LOCK_WAIT} which is
+ * reported by the application while the call is processed and is not
+ * counted in {@link Phase#PROCESSING}. The phases of a call are ended by the
+ * reader, handler and responder threads in turn, each of which hands the
+ * call over to the next through a synchronized queue.
+ */
+@InterfaceAudience.LimitedPrivate({"HDFS"})
+@InterfaceStability.Unstable
+public class ProcessingDetails {
+
+  /** The phases of a call. */
+  public enum Phase {
+    /** From receiving the request to adding the call to the call queue. */
+    ENQUEUE("Enqueue"),
+    /** Waiting in the call queue for a handler. */
+    QUEUE("Queue"),
+    /** Waiting for locks of the application, e.g. the namesystem lock. */
+    LOCK_WAIT("LockWait"),
+    /** Running the method, until its response is ready. */
+    PROCESSING("Processing"),
+    /**
+     * From serializing the response to adding it to the response queue of
+     * the connection, including the time a postponed response waits.
+     */
+    RESPONSE_ENQUEUE("ResponseEnqueue"),
+    /** Waiting in the response queue and writing the response. */
+    RESPONSE_SEND("ResponseSend");
+
+    private final String name;
+
+    Phase(String name) {
+      this.name = name;
+    }
+
+    /** @return the name of the phase in metric names. */
+    public String getName() {
+      return name;
+    }
+  }
+
+  private final long[] phaseNanos = new long[Phase.values().length];
+  private long phaseStartNanos;
+  private String methodName;
+
+  ProcessingDetails() {
+    this.phaseStartNanos = Time.monotonicNowNanos();
+  }
+
+  /** End the given phase now, the next phase starts. */
+  void endPhase(Phase phase) {
+    final long now = Time.monotonicNowNanos();
+    phaseNanos[phase.ordinal()] += now - phaseStartNanos;
+    phaseStartNanos = now;
+  }
+
+  /**
+   * Add time the call waited for a lock of the application.
+   *
+   * @param nanos the wait time in nanoseconds.
+   */
+  public void addLockWaitTime(long nanos) {
+    phaseNanos[Phase.LOCK_WAIT.ordinal()] += nanos;
+  }
+
+  /**
+   * @return the time spent in the given phase.
+   */
+  public long get(Phase phase, TimeUnit unit) {
+    long nanos = phaseNanos[phase.ordinal()];
+    if (phase == Phase.PROCESSING) {
+      nanos = Math.max(0, nanos - phaseNanos[Phase.LOCK_WAIT.ordinal()]);
+    }
+    return unit.convert(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Set the name the method of the call is recorded under. */
+  void setMethodName(String methodName) {
+    this.methodName = methodName;
+  }
+
+  /** @return the name of the method of the call, null if not known. */
+  String getMethodName() {
+    return methodName;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(getClass().getSimpleName())
+        .append("{method=").append(methodName);
+    for (Phase phase : Phase.values()) {
+      sb.append(", ").append(phase.getName()).append("Micros=")
+          .append(get(phase, TimeUnit.MICROSECONDS));
+    }
+    return sb.append("}").toString();
+  }
+}
@@ -48,6 +48,7 @@
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.security.PrivilegedExceptionAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -60,9 +61,15 @@
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -78,15 +85,18 @@
 import org.apache.hadoop.conf.Configuration.IntegerRanges;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.ipc.CallQueueManager.CallQueueOverflowException;
+import org.apache.hadoop.ipc.ProcessingDetails.Phase;
 import org.apache.hadoop.ipc.RPC.RpcInvoker;
 import org.apache.hadoop.ipc.RPC.VersionMismatch;
 import org.apache.hadoop.ipc.metrics.RpcDetailedMetrics;
 import org.apache.hadoop.ipc.metrics.RpcMetrics;
 import org.apache.hadoop.ipc.protobuf.IpcConnectionContextProtos.IpcConnectionContextProto;
+import org.apache.hadoop.ipc.protobuf.ProtobufRpcEngineProtos.RequestHeaderProto;
 import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcKindProto;
 import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcRequestHeaderProto;
 import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcResponseHeaderProto;
@@ -120,6 +130,8 @@
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
@@ -392,6 +404,16 @@ public static String getProtocol() {
     return (call != null) ? call.getProtocol() : null;
   }
 
+  /**
+   * Returns the phase times of the current RPC call, to which the application
+   * adds the time it waits for locks. Returns null if the call is not timed,
+   * see {@link CommonConfigurationKeys#RPC_METRICS_PHASE_TIMING_ENABLE}.
+   */
+  public static ProcessingDetails getProcessingDetails() {
+    Call call = CurCall.get();
+    return (call != null) ? call.processingDetails : null;
+  }
+
   /** Return true if the invocation was through an RPC.
    */
   public static boolean isRpcInvocation() {
@@ -415,6 +437,8 @@ public static int getPriorityLevel() {
   private Class<? extends Writable> rpcRequestClass;   // class used for deserializing the rpc request
   final protected RpcMetrics rpcMetrics;
   final protected RpcDetailedMetrics rpcDetailedMetrics;
+  // if true then the phases of the calls are timed, see ProcessingDetails
+  private volatile boolean phaseTimingEnabled;
   
   private Configuration conf;
   private String portRangeConfig = null;
@@ -433,11 +457,22 @@ protected ResponseBuffer initialValue() {
   };
   private int socketSendBufferSize;
   private final int maxDataLength;
+  // pool of the buffers requests are read into; null if disabled
+  private final BoundedByteBufferPool requestBufferPool;
   private final boolean tcpNoDelay; // if T then disable Nagle's Algorithm
 
   volatile private boolean running = true;         // true while server runs
+  private int asyncHandlerCount = 0;
+  // completes the calls deferred to it by the handlers; null if none
+  private volatile ThreadPoolExecutor asyncHandlers;
   private CallQueueManager<Call> callQueue;
 
+  // aligns the state seen by clients with the state of this server
+  private AlignmentContext alignmentContext;
+  // holds the calls waiting for the server state to catch up
+  private volatile CoordinatedCallWaiter coordinatedCallWaiter;
+  private final long coordinatedCallMaxWaitNanos;
+
   // maintains the set of client connections and handles idle timeouts
   private ConnectionManager connectionManager;
   private Listener listener = null;
@@ -502,6 +537,10 @@ void logSlowRpcCalls(String methodName, int processingTime) {
 
   void updateMetrics(String name, int queueTime, int processingTime,
                      boolean deferredCall) {
+    ProcessingDetails details = getProcessingDetails();
+    if (details != null) {
+      details.setMethodName(name);
+    }
     rpcMetrics.addRpcQueueTime(queueTime);
     if (!deferredCall) {
       rpcMetrics.addRpcProcessingTime(processingTime);
@@ -519,6 +558,23 @@ void updateDeferredMetrics(String name, long processingTime) {
     rpcDetailedMetrics.addDeferredProcessingTime(name, processingTime);
   }
 
+  /**
+   * Record the phase times of a call whose response has been sent. Calls
+   * which did not reach the rpc engine, e.g. calls rejected by the call
+   * queue, have no method name and are not recorded.
+   */
+  private void updateProcessingDetails(ProcessingDetails details) {
+    details.endPhase(Phase.RESPONSE_SEND);
+    String name = details.getMethodName();
+    if (name != null) {
+      rpcMetrics.addProcessingDetails(details);
+      rpcDetailedMetrics.addProcessingDetails(name, details);
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Served " + details);
+      }
+    }
+  }
+
   /**
    * A convenience method to bind to a given address and report 
    * better exceptions if the address is not a valid host.
@@ -639,7 +695,9 @@ static Class<? extends RpcScheduler> getSchedulerClass(
       Class<?> queueClass = conf.getClass(queueKeyName, null);
       if (queueClass != null) {
         if (queueClass.getCanonicalName().equals(
-            FairCallQueue.class.getCanonicalName())) {
+            FairCallQueue.class.getCanonicalName())
+            || queueClass.getCanonicalName().equals(
+            LockFreeFairCallQueue.class.getCanonicalName())) {
           conf.setClass(schedulerKeyname, DecayRpcScheduler.class,
               RpcScheduler.class);
         }
@@ -687,6 +745,10 @@ public static class Call implements Schedulable,
     private boolean deferredResponse = false;
     private int priorityLevel;
     // the priority level assigned by scheduler, 0 by default
+    private long clientStateId = Long.MIN_VALUE;
+    // the state id the client has seen, if it sent one
+    ProcessingDetails processingDetails;
+    // the phase times of the call, null unless the call is timed
 
     Call() {
       this(RpcConstants.INVALID_CALL_ID, RpcConstants.INVALID_RETRY_COUNT,
@@ -794,6 +856,22 @@ public void setPriorityLevel(int priorityLevel) {
       this.priorityLevel = priorityLevel;
     }
 
+    public long getClientStateId() {
+      return this.clientStateId;
+    }
+
+    public void setClientStateId(long stateId) {
+      this.clientStateId = stateId;
+    }
+
+    /**
+     * @return true if the client sent the state id it has seen, so the call
+     * must not be served from older state.
+     */
+    public boolean isCallCoordinated() {
+      return this.clientStateId != Long.MIN_VALUE;
+    }
+
     @InterfaceStability.Unstable
     public void deferResponse() {
       this.deferredResponse = true;
@@ -804,6 +882,60 @@ public boolean isResponseDeferred() {
       return this.deferredResponse;
     }
 
+    /**
+     * Defer the response of this call and compute it on the given executor,
+     * so the handler thread can return to the call queue as soon as the
+     * current method returns. The task runs as the remote user with this
+     * call as the current call. Its result is sent with
+     * {@link #setDeferredResponse(Writable)} and its failure with
+     * {@link #setDeferredError(Throwable)}; a null result means the task has
+     * deferred the response again. If the executor rejects the task, it is
+     * run on the calling thread.
+     *
+     * @param executor the executor to run the task on, usually the async
+     *                 handlers of the server, see
+     *                 {@link Server#getAsyncHandlerExecutor()}.
+     * @param task computes the response of this call.
+     */
+    @InterfaceStability.Unstable
+    @InterfaceAudience.LimitedPrivate({"HDFS"})
+    public void deferResponse(Executor executor,
+        final PrivilegedExceptionAction<Writable> task) {
+      deferResponse();
+      Runnable completion = new Runnable() {
+        @Override
+        public void run() {
+          runDeferred(task);
+        }
+      };
+      try {
+        executor.execute(completion);
+      } catch (RejectedExecutionException e) {
+        // the executor is saturated, push back on the call queue instead
+        completion.run();
+      }
+    }
+
+    private void runDeferred(PrivilegedExceptionAction<Writable> task) {
+      final Call prevCall = CurCall.get();
+      final CallerContext prevContext = CallerContext.getCurrent();
+      CurCall.set(this);
+      CallerContext.setCurrent(callerContext);
+      try {
+        UserGroupInformation remoteUser = getRemoteUser();
+        Writable response = (remoteUser != null) ?
+            remoteUser.doAs(task) : task.run();
+        if (response != null) {
+          setDeferredResponse(response);
+        }
+      } catch (Throwable t) {
+        setDeferredError(t);
+      } finally {
+        CurCall.set(prevCall);
+        CallerContext.setCurrent(prevContext);
+      }
+    }
+
     public void setDeferredResponse(Writable response) {
     }
 
@@ -816,11 +948,14 @@ private class RpcCall extends Call {
     final Connection connection;  // connection to client
     final Writable rpcRequest;    // Serialized Rpc request from client
     ByteBuffer rpcResponse;       // the response for this call
+    private ByteBuffer requestBuffer; // pooled buffer the request is read from
+    boolean stateAligned; // whether the call exchanges state with the client
 
     RpcCall(RpcCall call) {
       super(call);
       this.connection = call.connection;
       this.rpcRequest = call.rpcRequest;
+      this.stateAligned = call.stateAligned;
     }
 
     RpcCall(Connection connection, int id) {
@@ -856,6 +991,14 @@ public InetAddress getHostInetAddress() {
       return connection.getHostInetAddress();
     }
 
+    /**
+     * Hand the pooled buffer holding the serialized request to this call,
+     * which returns it to the pool once the request has been processed.
+     */
+    void setRequestBuffer(ByteBuffer buffer) {
+      this.requestBuffer = buffer;
+    }
+
     @Override
     public Void run() throws Exception {
       if (!connection.channel.isOpen()) {
@@ -872,6 +1015,7 @@ public Void run() throws Exception {
         populateResponseParamsOnError(e, responseParams);
       }
       if (!isResponseDeferred()) {
+        endProcessing();
         setupResponse(this, responseParams.returnStatus,
             responseParams.detailedErr,
             value, responseParams.errorClass, responseParams.error);
@@ -881,6 +1025,13 @@ public Void run() throws Exception {
           LOG.debug("Deferring response for callId: " + this.callId);
         }
       }
+      // the rpc engine has deserialized the request, so its buffer may be
+      // reused. After a failure the request may still be parsed again to
+      // log the call, so the buffer is left to the garbage collector.
+      if (requestBuffer != null && responseParams.error == null) {
+        putRequestBuffer(requestBuffer);
+        requestBuffer = null;
+      }
       return null;
     }
 
@@ -918,6 +1069,13 @@ void setResponse(ByteBuffer response) throws IOException {
       this.rpcResponse = response;
     }
 
+    /** End the processing phase, the response is ready to be set up. */
+    private void endProcessing() {
+      if (processingDetails != null) {
+        processingDetails.endPhase(Phase.PROCESSING);
+      }
+    }
+
     @Override
     void doResponse(Throwable t) throws IOException {
       RpcCall call = this;
@@ -953,6 +1111,7 @@ private void sendDeferedResponse() {
     @Override
     public void setDeferredResponse(Writable response) {
       if (this.connection.getServer().running) {
+        endProcessing();
         try {
           setupResponse(this, RpcStatusProto.SUCCESS, null, response,
               null, null);
@@ -977,6 +1136,7 @@ public void setDeferredError(Throwable t) {
           t = new IOException(
               "User code indicated an error without an exception");
         }
+        endProcessing();
         try {
           ResponseParams responseParams = new ResponseParams();
           populateResponseParamsOnError(t, responseParams);
@@ -1471,6 +1631,9 @@ private boolean processResponse(LinkedList<RpcCall> responseQueue,
             //Clear out the response buffer so it can be collected
             call.rpcResponse = null;
             call.connection.decRpcCount();
+            if (call.processingDetails != null) {
+              updateProcessingDetails(call.processingDetails);
+            }
             if (numElements == 1) {    // last call fully processes.
               done = true;             // no more data for this channel.
             } else {
@@ -1531,6 +1694,9 @@ void doRespond(RpcCall call) throws IOException {
         if (call.connection.useWrap) {
           wrapWithSasl(call);
         }
+        if (call.processingDetails != null) {
+          call.processingDetails.endPhase(Phase.RESPONSE_ENQUEUE);
+        }
         call.connection.responseQueue.addLast(call);
         if (call.connection.responseQueue.size() == 1) {
           processResponse(call.connection.responseQueue, true);
@@ -2088,7 +2254,7 @@ public int readAndProcess() throws IOException, InterruptedException {
           dataLength = dataLengthBuffer.getInt();
           checkDataLength(dataLength);
           // Set buffer for reading EXACTLY the RPC-packet length and no more.
-          data = ByteBuffer.allocate(dataLength);
+          data = getRequestBuffer(dataLength);
         }
         // Now read the RPC packet
         count = channelRead(channel, data);
@@ -2298,7 +2464,7 @@ private void unwrapPacketAndProcessRpcs(byte[] inBuf)
         if (unwrappedData == null) {
           unwrappedDataLengthBuffer.flip();
           int unwrappedDataLength = unwrappedDataLengthBuffer.getInt();
-          unwrappedData = ByteBuffer.allocate(unwrappedDataLength);
+          unwrappedData = getRequestBuffer(unwrappedDataLength);
         }
 
         count = channelRead(ch, unwrappedData);
@@ -2351,6 +2517,8 @@ private void processOneRpc(ByteBuffer bb)
 
         if (callId < 0) { // callIds typically used during connection setup
           processRpcOutOfBandRequest(header, buffer);
+          // the request has been processed, nothing refers to it anymore
+          putRequestBuffer(bb);
         } else if (!connectionContextRead) {
           throw new FatalRpcServerException(
               RpcErrorCodeProto.FATAL_INVALID_RPC_HEADER,
@@ -2475,11 +2643,22 @@ private void processRpcRequest(RpcRequestHeaderProto header,
           header.getRetryCount(), rpcRequest,
           ProtoUtil.convert(header.getRpcKind()),
           header.getClientId().toByteArray(), traceScope, callerContext);
+      call.setRequestBuffer(buffer.getByteBuffer());
+      if (phaseTimingEnabled) {
+        call.processingDetails = new ProcessingDetails();
+      }
 
       // Save the priority level assignment by the scheduler
       call.setPriorityLevel(callQueue.getPriorityLevel(call));
 
       try {
+        if (alignmentContext != null && isCoordinatedCall(rpcRequest)) {
+          call.stateAligned = true;
+          if (header.hasStateId()) {
+            call.setClientStateId(
+                alignmentContext.receiveRequestState(header));
+          }
+        }
         internalQueueCall(call);
       } catch (RpcServerException rse) {
         throw rse;
@@ -2627,8 +2806,61 @@ public void queueCall(Call call) throws IOException, InterruptedException {
     }
   }
 
+  /**
+   * @return true if the alignment context coordinates the given request.
+   *         Only protobuf requests name their protocol and method, so
+   *         other requests are never coordinated.
+   */
+  private boolean isCoordinatedCall(Writable rpcRequest) {
+    if (!(rpcRequest instanceof ProtobufRpcEngine.RpcProtobufRequest)) {
+      return false;
+    }
+    RequestHeaderProto header;
+    try {
+      header = ((ProtobufRpcEngine.RpcProtobufRequest) rpcRequest)
+          .getRequestHeader();
+    } catch (IOException e) {
+      // the rpc engine reports the malformed request
+      return false;
+    }
+    return alignmentContext.isCoordinatedCall(
+        header.getDeclaringClassProtocolName(), header.getMethodName());
+  }
+
+  /**
+   * Get a buffer to read a request of the given length into. Its limit is
+   * the length of the request.
+   */
+  private ByteBuffer getRequestBuffer(int length) {
+    if (requestBufferPool != null) {
+      return requestBufferPool.getBuffer(false, length);
+    }
+    return ByteBuffer.allocate(length);
+  }
+
+  /**
+   * Return the buffer of a request which has been processed. Neither the
+   * buffer nor any view of it may be used afterwards.
+   */
+  private void putRequestBuffer(ByteBuffer buffer) {
+    if (requestBufferPool != null) {
+      requestBufferPool.putBuffer(buffer);
+    }
+  }
+
+  /**
+   * @return the pool of the buffers requests are read into, or null if
+   *         requests are read into newly allocated buffers.
+   */
+  public BoundedByteBufferPool getRequestBufferPool() {
+    return requestBufferPool;
+  }
+
   private void internalQueueCall(Call call)
       throws IOException, InterruptedException {
+    if (call.processingDetails != null) {
+      call.processingDetails.endPhase(Phase.ENQUEUE);
+    }
     try {
       callQueue.put(call); // queue the call; maybe blocked here
     } catch (CallQueueOverflowException cqe) {
@@ -2644,6 +2876,108 @@ private void internalQueueCall(Call call)
     }
   }
 
+  /**
+   * Put a call whose client state id has been reached back into the queue.
+   * If the queue is full the client is asked to retry, as blocking here
+   * could stall the other waiting calls.
+   */
+  private void requeueCall(Call call) {
+    if (!callQueue.offer(call)) {
+      rejectCoordinatedCall(call);
+    }
+  }
+
+  private static void rejectCoordinatedCall(Call call) {
+    call.setDeferredError(new RetriableException(
+        "Server state has not caught up with the client state id " +
+        call.getClientStateId()));
+  }
+
+  /**
+   * Holds the calls whose client state id is ahead of the server state, so
+   * that the handlers do not spin on them. The calls are put back into the
+   * call queue once the alignment context has caught up, which is checked
+   * whenever {@link #stateIdAdvanced()} is called and at least every
+   * {@link #RECHECK_INTERVAL_MS}. A call which waits longer than
+   * {@link CommonConfigurationKeys#IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_KEY}
+   * is answered with a {@link RetriableException}, so the client can try
+   * another server.
+   */
+  private class CoordinatedCallWaiter extends Thread {
+    private static final long RECHECK_INTERVAL_MS = 100;
+
+    /** The waiting calls and their deadlines, in the order they arrived. */
+    private final ArrayDeque<Call> calls = new ArrayDeque<Call>();
+    private final ArrayDeque<Long> deadlines = new ArrayDeque<Long>();
+    private boolean stateIdAdvanced;
+
+    CoordinatedCallWaiter() {
+      this.setName("IPC Server coordinated call waiter on " + port);
+      this.setDaemon(true);
+    }
+
+    synchronized void add(Call call) {
+      if (calls.size() >= maxQueueSize) {
+        rejectCoordinatedCall(call);
+        return;
+      }
+      calls.add(call);
+      deadlines.add(Time.monotonicNowNanos() + coordinatedCallMaxWaitNanos);
+      // the state may have advanced since the handler checked it
+      stateIdAdvanced();
+    }
+
+    synchronized void stateIdAdvanced() {
+      stateIdAdvanced = true;
+      notify();
+    }
+
+    @Override
+    public void run() {
+      LOG.debug(getName() + ": starting");
+      SERVER.set(Server.this);
+      while (running) {
+        try {
+          synchronized (this) {
+            if (calls.isEmpty() && !stateIdAdvanced) {
+              wait();
+            } else if (!stateIdAdvanced) {
+              wait(RECHECK_INTERVAL_MS);
+            }
+            stateIdAdvanced = false;
+            releaseCalls();
+          }
+        } catch (InterruptedException e) {
+          if (running) {
+            LOG.info(getName() + " unexpectedly interrupted", e);
+          }
+        }
+      }
+      LOG.debug(getName() + ": exiting");
+    }
+
+    /** Requeue the calls the server has caught up with, reject late ones. */
+    private void releaseCalls() {
+      final long lastSeenStateId = alignmentContext.getLastSeenStateId();
+      final long now = Time.monotonicNowNanos();
+      Iterator<Call> callIt = calls.iterator();
+      Iterator<Long> deadlineIt = deadlines.iterator();
+      while (callIt.hasNext()) {
+        Call call = callIt.next();
+        long deadline = deadlineIt.next();
+        if (call.getClientStateId() <= lastSeenStateId) {
+          callIt.remove();
+          deadlineIt.remove();
+          requeueCall(call);
+        } else if (now - deadline >= 0) {
+          callIt.remove();
+          deadlineIt.remove();
+          rejectCoordinatedCall(call);
+        }
+      }
+    }
+  }
+
   /** Handles queued calls . */
   private class Handler extends Thread {
     public Handler(int instanceNumber) {
@@ -2659,6 +2993,15 @@ public void run() {
         TraceScope traceScope = null;
         try {
           final Call call = callQueue.take(); // pop the queue; maybe blocked here
+          if (alignmentContext != null && call.isCallCoordinated() &&
+              call.getClientStateId() > alignmentContext.getLastSeenStateId()) {
+            // the client has seen newer state than this server has applied
+            coordinatedCallWaiter.add(call);
+            continue;
+          }
+          if (call.processingDetails != null) {
+            call.processingDetails.endPhase(Phase.QUEUE);
+          }
           if (LOG.isDebugEnabled()) {
             LOG.debug(Thread.currentThread().getName() + ": " + call + " for RpcKind " + call.rpcKind);
           }
@@ -2767,6 +3110,22 @@ protected Server(String bindAddress, int port,
     this.socketSendBufferSize = 0;
     this.maxDataLength = conf.getInt(CommonConfigurationKeys.IPC_MAXIMUM_DATA_LENGTH,
         CommonConfigurationKeys.IPC_MAXIMUM_DATA_LENGTH_DEFAULT);
+    if (conf.getBoolean(
+        CommonConfigurationKeys.IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_KEY,
+        CommonConfigurationKeys.
+            IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_DEFAULT)) {
+      this.requestBufferPool = new BoundedByteBufferPool(false,
+          conf.getInt(CommonConfigurationKeys.
+                  IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_KEY,
+              CommonConfigurationKeys.
+                  IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_DEFAULT),
+          conf.getLong(CommonConfigurationKeys.
+                  IPC_SERVER_REQUEST_BUFFER_POOL_MAX_POOLED_BYTES_KEY,
+              CommonConfigurationKeys.
+                  IPC_SERVER_REQUEST_BUFFER_POOL_MAX_POOLED_BYTES_DEFAULT));
+    } else {
+      this.requestBufferPool = null;
+    }
     if (queueSizePerHandler != -1) {
       this.maxQueueSize = handlerCount * queueSizePerHandler;
     } else {
@@ -2809,6 +3168,14 @@ protected Server(String bindAddress, int port,
     connectionManager = new ConnectionManager();
     this.rpcMetrics = RpcMetrics.create(this, conf);
     this.rpcDetailedMetrics = RpcDetailedMetrics.create(this.port);
+    this.phaseTimingEnabled = conf.getBoolean(
+        CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE,
+        CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT);
+    this.coordinatedCallMaxWaitNanos = TimeUnit.MILLISECONDS.toNanos(
+        conf.getLong(
+            CommonConfigurationKeys.IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_KEY,
+            CommonConfigurationKeys.
+                IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_DEFAULT));
     this.tcpNoDelay = conf.getBoolean(
         CommonConfigurationKeysPublic.IPC_SERVER_TCPNODELAY_KEY,
         CommonConfigurationKeysPublic.IPC_SERVER_TCPNODELAY_DEFAULT);
@@ -2906,6 +3273,9 @@ private void setupResponse(
     headerBuilder.setRetryCount(call.retryCount);
     headerBuilder.setStatus(status);
     headerBuilder.setServerIpcVersionNum(CURRENT_VERSION);
+    if (alignmentContext != null && call.stateAligned) {
+      alignmentContext.updateResponseState(headerBuilder);
+    }
 
     if (status == RpcStatusProto.SUCCESS) {
       RpcResponseHeaderProto header = headerBuilder.build();
@@ -3057,8 +3427,55 @@ public void setTracer(Tracer t) {
     this.tracer = t;
   }
 
+  /**
+   * Set the alignment context which exchanges state with clients through the
+   * RPC headers of the calls it coordinates. Calls carrying a client state id
+   * ahead of the server state are held back until the server has caught up.
+   * Must be set before the server is started.
+   */
+  public void setAlignmentContext(AlignmentContext alignmentContext) {
+    this.alignmentContext = alignmentContext;
+  }
+
+  /**
+   * Notify the server that the state id of its alignment context has
+   * advanced, so the calls waiting for it are served without delay.
+   */
+  public void stateIdAdvanced() {
+    CoordinatedCallWaiter waiter = coordinatedCallWaiter;
+    if (waiter != null) {
+      waiter.stateIdAdvanced();
+    }
+  }
+
   /** Starts the service.  Must be called before any calls will be handled. */
   public synchronized void start() {
+    if (asyncHandlerCount > 0) {
+      // bounded like the call queue, so a saturated pool pushes back on it
+      asyncHandlers = new ThreadPoolExecutor(asyncHandlerCount,
+          asyncHandlerCount, 0L, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueueSize)),
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("IPC Server async handler %d on " + port)
+              .setThreadFactory(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                  return new Thread() {
+                    @Override
+                    public void run() {
+                      SERVER.set(Server.this);
+                      r.run();
+                    }
+                  };
+                }
+              })
+              .build());
+    }
+    if (alignmentContext != null) {
+      coordinatedCallWaiter = new CoordinatedCallWaiter();
+      coordinatedCallWaiter.start();
+    }
     responder.start();
     listener.start();
     handlers = new Handler[handlerCount];
@@ -3080,6 +3497,12 @@ public synchronized void stop() {
         }
       }
     }
+    if (asyncHandlers != null) {
+      asyncHandlers.shutdownNow();
+    }
+    if (coordinatedCallWaiter != null) {
+      coordinatedCallWaiter.interrupt();
+    }
     listener.interrupt();
     listener.doStop();
     responder.interrupt();
@@ -3088,6 +3511,32 @@ public synchronized void stop() {
     this.rpcDetailedMetrics.shutdown();
   }
 
+  /**
+   * Set the number of async handler threads, which complete the calls
+   * whose response the handlers defer with
+   * {@link Call#deferResponse(Executor, PrivilegedExceptionAction)}. There
+   * are none by default. It must be set before the server is started.
+   */
+  @InterfaceStability.Unstable
+  @InterfaceAudience.LimitedPrivate({"HDFS"})
+  public synchronized void setAsyncHandlerCount(int count) {
+    Preconditions.checkState(asyncHandlers == null,
+        "The async handlers have already been started");
+    Preconditions.checkArgument(count >= 0,
+        "Async handler count %s < 0", count);
+    this.asyncHandlerCount = count;
+  }
+
+  /**
+   * @return the executor of the async handler threads, or null if the
+   * server has none or has not been started.
+   */
+  @InterfaceStability.Unstable
+  @InterfaceAudience.LimitedPrivate({"HDFS"})
+  public Executor getAsyncHandlerExecutor() {
+    return asyncHandlers;
+  }
+
   /** Wait for the server to be stopped.
    * Does not wait for all subthreads to finish.
    *  See {@link #stop()}.
@@ -3202,6 +3651,17 @@ public void setClientBackoffEnabled(boolean value) {
     callQueue.setClientBackoffEnabled(value);
   }
 
+  public boolean isPhaseTimingEnabled() {
+    return phaseTimingEnabled;
+  }
+
+  /**
+   * Enable or disable timing the phases of the calls received from now on.
+   */
+  public void setPhaseTimingEnabled(boolean value) {
+    this.phaseTimingEnabled = value;
+  }
+
   /**
    * The maximum size of the rpc call queue of this server.
    * @return The maximum size of the rpc call queue.
@@ -314,6 +314,20 @@ public <T> ProtocolProxy<T> getProxy(Class<T> protocol, long clientVersion,
             factory, rpcTimeout, fallbackToSimpleAuth));
     return new ProtocolProxy<T>(protocol, proxy, true);
   }
+
+  /** Construct a client-side proxy object which ignores the alignment
+   * context: Writable RPCs do not exchange state with the server. */
+  @Override
+  public <T> ProtocolProxy<T> getProxy(Class<T> protocol, long clientVersion,
+                         InetSocketAddress addr, UserGroupInformation ticket,
+                         Configuration conf, SocketFactory factory,
+                         int rpcTimeout, RetryPolicy connectionRetryPolicy,
+                         AtomicBoolean fallbackToSimpleAuth,
+                         AlignmentContext alignmentContext)
+    throws IOException {
+    return getProxy(protocol, clientVersion, addr, ticket, conf, factory,
+        rpcTimeout, connectionRetryPolicy, fallbackToSimpleAuth);
+  }
   
   /* Construct a server for a protocol implementation instance listening on a
    * port and address. */
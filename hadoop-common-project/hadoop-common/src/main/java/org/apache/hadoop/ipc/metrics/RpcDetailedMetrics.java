@@ -17,7 +17,11 @@
  */
 package org.apache.hadoop.ipc.metrics;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.ipc.ProcessingDetails;
+import org.apache.hadoop.ipc.ProcessingDetails.Phase;
 import org.apache.hadoop.metrics2.annotation.Metric;
 import org.apache.hadoop.metrics2.annotation.Metrics;
 import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
@@ -36,6 +40,7 @@ public class RpcDetailedMetrics {
 
   @Metric MutableRatesWithAggregation rates;
   @Metric MutableRatesWithAggregation deferredRpcRates;
+  @Metric MutableRatesWithAggregation phaseRates;
 
   static final Logger LOG = LoggerFactory.getLogger(RpcDetailedMetrics.class);
   final MetricsRegistry registry;
@@ -78,6 +83,19 @@ public void addDeferredProcessingTime(String name, long processingTime) {
     deferredRpcRates.add(name, processingTime);
   }
 
+  /**
+   * Add the phase times of an RPC call, in microseconds, under names of the
+   * form MethodNamePhaseTimeMicros.
+   * @param name  of the RPC call
+   * @param details  the phase times of the call
+   */
+  public void addProcessingDetails(String name, ProcessingDetails details) {
+    for (Phase phase : Phase.values()) {
+      phaseRates.add(name + phase.getName() + "TimeMicros",
+          details.get(phase, TimeUnit.MICROSECONDS));
+    }
+  }
+
   /**
    * Shutdown the instrumentation for the process
    */
@@ -17,7 +17,12 @@
  */
 package org.apache.hadoop.ipc.metrics;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.BoundedByteBufferPool;
+import org.apache.hadoop.ipc.ProcessingDetails;
+import org.apache.hadoop.ipc.ProcessingDetails.Phase;
 import org.apache.hadoop.ipc.Server;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
@@ -56,7 +61,15 @@ public class RpcMetrics {
     rpcQuantileEnable = (intervals.length > 0) && conf.getBoolean(
         CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE,
         CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE_DEFAULT);
+    phaseTimeMicros = new MutableRate[Phase.values().length];
+    for (Phase phase : Phase.values()) {
+      phaseTimeMicros[phase.ordinal()] = registry.newRate(
+          "rpcPhase" + phase.getName() + "TimeMicros",
+          "rpc " + phase.getName() + " phase time in micro seconds", false);
+    }
     if (rpcQuantileEnable) {
+      phaseTimeMicrosQuantiles =
+          new MutableQuantiles[Phase.values().length][intervals.length];
       rpcQueueTimeMillisQuantiles =
           new MutableQuantiles[intervals.length];
       rpcProcessingTimeMillisQuantiles =
@@ -75,6 +88,13 @@ public class RpcMetrics {
             .newQuantiles("deferredRpcProcessingTime" + interval + "s",
                 "deferred rpc processing time in milli seconds", "ops",
                 "latency", interval);
+        for (Phase phase : Phase.values()) {
+          phaseTimeMicrosQuantiles[phase.ordinal()][i] = registry
+              .newQuantiles("rpcPhase" + phase.getName() + "TimeMicros"
+                  + interval + "s", "rpc " + phase.getName()
+                  + " phase time in micro seconds", "ops", "latency",
+                  interval);
+        }
       }
     }
     LOG.debug("Initialized " + registry);
@@ -95,6 +115,8 @@ public static RpcMetrics create(Server server, Configuration conf) {
   MutableQuantiles[] rpcProcessingTimeMillisQuantiles;
   @Metric("Deferred Processing time") MutableRate deferredRpcProcessingTime;
   MutableQuantiles[] deferredRpcProcessingTimeMillisQuantiles;
+  final MutableRate[] phaseTimeMicros;
+  MutableQuantiles[][] phaseTimeMicrosQuantiles;
   @Metric("Number of authentication failures")
   MutableCounterLong rpcAuthenticationFailures;
   @Metric("Number of authentication successes")
@@ -125,6 +147,40 @@ public String numOpenConnectionsPerUser() {
     return server.getNumDroppedConnections();
   }
 
+  @Metric(value = "Number of request buffers taken from the pool",
+      type = Metric.Type.COUNTER)
+  public long requestBufferPoolHits() {
+    BoundedByteBufferPool pool = server.getRequestBufferPool();
+    return pool == null ? 0 : pool.getHits();
+  }
+
+  @Metric(value = "Number of request buffers allocated",
+      type = Metric.Type.COUNTER)
+  public long requestBufferPoolAllocations() {
+    BoundedByteBufferPool pool = server.getRequestBufferPool();
+    return pool == null ? 0 : pool.getAllocations();
+  }
+
+  @Metric(value = "Total size of the request buffers allocated",
+      type = Metric.Type.COUNTER)
+  public long requestBufferPoolAllocatedBytes() {
+    BoundedByteBufferPool pool = server.getRequestBufferPool();
+    return pool == null ? 0 : pool.getAllocatedBytes();
+  }
+
+  @Metric(value = "Total size of the request buffers dropped by the full pool",
+      type = Metric.Type.COUNTER)
+  public long requestBufferPoolDroppedBytes() {
+    BoundedByteBufferPool pool = server.getRequestBufferPool();
+    return pool == null ? 0 : pool.getDroppedBytes();
+  }
+
+  @Metric("Total size of the idle request buffers in the pool")
+  public long requestBufferPoolPooledBytes() {
+    BoundedByteBufferPool pool = server.getRequestBufferPool();
+    return pool == null ? 0 : pool.getPooledBytes();
+  }
+
   // Public instrumentation methods that could be extracted to an
   // abstract class if we decide to do custom instrumentation classes a la
   // JobTrackerInstrumentation. The methods with //@Override comment are
@@ -223,6 +279,22 @@ public void addDeferredRpcProcessingTime(long processingTime) {
     }
   }
 
+  /**
+   * Add the phase times of a call, see {@link ProcessingDetails}
+   * @param details the phase times of the call
+   */
+  public void addProcessingDetails(ProcessingDetails details) {
+    for (Phase phase : Phase.values()) {
+      long micros = details.get(phase, TimeUnit.MICROSECONDS);
+      phaseTimeMicros[phase.ordinal()].add(micros);
+      if (rpcQuantileEnable) {
+        for (MutableQuantiles q : phaseTimeMicrosQuantiles[phase.ordinal()]) {
+          q.add(micros);
+        }
+      }
+    }
+  }
+
   /**
    * One client backoff event
    */
@@ -1320,6 +1320,16 @@ public void testTimeDuration() {
     conf.set("test.time.d", "30S");
     assertEquals(30L, conf.getTimeDuration("test.time.d", 40, SECONDS));
 
+    // check separate default and return units
+    assertEquals(40000L,
+        conf.getTimeDuration("test.time.e", 40, SECONDS, MILLISECONDS));
+    conf.set("test.time.e", "30");
+    assertEquals(30000L,
+        conf.getTimeDuration("test.time.e", 40, SECONDS, MILLISECONDS));
+    conf.set("test.time.e", "100ms");
+    assertEquals(100L,
+        conf.getTimeDuration("test.time.e", 40, SECONDS, MILLISECONDS));
+
     for (Configuration.ParsedTimeDuration ptd :
         Configuration.ParsedTimeDuration.values()) {
       conf.setTimeDuration("test.time.unit", 1, ptd.unit());
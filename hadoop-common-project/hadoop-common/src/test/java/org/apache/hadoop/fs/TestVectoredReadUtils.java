@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs;
+
+import java.io.EOFException;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the vectored read helpers and the default vectored read.
+ */
+public class TestVectoredReadUtils {
+
+  @Test
+  public void testMergeSortedRanges() {
+    List<FileRange> ranges = VectoredReadUtils.prepareRanges(Arrays.asList(
+        FileRange.createFileRange(2000, 100),
+        FileRange.createFileRange(0, 100),
+        FileRange.createFileRange(150, 100),
+        FileRange.createFileRange(1000, 100),
+        FileRange.createFileRange(1050, 10)), 10000);
+    assertEquals(0, ranges.get(0).getOffset());
+    assertEquals(2000, ranges.get(4).getOffset());
+
+    // gaps of less than 100 bytes are read through
+    List<CombinedFileRange> combined =
+        VectoredReadUtils.mergeSortedRanges(ranges, 100, 1000);
+    assertEquals(3, combined.size());
+    assertEquals(0, combined.get(0).getOffset());
+    assertEquals(250, combined.get(0).getLength());
+    assertEquals(2, combined.get(0).getUnderlying().size());
+    // overlapping ranges are combined
+    assertEquals(1000, combined.get(1).getOffset());
+    assertEquals(100, combined.get(1).getLength());
+    assertEquals(2, combined.get(1).getUnderlying().size());
+    assertEquals(1, combined.get(2).getUnderlying().size());
+
+    // combined ranges are limited in size
+    combined = VectoredReadUtils.mergeSortedRanges(ranges, 100, 200);
+    assertEquals(4, combined.size());
+  }
+
+  @Test
+  public void testSliceTo() throws Exception {
+    FileRange first = FileRange.createFileRange(100, 10);
+    FileRange second = FileRange.createFileRange(120, 5);
+    List<FileRange> ranges =
+        VectoredReadUtils.prepareRanges(Arrays.asList(first, second), 1000);
+    CombinedFileRange combined =
+        VectoredReadUtils.mergeSortedRanges(ranges, 100, 1000).get(0);
+
+    ByteBuffer data = ByteBuffer.allocate(combined.getLength());
+    for (int i = 0; i < combined.getLength(); i++) {
+      data.put((byte) i);
+    }
+    data.flip();
+    VectoredReadUtils.completeUnderlying(combined, data);
+    ByteBuffer buf = second.getData().get();
+    assertEquals(5, buf.remaining());
+    assertEquals(20, buf.get(0));
+    assertEquals(10, first.getData().get().remaining());
+    assertEquals(0, data.position());
+  }
+
+  @Test
+  public void testPrepareRanges() throws Exception {
+    FileRange inFile = FileRange.createFileRange(0, 100);
+    FileRange pastEOF = FileRange.createFileRange(950, 100);
+    List<FileRange> ranges =
+        VectoredReadUtils.prepareRanges(Arrays.asList(pastEOF, inFile), 1000);
+    // the range past the end of the file is not read, nor combined
+    assertEquals(1, ranges.size());
+    assertSame(inFile, ranges.get(0));
+    assertFalse(inFile.getData().isDone());
+    try {
+      pastEOF.getData().get();
+      fail("A range past the end of the file should fail");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof EOFException);
+    }
+
+    // an invalid range fails all of them before any is prepared
+    FileRange valid = FileRange.createFileRange(0, 10);
+    try {
+      VectoredReadUtils.prepareRanges(Arrays.asList(valid,
+          FileRange.createFileRange(10, -1)), 1000);
+      fail("A negative length should be rejected");
+    } catch (IllegalArgumentException expected) {
+    }
+    assertSame(null, valid.getData());
+  }
+
+  @Test
+  public void testDefaultReadVectored() throws Exception {
+    File dir = GenericTestUtils.getTestDir("TestVectoredReadUtils");
+    Path file = new Path(dir.getAbsolutePath(), "file");
+    FileSystem fs = FileSystem.getLocal(new Configuration());
+    byte[] bytes = new byte[4096];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 251);
+    }
+    try (FSDataOutputStream out = fs.create(file, true)) {
+      out.write(bytes);
+    }
+
+    List<FileRange> ranges = Arrays.asList(
+        FileRange.createFileRange(3000, 100),
+        FileRange.createFileRange(0, 10),
+        FileRange.createFileRange(4000, 200));
+    try (FSDataInputStream in = fs.open(file)) {
+      in.readVectored(ranges, ByteBuffer::allocateDirect);
+      for (int i = 0; i < 2; i++) {
+        FileRange range = ranges.get(i);
+        ByteBuffer buf = range.getData().get();
+        assertEquals(range.getLength(), buf.remaining());
+        for (int j = 0; j < range.getLength(); j++) {
+          assertEquals(bytes[(int) range.getOffset() + j], buf.get());
+        }
+      }
+      try {
+        ranges.get(2).getData().get();
+        fail("A range past the end of the file should fail");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof EOFException);
+      }
+      // the stream position is unchanged
+      assertEquals(0, in.getPos());
+    } finally {
+      fs.delete(file, false);
+    }
+  }
+
+  @Test
+  public void testFileRange() {
+    FileRange range = FileRange.createFileRange(10, 20);
+    assertEquals(10, range.getOffset());
+    assertEquals(20, range.getLength());
+    assertSame(null, range.getData());
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Test {@link BoundedByteBufferPool}.
+ */
+public class TestBoundedByteBufferPool {
+
+  @Test
+  public void testReuse() {
+    BoundedByteBufferPool pool = new BoundedByteBufferPool(true, 4096, 4096);
+    ByteBuffer first = pool.getBuffer(true, 1000);
+    assertTrue(first.isDirect());
+    assertEquals(1000, first.capacity());
+    assertEquals(0, pool.getHits());
+    assertEquals(1, pool.getAllocations());
+
+    first.put((byte) 1);
+    pool.putBuffer(first);
+    assertEquals(1000, pool.getPooledBytes());
+
+    // a buffer is reused for a request of at least half its capacity
+    assertNotSame(first, pool.getBuffer(true, 499));
+    ByteBuffer second = pool.getBuffer(true, 500);
+    assertSame(first, second);
+    assertEquals(0, second.position());
+    assertEquals(500, second.limit());
+    assertEquals(1, pool.getHits());
+    assertEquals(0, pool.getPooledBytes());
+
+    // but not for a larger one
+    pool.putBuffer(second);
+    assertNotSame(first, pool.getBuffer(true, 1001));
+    assertEquals(3, pool.getAllocations());
+    assertEquals(2500, pool.getAllocatedBytes());
+  }
+
+  @Test
+  public void testOnlyPoolsOneKind() {
+    BoundedByteBufferPool pool = new BoundedByteBufferPool(false, 4096, 4096);
+    ByteBuffer direct = pool.getBuffer(true, 100);
+    assertTrue(direct.isDirect());
+    pool.putBuffer(direct);
+    // buffers larger than the largest pooled size are not pooled either
+    ByteBuffer large = pool.getBuffer(false, 5000);
+    assertFalse(large.isDirect());
+    pool.putBuffer(large);
+    assertEquals(0, pool.getPooledBytes());
+    assertEquals(0, pool.getDroppedBytes());
+
+    ByteBuffer heap = pool.getBuffer(false, 100);
+    pool.putBuffer(heap);
+    assertEquals(100, pool.getPooledBytes());
+    assertSame(heap, pool.getBuffer(false, 100));
+    assertEquals(3, pool.getAllocations());
+  }
+
+  @Test
+  public void testPooledBytesAreBounded() {
+    BoundedByteBufferPool pool = new BoundedByteBufferPool(true, 4096, 1024);
+    ByteBuffer first = pool.getBuffer(true, 600);
+    ByteBuffer second = pool.getBuffer(true, 600);
+    pool.putBuffer(first);
+    // the pool is full, so the second buffer is dropped
+    pool.putBuffer(second);
+    assertEquals(600, pool.getPooledBytes());
+    assertEquals(600, pool.getDroppedBytes());
+    assertSame(first, pool.getBuffer(true, 600));
+    assertNotSame(second, pool.getBuffer(true, 600));
+    assertEquals(0, pool.getPooledBytes());
+  }
+}
@@ -21,6 +21,8 @@
 import org.apache.hadoop.io.erasurecode.rawcoder.NativeRSRawEncoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.NativeRSRawDecoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.NativeRSRawErasureCoderFactory;
+import org.apache.hadoop.io.erasurecode.rawcoder.RSFastRawDecoder;
+import org.apache.hadoop.io.erasurecode.rawcoder.RSFastRawEncoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.RSLegacyRawDecoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.RSLegacyRawEncoder;
 import org.apache.hadoop.io.erasurecode.rawcoder.RSRawDecoder;
@@ -63,8 +65,8 @@ public void testRSDefaultRawCoder() {
       Assert.assertTrue(encoder instanceof NativeRSRawEncoder);
       Assert.assertTrue(decoder instanceof NativeRSRawDecoder);
     } else {
-      Assert.assertTrue(encoder instanceof RSRawEncoder);
-      Assert.assertTrue(decoder instanceof RSRawDecoder);
+      Assert.assertTrue(encoder instanceof RSFastRawEncoder);
+      Assert.assertTrue(decoder instanceof RSFastRawDecoder);
     }
 
     // should return default raw coder of rs-legacy codec
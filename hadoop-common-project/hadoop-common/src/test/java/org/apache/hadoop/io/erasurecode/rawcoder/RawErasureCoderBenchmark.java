@@ -63,13 +63,15 @@ private RawErasureCoderBenchmark() {
           Arrays.asList(new DummyRawErasureCoderFactory(),
               new RSLegacyRawErasureCoderFactory(),
               new RSRawErasureCoderFactory(),
-              new NativeRSRawErasureCoderFactory()));
+              new NativeRSRawErasureCoderFactory(),
+              new RSFastRawErasureCoderFactory()));
 
   enum CODER {
     DUMMY_CODER("Dummy coder"),
     LEGACY_RS_CODER("Legacy Reed-Solomon Java coder"),
     RS_CODER("Reed-Solomon Java coder"),
-    ISAL_CODER("ISA-L coder");
+    ISAL_CODER("ISA-L coder"),
+    RS_FAST_CODER("Reed-Solomon Java coder on long words");
 
     private final String name;
 
@@ -44,6 +44,8 @@
 import java.lang.management.ThreadMXBean;
 import java.net.InetSocketAddress;
 import java.security.PrivilegedExceptionAction;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -67,6 +69,9 @@ private static class MyOptions {
     private int msgSize = 1024;
     public Class<? extends RpcEngine> rpcEngine =
         ProtobufRpcEngine.class;
+    private Class<?> callQueue = LinkedBlockingQueue.class;
+    private int connectionsPerRemote = 1;
+    private boolean pipelinedWrites = false;
     
     private MyOptions(String args[]) {
       try {
@@ -137,6 +142,25 @@ private Options buildOptions() {
           .withDescription("engine to use")
           .create('e'));
       
+      opts.addOption(
+          OptionBuilder.withLongOpt("callQueue").hasArg(true)
+          .withArgName("lbq|fcq|lockfree")
+          .withDescription("call queue of the server: LinkedBlockingQueue,"
+              + " FairCallQueue or LockFreeFairCallQueue")
+          .create('q'));
+
+      opts.addOption(
+          OptionBuilder.withLongOpt("connections").hasArg(true)
+          .withArgName("numconnections")
+          .withDescription("number of connections from the client to the"
+              + " server")
+          .create('n'));
+
+      opts.addOption(
+          OptionBuilder.withLongOpt("pipelinedWrites").hasArg(false)
+          .withDescription("pipeline the writes of the client requests")
+          .create('w'));
+
       opts.addOption(
           OptionBuilder.withLongOpt("help").hasArg(false)
           .withDescription("show this screen")
@@ -186,6 +210,24 @@ private void processOptions(CommandLine line, Options opts)
           throw new ParseException("invalid engine: " + eng);
         }
       }
+      if (line.hasOption('q')) {
+        String queue = line.getOptionValue('q');
+        if ("lbq".equals(queue)) {
+          callQueue = LinkedBlockingQueue.class;
+        } else if ("fcq".equals(queue)) {
+          callQueue = FairCallQueue.class;
+        } else if ("lockfree".equals(queue)) {
+          callQueue = LockFreeFairCallQueue.class;
+        } else {
+          throw new ParseException("invalid call queue: " + queue);
+        }
+      }
+      if (line.hasOption('n')) {
+        connectionsPerRemote = Integer.parseInt(line.getOptionValue('n'));
+      }
+      if (line.hasOption('w')) {
+        pipelinedWrites = true;
+      }
       
       String[] remainingArgs = line.getArgs();
       if (remainingArgs.length != 0) {
@@ -209,7 +251,10 @@ public String toString() {
       return "rpcEngine=" + rpcEngine + "\nserverThreads=" + serverThreads
           + "\nserverReaderThreads=" + serverReaderThreads + "\nclientThreads="
           + clientThreads + "\nhost=" + host + "\nport=" + getPort()
-          + "\nsecondsToRun=" + secondsToRun + "\nmsgSize=" + msgSize;
+          + "\nsecondsToRun=" + secondsToRun + "\nmsgSize=" + msgSize
+          + "\ncallQueue=" + callQueue.getSimpleName()
+          + "\nconnectionsPerRemote=" + connectionsPerRemote
+          + "\npipelinedWrites=" + pipelinedWrites;
     }
   }
 
@@ -221,6 +266,15 @@ private Server startServer(MyOptions opts) throws IOException {
     }
     conf.setInt(CommonConfigurationKeys.IPC_SERVER_RPC_READ_THREADS_KEY,
         opts.serverReaderThreads);
+    String prefix = CommonConfigurationKeys.IPC_NAMESPACE + "."
+        + opts.getPort() + ".";
+    conf.setClass(prefix + CommonConfigurationKeys.IPC_CALLQUEUE_IMPL_KEY,
+        opts.callQueue, BlockingQueue.class);
+    if (opts.callQueue != LinkedBlockingQueue.class) {
+      // the multi-level queues are scheduled by the DecayRpcScheduler
+      conf.setClass(prefix + CommonConfigurationKeys.IPC_SCHEDULER_IMPL_KEY,
+          DecayRpcScheduler.class, RpcScheduler.class);
+    }
     
     RPC.Server server;
     // Get RPC server for server side implementation
@@ -258,6 +312,10 @@ public int run(String[] args) throws Exception {
     
     // Set RPC engine to the configured RPC engine
     RPC.setProtocolEngine(conf, TestRpcService.class, opts.rpcEngine);
+    conf.setInt(CommonConfigurationKeys.IPC_CLIENT_CONNECTIONS_PER_REMOTE_KEY,
+        opts.connectionsPerRemote);
+    conf.setBoolean(CommonConfigurationKeys.IPC_CLIENT_PIPELINED_WRITES_KEY,
+        opts.pipelinedWrites);
 
     Server server = startServer(opts);
     try {
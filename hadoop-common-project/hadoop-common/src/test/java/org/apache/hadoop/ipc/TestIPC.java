@@ -337,7 +337,38 @@ public void internalTestSerial(int handlerCount, boolean handlerSleep,
     }
     server.stop();
   }
-	
+
+  @Test(timeout=60000)
+  public void testPipelinedParallelConnections()
+      throws IOException, InterruptedException {
+    conf.setInt(CommonConfigurationKeys.IPC_CLIENT_CONNECTIONS_PER_REMOTE_KEY,
+        3);
+    conf.setBoolean(CommonConfigurationKeys.IPC_CLIENT_PIPELINED_WRITES_KEY,
+        true);
+    Server server = new TestServer(5, false);
+    InetSocketAddress addr = NetUtils.getConnectAddress(server);
+    server.start();
+
+    Client client = new Client(LongWritable.class, conf);
+    try {
+      SerialCaller[] callers = new SerialCaller[10];
+      for (int i = 0; i < callers.length; i++) {
+        callers[i] = new SerialCaller(client, addr, 100);
+        callers[i].start();
+      }
+      for (int i = 0; i < callers.length; i++) {
+        callers[i].join();
+        assertFalse(callers[i].failed);
+      }
+      // the calls are spread over the parallel connections
+      assertEquals(3, client.getConnectionIds().size());
+      assertEquals(3, server.getNumOpenConnections());
+    } finally {
+      client.stop();
+      server.stop();
+    }
+  }
+
   @Test(timeout=60000)
   public void testStandAloneClient() throws IOException {
     Client client = new Client(LongWritable.class, conf);
@@ -0,0 +1,214 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.ipc.CallQueueManager.CallQueueOverflowException;
+import org.apache.hadoop.security.UserGroupInformation;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLockFreeFairCallQueue {
+  private LockFreeFairCallQueue<Schedulable> fcq;
+
+  private Schedulable mockCall(final int priority) {
+    return new Schedulable() {
+      @Override
+      public UserGroupInformation getUserGroupInformation() {
+        return null;
+      }
+
+      @Override
+      public int getPriorityLevel() {
+        return priority;
+      }
+    };
+  }
+
+  @Before
+  public void setUp() {
+    fcq = new LockFreeFairCallQueue<Schedulable>(2, 10, "ns",
+        new Configuration());
+  }
+
+  @Test
+  public void testTotalCapacityOfSubQueues() {
+    Configuration conf = new Configuration();
+    LockFreeFairCallQueue<Schedulable> queue;
+    queue = new LockFreeFairCallQueue<Schedulable>(1, 1000, "ns", conf);
+    assertEquals(1000, queue.remainingCapacity());
+    queue = new LockFreeFairCallQueue<Schedulable>(7, 1025, "ns", conf);
+    assertEquals(1025, queue.remainingCapacity());
+  }
+
+  @Test
+  public void testRingBufferWrapsAround() {
+    LockFreeFairCallQueue.RingBuffer<Integer> ring =
+        new LockFreeFairCallQueue.RingBuffer<Integer>(3);
+    for (int round = 0; round < 5; round++) {
+      assertTrue(ring.offer(1));
+      assertTrue(ring.offer(2));
+      assertTrue(ring.offer(3));
+      assertFalse(ring.offer(4));
+      assertEquals(3, ring.size());
+      assertEquals(Integer.valueOf(1), ring.peek());
+      assertEquals(Integer.valueOf(1), ring.poll());
+      assertEquals(Integer.valueOf(2), ring.poll());
+      assertEquals(Integer.valueOf(3), ring.poll());
+      assertNull(ring.poll());
+      assertEquals(0, ring.size());
+    }
+  }
+
+  @Test
+  public void testPrioritization() {
+    int numQueues = 4;
+    fcq = new LockFreeFairCallQueue<Schedulable>(numQueues, numQueues * 2,
+        "ns", new Configuration());
+    List<Schedulable> calls = new ArrayList<>();
+    for (int i = 0; i < numQueues; i++) {
+      Schedulable call = mockCall(i);
+      calls.add(call);
+      fcq.add(call);
+    }
+    final AtomicInteger currentIndex = new AtomicInteger();
+    fcq.setMultiplexer(new RpcMultiplexer() {
+      @Override
+      public int getAndAdvanceCurrentIndex() {
+        return currentIndex.get();
+      }
+    });
+    // the multiplexer's choice comes first, then priority order
+    currentIndex.set(2);
+    assertSame(calls.get(2), fcq.poll());
+    assertSame(calls.get(0), fcq.poll());
+    assertSame(calls.get(1), fcq.poll());
+    assertSame(calls.get(3), fcq.poll());
+    assertNull(fcq.poll());
+  }
+
+  @Test
+  public void testAddOverflows() {
+    // 5 slots per priority, high priority calls overflow to low priority
+    for (int i = 0; i < 10; i++) {
+      fcq.add(mockCall(0));
+    }
+    assertEquals(10, fcq.size());
+    assertEquals(5, fcq.getOverflowedCalls()[0]);
+    try {
+      fcq.add(mockCall(0));
+      fail("expected overflow");
+    } catch (CallQueueOverflowException e) {
+      assertSame(CallQueueOverflowException.KEEPALIVE, e);
+    }
+    try {
+      fcq.add(mockCall(1));
+      fail("expected overflow");
+    } catch (CallQueueOverflowException e) {
+      assertSame(CallQueueOverflowException.DISCONNECT, e);
+    }
+    assertFalse(fcq.offer(mockCall(1)));
+  }
+
+  @Test(timeout = 10000)
+  public void testPutBlocksUntilTake() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      fcq.put(mockCall(1));
+    }
+    final CountDownLatch done = new CountDownLatch(1);
+    Thread putter = new Thread() {
+      @Override
+      public void run() {
+        try {
+          fcq.put(mockCall(1));
+          done.countDown();
+        } catch (InterruptedException e) {
+          // test fails on timeout
+        }
+      }
+    };
+    putter.start();
+    assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+    fcq.take();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertFalse(fcq.offer(mockCall(1), 10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test(timeout = 10000)
+  public void testPollTimesOut() throws Exception {
+    assertNull(fcq.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  @Test(timeout = 60000)
+  public void testConcurrentPutAndTake() throws Exception {
+    final int numThreads = 8;
+    final int callsPerThread = 10000;
+    final AtomicInteger taken = new AtomicInteger();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      final int priority = i % 2;
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < callsPerThread; j++) {
+              fcq.put(mockCall(priority));
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < callsPerThread; j++) {
+              fcq.take();
+              taken.incrementAndGet();
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    assertEquals(numThreads * callsPerThread, taken.get());
+    assertTrue(fcq.isEmpty());
+  }
+}
@@ -23,6 +23,7 @@
 import org.apache.hadoop.HadoopIllegalArgumentException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeys;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.retry.RetryPolicies;
 import org.apache.hadoop.io.retry.RetryPolicy;
@@ -30,6 +31,8 @@
 import org.apache.hadoop.ipc.Client.ConnectionId;
 import org.apache.hadoop.ipc.Server.Call;
 import org.apache.hadoop.ipc.Server.Connection;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcRequestHeaderProto;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcResponseHeaderProto;
 import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcResponseHeaderProto.RpcErrorCodeProto;
 import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcResponseHeaderProto.RpcStatusProto;
 import org.apache.hadoop.ipc.protobuf.TestProtos;
@@ -82,7 +85,9 @@
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
@@ -90,6 +95,7 @@
 import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
@@ -294,6 +300,17 @@ public <T> ProtocolProxy<T> getProxy(
       return new ProtocolProxy<T>(protocol, proxy, false);
     }
 
+    @Override
+    public <T> ProtocolProxy<T> getProxy(
+        Class<T> protocol, long clientVersion, InetSocketAddress addr,
+        UserGroupInformation ticket, Configuration conf, SocketFactory factory,
+        int rpcTimeout, RetryPolicy connectionRetryPolicy,
+        AtomicBoolean fallbackToSimpleAuth, AlignmentContext alignmentContext)
+        throws IOException {
+      return getProxy(protocol, clientVersion, addr, ticket, conf, factory,
+          rpcTimeout, connectionRetryPolicy, fallbackToSimpleAuth);
+    }
+
     @Override
     public org.apache.hadoop.ipc.RPC.Server getServer(
         Class<?> protocol, Object instance, String bindAddress, int port,
@@ -419,6 +436,43 @@ public void testSlowRpc() throws IOException, ServiceException {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testAsyncHandlers() throws Exception {
+    // a single handler, which must not wait for the slow call
+    RPC.Server server = newServerBuilder(conf).setNumHandlers(1).build();
+    server.setAsyncHandlerCount(3);
+    server.start();
+    addr = NetUtils.getConnectAddress(server);
+    TestRpcService proxy = null;
+    try {
+      proxy = getClient(addr, conf);
+      assertNotNull(server.getAsyncHandlerExecutor());
+
+      SlowRPC slowrpc = new SlowRPC(proxy);
+      Thread thread = new Thread(slowrpc, "SlowRPC");
+      thread.start();
+      slowrpc.ping(false);
+      assertFalse("Slow RPC should not have finished.", slowrpc.isDone());
+      slowrpc.ping(false);
+      thread.join();
+      assertTrue(slowrpc.isDone());
+
+      // the calls run as the remote user and report their errors
+      assertEquals(UserGroupInformation.getCurrentUser().toString(),
+          proxy.getServerRemoteUser(null, newEmptyRequest()).getUser());
+      try {
+        proxy.error(null, newEmptyRequest());
+        fail("Expected an exception");
+      } catch (ServiceException e) {
+        assertTrue(e.getCause() instanceof RemoteException);
+        assertEquals(RpcServerException.class.getName(),
+            ((RemoteException) e.getCause()).getClassName());
+      }
+    } finally {
+      stop(server, proxy);
+    }
+  }
+
   @Test
   public void testCalls() throws Exception {
     testCallsInternal(conf);
@@ -609,6 +663,36 @@ public void testServerAddress() throws IOException {
     }
   }
 
+  @Test
+  public void testCallsWithRequestBufferPool() throws Exception {
+    Configuration myConf = new Configuration(conf);
+    myConf.setBoolean(
+        CommonConfigurationKeys.IPC_SERVER_REQUEST_BUFFER_POOL_ENABLED_KEY,
+        true);
+    myConf.setInt(CommonConfigurationKeys.
+        IPC_SERVER_REQUEST_BUFFER_POOL_MAX_BUFFER_SIZE_KEY, 4096);
+    Server server = setupTestServer(myConf, 2);
+    TestRpcService proxy = null;
+    try {
+      proxy = getClient(addr, myConf);
+      // small requests are read into pooled buffers, the last one is not
+      for (int len : new int[] {0, 10, 100, 1000, 10, 3000, 100, 10000}) {
+        char[] chars = new char[len];
+        Arrays.fill(chars, (char) ('a' + len % 26));
+        String msg = new String(chars);
+        assertEquals(msg, convert(proxy.echo(null, newEchoRequest(msg))));
+      }
+      BoundedByteBufferPool pool = server.getRequestBufferPool();
+      assertNotNull(pool);
+      assertTrue(pool + " has no hits", pool.getHits() > 0);
+      MetricsRecordBuilder rb = getMetrics(server.rpcMetrics.name());
+      assertCounter("RequestBufferPoolHits", pool.getHits(), rb);
+      assertCounter("RequestBufferPoolAllocations", pool.getAllocations(), rb);
+    } finally {
+      stop(server, proxy);
+    }
+  }
+
   @Test
   public void testAuthorization() throws Exception {
     Configuration myConf = new Configuration();
@@ -1083,6 +1167,195 @@ public TestRpcService run() {
     }
   }
 
+  @Test(timeout = 60000)
+  public void testRpcPhaseTimingMetrics() throws Exception {
+    TestRpcService proxy = null;
+    final int interval = 1;
+    conf.setBoolean(CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE,
+        true);
+    conf.setBoolean(CommonConfigurationKeys.RPC_METRICS_QUANTILE_ENABLE, true);
+    conf.set(CommonConfigurationKeys.RPC_METRICS_PERCENTILES_INTERVALS_KEY,
+        "" + interval);
+    final Server server = setupTestServer(conf, 5);
+    try {
+      assertTrue(server.isPhaseTimingEnabled());
+      proxy = getClient(addr, conf);
+      for (int i = 0; i < 10; i++) {
+        proxy.echo(null, newEchoRequest("" + i));
+      }
+      // the phases are recorded once the response has been written
+      GenericTestUtils.waitFor(new Supplier<Boolean>() {
+        @Override
+        public Boolean get() {
+          MetricsRecordBuilder rb =
+              getMetrics(server.rpcDetailedMetrics.name());
+          return getLongCounter("EchoResponseSendTimeMicrosNumOps", rb) == 10;
+        }
+      }, 10, 10000);
+
+      MetricsRecordBuilder rb = getMetrics(server.rpcDetailedMetrics.name());
+      for (ProcessingDetails.Phase phase : ProcessingDetails.Phase.values()) {
+        assertCounter("Echo" + phase.getName() + "TimeMicrosNumOps", 10L, rb);
+      }
+      rb = getMetrics(server.getRpcMetrics().name());
+      for (ProcessingDetails.Phase phase : ProcessingDetails.Phase.values()) {
+        String name = "RpcPhase" + phase.getName() + "TimeMicros";
+        assertCounter(name + "NumOps", 10L, rb);
+        MetricsAsserts.assertQuantileGauges(name + interval + "s", rb);
+      }
+
+      // calls received from now on are not timed
+      server.setPhaseTimingEnabled(false);
+      proxy.echo(null, newEchoRequest("untimed"));
+      rb = getMetrics(server.rpcDetailedMetrics.name());
+      assertCounter("EchoNumOps", 11L, rb);
+      assertCounter("EchoProcessingTimeMicrosNumOps", 10L, rb);
+    } finally {
+      stop(server, proxy);
+    }
+  }
+
+  /**
+   * Sends and serves a state id which is set by the test.
+   */
+  private static class TestAlignmentContext implements AlignmentContext {
+    private final AtomicLong stateId;
+    private final boolean coordinated;
+    private volatile boolean receivedState = false;
+
+    TestAlignmentContext(long stateId) {
+      this(stateId, true);
+    }
+
+    TestAlignmentContext(long stateId, boolean coordinated) {
+      this.stateId = new AtomicLong(stateId);
+      this.coordinated = coordinated;
+    }
+
+    @Override
+    public void updateResponseState(RpcResponseHeaderProto.Builder header) {
+      header.setStateId(stateId.get());
+    }
+
+    @Override
+    public void receiveResponseState(RpcResponseHeaderProto header) {
+      if (header.hasStateId()) {
+        receivedState = true;
+      }
+    }
+
+    @Override
+    public void updateRequestState(RpcRequestHeaderProto.Builder header) {
+      header.setStateId(stateId.get());
+    }
+
+    @Override
+    public long receiveRequestState(RpcRequestHeaderProto header) {
+      return header.getStateId();
+    }
+
+    @Override
+    public boolean isCoordinatedCall(String protocolName, String method) {
+      return coordinated;
+    }
+
+    @Override
+    public long getLastSeenStateId() {
+      return stateId.get();
+    }
+  }
+
+  private static TestRpcService getClient(InetSocketAddress serverAddr,
+      Configuration clientConf, AlignmentContext alignmentContext)
+      throws IOException {
+    return RPC.getProtocolProxy(TestRpcService.class, 0, serverAddr,
+        UserGroupInformation.getCurrentUser(), clientConf,
+        NetUtils.getDefaultSocketFactory(clientConf),
+        RPC.getRpcTimeout(clientConf), null, null, alignmentContext)
+        .getProxy();
+  }
+
+  @Test(timeout = 60000)
+  public void testCoordinatedCallWaitsForServerState() throws Exception {
+    TestRpcService proxy = null;
+    TestRpcService aheadProxy = null;
+    final TestAlignmentContext serverContext = new TestAlignmentContext(1);
+    final Server server = newServerBuilder(conf).setNumHandlers(1).build();
+    server.setAlignmentContext(serverContext);
+    server.start();
+    addr = NetUtils.getConnectAddress(server);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final TestRpcService client =
+          getClient(addr, conf, new TestAlignmentContext(2));
+      aheadProxy = client;
+      Future<Void> ahead = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          client.ping(null, newEmptyRequest());
+          return null;
+        }
+      });
+      // the waiting call does not keep the only handler busy
+      proxy = getClient(addr, conf);
+      for (int i = 0; i < 10; i++) {
+        proxy.ping(null, newEmptyRequest());
+      }
+      assertFalse(ahead.isDone());
+
+      serverContext.stateId.set(2);
+      server.stateIdAdvanced();
+      ahead.get(10, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+      if (aheadProxy != null) {
+        RPC.stopProxy(aheadProxy);
+      }
+      stop(server, proxy);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testCoordinatedCallMaxWait() throws Exception {
+    TestRpcService proxy = null;
+    conf.setLong(
+        CommonConfigurationKeys.IPC_SERVER_COORDINATED_CALL_MAX_WAIT_MS_KEY,
+        100);
+    final Server server = newServerBuilder(conf).setNumHandlers(1).build();
+    server.setAlignmentContext(new TestAlignmentContext(1));
+    server.start();
+    addr = NetUtils.getConnectAddress(server);
+    try {
+      proxy = getClient(addr, conf, new TestAlignmentContext(2));
+      proxy.ping(null, newEmptyRequest());
+      fail("The server never catches up with the client state id");
+    } catch (ServiceException e) {
+      assertTrue(e.getCause() instanceof RemoteException);
+      assertEquals(RetriableException.class.getName(),
+          ((RemoteException) e.getCause()).getClassName());
+    } finally {
+      stop(server, proxy);
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testUncoordinatedCallIgnoresState() throws Exception {
+    TestRpcService proxy = null;
+    final Server server = newServerBuilder(conf).setNumHandlers(1).build();
+    server.setAlignmentContext(new TestAlignmentContext(1, false));
+    server.start();
+    addr = NetUtils.getConnectAddress(server);
+    try {
+      TestAlignmentContext clientContext = new TestAlignmentContext(2);
+      proxy = getClient(addr, conf, clientContext);
+      // not held back although the client is ahead, and not stamped
+      proxy.ping(null, newEmptyRequest());
+      assertFalse(clientContext.receivedState);
+    } finally {
+      stop(server, proxy);
+    }
+  }
+
   /**
    *  Test RPC backoff by queue full.
    */
@@ -37,4 +37,44 @@ public void testBenchmarkWithProto() throws Exception {
       "--engine", "protobuf"});
     assertEquals(0, rc);
   }
+
+  @Test(timeout=20000)
+  public void testBenchmarkWithFairCallQueue() throws Exception {
+    int rc = ToolRunner.run(new RPCCallBenchmark(),
+        new String[] {
+      "--clientThreads", "30",
+      "--serverThreads", "30",
+      "--time", "5",
+      "--serverReaderThreads", "4",
+      "--messageSize", "1024",
+      "--callQueue", "fcq"});
+    assertEquals(0, rc);
+  }
+
+  @Test(timeout=20000)
+  public void testBenchmarkWithLockFreeFairCallQueue() throws Exception {
+    int rc = ToolRunner.run(new RPCCallBenchmark(),
+        new String[] {
+      "--clientThreads", "30",
+      "--serverThreads", "30",
+      "--time", "5",
+      "--serverReaderThreads", "4",
+      "--messageSize", "1024",
+      "--callQueue", "lockfree"});
+    assertEquals(0, rc);
+  }
+
+  @Test(timeout=20000)
+  public void testBenchmarkWithPipelinedConnections() throws Exception {
+    int rc = ToolRunner.run(new RPCCallBenchmark(),
+        new String[] {
+      "--clientThreads", "30",
+      "--serverThreads", "30",
+      "--time", "5",
+      "--serverReaderThreads", "4",
+      "--messageSize", "1024",
+      "--connections", "4",
+      "--pipelinedWrites"});
+    assertEquals(0, rc);
+  }
 }
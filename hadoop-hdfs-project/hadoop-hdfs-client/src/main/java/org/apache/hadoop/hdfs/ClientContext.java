@@ -30,10 +30,12 @@
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf.ShortCircuitConf;
+import org.apache.hadoop.hdfs.client.impl.metrics.PacketBufferPoolMetrics;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.shortcircuit.DomainSocketFactory;
 import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitCache;
 import org.apache.hadoop.hdfs.util.ByteArrayManager;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.net.DNSToSwitchMapping;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.net.NetworkTopology;
@@ -108,6 +110,12 @@ public class ClientContext {
   /** Creating byte[] for {@link DFSOutputStream}. */
   private final ByteArrayManager byteArrayManager;
 
+  /**
+   * Direct buffers for the packets of {@link DFSOutputStream}, or null if
+   * they are created by {@link #byteArrayManager}.
+   */
+  private final BoundedByteBufferPool packetBufferPool;
+
   /**
    * Whether or not we complained about a DFSClient fetching a CacheContext that
    * didn't match its config values yet.
@@ -133,6 +141,12 @@ private ClientContext(String name, DfsClientConf conf,
 
     this.byteArrayManager = ByteArrayManager.newInstance(
         conf.getWriteByteArrayManagerConf());
+    this.packetBufferPool = conf.getWriteDirectBufferPoolMaxBytes() < 0 ?
+        null : new BoundedByteBufferPool(true, Integer.MAX_VALUE,
+            conf.getWriteDirectBufferPoolMaxBytes());
+    if (packetBufferPool != null) {
+      PacketBufferPoolMetrics.create(name, packetBufferPool);
+    }
     initTopologyResolution(config);
   }
 
@@ -238,6 +252,14 @@ public ByteArrayManager getByteArrayManager() {
     return byteArrayManager;
   }
 
+  /**
+   * @return the pool of the direct buffers of the packets written, or null
+   *         if packets are written from byte arrays.
+   */
+  public BoundedByteBufferPool getPacketBufferPool() {
+    return packetBufferPool;
+  }
+
   public int getNetworkDistance(DatanodeInfo datanodeInfo) {
     // If applications disable the feature or the client machine can't
     // resolve its network location, clientNode will be set to null.
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.util.concurrent.atomic.LongAccumulator;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.ipc.AlignmentContext;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcRequestHeaderProto;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcResponseHeaderProto;
+
+/**
+ * Global State Id context for the client.
+ *
+ * This is the client side implementation responsible for receiving
+ * state alignment info from the NameNodes. It keeps the highest transaction
+ * id seen in any response and sends it with every request, so that a
+ * standby NameNode serving a read has applied at least the client's own
+ * earlier operations.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class ClientGSIContext implements AlignmentContext {
+
+  private final LongAccumulator lastSeenStateId =
+      new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+  @Override
+  public long getLastSeenStateId() {
+    return lastSeenStateId.get();
+  }
+
+  /**
+   * Client side implementation only receives state alignment info.
+   * It does not provide state alignment info therefore this does nothing.
+   */
+  @Override
+  public void updateResponseState(RpcResponseHeaderProto.Builder header) {
+    // Do nothing.
+  }
+
+  /**
+   * Client side implementation for receiving state alignment info
+   * in responses.
+   */
+  @Override
+  public void receiveResponseState(RpcResponseHeaderProto header) {
+    if (header.hasStateId()) {
+      lastSeenStateId.accumulate(header.getStateId());
+    }
+  }
+
+  /**
+   * Client side implementation for providing state alignment info in
+   * requests. Nothing is sent until a state has been seen.
+   */
+  @Override
+  public void updateRequestState(RpcRequestHeaderProto.Builder header) {
+    long stateId = lastSeenStateId.get();
+    if (stateId != Long.MIN_VALUE) {
+      header.setStateId(stateId);
+    }
+  }
+
+  /**
+   * Client side implementation only provides state alignment info in
+   * requests. It does not receive state alignment info therefore this does
+   * nothing.
+   */
+  @Override
+  public long receiveRequestState(RpcRequestHeaderProto header) {
+    return Long.MIN_VALUE;
+  }
+
+  /**
+   * Client side implementation does not serve calls, so it never
+   * coordinates them.
+   */
+  @Override
+  public boolean isCoordinatedCall(String protocolName, String method) {
+    return false;
+  }
+}
@@ -206,6 +206,7 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
   private final Configuration conf;
   private final Tracer tracer;
   private final DfsClientConf dfsClientConf;
+  private final DFSHedgedReadThresholds hedgedReadThresholds;
   final ClientProtocol namenode;
   /* The service used for delegation tokens */
   private Text dtService;
@@ -233,6 +234,9 @@ public class DFSClient implements java.io.Closeable, RemotePeerFactory,
       new DFSHedgedReadMetrics();
   private static ThreadPoolExecutor HEDGED_READ_THREAD_POOL;
   private static volatile ThreadPoolExecutor STRIPED_READ_THREAD_POOL;
+  private static volatile ThreadPoolExecutor STRIPED_DECODE_THREAD_POOL;
+  private static volatile ThreadPoolExecutor STRIPED_ENCODE_THREAD_POOL;
+  private static volatile ThreadPoolExecutor VECTORED_READ_THREAD_POOL;
   private final int smallBufferSize;
   private final long serverDefaultsValidityPeriod;
 
@@ -297,6 +301,7 @@ public DFSClient(URI nameNodeUri, ClientProtocol rpcNamenode,
     // Copy only the required DFSClient configuration
     this.tracer = FsTracer.get(conf);
     this.dfsClientConf = new DfsClientConf(conf);
+    this.hedgedReadThresholds = new DFSHedgedReadThresholds(dfsClientConf);
     this.conf = conf;
     this.stats = stats;
     this.socketFactory = NetUtils.getSocketFactory(conf, ClientProtocol.class);
@@ -387,6 +392,18 @@ public DFSClient(URI nameNodeUri, ClientProtocol rpcNamenode,
 
     this.initThreadsNumForStripedReads(dfsClientConf.
         getStripedReadThreadpoolSize());
+    if (dfsClientConf.getStripedReadPrefetchStripes() > 0) {
+      this.initThreadsNumForStripedDecoding(dfsClientConf.
+          getStripedDecodeThreadpoolSize());
+    }
+    if (dfsClientConf.getStripedEncodeThreadpoolSize() > 0) {
+      this.initThreadsNumForStripedEncoding(dfsClientConf.
+          getStripedEncodeThreadpoolSize());
+    }
+    if (dfsClientConf.getVectoredReadThreadpoolSize() > 0) {
+      this.initThreadsNumForVectoredReads(dfsClientConf.
+          getVectoredReadThreadpoolSize());
+    }
     this.saslClient = new SaslDataTransferClient(
         conf, DataTransferSaslUtil.getSaslPropertiesResolver(conf),
         TrustedChannelResolver.getInstance(conf), nnFallbackToSimpleAuth);
@@ -2911,6 +2928,66 @@ private void initThreadsNumForStripedReads(int numThreads) {
     }
   }
 
+  /**
+   * Create thread pool for reading ahead and decoding stripes of striped
+   * reads, STRIPED_DECODE_THREAD_POOL, if it does not already exist.
+   * @param numThreads Number of threads for striped decoding thread pool.
+   */
+  private void initThreadsNumForStripedDecoding(int numThreads) {
+    assert numThreads > 0;
+    if (STRIPED_DECODE_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (STRIPED_DECODE_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "StripedDecode-", true);
+        threadPool.allowCoreThreadTimeOut(true);
+        STRIPED_DECODE_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
+  /**
+   * Create thread pool for computing the parity cells of striped writes,
+   * STRIPED_ENCODE_THREAD_POOL, if it does not already exist.
+   * @param numThreads Number of threads for striped encoding thread pool.
+   */
+  private void initThreadsNumForStripedEncoding(int numThreads) {
+    assert numThreads > 0;
+    if (STRIPED_ENCODE_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (STRIPED_ENCODE_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "StripedEncode-", true);
+        threadPool.allowCoreThreadTimeOut(true);
+        STRIPED_ENCODE_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
+  /**
+   * Create thread pool for reading the ranges of vectored reads,
+   * VECTORED_READ_THREAD_POOL, if it does not already exist.
+   * @param numThreads Number of threads for vectored reads thread pool.
+   */
+  private void initThreadsNumForVectoredReads(int numThreads) {
+    assert numThreads > 0;
+    if (VECTORED_READ_THREAD_POOL != null) {
+      return;
+    }
+    synchronized (DFSClient.class) {
+      if (VECTORED_READ_THREAD_POOL == null) {
+        ThreadPoolExecutor threadPool = DFSUtilClient.getThreadPoolExecutor(1,
+            numThreads, 60, "VectoredRead-", true);
+        threadPool.allowCoreThreadTimeOut(true);
+        VECTORED_READ_THREAD_POOL = threadPool;
+      }
+    }
+  }
+
   ThreadPoolExecutor getHedgedReadsThreadPool() {
     return HEDGED_READ_THREAD_POOL;
   }
@@ -2919,6 +2996,33 @@ ThreadPoolExecutor getStripedReadsThreadPool() {
     return STRIPED_READ_THREAD_POOL;
   }
 
+  /**
+   * @return the pool reading ahead and decoding stripes of striped reads, or
+   *         null if stripes are not read ahead.
+   */
+  ThreadPoolExecutor getStripedDecodeThreadPool() {
+    return dfsClientConf.getStripedReadPrefetchStripes() > 0 ?
+        STRIPED_DECODE_THREAD_POOL : null;
+  }
+
+  /**
+   * @return the pool computing the parity cells of striped writes, or null
+   *         if they are computed on the writing thread.
+   */
+  ThreadPoolExecutor getStripedEncodeThreadPool() {
+    return dfsClientConf.getStripedEncodeThreadpoolSize() > 0 ?
+        STRIPED_ENCODE_THREAD_POOL : null;
+  }
+
+  /**
+   * @return the pool reading the ranges of vectored reads, or null if they
+   *         are read by the calling thread.
+   */
+  ThreadPoolExecutor getVectoredReadsThreadPool() {
+    return dfsClientConf.getVectoredReadThreadpoolSize() > 0 ?
+        VECTORED_READ_THREAD_POOL : null;
+  }
+
   boolean isHedgedReadsEnabled() {
     return (HEDGED_READ_THREAD_POOL != null) &&
         HEDGED_READ_THREAD_POOL.getMaximumPoolSize() > 0;
@@ -2928,6 +3032,10 @@ DFSHedgedReadMetrics getHedgedReadMetrics() {
     return HEDGED_READ_METRIC;
   }
 
+  DFSHedgedReadThresholds getHedgedReadThresholds() {
+    return hedgedReadThresholds;
+  }
+
   URI getKeyProviderUri() throws IOException {
     return HdfsKMSUtil.getKeyProviderUri(ugi, namenodeUri,
         getServerDefaults().getKeyProviderUri(), conf);
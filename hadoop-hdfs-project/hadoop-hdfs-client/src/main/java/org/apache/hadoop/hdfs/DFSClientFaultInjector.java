@@ -64,5 +64,7 @@ public boolean skipRollingRestartWait() {
 
   public void sleepBeforeHedgedGet() {}
 
+  public void delayWhenReadingPacket(long blockId) {}
+
   public void delayWhenRenewLeaseTimeout() {}
 }
@@ -0,0 +1,190 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.metrics2.util.Quantile;
+import org.apache.hadoop.metrics2.util.SampleQuantiles;
+import org.apache.hadoop.util.Timer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decides when the reads of a DFSClient start a 'hedged' read.
+ *
+ * With a threshold percentile configured, the read latencies of each DataNode
+ * are sampled over fixed windows, the same way
+ * {@link org.apache.hadoop.metrics2.lib.MutableQuantiles} does. A read is
+ * hedged once it takes longer than the percentile of the latencies of the
+ * previous window of its DataNode. Until a DataNode has such a window, the
+ * fixed threshold is used. Only the latencies of the DataNodes read from most
+ * recently are kept. Independently of the threshold, at most a configured
+ * fraction of the reads of a window start a 'hedged' read.
+ */
+@InterfaceAudience.Private
+class DFSHedgedReadThresholds {
+  /** The number of DataNodes whose latencies are kept. */
+  static final int MAX_DATANODES = 1024;
+
+  private final long defaultThresholdMillis;
+  private final Quantile quantile;
+  private final long windowMillis;
+  private final double maxHedgedFraction;
+  private final Timer timer;
+  /** The latencies of the DataNodes, least recently used first. */
+  private final Map<DatanodeInfo, NodeLatencies> latencies;
+
+  private long windowStart;
+  private long reads = 0;
+  private long hedgedReads = 0;
+
+  DFSHedgedReadThresholds(DfsClientConf conf) {
+    this(conf.getHedgedReadThresholdMillis(),
+        conf.getHedgedReadThresholdPercentile(),
+        conf.getHedgedReadLatencyWindowMs(),
+        conf.getHedgedReadMaxFraction(), new Timer(), MAX_DATANODES);
+  }
+
+  @VisibleForTesting
+  DFSHedgedReadThresholds(long defaultThresholdMillis, double percentile,
+      long windowMillis, double maxHedgedFraction, Timer timer,
+      final int maxDatanodes) {
+    this.defaultThresholdMillis = defaultThresholdMillis;
+    this.quantile = percentile > 0
+        ? new Quantile(percentile / 100, (1 - percentile / 100) / 10)
+        : null;
+    this.windowMillis = windowMillis;
+    this.maxHedgedFraction = maxHedgedFraction;
+    this.timer = timer;
+    this.latencies = new LinkedHashMap<DatanodeInfo, NodeLatencies>(
+        16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<DatanodeInfo, NodeLatencies> eldest) {
+        return size() > maxDatanodes;
+      }
+    };
+    this.windowStart = timer.monotonicNow();
+  }
+
+  /** The latencies of the reads from one DataNode. */
+  private final class NodeLatencies {
+    private final SampleQuantiles estimator =
+        new SampleQuantiles(new Quantile[] {quantile});
+    private long windowStart = timer.monotonicNow();
+    private long thresholdMillis = -1;
+
+    synchronized void add(long millis, long now) {
+      rollover(now);
+      estimator.insert(millis);
+    }
+
+    synchronized long getThresholdMillis(long now) {
+      rollover(now);
+      return thresholdMillis;
+    }
+
+    private void rollover(long now) {
+      if (now - windowStart < windowMillis) {
+        return;
+      }
+      Map<Quantile, Long> snapshot = estimator.snapshot();
+      // keep the last threshold through windows without reads
+      if (snapshot != null) {
+        thresholdMillis = Math.max(1, snapshot.get(quantile));
+      }
+      estimator.clear();
+      windowStart = now;
+    }
+  }
+
+  /**
+   * @return how long to wait for a read from the given DataNode before
+   *         starting a 'hedged' read.
+   */
+  long getThresholdMillis(DatanodeInfo datanode) {
+    if (quantile == null) {
+      return defaultThresholdMillis;
+    }
+    NodeLatencies nodeLatencies;
+    synchronized (latencies) {
+      nodeLatencies = latencies.get(datanode);
+    }
+    long threshold = nodeLatencies == null ? -1
+        : nodeLatencies.getThresholdMillis(timer.monotonicNow());
+    return threshold < 0 ? defaultThresholdMillis : threshold;
+  }
+
+  /** Record the latency of a successful read from the given DataNode. */
+  void addLatency(DatanodeInfo datanode, long millis) {
+    if (quantile == null) {
+      return;
+    }
+    NodeLatencies nodeLatencies;
+    synchronized (latencies) {
+      nodeLatencies = latencies.get(datanode);
+      if (nodeLatencies == null) {
+        nodeLatencies = new NodeLatencies();
+        latencies.put(datanode, nodeLatencies);
+      }
+    }
+    nodeLatencies.add(millis, timer.monotonicNow());
+  }
+
+  /** Count a read which may start a 'hedged' read. */
+  synchronized void readStarted() {
+    rollover(timer.monotonicNow());
+    reads++;
+  }
+
+  /**
+   * Take a 'hedged' read from the budget of the current window.
+   * @return false if the budget is used up, and the read should wait for
+   *         the DataNode it started on.
+   */
+  synchronized boolean tryHedge() {
+    if (maxHedgedFraction >= 1) {
+      return true;
+    }
+    rollover(timer.monotonicNow());
+    if (hedgedReads + 1 > maxHedgedFraction * reads) {
+      return false;
+    }
+    hedgedReads++;
+    return true;
+  }
+
+  @VisibleForTesting
+  int getNumDatanodes() {
+    synchronized (latencies) {
+      return latencies.size();
+    }
+  }
+
+  private void rollover(long now) {
+    if (now - windowStart >= windowMillis) {
+      reads = 0;
+      hedgedReads = 0;
+      windowStart = now;
+    }
+  }
+}
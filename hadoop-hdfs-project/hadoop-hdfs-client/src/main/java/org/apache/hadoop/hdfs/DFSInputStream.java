@@ -41,8 +41,10 @@
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.hadoop.classification.InterfaceAudience;
@@ -52,12 +54,16 @@
 import org.apache.hadoop.fs.CanSetReadahead;
 import org.apache.hadoop.fs.CanUnbuffer;
 import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.fs.CombinedFileRange;
+import org.apache.hadoop.fs.FSExceptionMessages;
 import org.apache.hadoop.fs.FSInputStream;
 import org.apache.hadoop.fs.FileEncryptionInfo;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.HasEnhancedByteBufferAccess;
 import org.apache.hadoop.fs.ReadOption;
 import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.fs.StreamCapabilities;
+import org.apache.hadoop.fs.VectoredReadUtils;
 import org.apache.hadoop.hdfs.DFSUtilClient.CorruptedBlocks;
 import org.apache.hadoop.hdfs.client.impl.BlockReaderFactory;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
@@ -83,6 +89,7 @@
 import org.apache.hadoop.util.IdentityHashStore;
 import org.apache.hadoop.util.StopWatch;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 import org.apache.htrace.core.SpanId;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
@@ -1021,7 +1028,10 @@ public ByteBuffer call() throws Exception {
         DFSClientFaultInjector.get().sleepBeforeHedgedGet();
         try (TraceScope ignored = dfsClient.getTracer().
             newScope("hedgedRead" + hedgedReadId, parentSpanId)) {
+          final long startTime = Time.monotonicNow();
           actualGetFromOneDataNode(datanode, start, end, bb, corruptedBlocks);
+          dfsClient.getHedgedReadThresholds().addLatency(datanode.info,
+              Time.monotonicNow() - startTime);
           return bb;
         }
       }
@@ -1139,7 +1149,9 @@ protected LocatedBlock refreshLocatedBlock(LocatedBlock block)
   private void hedgedFetchBlockByteRange(LocatedBlock block, long start,
       long end, ByteBuffer buf, CorruptedBlocks corruptedBlocks)
       throws IOException {
-    final DfsClientConf conf = dfsClient.getConf();
+    final DFSHedgedReadThresholds thresholds =
+        dfsClient.getHedgedReadThresholds();
+    thresholds.readStarted();
     ArrayList<Future<ByteBuffer>> futures = new ArrayList<>();
     CompletionService<ByteBuffer> hedgedService =
         new ExecutorCompletionService<>(dfsClient.getHedgedReadsThreadPool());
@@ -1166,9 +1178,16 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start,
             .submit(getFromDataNodeCallable);
         futures.add(firstRequest);
         Future<ByteBuffer> future = null;
+        final long thresholdMillis =
+            thresholds.getThresholdMillis(chosenNode.info);
         try {
-          future = hedgedService.poll(
-              conf.getHedgedReadThresholdMillis(), TimeUnit.MILLISECONDS);
+          future = hedgedService.poll(thresholdMillis, TimeUnit.MILLISECONDS);
+          if (future == null && !thresholds.tryHedge()) {
+            DFSClient.LOG.debug("Waited {}ms to read from {}; no hedged read "
+                + "budget left, waiting for it", thresholdMillis,
+                chosenNode.info);
+            future = hedgedService.take();
+          }
           if (future != null) {
             ByteBuffer result = future.get();
             result.flip();
@@ -1176,7 +1195,7 @@ private void hedgedFetchBlockByteRange(LocatedBlock block, long start,
             return;
           }
           DFSClient.LOG.debug("Waited {}ms to read from {}; spawning hedged "
-              + "read", conf.getHedgedReadThresholdMillis(), chosenNode.info);
+              + "read", thresholdMillis, chosenNode.info);
           dfsClient.getHedgedReadMetrics().incHedgedReadOps();
           // continue; no need to refresh block locations
         } catch (ExecutionException e) {
@@ -1333,6 +1352,64 @@ public int read(long position, byte[] buffer, int offset, int length)
     }
   }
 
+  /**
+   * Read the ranges close to each other with a single positional read. The
+   * combined ranges are read in parallel on the vectored reads thread pool,
+   * if there is one. The ranges past the end of the file fail with an
+   * EOFException without any read.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    dfsClient.checkOpen();
+    if (closed.get()) {
+      throw new IOException("Stream closed");
+    }
+    final DfsClientConf conf = dfsClient.getConf();
+    List<FileRange> sortedRanges =
+        VectoredReadUtils.prepareRanges(ranges, getFileLength());
+    List<CombinedFileRange> combinedRanges =
+        VectoredReadUtils.mergeSortedRanges(sortedRanges,
+            conf.getVectoredReadMinSeekSize(),
+            conf.getVectoredReadMaxMergedSize());
+    final ThreadPoolExecutor pool = dfsClient.getVectoredReadsThreadPool();
+    for (final CombinedFileRange combined : combinedRanges) {
+      if (pool == null) {
+        readCombinedRange(combined, allocate);
+      } else {
+        pool.execute(() -> readCombinedRange(combined, allocate));
+      }
+    }
+  }
+
+  /**
+   * Read a combined range of a vectored read, and complete the futures of
+   * the ranges it covers.
+   */
+  private void readCombinedRange(CombinedFileRange combined,
+      IntFunction<ByteBuffer> allocate) {
+    try (TraceScope ignored = dfsClient.
+        newReaderTraceScope("DFSInputStream#vectoredPread",
+            src, combined.getOffset(), combined.getLength())) {
+      ByteBuffer buffer = allocate.apply(combined.getLength());
+      final int start = buffer.position();
+      ByteBuffer target = buffer.duplicate();
+      target.limit(start + combined.getLength());
+      while (target.hasRemaining()) {
+        int ret = pread(combined.getOffset() + target.position() - start,
+            target);
+        if (ret < 0) {
+          throw new EOFException(FSExceptionMessages.EOF_IN_READ_FULLY);
+        }
+      }
+      buffer.limit(start + combined.getLength());
+      VectoredReadUtils.completeUnderlying(combined, buffer);
+    } catch (IOException | RuntimeException e) {
+      DFSClient.LOG.debug("Failed to read {} of {}", combined, src, e);
+      VectoredReadUtils.failUnderlying(combined, e);
+    }
+  }
+
   private int pread(long position, ByteBuffer buffer)
       throws IOException {
     // sanity checks
@@ -58,6 +58,7 @@
 import org.apache.hadoop.hdfs.server.namenode.RetryStartFileException;
 import org.apache.hadoop.hdfs.server.namenode.SafeModeException;
 import org.apache.hadoop.hdfs.util.ByteArrayManager;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.io.EnumSetWritable;
 import org.apache.hadoop.io.MultipleIOException;
 import org.apache.hadoop.ipc.RemoteException;
@@ -106,6 +107,9 @@ public class DFSOutputStream extends FSOutputSummer
 
   protected final DFSClient dfsClient;
   protected final ByteArrayManager byteArrayManager;
+  /** If not null, the pool of the buffers of the packets, used instead of
+   * {@link #byteArrayManager}. */
+  private final BoundedByteBufferPool packetBufferPool;
   // closed is accessed by different threads under different locks.
   protected volatile boolean closed = false;
 
@@ -127,13 +131,21 @@ public class DFSOutputStream extends FSOutputSummer
   private FileEncryptionInfo fileEncryptionInfo;
   private int writePacketSize;
 
-  /** Use {@link ByteArrayManager} to create buffer for non-heartbeat packets.*/
+  /**
+   * Use {@link BoundedByteBufferPool} if there is one, or {@link ByteArrayManager}
+   * otherwise, to create buffer for non-heartbeat packets.
+   */
   protected DFSPacket createPacket(int packetSize, int chunksPerPkt,
       long offsetInBlock, long seqno, boolean lastPacketInBlock)
       throws InterruptedIOException {
     final byte[] buf;
     final int bufferSize = PacketHeader.PKT_MAX_HEADER_LEN + packetSize;
 
+    if (packetBufferPool != null) {
+      return new DFSPacket(packetBufferPool.getBuffer(true, bufferSize),
+          packetBufferPool, chunksPerPkt, offsetInBlock, seqno,
+          getChecksumSize(), lastPacketInBlock);
+    }
     try {
       buf = byteArrayManager.newByteArray(bufferSize);
     } catch (InterruptedException ie) {
@@ -220,6 +232,8 @@ private DFSOutputStream(DFSClient dfsClient, String src,
           blockSize + ").");
     }
     this.byteArrayManager = dfsClient.getClientContext().getByteArrayManager();
+    this.packetBufferPool =
+        dfsClient.getClientContext().getPacketBufferPool();
   }
 
   /**
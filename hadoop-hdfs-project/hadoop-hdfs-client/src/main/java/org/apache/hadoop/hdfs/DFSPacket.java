@@ -22,12 +22,14 @@
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.protocol.datatransfer.PacketHeader;
 import org.apache.hadoop.hdfs.util.ByteArrayManager;
+import org.apache.hadoop.io.ByteBufferPool;
 import org.apache.htrace.core.Span;
 import org.apache.htrace.core.SpanId;
 import org.apache.htrace.core.TraceScope;
@@ -47,7 +49,12 @@ public class DFSPacket {
   private boolean syncBlock; // this packet forces the current block to disk
   private int numChunks; // number of chunks currently in packet
   private final int maxChunks; // max chunks in packet
-  private byte[] buf;
+  private ByteBuffer buf;
+  /**
+   * The pool the buffer is returned to, or null if the buffer wraps an array
+   * of the ByteArrayManager.
+   */
+  private final ByteBufferPool bufferPool;
   private final boolean lastPacketInBlock; // is this the last packet in block?
 
   /**
@@ -84,12 +91,31 @@ public class DFSPacket {
    */
   public DFSPacket(byte[] buf, int chunksPerPkt, long offsetInBlock, long seqno,
                    int checksumSize, boolean lastPacketInBlock) {
+    this(buf == null ? null : ByteBuffer.wrap(buf), null, chunksPerPkt,
+        offsetInBlock, seqno, checksumSize, lastPacketInBlock);
+  }
+
+  /**
+   * Create a new packet in a buffer of a pool.
+   *
+   * @param buf the buffer storing data and checksums, from its position 0
+   * @param bufferPool the pool to release the buffer to
+   * @param chunksPerPkt maximum number of chunks per packet.
+   * @param offsetInBlock offset in bytes into the HDFS block.
+   * @param seqno the sequence number of this packet
+   * @param checksumSize the size of checksum
+   * @param lastPacketInBlock if this is the last packet
+   */
+  public DFSPacket(ByteBuffer buf, ByteBufferPool bufferPool,
+                   int chunksPerPkt, long offsetInBlock, long seqno,
+                   int checksumSize, boolean lastPacketInBlock) {
     this.lastPacketInBlock = lastPacketInBlock;
     this.numChunks = 0;
     this.offsetInBlock = offsetInBlock;
     this.seqno = seqno;
 
     this.buf = buf;
+    this.bufferPool = bufferPool;
 
     checksumStart = PacketHeader.PKT_MAX_HEADER_LEN;
     checksumPos = checksumStart;
@@ -109,10 +135,10 @@ public DFSPacket(byte[] buf, int chunksPerPkt, long offsetInBlock, long seqno,
   synchronized void writeData(byte[] inarray, int off, int len)
       throws ClosedChannelException {
     checkBuffer();
-    if (dataPos + len > buf.length) {
+    if (dataPos + len > buf.capacity()) {
       throw new BufferOverflowException();
     }
-    System.arraycopy(inarray, off, buf, dataPos, len);
+    put(dataPos, inarray, off, len);
     dataPos += len;
   }
 
@@ -120,12 +146,15 @@ public synchronized void writeData(ByteBuffer inBuffer, int len)
       throws ClosedChannelException {
     checkBuffer();
     len =  len > inBuffer.remaining() ? inBuffer.remaining() : len;
-    if (dataPos + len > buf.length) {
+    if (dataPos + len > buf.capacity()) {
       throw new BufferOverflowException();
     }
-    for (int i = 0; i < len; i++) {
-      buf[dataPos + i] = inBuffer.get();
-    }
+    ByteBuffer src = inBuffer.duplicate();
+    src.limit(src.position() + len);
+    buf.clear();
+    buf.position(dataPos);
+    buf.put(src);
+    inBuffer.position(inBuffer.position() + len);
     dataPos += len;
   }
 
@@ -146,16 +175,46 @@ public synchronized void writeChecksum(byte[] inarray, int off, int len)
     if (checksumPos + len > dataStart) {
       throw new BufferOverflowException();
     }
-    System.arraycopy(inarray, off, buf, checksumPos, len);
+    put(checksumPos, inarray, off, len);
     checksumPos += len;
   }
 
+  /**
+   * Copy bytes into the buffer.
+   *
+   * @param pos the position in the buffer to copy the bytes to
+   */
+  private void put(int pos, byte[] src, int off, int len) {
+    if (buf.hasArray()) {
+      System.arraycopy(src, off, buf.array(), buf.arrayOffset() + pos, len);
+    } else {
+      buf.clear();
+      buf.position(pos);
+      buf.put(src, off, len);
+    }
+  }
+
   /**
    * Write the full packet, including the header, to the given output stream.
    *
    * @throws IOException
    */
-  public synchronized void writeTo(DataOutputStream stm) throws IOException {
+  public void writeTo(DataOutputStream stm) throws IOException {
+    writeTo(stm, null);
+  }
+
+  /**
+   * Write the full packet, including the header, to the given output stream.
+   * If the packet is in a direct buffer, and the output stream is buffering
+   * a channel, the stream is flushed and the packet written to the channel,
+   * without copying it.
+   *
+   * @param stm the output stream
+   * @param channel the channel the output stream writes to, if any
+   * @throws IOException
+   */
+  public synchronized void writeTo(DataOutputStream stm,
+      WritableByteChannel channel) throws IOException {
     checkBuffer();
 
     final int dataLen = dataPos - dataStart;
@@ -168,8 +227,17 @@ public synchronized void writeTo(DataOutputStream stm) throws IOException {
     if (checksumPos != dataStart) {
       // Move the checksum to cover the gap. This can happen for the last
       // packet or during an hflush/hsync call.
-      System.arraycopy(buf, checksumStart, buf,
-          dataStart - checksumLen , checksumLen);
+      if (buf.hasArray()) {
+        System.arraycopy(buf.array(), buf.arrayOffset() + checksumStart,
+            buf.array(), buf.arrayOffset() + dataStart - checksumLen,
+            checksumLen);
+      } else {
+        final byte[] checksums = new byte[checksumLen];
+        buf.clear();
+        buf.position(checksumStart);
+        buf.get(checksums);
+        put(dataStart - checksumLen, checksums, 0, checksumLen);
+      }
       checksumPos = dataStart;
       checksumStart = checksumPos - checksumLen;
     }
@@ -181,23 +249,37 @@ public synchronized void writeTo(DataOutputStream stm) throws IOException {
 
     // Copy the header data into the buffer immediately preceding the checksum
     // data.
-    System.arraycopy(header.getBytes(), 0, buf, headerStart,
-        header.getSerializedSize());
+    put(headerStart, header.getBytes(), 0, header.getSerializedSize());
 
+    final int packetLen = header.getSerializedSize() + checksumLen + dataLen;
+    final int lastByte = headerStart + packetLen - 1;
     // corrupt the data for testing.
     if (DFSClientFaultInjector.get().corruptPacket()) {
-      buf[headerStart+header.getSerializedSize() + checksumLen + dataLen-1] ^=
-          0xff;
+      buf.put(lastByte, (byte) (buf.get(lastByte) ^ 0xff));
     }
 
     // Write the now contiguous full packet to the output stream.
-    stm.write(buf, headerStart,
-        header.getSerializedSize() + checksumLen + dataLen);
+    if (buf.hasArray()) {
+      stm.write(buf.array(), buf.arrayOffset() + headerStart, packetLen);
+    } else {
+      buf.clear();
+      buf.position(headerStart);
+      buf.limit(headerStart + packetLen);
+      if (channel != null) {
+        stm.flush();
+        while (buf.hasRemaining()) {
+          channel.write(buf);
+        }
+      } else {
+        final byte[] packet = new byte[packetLen];
+        buf.get(packet);
+        stm.write(packet);
+      }
+    }
 
     // undo corruption.
     if (DFSClientFaultInjector.get().uncorruptPacket()) {
-      buf[headerStart+header.getSerializedSize() + checksumLen + dataLen-1] ^=
-          0xff;
+      buf.put(lastByte, (byte) (buf.get(lastByte) ^ 0xff));
     }
   }
 
@@ -208,10 +290,14 @@ private synchronized void checkBuffer() throws ClosedChannelException {
   }
 
   /**
-   * Release the buffer in this packet to ByteArrayManager.
+   * Release the buffer in this packet to its pool, or to ByteArrayManager.
    */
   synchronized void releaseBuffer(ByteArrayManager bam) {
-    bam.release(buf);
+    if (bufferPool != null) {
+      bufferPool.putBuffer(buf);
+    } else {
+      bam.release(buf.array());
+    }
     buf = null;
   }
 
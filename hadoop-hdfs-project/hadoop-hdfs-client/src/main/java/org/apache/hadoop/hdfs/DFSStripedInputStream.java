@@ -20,6 +20,7 @@
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.ReadOption;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlock;
 import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
 import org.apache.hadoop.hdfs.protocol.LocatedStripedBlock;
@@ -39,17 +40,25 @@
 import org.apache.hadoop.io.erasurecode.ErasureCoderOptions;
 import org.apache.hadoop.io.erasurecode.rawcoder.RawErasureDecoder;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.Collection;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -76,6 +85,16 @@ public class DFSStripedInputStream extends DFSInputStream {
    */
   private StripeRange curStripeRange;
 
+  /** The number of stripes to read ahead of the current stripe. */
+  private final int prefetchStripes;
+  /** The stripes being read ahead of the current stripe, in order. */
+  private final Deque<PrefetchedStripe> prefetchedStripes = new ArrayDeque<>();
+  /**
+   * The decoders of the stripes read ahead, kept for the next stripes. There
+   * are at most as many as stripes read ahead at once.
+   */
+  private final Deque<RawErasureDecoder> prefetchDecoders = new ArrayDeque<>();
+
   /**
    * When warning the user of a lost block in striping mode, we remember the
    * dead nodes we've logged. All other striping blocks on these nodes can be
@@ -104,6 +123,7 @@ public class DFSStripedInputStream extends DFSInputStream {
         dataBlkNum, parityBlkNum);
     decoder = CodecUtil.createRawDecoder(dfsClient.getConfiguration(),
         ecPolicy.getCodecName(), coderOptions);
+    prefetchStripes = dfsClient.getConf().getStripedReadPrefetchStripes();
     if (DFSClient.LOG.isDebugEnabled()) {
       DFSClient.LOG.debug("Creating an striped input stream for file " + src);
     }
@@ -192,6 +212,12 @@ public synchronized void close() throws IOException {
         decoder.release();
         decoder = null;
       }
+      synchronized (prefetchDecoders) {
+        for (RawErasureDecoder prefetchDecoder : prefetchDecoders) {
+          prefetchDecoder.release();
+        }
+        prefetchDecoders.clear();
+      }
     }
   }
 
@@ -202,26 +228,25 @@ public synchronized void close() throws IOException {
    */
   @Override
   protected void closeCurrentBlockReaders() {
+    cancelPrefetch();
     resetCurStripeBuffer();
     if (blockReaders ==  null || blockReaders.length == 0) {
       return;
     }
+    closeBlockReaders();
+    blockEnd = -1;
+  }
+
+  private void closeBlockReaders() {
     for (int i = 0; i < groupSize; i++) {
       closeReader(blockReaders[i]);
       blockReaders[i] = null;
     }
-    blockEnd = -1;
   }
 
   protected void closeReader(BlockReaderInfo readerInfo) {
     if (readerInfo != null) {
-      if (readerInfo.reader != null) {
-        try {
-          readerInfo.reader.close();
-        } catch (Throwable ignored) {
-        }
-      }
-      readerInfo.skip();
+      readerInfo.close();
     }
   }
 
@@ -292,10 +317,15 @@ boolean createBlockReader(LocatedBlock block, long offsetInBlock,
    */
   private void readOneStripe(CorruptedBlocks corruptedBlocks)
       throws IOException {
-    resetCurStripeBuffer();
-
     // compute stripe range based on pos
     final long offsetInBlockGroup = getOffsetInBlockGroup();
+    if (takePrefetchedStripe(offsetInBlockGroup, corruptedBlocks)) {
+      prefetch();
+      return;
+    }
+    cancelPrefetch();
+    resetCurStripeBuffer();
+
     final long stripeLen = cellSize * dataBlkNum;
     final int stripeIndex = (int) (offsetInBlockGroup / stripeLen);
     final int stripeBufOffset = (int) (offsetInBlockGroup % stripeLen);
@@ -320,6 +350,164 @@ private void readOneStripe(CorruptedBlocks corruptedBlocks)
     curStripeBuf.position(stripeBufOffset);
     curStripeBuf.limit(stripeLimit);
     curStripeRange = stripeRange;
+    prefetch();
+  }
+
+  /**
+   * A stripe read ahead of the current stripe. It is read like a positional
+   * read, with block readers of its own, so the cells of all the stripes read
+   * ahead are read together on the striped reads thread pool. Waiting for
+   * the cells and decoding them is done on the striped decode thread pool,
+   * with a decoder taken from {@link #prefetchDecoders}.
+   */
+  private final class PrefetchedStripe {
+    private final StripeRange range;
+    private final long offsetInBlockGroup;
+    private final ByteBuffer stripeBuf;
+    private final CorruptedBlocks corruptedBlocks = new CorruptedBlocks();
+    private volatile boolean cancelled = false;
+    private Future<Void> future;
+
+    PrefetchedStripe(long offsetInBlockGroup, int length) {
+      this.offsetInBlockGroup = offsetInBlockGroup;
+      this.range = new StripeRange(offsetInBlockGroup, length);
+      this.stripeBuf = BUFFER_POOL.getBuffer(useDirectBuffer(),
+          cellSize * dataBlkNum);
+      stripeBuf.clear();
+    }
+
+    void submit(final LocatedStripedBlock blockGroup) {
+      future = dfsClient.getStripedDecodeThreadPool().submit(
+          new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              if (cancelled) {
+                return null;
+              }
+              RawErasureDecoder stripeDecoder = takePrefetchDecoder();
+              try {
+                readByteRange(blockGroup, offsetInBlockGroup,
+                    offsetInBlockGroup + range.getLength() - 1,
+                    stripeBuf.duplicate(), corruptedBlocks, stripeDecoder);
+              } finally {
+                returnPrefetchDecoder(stripeDecoder);
+              }
+              return null;
+            }
+          });
+    }
+
+    /** Wait for the stripe to be read, whether or not that succeeds. */
+    void waitQuietly() {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException ignored) {
+      }
+    }
+
+    /** Discard the stripe, once it is no longer being read. */
+    void release() {
+      BUFFER_POOL.putBuffer(stripeBuf);
+    }
+  }
+
+  private RawErasureDecoder takePrefetchDecoder() {
+    synchronized (prefetchDecoders) {
+      RawErasureDecoder prefetchDecoder = prefetchDecoders.pollFirst();
+      if (prefetchDecoder != null) {
+        return prefetchDecoder;
+      }
+    }
+    return CodecUtil.createRawDecoder(dfsClient.getConfiguration(),
+        ecPolicy.getCodecName(),
+        new ErasureCoderOptions(dataBlkNum, parityBlkNum));
+  }
+
+  private void returnPrefetchDecoder(RawErasureDecoder prefetchDecoder) {
+    synchronized (prefetchDecoders) {
+      prefetchDecoders.addLast(prefetchDecoder);
+    }
+  }
+
+  /**
+   * Start reading ahead the stripes following the current stripe, or the
+   * last stripe being read ahead, up to the end of the current block group.
+   */
+  private void prefetch() {
+    if (prefetchStripes <= 0 || prefetchedStripes.size() >= prefetchStripes) {
+      return;
+    }
+    final long stripeLen = (long) cellSize * dataBlkNum;
+    final long blockGroupSize = currentLocatedBlock.getBlockSize();
+    PrefetchedStripe last = prefetchedStripes.peekLast();
+    long offsetInBlockGroup = last != null
+        ? last.offsetInBlockGroup + stripeLen
+        : (curStripeRange.getOffsetInBlock() / stripeLen + 1) * stripeLen;
+    LocatedStripedBlock blockGroup = (LocatedStripedBlock) currentLocatedBlock;
+    while (prefetchedStripes.size() < prefetchStripes
+        && offsetInBlockGroup < blockGroupSize) {
+      PrefetchedStripe stripe = new PrefetchedStripe(offsetInBlockGroup,
+          (int) Math.min(blockGroupSize - offsetInBlockGroup, stripeLen));
+      stripe.submit(blockGroup);
+      prefetchedStripes.add(stripe);
+      offsetInBlockGroup += stripeLen;
+    }
+  }
+
+  /**
+   * Make the first stripe read ahead the current stripe, if it covers the
+   * given offset and has been read successfully.
+   *
+   * @return false if the stripe has to be read again.
+   */
+  private boolean takePrefetchedStripe(long offsetInBlockGroup,
+      CorruptedBlocks corruptedBlocks) {
+    PrefetchedStripe stripe = prefetchedStripes.peekFirst();
+    if (stripe == null || !stripe.range.include(offsetInBlockGroup)) {
+      return false;
+    }
+    prefetchedStripes.removeFirst();
+    try {
+      Uninterruptibles.getUninterruptibly(stripe.future);
+    } catch (ExecutionException e) {
+      DFSClient.LOG.debug("Failed to read ahead the stripe at offset {} of {}, "
+          + "reading it again", stripe.offsetInBlockGroup, currentLocatedBlock,
+          e.getCause());
+      stripe.release();
+      return false;
+    }
+    for (Map.Entry<ExtendedBlock, Set<DatanodeInfo>> entry :
+        stripe.corruptedBlocks.getCorruptionMap().entrySet()) {
+      for (DatanodeInfo node : entry.getValue()) {
+        corruptedBlocks.addCorruptedBlock(entry.getKey(), node);
+      }
+    }
+    if (curStripeBuf != null) {
+      BUFFER_POOL.putBuffer(curStripeBuf);
+    }
+    curStripeBuf = stripe.stripeBuf;
+    stripe.stripeBuf.position(getStripedBufOffset(offsetInBlockGroup));
+    stripe.stripeBuf.limit((int) stripe.range.getLength());
+    curStripeRange = stripe.range;
+    // The block readers of the stream have not followed the stripes read
+    // ahead, so they would only have to skip them if they were used again.
+    closeBlockReaders();
+    return true;
+  }
+
+  /**
+   * Stop reading ahead, discarding the stripes read ahead. This waits for
+   * the stripes being read, since their buffers go back to the pool.
+   */
+  private void cancelPrefetch() {
+    for (PrefetchedStripe stripe : prefetchedStripes) {
+      stripe.cancelled = true;
+    }
+    PrefetchedStripe stripe;
+    while ((stripe = prefetchedStripes.pollFirst()) != null) {
+      stripe.waitQuietly();
+      stripe.release();
+    }
   }
 
   /**
@@ -464,7 +652,17 @@ protected void fetchBlockByteRange(LocatedBlock block, long start,
       throws IOException {
     // Refresh the striped block group
     LocatedStripedBlock blockGroup = getBlockGroupAt(block.getStartOffset());
+    readByteRange(blockGroup, start, end, buf, corruptedBlocks, decoder);
+    buf.position(buf.position() + (int)(end - start + 1));
+  }
 
+  /**
+   * Read a range of a block group into the given buffer, with block readers
+   * created for the range only, decoding with the given decoder.
+   */
+  private void readByteRange(LocatedStripedBlock blockGroup, long start,
+      long end, ByteBuffer buf, CorruptedBlocks corruptedBlocks,
+      RawErasureDecoder rangeDecoder) throws IOException {
     AlignedStripe[] stripes = StripedBlockUtil.divideByteRangeIntoStripes(
         ecPolicy, cellSize, blockGroup, start, end, buf);
     final LocatedBlock[] blks = StripedBlockUtil.parseStripedBlockGroup(
@@ -474,14 +672,13 @@ protected void fetchBlockByteRange(LocatedBlock block, long start,
       for (AlignedStripe stripe : stripes) {
         // Parse group to get chosen DN location
         StripeReader preader = new PositionStripeReader(stripe, ecPolicy, blks,
-            preaderInfos, corruptedBlocks, decoder, this);
+            preaderInfos, corruptedBlocks, rangeDecoder, this);
         try {
           preader.readStripe();
         } finally {
           preader.close();
         }
       }
-      buf.position(buf.position() + (int)(end - start + 1));
     } finally {
       for (BlockReaderInfo preaderInfo : preaderInfos) {
         closeReader(preaderInfo);
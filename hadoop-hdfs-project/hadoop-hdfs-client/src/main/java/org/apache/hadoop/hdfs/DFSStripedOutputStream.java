@@ -50,9 +50,11 @@
 import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -263,8 +265,94 @@ private void flipDataBuffers() {
     }
   }
 
+  /**
+   * A full stripe whose parity cells are computed in the background, while
+   * the data cells of the following stripes are buffered and streamed. Each
+   * encoding has its own encoder and checksum, since they are not
+   * thread-safe. The encoder only lives as long as the encoding, so it is
+   * released whether the stripe completes or fails, and a stream which is
+   * closed or aborted only has to wait for the encodings in progress.
+   */
+  private class PendingStripe {
+    /** The buffers of the stripe, or spare buffers while idle. */
+    private CellBuffers buffers;
+    private final DataChecksum stripeChecksum;
+    private Future<Void> future;
+
+    PendingStripe() {
+      buffers = new CellBuffers(numAllBlocks - numDataBlocks);
+      final DataChecksum sum = getDataChecksum();
+      stripeChecksum = DataChecksum.newDataChecksum(sum.getChecksumType(),
+          sum.getBytesPerChecksum());
+    }
+
+    /** Start computing the parity cells and their checksums. */
+    private void submit(ExecutorService executor) {
+      future = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          final RawErasureEncoder stripeEncoder = CodecUtil.createRawEncoder(
+              dfsClient.getConfiguration(), ecPolicy.getCodecName(),
+              new ErasureCoderOptions(numDataBlocks,
+                  numAllBlocks - numDataBlocks));
+          try {
+            final ByteBuffer[] cells = buffers.getBuffers();
+            encode(stripeEncoder, numDataBlocks, cells);
+            for (int i = numDataBlocks; i < numAllBlocks; i++) {
+              calculateChecksum(stripeChecksum, cells[i],
+                  buffers.getChecksumArray(i));
+            }
+            return null;
+          } finally {
+            stripeEncoder.release();
+          }
+        }
+      });
+    }
+
+    private void waitForParity() throws IOException {
+      try {
+        future.get();
+        future = null;
+      } catch (InterruptedException ie) {
+        // still encoding, setClosed waits for it before releasing buffers
+        throw DFSUtilClient.toInterruptedIOException(
+            "Interrupted while encoding a stripe, ", ie);
+      } catch (ExecutionException ee) {
+        future = null;
+        throw new IOException("Failed to encode a stripe", ee.getCause());
+      }
+    }
+
+    /**
+     * Wait for the encoding in progress, if any, ignoring its result. The
+     * wait is not cut short by an interrupt, since the buffers of the stripe
+     * are released afterwards.
+     */
+    private void waitQuietly() {
+      if (future == null) {
+        return;
+      }
+      boolean interrupted = false;
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        } catch (ExecutionException ignored) {
+          break;
+        }
+      }
+      future = null;
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
   private final Coordinator coordinator;
-  private final CellBuffers cellBuffers;
+  private CellBuffers cellBuffers;
   private final ErasureCodingPolicy ecPolicy;
   private final RawErasureEncoder encoder;
   private final List<StripedDataStreamer> streamers;
@@ -280,6 +368,12 @@ private void flipDataBuffers() {
   private final Map<Integer, Integer> corruptBlockCountMap;
   private ExecutorService flushAllExecutor;
   private CompletionService<Void> flushAllExecutorCompletionService;
+  /** Computes the parity cells, or null to compute them while writing. */
+  private final ExecutorService encodeExecutor;
+  private final int maxPendingStripes;
+  /** Stripes whose parity cells are not written yet, oldest first. */
+  private final Deque<PendingStripe> pendingStripes = new ArrayDeque<>();
+  private final Deque<PendingStripe> idleStripes = new ArrayDeque<>();
   private int blockGroupIndex;
 
   /** Construct a new output stream for creating a file. */
@@ -309,6 +403,9 @@ private void flipDataBuffers() {
     encoder = CodecUtil.createRawEncoder(dfsClient.getConfiguration(),
         ecPolicy.getCodecName(), coderOptions);
 
+    encodeExecutor = dfsClient.getStripedEncodeThreadPool();
+    maxPendingStripes = dfsClient.getConf().getStripedWriteMaxPendingStripes();
+
     coordinator = new Coordinator(numAllBlocks);
     cellBuffers = new CellBuffers(numParityBlocks);
 
@@ -546,11 +643,16 @@ protected synchronized void writeChunk(byte[] bytes, int offset, int len,
       //converted to packets and put to their DataStreamer's queue.
       if (next == numDataBlocks) {
         cellBuffers.flipDataBuffers();
-        writeParityCells();
+        if (encodeExecutor != null) {
+          submitParityCells();
+        } else {
+          writeParityCells();
+        }
         next = 0;
 
         // if this is the end of the block group, end each internal block
         if (shouldEndBlockGroup()) {
+          writePendingParityCells(0);
           flushAllInternals();
           checkStreamerFailures();
           for (int i = 0; i < numAllBlocks; i++) {
@@ -625,6 +727,8 @@ private void checkStreamerFailures() throws IOException {
       return;
     }
 
+    // complete the stripes written so far before bumping the GS
+    writePendingParityCells(0);
     // for healthy streamers, wait till all of them have fetched the new block
     // and flushed out all the enqueued packets.
     flushAllInternals();
@@ -985,6 +1089,9 @@ void abort() throws IOException {
         closeThreads(true);
       } catch (IOException e) {
         b.add(e);
+      } finally {
+        // closeThreads waited for the stripes being encoded
+        encoder.release();
       }
     }
 
@@ -1079,6 +1186,46 @@ void writeParityCells() throws IOException {
     cellBuffers.clear();
   }
 
+  /**
+   * Start computing the parity cells of the full stripe in the current
+   * buffers on {@link #encodeExecutor}, and switch to spare buffers for the
+   * next stripe. The parity cells are written by
+   * {@link #writePendingParityCells(int)}, in stripe order.
+   */
+  private void submitParityCells() throws IOException {
+    if (!checkAnyParityStreamerIsHealthy()) {
+      return;
+    }
+    writePendingParityCells(maxPendingStripes - 1);
+    PendingStripe stripe = idleStripes.poll();
+    if (stripe == null) {
+      stripe = new PendingStripe();
+    }
+    final CellBuffers spare = stripe.buffers;
+    stripe.buffers = cellBuffers;
+    cellBuffers = spare;
+    stripe.submit(encodeExecutor);
+    pendingStripes.add(stripe);
+  }
+
+  /**
+   * Write the parity cells of the oldest pending stripes, waiting for them
+   * to be computed, until at most maxPending stripes are left.
+   */
+  private void writePendingParityCells(int maxPending) throws IOException {
+    while (pendingStripes.size() > maxPending) {
+      final PendingStripe stripe = pendingStripes.peek();
+      stripe.waitForParity();
+      pendingStripes.poll();
+      final ByteBuffer[] buffers = stripe.buffers.getBuffers();
+      for (int i = numDataBlocks; i < numAllBlocks; i++) {
+        writeParity(i, buffers[i], stripe.buffers.getChecksumArray(i), false);
+      }
+      stripe.buffers.clear();
+      idleStripes.add(stripe);
+    }
+  }
+
   private boolean checkAnyParityStreamerIsHealthy() {
     for (int i = numDataBlocks; i < numAllBlocks; i++) {
       if (streamers.get(i).isHealthy()) {
@@ -1094,6 +1241,11 @@ private boolean checkAnyParityStreamerIsHealthy() {
 
   void writeParity(int index, ByteBuffer buffer, byte[] checksumBuf)
       throws IOException {
+    writeParity(index, buffer, checksumBuf, true);
+  }
+
+  private void writeParity(int index, ByteBuffer buffer, byte[] checksumBuf,
+      boolean calculateChecksum) throws IOException {
     final StripedDataStreamer current = setCurrentStreamer(index);
     final int len = buffer.limit();
 
@@ -1101,14 +1253,8 @@ void writeParity(int index, ByteBuffer buffer, byte[] checksumBuf)
     if (current.isHealthy()) {
       try {
         DataChecksum sum = getDataChecksum();
-        if (buffer.isDirect()) {
-          ByteBuffer directCheckSumBuf =
-              BUFFER_POOL.getBuffer(true, checksumBuf.length);
-          sum.calculateChunkedSums(buffer, directCheckSumBuf);
-          directCheckSumBuf.get(checksumBuf);
-          BUFFER_POOL.putBuffer(directCheckSumBuf);
-        } else {
-          sum.calculateChunkedSums(buffer.array(), 0, len, checksumBuf, 0);
+        if (calculateChecksum) {
+          calculateChecksum(sum, buffer, checksumBuf);
         }
 
         for (int i = 0; i < len; i += sum.getBytesPerChecksum()) {
@@ -1124,6 +1270,20 @@ void writeParity(int index, ByteBuffer buffer, byte[] checksumBuf)
     }
   }
 
+  private static void calculateChecksum(DataChecksum sum, ByteBuffer buffer,
+      byte[] checksumBuf) {
+    if (buffer.isDirect()) {
+      ByteBuffer directCheckSumBuf =
+          BUFFER_POOL.getBuffer(true, checksumBuf.length);
+      sum.calculateChunkedSums(buffer, directCheckSumBuf);
+      directCheckSumBuf.get(checksumBuf);
+      BUFFER_POOL.putBuffer(directCheckSumBuf);
+    } else {
+      sum.calculateChunkedSums(buffer.array(), 0, buffer.limit(),
+          checksumBuf, 0);
+    }
+  }
+
   @Override
   void setClosed() {
     super.setClosed();
@@ -1131,6 +1291,15 @@ void setClosed() {
       getStripedDataStreamer(i).release();
     }
     cellBuffers.release();
+    // the buffers of a stripe being encoded are released once it is done
+    for (PendingStripe stripe : pendingStripes) {
+      stripe.waitQuietly();
+    }
+    idleStripes.addAll(pendingStripes);
+    pendingStripes.clear();
+    for (PendingStripe stripe : idleStripes) {
+      stripe.buffers.release();
+    }
   }
 
   @Override
@@ -1164,6 +1333,7 @@ protected synchronized void closeImpl() throws IOException {
       try {
         // flush from all upper layers
         flushBuffer();
+        writePendingParityCells(0);
         // if the last stripe is incomplete, generate and write parity cells
         if (generateParityCellsForLastStripe()) {
           writeParityCells();
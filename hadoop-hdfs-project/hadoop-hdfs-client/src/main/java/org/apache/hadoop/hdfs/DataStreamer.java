@@ -30,6 +30,7 @@
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -473,6 +474,11 @@ boolean doWaitForRestart() {
   protected final BlockToWrite block; // its length is number of bytes acked
   protected Token<BlockTokenIdentifier> accessToken;
   private DataOutputStream blockStream;
+  /**
+   * The channel blockStream buffers, if packets in direct buffers can be
+   * written to it without copying them.
+   */
+  private WritableByteChannel blockChannel;
   private DataInputStream blockReplyStream;
   private ResponseProcessor response = null;
   private volatile DatanodeInfo[] nodes = null; // list of targets for current block
@@ -771,7 +777,7 @@ public void run() {
         // write out data to remote datanode
         try (TraceScope ignored = dfsClient.getTracer().
             newScope("DataStreamer#writeTo", spanId)) {
-          one.writeTo(blockStream);
+          one.writeTo(blockStream, blockChannel);
           blockStream.flush();
         } catch (IOException e) {
           // HDFS-3398 treat primary DN is down since client is unable to
@@ -1002,6 +1008,7 @@ void closeStream() {
         b.add(e);
       } finally {
         blockStream = null;
+        blockChannel = null;
       }
     }
     if (blockReplyStream != null) {
@@ -1779,6 +1786,8 @@ boolean createBlockOutputStream(DatanodeInfo[] nodes,
 
         assert null == blockStream : "Previous blockStream unclosed";
         blockStream = out;
+        blockChannel = unbufOut instanceof WritableByteChannel ?
+            (WritableByteChannel) unbufOut : null;
         result =  true; // success
         errorState.resetInternalError();
         // remove all restarting nodes from failed nodes list
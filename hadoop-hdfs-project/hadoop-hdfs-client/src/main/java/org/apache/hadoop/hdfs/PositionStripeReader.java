@@ -45,6 +45,12 @@ class PositionStripeReader extends StripeReader {
         corruptedBlocks, decoder, dfsStripedInputStream);
   }
 
+  @Override
+  long getHedgedReadThresholdMillis() {
+    return dfsStripedInputStream.getDFSClient().getConf()
+        .getStripedReadHedgedThresholdMillis();
+  }
+
   @Override
   void prepareDecodeInputs() {
     if (codingBuffer == null) {
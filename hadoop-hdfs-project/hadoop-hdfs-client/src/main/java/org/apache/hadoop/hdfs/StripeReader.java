@@ -88,6 +88,11 @@ static class BlockReaderInfo {
      * using it for the next stripe.
      */
     boolean shouldSkip = false;
+    /** Whether a read task is reading from the reader. */
+    private boolean reading = false;
+    /** Whether the reader is to be closed once the read task ends. */
+    private boolean closeAfterRead = false;
+    private boolean closed = false;
 
     BlockReaderInfo(BlockReader reader, DatanodeInfo dn, long offset) {
       this.reader = reader;
@@ -102,6 +107,60 @@ void setOffset(long offset) {
     void skip() {
       this.shouldSkip = true;
     }
+
+    /**
+     * Called by a read task before reading from the reader.
+     * @return false if the reader has been closed in the meantime.
+     */
+    synchronized boolean startRead() {
+      if (closed || closeAfterRead) {
+        return false;
+      }
+      reading = true;
+      return true;
+    }
+
+    /** Called by a read task once it is done with the reader. */
+    synchronized void endRead() {
+      reading = false;
+      if (closeAfterRead) {
+        closeReader();
+      }
+      notifyAll();
+    }
+
+    /** Wait for the read in progress, if any, to end. */
+    synchronized void awaitReadEnd() throws InterruptedException {
+      while (reading) {
+        wait();
+      }
+    }
+
+    /**
+     * Close the reader and do not use it any more. Closing the reader waits
+     * for the read in progress, if any, so the reader is only closed by the
+     * read task once it ends.
+     */
+    synchronized void close() {
+      skip();
+      if (reading) {
+        closeAfterRead = true;
+      } else {
+        closeReader();
+      }
+    }
+
+    private void closeReader() {
+      if (!closed) {
+        closed = true;
+        if (reader != null) {
+          try {
+            reader.close();
+          } catch (Throwable ignored) {
+          }
+        }
+      }
+    }
   }
 
   protected final Map<Future<Void>, Integer> futures = new HashMap<>();
@@ -249,6 +308,10 @@ private int readToBuffer(BlockReader blockReader,
       corruptedBlocks.addCorruptedBlock(currentBlock, currentNode);
       throw ce;
     } catch (IOException e) {
+      if (Thread.currentThread().isInterrupted()) {
+        // The read has been abandoned, see abandonPendingReads
+        throw e;
+      }
       DFSClient.LOG.warn("Exception while reading from "
           + currentBlock + " of " + dfsStripedInputStream.getSrc() + " from "
           + currentNode, e);
@@ -256,26 +319,33 @@ private int readToBuffer(BlockReader blockReader,
     }
   }
 
-  private Callable<Void> readCells(final BlockReader reader,
-      final DatanodeInfo datanode, final long currentReaderOffset,
-      final long targetReaderOffset, final ByteBufferStrategy[] strategies,
-      final ExtendedBlock currentBlock) {
+  private Callable<Void> readCells(final BlockReaderInfo readerInfo,
+      final long currentReaderOffset, final long targetReaderOffset,
+      final ByteBufferStrategy[] strategies, final ExtendedBlock currentBlock) {
     return () -> {
+      final BlockReader reader = readerInfo.reader;
       // reader can be null if getBlockReaderWithRetry failed or
       // the reader hit exception before
       if (reader == null) {
         throw new IOException("The BlockReader is null. " +
             "The BlockReader creation failed or the reader hit exception.");
       }
-      Preconditions.checkState(currentReaderOffset <= targetReaderOffset);
-      if (currentReaderOffset < targetReaderOffset) {
-        long skipped = reader.skip(targetReaderOffset - currentReaderOffset);
-        Preconditions.checkState(
-            skipped == targetReaderOffset - currentReaderOffset);
+      if (!readerInfo.startRead()) {
+        throw new IOException("The BlockReader has been closed.");
       }
+      try {
+        Preconditions.checkState(currentReaderOffset <= targetReaderOffset);
+        if (currentReaderOffset < targetReaderOffset) {
+          long skipped = reader.skip(targetReaderOffset - currentReaderOffset);
+          Preconditions.checkState(
+              skipped == targetReaderOffset - currentReaderOffset);
+        }
 
-      for (ByteBufferStrategy strategy : strategies) {
-        readToBuffer(reader, datanode, strategy, currentBlock);
+        for (ByteBufferStrategy strategy : strategies) {
+          readToBuffer(reader, readerInfo.datanode, strategy, currentBlock);
+        }
+      } finally {
+        readerInfo.endRead();
       }
       return null;
     };
@@ -302,8 +372,7 @@ boolean readChunk(final LocatedBlock block, int chunkIndex)
     }
 
     chunk.state = StripingChunk.PENDING;
-    Callable<Void> readCallable = readCells(readerInfos[chunkIndex].reader,
-        readerInfos[chunkIndex].datanode,
+    Callable<Void> readCallable = readCells(readerInfos[chunkIndex],
         readerInfos[chunkIndex].blockReaderOffset,
         alignedStripe.getOffsetInBlock(), getReadStrategies(chunk),
         block.getBlock());
@@ -335,16 +404,24 @@ void readStripe() throws IOException {
     }
     // TODO: for a full stripe we can start reading (dataBlkNum + 1) chunks
 
+    long hedgedThresholdMillis = getHedgedReadThresholdMillis();
+    boolean hedged = false;
     // Input buffers for potential decode operation, which remains null until
     // first read failure
     while (!futures.isEmpty()) {
       try {
         StripingChunkReadResult r = StripedBlockUtil
-            .getNextCompletedStripedRead(service, futures, 0);
+            .getNextCompletedStripedRead(service, futures,
+                hedgedThresholdMillis);
         if (DFSClient.LOG.isDebugEnabled()) {
           DFSClient.LOG.debug("Read task returned: " + r + ", for stripe "
               + alignedStripe);
         }
+        if (r.state == StripingChunkReadResult.TIMEOUT) {
+          hedgedThresholdMillis = 0;
+          hedged = hedgeSlowReads();
+          continue;
+        }
         StripingChunk returnedChunk = alignedStripe.chunks[r.index];
         Preconditions.checkNotNull(returnedChunk);
         Preconditions.checkState(returnedChunk.state == StripingChunk.PENDING);
@@ -354,7 +431,11 @@ void readStripe() throws IOException {
           alignedStripe.fetchedChunksNum++;
           updateState4SuccessRead(r);
           if (alignedStripe.fetchedChunksNum == dataBlkNum) {
-            clearFutures();
+            if (hedged) {
+              abandonPendingReads();
+            } else {
+              clearFutures();
+            }
             break;
           }
         } else {
@@ -383,6 +464,90 @@ void readStripe() throws IOException {
     }
   }
 
+  /**
+   * @return how long to wait for the cells of the stripe before reading
+   *         parity cells to reconstruct the slow ones, or 0 to wait for them.
+   */
+  long getHedgedReadThresholdMillis() {
+    return 0;
+  }
+
+  /**
+   * Some data cells are taking too long to read. Read the stripe for
+   * decoding, with enough parity cells to reconstruct the cells still being
+   * read, and go on with whichever cells arrive first. Nothing is done if
+   * decoding has already started, or there are not enough parity blocks left
+   * to reconstruct the slow cells.
+   *
+   * @return whether parity cells are being read.
+   */
+  private boolean hedgeSlowReads() throws IOException {
+    if (alignedStripe.missingChunksNum > 0) {
+      return false;
+    }
+    int slow = 0;
+    int unreadableData = 0;
+    int readableParity = 0;
+    for (int i = 0; i < dataBlkNum + parityBlkNum; i++) {
+      StripingChunk chunk = alignedStripe.chunks[i];
+      if (chunk != null && chunk.state == StripingChunk.PENDING) {
+        slow++;
+      } else if (chunk == null || chunk.state == StripingChunk.REQUESTED) {
+        boolean readable = targetBlocks[i] != null
+            && (readerInfos[i] == null || !readerInfos[i].shouldSkip);
+        if (i < dataBlkNum && !readable) {
+          unreadableData++;
+        } else if (i >= dataBlkNum && readable) {
+          readableParity++;
+        }
+      }
+    }
+    if (slow == 0 || slow + unreadableData > readableParity) {
+      return false;
+    }
+    DFSClient.LOG.debug("Waited {}ms for {} cells of stripe {}; reading parity"
+        + " cells to reconstruct them", getHedgedReadThresholdMillis(), slow,
+        alignedStripe);
+    dfsStripedInputStream.getDFSClient().getHedgedReadMetrics()
+        .incHedgedReadOps();
+    readDataForDecoding();
+    readParityChunks(alignedStripe.missingChunksNum + slow);
+    return true;
+  }
+
+  /**
+   * Enough cells of a hedged stripe have been read. Abandon the reads still
+   * pending, and reconstruct their cells instead. The threads of the reads
+   * are interrupted, which fails their socket reads at once, and their
+   * readers are closed as the reads end. The reads are waited for, since
+   * they write into the buffers the cells are then decoded into.
+   */
+  private void abandonPendingReads() throws InterruptedException {
+    for (Map.Entry<Future<Void>, Integer> entry : futures.entrySet()) {
+      dfsStripedInputStream.closeReader(readerInfos[entry.getValue()]);
+      entry.getKey().cancel(true);
+    }
+    for (Map.Entry<Future<Void>, Integer> entry : futures.entrySet()) {
+      readerInfos[entry.getValue()].awaitReadEnd();
+      StripingChunk chunk = alignedStripe.chunks[entry.getValue()];
+      // Drop whatever part of the cell was read before the interrupt
+      if (chunk.useByteBuffer()) {
+        chunk.getByteBuffer().clear();
+      } else {
+        for (ByteBuffer slice : chunk.getChunkBuffer().getSlices()) {
+          slice.clear();
+        }
+      }
+      chunk.state = StripingChunk.MISSING;
+      alignedStripe.missingChunksNum++;
+      if (entry.getValue() < dataBlkNum) {
+        dfsStripedInputStream.getDFSClient().getHedgedReadMetrics()
+            .incHedgedReadWins();
+      }
+    }
+    futures.clear();
+  }
+
   /**
    * Some fetched {@link StripingChunk} might be stored in original application
    * buffer instead of prepared decode input buffers. Some others are beyond
@@ -419,8 +584,11 @@ void decodeAndFillBuffer(boolean fillBuffer) throws IOException {
       outputs[i] = decodeInputs[decodeIndices[i]];
       decodeInputs[decodeIndices[i]] = null;
     }
-    // Step 2: decode into prepared output buffers
-    decoder.decode(decodeInputs, decodeIndices, outputs);
+    // Step 2: decode into prepared output buffers. The decoder of a stream
+    // is shared by its stateful and positional reads, and is not thread-safe.
+    synchronized (decoder) {
+      decoder.decode(decodeInputs, decodeIndices, outputs);
+    }
 
     // Step 3: fill original application buffer with decoded data
     if (fillBuffer) {
@@ -275,6 +275,9 @@ interface Failover {
     int     CONNECTION_RETRIES_ON_SOCKET_TIMEOUTS_DEFAULT = 0;
     String  RANDOM_ORDER = PREFIX + "random.order";
     boolean RANDOM_ORDER_DEFAULT = false;
+    String  STANDBY_READ_BACKOFF_MS_KEY =
+        PREFIX + "standby-read.backoff.millis";
+    long    STANDBY_READ_BACKOFF_MS_DEFAULT = 10*SECOND;
   }
 
   /** dfs.client.write configuration properties */
@@ -300,6 +303,15 @@ interface ByteArrayManager {
           PREFIX + "count-reset-time-period-ms";
       long    COUNT_RESET_TIME_PERIOD_MS_DEFAULT = 10*SECOND;
     }
+
+    interface DirectBufferPool {
+      String PREFIX = Write.PREFIX + "direct-buffer-pool.";
+
+      String  ENABLED_KEY = PREFIX + "enabled";
+      boolean ENABLED_DEFAULT = false;
+      String  MAX_POOLED_BYTES_KEY = PREFIX + "max-pooled-bytes";
+      long    MAX_POOLED_BYTES_DEFAULT = 64*1024*1024;
+    }
   }
 
   /** dfs.client.block.write configuration properties */
@@ -377,6 +389,9 @@ interface Mmap {
     long    CACHE_TIMEOUT_MS_DEFAULT  = 60*MINUTE;
     String  RETRY_TIMEOUT_MS_KEY = PREFIX + "retry.timeout.ms";
     long    RETRY_TIMEOUT_MS_DEFAULT = 5*MINUTE;
+    String  UNCACHED_VERIFY_CHECKSUMS_KEY = PREFIX +
+        "uncached.verify.checksums";
+    boolean UNCACHED_VERIFY_CHECKSUMS_DEFAULT = true;
   }
 
   /** dfs.client.hedged.read configuration properties */
@@ -387,6 +402,17 @@ interface HedgedRead {
     long    THRESHOLD_MILLIS_DEFAULT = 500;
     String  THREADPOOL_SIZE_KEY = PREFIX + "threadpool.size";
     int     THREADPOOL_SIZE_DEFAULT = 0;
+    /**
+     * Percentile of the recent read latencies of a DataNode to wait for
+     * before hedging a read from it. 0 uses the fixed threshold.
+     */
+    String  THRESHOLD_PERCENTILE_KEY = PREFIX + "threshold.percentile";
+    double  THRESHOLD_PERCENTILE_DEFAULT = 0;
+    String  LATENCY_WINDOW_MS_KEY = PREFIX + "latency.window.ms";
+    long    LATENCY_WINDOW_MS_DEFAULT = 60000;
+    /** Maximum fraction of the reads in a latency window which may hedge. */
+    String  MAX_FRACTION_KEY = PREFIX + "max.fraction";
+    double  MAX_FRACTION_DEFAULT = 1.0;
   }
 
   /** dfs.client.read.striped configuration properties */
@@ -399,6 +425,58 @@ interface StripedRead {
      * span 6 DNs, so this default value accommodates 3 read streams
      */
     int     THREADPOOL_SIZE_DEFAULT = 18;
+    /**
+     * Number of stripes a stateful read fetches and decodes ahead of the
+     * current one. The cells of all of them are read together on the striped
+     * reads thread pool. 0 disables read-ahead.
+     */
+    String  PREFETCH_STRIPES_KEY = PREFIX + "prefetch.stripes";
+    int     PREFETCH_STRIPES_DEFAULT = 0;
+    /**
+     * Number of threads waiting for and decoding the stripes read ahead,
+     * shared by all the streams of the client.
+     */
+    String  DECODE_THREADPOOL_SIZE_KEY = PREFIX + "decode.threadpool.size";
+    int     DECODE_THREADPOOL_SIZE_DEFAULT = 4;
+    /**
+     * How long a positional read waits for the data cells of a stripe before
+     * it also reads parity cells to reconstruct the slow ones. 0 disables
+     * these hedged reads.
+     */
+    String  HEDGED_THRESHOLD_MILLIS_KEY = PREFIX + "hedged.threshold.millis";
+    long    HEDGED_THRESHOLD_MILLIS_DEFAULT = 0;
+  }
+
+  /** dfs.client.read.vectored configuration properties */
+  interface VectoredRead {
+    String PREFIX = Read.PREFIX + "vectored.";
+
+    /**
+     * Threads reading the combined ranges of vectored reads in parallel.
+     * With 0, the ranges are read one after the other by the caller.
+     */
+    String  THREADPOOL_SIZE_KEY = PREFIX + "threadpool.size";
+    int     THREADPOOL_SIZE_DEFAULT = 8;
+    /** The largest gap between two ranges read with one positional read. */
+    String  MIN_SEEK_SIZE_KEY = PREFIX + "min.seek.size";
+    int     MIN_SEEK_SIZE_DEFAULT = 64 * 1024;
+    String  MAX_MERGED_SIZE_KEY = PREFIX + "max.merged.size";
+    int     MAX_MERGED_SIZE_DEFAULT = 4 * 1024 * 1024;
+  }
+
+  /** dfs.client.write.striped configuration properties */
+  interface StripedWrite {
+    String PREFIX = Write.PREFIX + "striped.";
+
+    /**
+     * The threads computing the parity cells of striped writes, shared by all
+     * the streams of the client. When 0, each stream encodes on the thread
+     * writing to it.
+     */
+    String  ENCODE_THREADPOOL_SIZE_KEY = PREFIX + "encode.threadpool.size";
+    int     ENCODE_THREADPOOL_SIZE_DEFAULT = 0;
+    String  MAX_PENDING_STRIPES_KEY = PREFIX + "max-pending-stripes";
+    int     MAX_PENDING_STRIPES_DEFAULT = 2;
   }
 
   /** dfs.http.client configuration properties */
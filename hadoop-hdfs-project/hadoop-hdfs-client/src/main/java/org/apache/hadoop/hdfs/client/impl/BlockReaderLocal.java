@@ -686,6 +686,10 @@ public boolean isShortCircuit() {
    * not to munlock the block until this ClientMmap is closed.
    * If we fetch the latter, we don't bother with anchoring.
    *
+   * If the block is not mlocked, but ALLOW_UNCACHED_MMAP is given, we fetch
+   * an unanchored ClientMmap of a replica whose checksums the cache has
+   * verified once, when it mapped it.
+   *
    * @param opts     The options to use, such as SKIP_CHECKSUMS.
    *
    * @return         null on failure; the ClientMmap otherwise.
@@ -696,6 +700,9 @@ public ClientMmap getClientMmap(EnumSet<ReadOption> opts) {
         !opts.contains(ReadOption.SKIP_CHECKSUMS);
     if (anchor) {
       if (!createNoChecksumContext()) {
+        if (opts.contains(ReadOption.ALLOW_UNCACHED_MMAP)) {
+          return replica.getOrCreateVerifiedClientMmap();
+        }
         LOG.trace("can't get an mmap for {} of {} since SKIP_CHECKSUMS was not "
             + "given, we aren't skipping checksums, and the block is not "
             + "mlocked.", block, filename);
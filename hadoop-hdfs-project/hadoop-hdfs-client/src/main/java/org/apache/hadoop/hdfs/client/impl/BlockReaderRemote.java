@@ -31,6 +31,7 @@
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.fs.ReadOption;
 import org.apache.hadoop.hdfs.BlockReader;
+import org.apache.hadoop.hdfs.DFSClientFaultInjector;
 import org.apache.hadoop.hdfs.PeerCache;
 import org.apache.hadoop.hdfs.net.Peer;
 import org.apache.hadoop.hdfs.protocol.DatanodeID;
@@ -183,6 +184,7 @@ public synchronized int read(ByteBuffer buf) throws IOException {
   }
 
   private void readNextPacket() throws IOException {
+    DFSClientFaultInjector.get().delayWhenReadingPacket(blockId);
     //Read packet headers.
     packetReceiver.receiveNextPacket(in);
 
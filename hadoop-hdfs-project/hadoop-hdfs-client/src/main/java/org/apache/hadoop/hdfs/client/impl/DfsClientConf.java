@@ -107,6 +107,7 @@ public class DfsClientConf {
   private final int writePacketSize;
   private final int writeMaxPackets;
   private final ByteArrayManager.Conf writeByteArrayManagerConf;
+  private final long writeDirectBufferPoolMaxBytes;
   private final int socketTimeout;
   private final int socketSendBufferSize;
   private final long excludedNodesCacheExpiry;
@@ -131,10 +132,22 @@ public class DfsClientConf {
 
   private final long hedgedReadThresholdMillis;
   private final int hedgedReadThreadpoolSize;
+  private final double hedgedReadThresholdPercentile;
+  private final long hedgedReadLatencyWindowMs;
+  private final double hedgedReadMaxFraction;
   private final List<Class<? extends ReplicaAccessorBuilder>>
       replicaAccessorBuilderClasses;
 
   private final int stripedReadThreadpoolSize;
+  private final int stripedReadPrefetchStripes;
+  private final int stripedDecodeThreadpoolSize;
+  private final long stripedReadHedgedThresholdMillis;
+  private final int stripedEncodeThreadpoolSize;
+  private final int stripedWriteMaxPendingStripes;
+
+  private final int vectoredReadThreadpoolSize;
+  private final int vectoredReadMinSeekSize;
+  private final int vectoredReadMaxMergedSize;
 
   private final boolean dataTransferTcpNoDelay;
 
@@ -209,6 +222,18 @@ public DfsClientConf(Configuration conf) {
           countThreshold, countLimit, countResetTimePeriodMs);
     }
 
+    if (!conf.getBoolean(Write.DirectBufferPool.ENABLED_KEY,
+        Write.DirectBufferPool.ENABLED_DEFAULT)) {
+      writeDirectBufferPoolMaxBytes = -1;
+    } else {
+      writeDirectBufferPoolMaxBytes = conf.getLongBytes(
+          Write.DirectBufferPool.MAX_POOLED_BYTES_KEY,
+          Write.DirectBufferPool.MAX_POOLED_BYTES_DEFAULT);
+      Preconditions.checkArgument(writeDirectBufferPoolMaxBytes >= 0,
+          "The value of " + Write.DirectBufferPool.MAX_POOLED_BYTES_KEY +
+          " must not be negative.");
+    }
+
     defaultBlockSize = conf.getLongBytes(DFS_BLOCK_SIZE_KEY,
         DFS_BLOCK_SIZE_DEFAULT);
     defaultReplication = (short) conf.getInt(
@@ -250,6 +275,24 @@ public DfsClientConf(Configuration conf) {
     hedgedReadThreadpoolSize = conf.getInt(
         HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_KEY,
         HdfsClientConfigKeys.HedgedRead.THREADPOOL_SIZE_DEFAULT);
+    hedgedReadThresholdPercentile = conf.getDouble(
+        HedgedRead.THRESHOLD_PERCENTILE_KEY,
+        HedgedRead.THRESHOLD_PERCENTILE_DEFAULT);
+    Preconditions.checkArgument(hedgedReadThresholdPercentile >= 0
+        && hedgedReadThresholdPercentile < 100, "The value of "
+        + HedgedRead.THRESHOLD_PERCENTILE_KEY
+        + " must be at least 0 and less than 100.");
+    hedgedReadLatencyWindowMs = conf.getLong(
+        HedgedRead.LATENCY_WINDOW_MS_KEY,
+        HedgedRead.LATENCY_WINDOW_MS_DEFAULT);
+    Preconditions.checkArgument(hedgedReadLatencyWindowMs > 0, "The value of "
+        + HedgedRead.LATENCY_WINDOW_MS_KEY + " must be greater than 0.");
+    hedgedReadMaxFraction = conf.getDouble(
+        HedgedRead.MAX_FRACTION_KEY,
+        HedgedRead.MAX_FRACTION_DEFAULT);
+    Preconditions.checkArgument(hedgedReadMaxFraction >= 0
+        && hedgedReadMaxFraction <= 1, "The value of "
+        + HedgedRead.MAX_FRACTION_KEY + " must be between 0 and 1.");
 
     stripedReadThreadpoolSize = conf.getInt(
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY,
@@ -257,6 +300,62 @@ public DfsClientConf(Configuration conf) {
     Preconditions.checkArgument(stripedReadThreadpoolSize > 0, "The value of " +
         HdfsClientConfigKeys.StripedRead.THREADPOOL_SIZE_KEY +
         " must be greater than 0.");
+    stripedReadPrefetchStripes = conf.getInt(
+        HdfsClientConfigKeys.StripedRead.PREFETCH_STRIPES_KEY,
+        HdfsClientConfigKeys.StripedRead.PREFETCH_STRIPES_DEFAULT);
+    Preconditions.checkArgument(stripedReadPrefetchStripes >= 0,
+        "The value of " + HdfsClientConfigKeys.StripedRead.PREFETCH_STRIPES_KEY
+        + " must not be negative.");
+    stripedDecodeThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.StripedRead.DECODE_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.StripedRead.DECODE_THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(stripedDecodeThreadpoolSize > 0,
+        "The value of " +
+        HdfsClientConfigKeys.StripedRead.DECODE_THREADPOOL_SIZE_KEY +
+        " must be greater than 0.");
+    stripedReadHedgedThresholdMillis = conf.getLong(
+        HdfsClientConfigKeys.StripedRead.HEDGED_THRESHOLD_MILLIS_KEY,
+        HdfsClientConfigKeys.StripedRead.HEDGED_THRESHOLD_MILLIS_DEFAULT);
+    Preconditions.checkArgument(stripedReadHedgedThresholdMillis >= 0,
+        "The value of "
+        + HdfsClientConfigKeys.StripedRead.HEDGED_THRESHOLD_MILLIS_KEY
+        + " must not be negative.");
+    stripedEncodeThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.StripedWrite.ENCODE_THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.StripedWrite.ENCODE_THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(stripedEncodeThreadpoolSize >= 0,
+        "The value of " +
+        HdfsClientConfigKeys.StripedWrite.ENCODE_THREADPOOL_SIZE_KEY +
+        " must not be negative.");
+    stripedWriteMaxPendingStripes = conf.getInt(
+        HdfsClientConfigKeys.StripedWrite.MAX_PENDING_STRIPES_KEY,
+        HdfsClientConfigKeys.StripedWrite.MAX_PENDING_STRIPES_DEFAULT);
+    Preconditions.checkArgument(stripedWriteMaxPendingStripes > 0,
+        "The value of " +
+        HdfsClientConfigKeys.StripedWrite.MAX_PENDING_STRIPES_KEY +
+        " must be greater than 0.");
+
+    vectoredReadThreadpoolSize = conf.getInt(
+        HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY,
+        HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_DEFAULT);
+    Preconditions.checkArgument(vectoredReadThreadpoolSize >= 0,
+        "The value of " +
+        HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY +
+        " must not be negative.");
+    vectoredReadMinSeekSize = conf.getInt(
+        HdfsClientConfigKeys.VectoredRead.MIN_SEEK_SIZE_KEY,
+        HdfsClientConfigKeys.VectoredRead.MIN_SEEK_SIZE_DEFAULT);
+    Preconditions.checkArgument(vectoredReadMinSeekSize >= 0,
+        "The value of " +
+        HdfsClientConfigKeys.VectoredRead.MIN_SEEK_SIZE_KEY +
+        " must not be negative.");
+    vectoredReadMaxMergedSize = conf.getInt(
+        HdfsClientConfigKeys.VectoredRead.MAX_MERGED_SIZE_KEY,
+        HdfsClientConfigKeys.VectoredRead.MAX_MERGED_SIZE_DEFAULT);
+    Preconditions.checkArgument(vectoredReadMaxMergedSize > 0,
+        "The value of " +
+        HdfsClientConfigKeys.VectoredRead.MAX_MERGED_SIZE_KEY +
+        " must be greater than 0.");
     replicaAccessorBuilderClasses = loadReplicaAccessorBuilderClasses(conf);
   }
 
@@ -411,6 +510,14 @@ public ByteArrayManager.Conf getWriteByteArrayManagerConf() {
     return writeByteArrayManagerConf;
   }
 
+  /**
+   * @return the writeDirectBufferPoolMaxBytes, or -1 if packets are not
+   *         written from pooled direct buffers
+   */
+  public long getWriteDirectBufferPoolMaxBytes() {
+    return writeDirectBufferPoolMaxBytes;
+  }
+
   /**
    * @return whether TCP_NODELAY should be set on client sockets
    */
@@ -551,6 +658,27 @@ public int getHedgedReadThreadpoolSize() {
     return hedgedReadThreadpoolSize;
   }
 
+  /**
+   * @return the hedgedReadThresholdPercentile
+   */
+  public double getHedgedReadThresholdPercentile() {
+    return hedgedReadThresholdPercentile;
+  }
+
+  /**
+   * @return the hedgedReadLatencyWindowMs
+   */
+  public long getHedgedReadLatencyWindowMs() {
+    return hedgedReadLatencyWindowMs;
+  }
+
+  /**
+   * @return the hedgedReadMaxFraction
+   */
+  public double getHedgedReadMaxFraction() {
+    return hedgedReadMaxFraction;
+  }
+
   /**
    * @return the stripedReadThreadpoolSize
    */
@@ -558,6 +686,62 @@ public int getStripedReadThreadpoolSize() {
     return stripedReadThreadpoolSize;
   }
 
+  /**
+   * @return the stripedReadPrefetchStripes
+   */
+  public int getStripedReadPrefetchStripes() {
+    return stripedReadPrefetchStripes;
+  }
+
+  /**
+   * @return the stripedDecodeThreadpoolSize
+   */
+  public int getStripedDecodeThreadpoolSize() {
+    return stripedDecodeThreadpoolSize;
+  }
+
+  /**
+   * @return the stripedReadHedgedThresholdMillis
+   */
+  public long getStripedReadHedgedThresholdMillis() {
+    return stripedReadHedgedThresholdMillis;
+  }
+
+  /**
+   * @return the stripedEncodeThreadpoolSize
+   */
+  public int getStripedEncodeThreadpoolSize() {
+    return stripedEncodeThreadpoolSize;
+  }
+
+  /**
+   * @return the stripedWriteMaxPendingStripes
+   */
+  public int getStripedWriteMaxPendingStripes() {
+    return stripedWriteMaxPendingStripes;
+  }
+
+  /**
+   * @return the vectoredReadThreadpoolSize
+   */
+  public int getVectoredReadThreadpoolSize() {
+    return vectoredReadThreadpoolSize;
+  }
+
+  /**
+   * @return the vectoredReadMinSeekSize
+   */
+  public int getVectoredReadMinSeekSize() {
+    return vectoredReadMinSeekSize;
+  }
+
+  /**
+   * @return the vectoredReadMaxMergedSize
+   */
+  public int getVectoredReadMaxMergedSize() {
+    return vectoredReadMaxMergedSize;
+  }
+
   /**
    * @return the replicaAccessorBuilderClasses
    */
@@ -601,6 +785,7 @@ public static class ShortCircuitConf {
     private final int shortCircuitMmapCacheSize;
     private final long shortCircuitMmapCacheExpiryMs;
     private final long shortCircuitMmapCacheRetryTimeout;
+    private final boolean shortCircuitMmapUncachedVerifyChecksums;
     private final long shortCircuitCacheStaleThresholdMs;
 
     private final long keyProviderCacheExpiryMs;
@@ -673,6 +858,9 @@ public ShortCircuitConf(Configuration conf) {
       shortCircuitMmapCacheRetryTimeout = conf.getLong(
           Mmap.RETRY_TIMEOUT_MS_KEY,
           Mmap.RETRY_TIMEOUT_MS_DEFAULT);
+      shortCircuitMmapUncachedVerifyChecksums = conf.getBoolean(
+          Mmap.UNCACHED_VERIFY_CHECKSUMS_KEY,
+          Mmap.UNCACHED_VERIFY_CHECKSUMS_DEFAULT);
       shortCircuitCacheStaleThresholdMs = conf.getLong(
           ShortCircuit.REPLICA_STALE_THRESHOLD_MS_KEY,
           ShortCircuit.REPLICA_STALE_THRESHOLD_MS_DEFAULT);
@@ -786,6 +974,13 @@ public long getShortCircuitMmapCacheRetryTimeout() {
       return shortCircuitMmapCacheRetryTimeout;
     }
 
+    /**
+     * @return the shortCircuitMmapUncachedVerifyChecksums
+     */
+    public boolean isShortCircuitMmapUncachedVerifyChecksums() {
+      return shortCircuitMmapUncachedVerifyChecksums;
+    }
+
     /**
      * @return the shortCircuitCacheStaleThresholdMs
      */
@@ -812,6 +1007,8 @@ public String confAsString() {
           + shortCircuitMmapCacheExpiryMs
           + ", shortCircuitMmapCacheRetryTimeout = "
           + shortCircuitMmapCacheRetryTimeout
+          + ", shortCircuitMmapUncachedVerifyChecksums = "
+          + shortCircuitMmapUncachedVerifyChecksums
           + ", shortCircuitCacheStaleThresholdMs = "
           + shortCircuitCacheStaleThresholdMs
           + ", socketCacheCapacity = "
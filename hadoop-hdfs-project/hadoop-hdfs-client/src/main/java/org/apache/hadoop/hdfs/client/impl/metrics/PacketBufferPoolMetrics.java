@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.client.impl.metrics;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.io.BoundedByteBufferPool;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+
+/**
+ * This class publishes the counters of the pool of the direct buffers of
+ * the packets written by the DFSClients sharing a ClientContext.
+ */
+@InterfaceAudience.Private
+@Metrics(about="DFSClient's pool of direct packet buffers", context="dfs")
+public class PacketBufferPoolMetrics {
+
+  private static final String PACKET_BUFFER_POOL_METRIC_REGISTERED_NAME =
+      "HdfsClientPacketBufferPool";
+
+  private final BoundedByteBufferPool pool;
+
+  private PacketBufferPoolMetrics(BoundedByteBufferPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * @return the name of the metrics source of the pool of the ClientContext
+   *         with the given name.
+   */
+  public static String getSourceName(String contextName) {
+    return PACKET_BUFFER_POOL_METRIC_REGISTERED_NAME + "-" + contextName;
+  }
+
+  public static PacketBufferPoolMetrics create(String contextName,
+      BoundedByteBufferPool pool) {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    PacketBufferPoolMetrics metrics = new PacketBufferPoolMetrics(pool);
+
+    ms.register(getSourceName(contextName), null, metrics);
+    return metrics;
+  }
+
+  @Metric(value = "Number of packet buffers taken from the pool",
+      type = Metric.Type.COUNTER)
+  public long getHits() {
+    return pool.getHits();
+  }
+
+  @Metric(value = "Number of packet buffers allocated",
+      type = Metric.Type.COUNTER)
+  public long getAllocations() {
+    return pool.getAllocations();
+  }
+
+  @Metric(value = "Total size of the packet buffers allocated",
+      type = Metric.Type.COUNTER)
+  public long getAllocatedBytes() {
+    return pool.getAllocatedBytes();
+  }
+
+  @Metric(value = "Total size of the packet buffers dropped by the full pool",
+      type = Metric.Type.COUNTER)
+  public long getDroppedBytes() {
+    return pool.getDroppedBytes();
+  }
+
+  @Metric("Total size of the idle packet buffers in the pool")
+  public long getPooledBytes() {
+    return pool.getPooledBytes();
+  }
+}
@@ -17,7 +17,8 @@
  */
 
 /**
- * Support for tracking Block Reader Local's latencies.
+ * Support for tracking Block Reader Local's latencies, and the use of the
+ * pool of the packet buffers written by DFSClient.
  */
 @InterfaceAudience.Private
 @InterfaceStability.Evolving
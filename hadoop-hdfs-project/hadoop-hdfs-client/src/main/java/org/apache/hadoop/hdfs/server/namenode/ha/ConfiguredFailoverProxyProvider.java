@@ -121,7 +121,15 @@ public Class<T> getInterface() {
    */
   @Override
   public synchronized ProxyInfo<T> getProxy() {
-    AddressRpcProxyPair<T> current = proxies.get(currentProxyIndex);
+    return getProxy(currentProxyIndex);
+  }
+
+  /**
+   * Lazily initialize the RPC proxy object to the NameNode at the given
+   * index, regardless of which NameNode is currently in use.
+   */
+  synchronized ProxyInfo<T> getProxy(int index) {
+    AddressRpcProxyPair<T> current = proxies.get(index);
     if (current.namenode == null) {
       try {
         current.namenode = factory.createProxy(conf,
@@ -143,6 +151,14 @@ synchronized void incrementProxyIndex() {
     currentProxyIndex = (currentProxyIndex + 1) % proxies.size();
   }
 
+  synchronized int getCurrentProxyIndex() {
+    return currentProxyIndex;
+  }
+
+  int getProxyCount() {
+    return proxies.size();
+  }
+
   /**
    * A little pair object to store the address and connected RPC proxy object to
    * an NN. Note that {@link AddressRpcProxyPair#namenode} may be null.
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.ha;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.ClientGSIContext;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.RetriableException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.apache.hadoop.util.Time;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link org.apache.hadoop.io.retry.FailoverProxyProvider} implementation
+ * which sends {@link ReadOnly} calls to the standby NameNodes and everything
+ * else to the active NameNode, as {@link ConfiguredFailoverProxyProvider}
+ * does.
+ *
+ * Every request carries the last transaction id the client has seen in a
+ * response. A standby holds a read back until it has applied edits up to that
+ * id, so the client reads its own writes. Until the client has seen any
+ * state, reads go to the active NameNode; {@link
+ * org.apache.hadoop.hdfs.protocol.ClientProtocol#msync()} may be called to
+ * pick up writes of other clients. If no standby can serve a read, it is sent
+ * to the active NameNode. A standby which failed a read is not tried again
+ * for {@code dfs.client.failover.standby-read.backoff.millis}.
+ *
+ * The NameNodes must have
+ * {@code dfs.ha.standby.consistent-reads.enabled} set to serve such reads.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Evolving
+public class StandbyReadProxyProvider<T> extends
+    ConfiguredFailoverProxyProvider<T> {
+
+  private static final Logger LOG =
+      LoggerFactory.getLogger(StandbyReadProxyProvider.class);
+
+  private final ClientGSIContext alignmentContext;
+  private final T readProxy;
+  private final long backoffNanos;
+  /** The time from which each NameNode is tried again for reads. */
+  private final AtomicLongArray retryAfterNanos;
+
+  public StandbyReadProxyProvider(Configuration conf, URI uri,
+      Class<T> xface, HAProxyFactory<T> factory) {
+    super(conf, uri, xface, factory);
+    this.alignmentContext = new ClientGSIContext();
+    if (factory instanceof ClientHAProxyFactory) {
+      ((ClientHAProxyFactory<T>) factory).setAlignmentContext(
+          alignmentContext);
+    }
+    this.backoffNanos = TimeUnit.MILLISECONDS.toNanos(conf.getLong(
+        HdfsClientConfigKeys.Failover.STANDBY_READ_BACKOFF_MS_KEY,
+        HdfsClientConfigKeys.Failover.STANDBY_READ_BACKOFF_MS_DEFAULT));
+    this.retryAfterNanos = new AtomicLongArray(getProxyCount());
+    final long now = Time.monotonicNowNanos();
+    for (int i = 0; i < retryAfterNanos.length(); i++) {
+      retryAfterNanos.set(i, now);
+    }
+    this.readProxy = xface.cast(Proxy.newProxyInstance(
+        xface.getClassLoader(), new Class<?>[] {xface},
+        new StandbyReadInvocationHandler()));
+  }
+
+  @VisibleForTesting
+  ClientGSIContext getAlignmentContext() {
+    return alignmentContext;
+  }
+
+  /**
+   * @return true if the NameNode at the given index failed a read recently
+   * and is not tried for reads until its back-off has passed.
+   */
+  @VisibleForTesting
+  boolean isBackingOff(int index) {
+    return Time.monotonicNowNanos() - retryAfterNanos.get(index) < 0;
+  }
+
+  @Override
+  public synchronized ProxyInfo<T> getProxy() {
+    return new ProxyInfo<T>(readProxy, super.getProxy().proxyInfo);
+  }
+
+  /**
+   * @return true if a failed read on a standby should be retried on another
+   * NameNode rather than reported to the caller.
+   */
+  private static boolean shouldTryNext(IOException e) {
+    if (e instanceof RemoteException) {
+      IOException unwrapped = ((RemoteException) e).unwrapRemoteException(
+          StandbyException.class, RetriableException.class);
+      return unwrapped instanceof StandbyException ||
+          unwrapped instanceof RetriableException;
+    }
+    // Connection failures and the like.
+    return true;
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args)
+      throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  class StandbyReadInvocationHandler implements InvocationHandler {
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      final int active = getCurrentProxyIndex();
+      if (method.isAnnotationPresent(ReadOnly.class) &&
+          alignmentContext.getLastSeenStateId() != Long.MIN_VALUE) {
+        final int n = getProxyCount();
+        for (int i = 1; i < n; i++) {
+          final int index = (active + i) % n;
+          if (isBackingOff(index)) {
+            continue;
+          }
+          final ProxyInfo<T> standby = getProxy(index);
+          try {
+            return StandbyReadProxyProvider.invoke(standby.proxy, method,
+                args);
+          } catch (IOException e) {
+            if (!shouldTryNext(e)) {
+              throw e;
+            }
+            retryAfterNanos.set(index, Time.monotonicNowNanos() + backoffNanos);
+            LOG.debug("Failed to read {} from {}, trying the next NameNode",
+                method.getName(), standby.proxyInfo, e);
+          }
+        }
+      }
+      return StandbyReadProxyProvider.invoke(getProxy(active).proxy, method,
+          args);
+    }
+  }
+}
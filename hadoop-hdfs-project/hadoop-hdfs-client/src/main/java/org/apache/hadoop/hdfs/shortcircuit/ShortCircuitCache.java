@@ -314,6 +314,13 @@ public interface ShortCircuitReplicaCreator {
    */
   private final long staleThresholdMs;
 
+  /**
+   * Whether the checksums of a replica which is not anchored in memory are
+   * verified when it is first mapped for a reader which verifies checksums.
+   * If not, such replicas are mapped without any verification.
+   */
+  private final boolean verifyUnanchoredMmapChecksums;
+
   /**
    * True if the ShortCircuitCache is closed.
    */
@@ -337,12 +344,22 @@ public static ShortCircuitCache fromConf(ShortCircuitConf conf) {
         conf.getShortCircuitMmapCacheExpiryMs(),
         conf.getShortCircuitMmapCacheRetryTimeout(),
         conf.getShortCircuitCacheStaleThresholdMs(),
-        conf.getShortCircuitSharedMemoryWatcherInterruptCheckMs());
+        conf.getShortCircuitSharedMemoryWatcherInterruptCheckMs(),
+        conf.isShortCircuitMmapUncachedVerifyChecksums());
   }
 
   public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs,
       int maxEvictableMmapedSize, long maxEvictableMmapedLifespanMs,
       long mmapRetryTimeoutMs, long staleThresholdMs, int shmInterruptCheckMs) {
+    this(maxTotalSize, maxNonMmappedEvictableLifespanMs,
+        maxEvictableMmapedSize, maxEvictableMmapedLifespanMs,
+        mmapRetryTimeoutMs, staleThresholdMs, shmInterruptCheckMs, true);
+  }
+
+  public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs,
+      int maxEvictableMmapedSize, long maxEvictableMmapedLifespanMs,
+      long mmapRetryTimeoutMs, long staleThresholdMs, int shmInterruptCheckMs,
+      boolean verifyUnanchoredMmapChecksums) {
     Preconditions.checkArgument(maxTotalSize >= 0);
     this.maxTotalSize = maxTotalSize;
     Preconditions.checkArgument(maxNonMmappedEvictableLifespanMs >= 0);
@@ -353,6 +370,7 @@ public ShortCircuitCache(int maxTotalSize, long maxNonMmappedEvictableLifespanMs
     this.maxEvictableMmapedLifespanMs = maxEvictableMmapedLifespanMs;
     this.mmapRetryTimeoutMs = mmapRetryTimeoutMs;
     this.staleThresholdMs = staleThresholdMs;
+    this.verifyUnanchoredMmapChecksums = verifyUnanchoredMmapChecksums;
     DfsClientShmManager shmManager = null;
     if ((shmInterruptCheckMs > 0) &&
         (DomainSocketWatcher.getLoadingFailureReason() == null)) {
@@ -859,6 +877,63 @@ ClientMmap getOrCreateClientMmap(ShortCircuitReplica replica,
     }
   }
 
+  /**
+   * Get or create an mmap of a replica which is not anchored in memory by
+   * the DataNode, for a reader which verifies checksums.
+   *
+   * Unless the cache is configured otherwise, the checksums of the whole
+   * replica are verified the first time it is mapped this way.  The result
+   * is kept for the lifetime of the replica in the cache: a replica whose
+   * checksums do not match is never mapped this way, so its reader falls
+   * back to reads which verify checksums, and report the corruption.  If
+   * the checksums could not be read, nothing is kept, and they are verified
+   * again by the next reader.
+   *
+   * @param replica   The replica to map.
+   * @return          null on failure; the ClientMmap otherwise.
+   */
+  ClientMmap getOrCreateVerifiedClientMmap(ShortCircuitReplica replica) {
+    Boolean verified = Boolean.TRUE;
+    if (verifyUnanchoredMmapChecksums) {
+      lock.lock();
+      try {
+        verified = replica.mmapChecksumsVerified;
+      } finally {
+        lock.unlock();
+      }
+      if (Boolean.FALSE.equals(verified)) {
+        LOG.trace("{}: can't create client mmap for {} because its checksums "
+            + "did not match.", this, replica);
+        return null;
+      }
+    }
+    ClientMmap clientMmap = getOrCreateClientMmap(replica, false);
+    if ((clientMmap == null) || (verified != null)) {
+      return clientMmap;
+    }
+    // Concurrent readers may verify the checksums more than once, which is
+    // harmless.
+    boolean result;
+    try {
+      result = replica.verifyChecksums(clientMmap.getMappedByteBuffer());
+    } catch (IOException e) {
+      LOG.warn(this + ": failed to verify the checksums of " + replica, e);
+      clientMmap.close();
+      return null;
+    }
+    lock.lock();
+    try {
+      replica.mmapChecksumsVerified = result;
+    } finally {
+      lock.unlock();
+    }
+    if (!result) {
+      clientMmap.close();
+      return null;
+    }
+    return clientMmap;
+  }
+
   /**
    * Close the cache and free all associated resources.
    */
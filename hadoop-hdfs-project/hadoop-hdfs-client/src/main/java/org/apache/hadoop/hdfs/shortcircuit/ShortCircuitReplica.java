@@ -17,18 +17,22 @@
  */
 package org.apache.hadoop.hdfs.shortcircuit;
 
+import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 
 import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.hdfs.ExtendedBlockId;
 import org.apache.hadoop.hdfs.server.datanode.BlockMetadataHeader;
 import org.apache.hadoop.hdfs.shortcircuit.ShortCircuitShm.Slot;
 import org.apache.hadoop.hdfs.util.IOUtilsClient;
 import org.apache.hadoop.io.nativeio.NativeIO;
+import org.apache.hadoop.util.DataChecksum;
 import org.apache.hadoop.util.Time;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -50,6 +54,11 @@ public class ShortCircuitReplica {
   public static final Logger LOG = LoggerFactory.getLogger(
       ShortCircuitCache.class);
 
+  /**
+   * The number of bytes of data whose checksums are verified at once.
+   */
+  private static final int VERIFY_BATCH_SIZE = 1024 * 1024;
+
   /**
    * Identifies this ShortCircuitReplica object.
    */
@@ -94,6 +103,15 @@ public class ShortCircuitReplica {
    */
   Object mmapData;
 
+  /**
+   * Whether the checksums of the whole replica were found to match, when it
+   * was first mapped without being anchored, or null if they have not been
+   * verified.
+   *
+   * Protected by the cache lock.
+   */
+  Boolean mmapChecksumsVerified = null;
+
   /**
    * True if this replica has been purged from the cache; false otherwise.
    *
@@ -274,6 +292,16 @@ public ClientMmap getOrCreateClientMmap(boolean anchor) {
     return cache.getOrCreateClientMmap(this, anchor);
   }
 
+  /**
+   * Get an mmap of the replica for a reader which verifies checksums,
+   * although the replica is not anchored in memory by the DataNode.
+   *
+   * @return    null on failure; the ClientMmap otherwise.
+   */
+  public ClientMmap getOrCreateVerifiedClientMmap() {
+    return cache.getOrCreateVerifiedClientMmap(this);
+  }
+
   MappedByteBuffer loadMmapInternal() {
     try {
       FileChannel channel = dataStream.getChannel();
@@ -290,6 +318,55 @@ MappedByteBuffer loadMmapInternal() {
     }
   }
 
+  /**
+   * Verify the checksums of all the data of the replica.
+   *
+   * @param data    The mapped data of the replica.
+   * @return        True if all the checksums match; false if one does not.
+   * @throws IOException if the checksums could not be read.
+   */
+  boolean verifyChecksums(ByteBuffer data) throws IOException {
+    DataChecksum checksum = metaHeader.getChecksum();
+    int bytesPerChecksum = checksum.getBytesPerChecksum();
+    int checksumSize = checksum.getChecksumSize();
+    if (checksumSize == 0) {
+      return true;
+    }
+    int chunksPerBatch = Math.max(1, VERIFY_BATCH_SIZE / bytesPerChecksum);
+    ByteBuffer checksums =
+        ByteBuffer.allocateDirect(chunksPerBatch * checksumSize);
+    FileChannel metaChannel = metaStream.getChannel();
+    long metaPos = BlockMetadataHeader.getHeaderSize();
+    try {
+      for (int pos = 0; pos < data.limit();) {
+        int len = Math.min(data.limit() - pos,
+            chunksPerBatch * bytesPerChecksum);
+        int numChunks = (len + bytesPerChecksum - 1) / bytesPerChecksum;
+        checksums.clear();
+        checksums.limit(numChunks * checksumSize);
+        while (checksums.hasRemaining()) {
+          if (metaChannel.read(checksums,
+              metaPos + checksums.position()) < 0) {
+            throw new EOFException("unexpected end of the checksums at " +
+                "offset " + pos + " of the data");
+          }
+        }
+        checksums.flip();
+        ByteBuffer batch = data.duplicate();
+        batch.position(pos);
+        batch.limit(pos + len);
+        checksum.verifyChunkedSums(batch, checksums, key.toString(), pos);
+        pos += len;
+        metaPos += numChunks * checksumSize;
+      }
+    } catch (ChecksumException e) {
+      LOG.warn(this + ": checksum mismatch in the mmap", e);
+      return false;
+    }
+    LOG.trace("{}: verified the checksums of {} bytes", this, data.limit());
+    return true;
+  }
+
   /**
    * Get the evictable time in nanoseconds.
    *
@@ -889,6 +889,10 @@ public boolean include(long pos) {
       return pos >= offsetInBlock && pos < offsetInBlock + length;
     }
 
+    public long getOffsetInBlock() {
+      return offsetInBlock;
+    }
+
     public long getLength() {
       return length;
     }
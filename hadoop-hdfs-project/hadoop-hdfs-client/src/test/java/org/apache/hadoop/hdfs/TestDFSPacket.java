@@ -17,8 +17,14 @@
  */
 package org.apache.hadoop.hdfs;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.Random;
 import org.apache.hadoop.hdfs.protocol.datatransfer.PacketHeader;
+import org.apache.hadoop.hdfs.util.ByteArrayManager;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.htrace.core.SpanId;
 import org.junit.Assert;
@@ -56,6 +62,43 @@ public void testPacket() throws Exception {
 
   }
 
+  @Test
+  public void testPacketInDirectBuffer() throws Exception {
+    Random r = new Random(12345L);
+    byte[] data =  new byte[chunkSize];
+    r.nextBytes(data);
+    byte[] checksum = new byte[checksumSize];
+    r.nextBytes(checksum);
+    BoundedByteBufferPool pool = new BoundedByteBufferPool(true,
+        Integer.MAX_VALUE, data.length * 4);
+
+    for (boolean toChannel : new boolean[] {false, true}) {
+      ByteBuffer packetBuf = pool.getBuffer(true, data.length * 2);
+      DFSPacket p = new DFSPacket(packetBuf, pool, maxChunksPerPacket,
+          0, 0, checksumSize, false);
+      p.setSyncBlock(true);
+      p.writeData(ByteBuffer.wrap(data), data.length);
+      p.writeChecksum(checksum, 0, checksum.length);
+
+      ByteArrayOutputStream channelOut = new ByteArrayOutputStream();
+      DataOutputBuffer os =  new DataOutputBuffer(data.length * 2);
+      p.writeTo(new DataOutputStream(os),
+          toChannel ? Channels.newChannel(channelOut) : null);
+      byte[] readBuf = toChannel ? channelOut.toByteArray() : os.getData();
+      Assert.assertEquals(toChannel, os.getLength() == 0);
+
+      int headerLen = PacketHeader.PKT_MAX_HEADER_LEN;
+      assertArrayRegionsEqual(readBuf, headerLen, checksum, 0,
+          checksum.length);
+      assertArrayRegionsEqual(readBuf, headerLen + checksum.length, data, 0,
+          data.length);
+
+      p.releaseBuffer(ByteArrayManager.newInstance(null));
+    }
+    Assert.assertEquals(1, pool.getHits());
+    Assert.assertEquals(1, pool.getAllocations());
+  }
+
   public static void assertArrayRegionsEqual(byte []buf1, int off1, byte []buf2,
                                              int off2, int len) {
     for (int i = 0; i < len; i++) {
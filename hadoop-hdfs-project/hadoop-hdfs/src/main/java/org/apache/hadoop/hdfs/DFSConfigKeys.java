@@ -115,6 +115,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final boolean DFS_DATANODE_SYNC_BEHIND_WRITES_DEFAULT = false;
   public static final String  DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_KEY = "dfs.datanode.sync.behind.writes.in.background";
   public static final boolean DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_DEFAULT = false;
+  public static final String  DFS_DATANODE_WRITE_COALESCE_BYTES_KEY = "dfs.datanode.write.coalesce.bytes";
+  public static final int     DFS_DATANODE_WRITE_COALESCE_BYTES_DEFAULT = 0;
+  public static final String  DFS_DATANODE_WRITE_COALESCE_MAX_DELAY_MS_KEY = "dfs.datanode.write.coalesce.max-delay-ms";
+  public static final long    DFS_DATANODE_WRITE_COALESCE_MAX_DELAY_MS_DEFAULT = 50;
   public static final String  DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY = "dfs.datanode.drop.cache.behind.reads";
   public static final boolean DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT = false;
   public static final String  DFS_DATANODE_USE_DN_HOSTNAME = "dfs.datanode.use.datanode.hostname";
@@ -328,6 +332,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.namenode.edits.asynclogging";
   public static final boolean DFS_NAMENODE_EDITS_ASYNC_LOGGING_DEFAULT = true;
 
+  public static final String  DFS_NAMENODE_EDITS_READ_AHEAD_OPS_KEY =
+      "dfs.namenode.edits.read-ahead.ops";
+  public static final int     DFS_NAMENODE_EDITS_READ_AHEAD_OPS_DEFAULT = 0;
+
   public static final String  DFS_LIST_LIMIT = "dfs.ls.limit";
   public static final int     DFS_LIST_LIMIT_DEFAULT = 1000;
   public static final String  DFS_CONTENT_SUMMARY_LIMIT_KEY = "dfs.content-summary.limit";
@@ -340,6 +348,8 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final boolean DFS_DATANODE_SYNCONCLOSE_DEFAULT = false;
   public static final String  DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_KEY = "dfs.datanode.socket.reuse.keepalive";
   public static final int     DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_DEFAULT = 4000;
+  public static final String  DFS_DATANODE_TRANSFER_EVENT_DRIVEN_KEY = "dfs.datanode.transfer.event-driven";
+  public static final boolean DFS_DATANODE_TRANSFER_EVENT_DRIVEN_DEFAULT = false;
   public static final String  DFS_DATANODE_OOB_TIMEOUT_KEY = "dfs.datanode.oob.timeout-ms";
   public static final String  DFS_DATANODE_OOB_TIMEOUT_DEFAULT = "1500,0,0,0"; // OOB_TYPE1, OOB_TYPE2, OOB_TYPE3, OOB_TYPE4
 
@@ -455,6 +465,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String DFS_NAMENODE_FSLOCK_FAIR_KEY =
       "dfs.namenode.fslock.fair";
   public static final boolean DFS_NAMENODE_FSLOCK_FAIR_DEFAULT = true;
+  public static final String DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY =
+      "dfs.namenode.fslock.separate-block-manager-lock";
+  public static final boolean DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_DEFAULT =
+      false;
 
   public static final String  DFS_NAMENODE_LOCK_DETAILED_METRICS_KEY =
       "dfs.namenode.lock.detailed-metrics.enabled";
@@ -473,6 +487,10 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
       "dfs.lock.suppress.warning.interval";
   public static final long DFS_LOCK_SUPPRESS_WARNING_INTERVAL_DEFAULT =
       10000; //ms
+  // Whether the DataNode dataset read/write lock is fair
+  public static final String DFS_DATANODE_LOCK_FAIR_KEY =
+      "dfs.datanode.lock.fair";
+  public static final boolean DFS_DATANODE_LOCK_FAIR_DEFAULT = true;
 
   public static final String  DFS_UPGRADE_DOMAIN_FACTOR = "dfs.namenode.upgrade.domain.factor";
   public static final int DFS_UPGRADE_DOMAIN_FACTOR_DEFAULT = DFS_REPLICATION_DEFAULT;
@@ -705,6 +723,22 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final int     DFS_NAMENODE_MAX_FULL_BLOCK_REPORT_LEASES_DEFAULT = 6;
   public static final String  DFS_NAMENODE_FULL_BLOCK_REPORT_LEASE_LENGTH_MS = "dfs.namenode.full.block.report.lease.length.ms";
   public static final long    DFS_NAMENODE_FULL_BLOCK_REPORT_LEASE_LENGTH_MS_DEFAULT = 5L * 60L * 1000L;
+  public static final String  DFS_NAMENODE_FULL_BLOCK_REPORT_READ_LOCK_DIFF_KEY = "dfs.namenode.full.block.report.read.lock.diff";
+  public static final boolean DFS_NAMENODE_FULL_BLOCK_REPORT_READ_LOCK_DIFF_DEFAULT = false;
+  // Queue of block reports and incremental block reports applied in batches
+  public static final String  DFS_NAMENODE_BLOCKREPORT_QUEUE_SIZE_KEY =
+      "dfs.namenode.blockreport.queue.size";
+  public static final int     DFS_NAMENODE_BLOCKREPORT_QUEUE_SIZE_DEFAULT =
+      1024;
+  public static final String  DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_OPS_KEY =
+      "dfs.namenode.blockreport.batch.max-ops";
+  public static final int     DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_OPS_DEFAULT =
+      0;
+  public static final String
+      DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_LOCK_HOLD_MS_KEY =
+      "dfs.namenode.blockreport.batch.max-lock-hold-ms";
+  public static final long
+      DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_LOCK_HOLD_MS_DEFAULT = 4;
   public static final String  DFS_CACHEREPORT_INTERVAL_MSEC_KEY = "dfs.cachereport.intervalMsec";
   public static final long    DFS_CACHEREPORT_INTERVAL_MSEC_DEFAULT = 10 * 1000;
   public static final String  DFS_BLOCK_INVALIDATE_LIMIT_KEY = "dfs.block.invalidate.limit";
@@ -728,6 +762,20 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String DFS_IMAGE_COMPRESSION_CODEC_DEFAULT =
                                    "org.apache.hadoop.io.compress.DefaultCodec";
 
+  // property for parallel fsimage loading
+  public static final String DFS_IMAGE_PARALLEL_LOAD_KEY =
+      "dfs.image.parallel.load";
+  public static final boolean DFS_IMAGE_PARALLEL_LOAD_DEFAULT = false;
+  public static final String DFS_IMAGE_PARALLEL_TARGET_SECTIONS_KEY =
+      "dfs.image.parallel.target.sections";
+  public static final int DFS_IMAGE_PARALLEL_TARGET_SECTIONS_DEFAULT = 12;
+  public static final String DFS_IMAGE_PARALLEL_INODE_THRESHOLD_KEY =
+      "dfs.image.parallel.inode.threshold";
+  public static final int DFS_IMAGE_PARALLEL_INODE_THRESHOLD_DEFAULT = 1000000;
+  public static final String DFS_IMAGE_PARALLEL_THREADS_KEY =
+      "dfs.image.parallel.threads";
+  public static final int DFS_IMAGE_PARALLEL_THREADS_DEFAULT = 4;
+
   public static final String DFS_IMAGE_TRANSFER_RATE_KEY =
                                            "dfs.image.transfer.bandwidthPerSec";
   public static final long DFS_IMAGE_TRANSFER_RATE_DEFAULT = 0;  //no throttling
@@ -871,6 +919,12 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String  DFS_HA_TAILEDITS_INPROGRESS_KEY =
           "dfs.ha.tail-edits.in-progress";
   public static final boolean DFS_HA_TAILEDITS_INPROGRESS_DEFAULT = false;
+  public static final String DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_KEY =
+      "dfs.ha.tail-edits.qjm.rpc.max-txns";
+  public static final int DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_DEFAULT = 5000;
+  public static final String DFS_HA_STANDBY_CONSISTENT_READS_KEY =
+      "dfs.ha.standby.consistent-reads.enabled";
+  public static final boolean DFS_HA_STANDBY_CONSISTENT_READS_DEFAULT = false;
   public static final String DFS_HA_TAILEDITS_ROLLEDITS_TIMEOUT_KEY =
       "dfs.ha.tail-edits.rolledits.timeout";
   public static final int DFS_HA_TAILEDITS_ROLLEDITS_TIMEOUT_DEFAULT = 60; // 1m
@@ -961,6 +1015,9 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String DFS_JOURNALNODE_SYNC_INTERVAL_KEY =
       "dfs.journalnode.sync.interval";
   public static final long DFS_JOURNALNODE_SYNC_INTERVAL_DEFAULT = 2*60*1000L;
+  public static final String DFS_JOURNALNODE_EDIT_CACHE_SIZE_KEY =
+      "dfs.journalnode.edit-cache-size.bytes";
+  public static final int DFS_JOURNALNODE_EDIT_CACHE_SIZE_DEFAULT = 1024 * 1024;
 
   // Journal-node related configs for the client side.
   public static final String  DFS_QJOURNAL_QUEUE_SIZE_LIMIT_KEY = "dfs.qjournal.queued-edits.limit.mb";
@@ -1150,6 +1207,9 @@ public class DFSConfigKeys extends CommonConfigurationKeys {
   public static final String DFS_ROUTER_HANDLER_COUNT_KEY =
       FEDERATION_ROUTER_PREFIX + "handler.count";
   public static final int DFS_ROUTER_HANDLER_COUNT_DEFAULT = 10;
+  public static final String DFS_ROUTER_ASYNC_HANDLER_COUNT_KEY =
+      FEDERATION_ROUTER_PREFIX + "async.handler.count";
+  public static final int DFS_ROUTER_ASYNC_HANDLER_COUNT_DEFAULT = 0;
   public static final String DFS_ROUTER_READER_QUEUE_SIZE_KEY =
       FEDERATION_ROUTER_PREFIX + "reader.queue.size";
   public static final int DFS_ROUTER_READER_QUEUE_SIZE_DEFAULT = 100;
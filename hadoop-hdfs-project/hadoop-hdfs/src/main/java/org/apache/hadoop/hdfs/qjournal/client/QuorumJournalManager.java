@@ -37,6 +37,7 @@
 import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.DFSUtil;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournalStateResponseProto;
+import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournaledEditsResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.NewEpochResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.PrepareRecoveryResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.SegmentStateProto;
@@ -77,6 +78,10 @@ public class QuorumJournalManager implements JournalManager {
   private final int newEpochTimeoutMs;
   private final int writeTxnsTimeoutMs;
 
+  // Maximum number of transactions to fetch at a time when using the
+  // RPC edit fetching mechanism
+  private final int maxTxnsPerRpc;
+
   // This timeout is used for calls that don't occur during normal operation
   // e.g. format, upgrade operations and a few others. So we can use rather
   // lengthy timeouts by default.
@@ -156,6 +161,12 @@ public QuorumJournalManager(Configuration conf,
             .DFS_QJM_OPERATIONS_TIMEOUT,
         DFSConfigKeys.DFS_QJM_OPERATIONS_TIMEOUT_DEFAULT, TimeUnit
             .MILLISECONDS);
+    this.maxTxnsPerRpc = conf.getInt(
+        DFSConfigKeys.DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_KEY,
+        DFSConfigKeys.DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_DEFAULT);
+    Preconditions.checkArgument(maxTxnsPerRpc > 0,
+        "Must specify %s greater than 0!",
+        DFSConfigKeys.DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_KEY);
   }
   
   protected List<AsyncLogger> createLoggers(
@@ -471,7 +482,91 @@ public void selectInputStreams(Collection<EditLogInputStream> streams,
   public void selectInputStreams(Collection<EditLogInputStream> streams,
       long fromTxnId, boolean inProgressOk,
       boolean onlyDurableTxns) throws IOException {
+    if (inProgressOk && onlyDurableTxns) {
+      // A tailing reader: try to fetch the latest edits from the in-memory
+      // caches of the JournalNodes first, which is much cheaper than
+      // listing and streaming the edit log files over HTTP.
+      try {
+        selectRpcInputStreams(streams, fromTxnId);
+        return;
+      } catch (IOException ioe) {
+        LOG.debug("Encountered exception while tailing edits >= " +
+            fromTxnId + " via RPC; falling back to streaming.", ioe);
+      }
+    }
+    selectStreamingInputStreams(streams, fromTxnId, inProgressOk,
+        onlyDurableTxns);
+  }
 
+  /**
+   * Select input streams from the in-memory edits caches of the
+   * JournalNodes. Only transactions which a quorum of JournalNodes has
+   * returned for the most recent writer epoch, and which are therefore
+   * durable, are read.
+   *
+   * @throws IOException if a quorum of JournalNodes could not serve the
+   *         edits of that epoch, e.g. because they are no longer cached
+   */
+  private void selectRpcInputStreams(Collection<EditLogInputStream> streams,
+      long fromTxnId) throws IOException {
+    QuorumCall<AsyncLogger, GetJournaledEditsResponseProto> q =
+        loggers.getJournaledEdits(fromTxnId, maxTxnsPerRpc);
+    Map<AsyncLogger, GetJournaledEditsResponseProto> responseMap =
+        loggers.waitForWriteQuorum(q, selectInputStreamsTimeoutMs,
+            "selectRpcInputStreams");
+    assert responseMap.size() >= loggers.getMajoritySize() :
+        "Quorum call returned without a majority";
+
+    // A JournalNode which has not heard from the latest writer yet may still
+    // cache edits which were replaced during recovery, so only the
+    // responses of the latest epoch are trusted.
+    long epoch = 0;
+    for (GetJournaledEditsResponseProto resp : responseMap.values()) {
+      epoch = Math.max(epoch, resp.getEpoch());
+    }
+    List<Integer> responseCounts = Lists.newArrayList();
+    for (GetJournaledEditsResponseProto resp : responseMap.values()) {
+      if (resp.getEpoch() == epoch) {
+        responseCounts.add(resp.getTxnCount());
+      }
+    }
+    if (responseCounts.size() < loggers.getMajoritySize()) {
+      throw new IOException("Only " + responseCounts.size() +
+          " JournalNodes returned edits of the latest writer epoch " + epoch);
+    }
+    Collections.sort(responseCounts);
+    // The highest count which at least a majority of the JournalNodes has
+    int highestTxnCount = responseCounts.get(
+        responseCounts.size() - loggers.getMajoritySize());
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Selected loggers with >= " + highestTxnCount +
+          " transactions starting from " + fromTxnId);
+    }
+    if (highestTxnCount == 0) {
+      // Nothing new to read
+      return;
+    }
+
+    final PriorityQueue<EditLogInputStream> allStreams =
+        new PriorityQueue<EditLogInputStream>(64,
+            JournalSet.EDIT_LOG_INPUT_STREAM_COMPARATOR);
+    long endTxnId = fromTxnId + highestTxnCount - 1;
+    for (GetJournaledEditsResponseProto resp : responseMap.values()) {
+      if (resp.getEpoch() == epoch && resp.getTxnCount() >= highestTxnCount) {
+        allStreams.add(EditLogFileInputStream.fromByteString(
+            resp.getEditLog(), fromTxnId, endTxnId, true));
+      }
+    }
+    JournalSet.chainAndMakeRedundantStreams(streams, allStreams, fromTxnId);
+  }
+
+  /**
+   * Select input streams by listing the edit log segments of the
+   * JournalNodes and streaming them from their HTTP servers.
+   */
+  private void selectStreamingInputStreams(
+      Collection<EditLogInputStream> streams, long fromTxnId,
+      boolean inProgressOk, boolean onlyDurableTxns) throws IOException {
     QuorumCall<AsyncLogger, RemoteEditLogManifest> q =
         loggers.getEditLogManifest(fromTxnId, inProgressOk);
     Map<AsyncLogger, RemoteEditLogManifest> resps =
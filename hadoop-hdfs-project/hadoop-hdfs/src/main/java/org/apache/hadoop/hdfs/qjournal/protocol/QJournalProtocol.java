@@ -24,6 +24,7 @@
 import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.qjournal.client.QuorumJournalManager;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetEditLogManifestResponseProto;
+import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournaledEditsResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournalStateResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.NewEpochResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.PrepareRecoveryResponseProto;
@@ -139,6 +140,22 @@ GetEditLogManifestResponseProto getEditLogManifest(String jid,
                                                      long sinceTxId,
                                                      boolean inProgressOk)
       throws IOException;
+
+  /**
+   * Fetch recently journaled edits of the in-progress segment from the
+   * JournalNode's in-memory cache.
+   *
+   * @param jid the journal from which to fetch edits
+   * @param nameServiceId the name service id of the journal, if any
+   * @param sinceTxId the first transaction which the client cares about
+   * @param maxTxns the maximum number of transactions to fetch
+   * @return the number of transactions from sinceTxId on, and the
+   *         serialized edits containing them
+   * @throws IOException if the edits are not cached, in which case the
+   *         client should fall back to {@link #getEditLogManifest}
+   */
+  GetJournaledEditsResponseProto getJournaledEdits(String jid,
+      String nameServiceId, long sinceTxId, int maxTxns) throws IOException;
   
   /**
    * Begin the recovery process for a given segment. See the HDFS-3077
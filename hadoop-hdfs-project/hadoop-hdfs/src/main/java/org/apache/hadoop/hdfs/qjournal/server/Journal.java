@@ -39,7 +39,9 @@
 import org.apache.hadoop.hdfs.qjournal.protocol.JournalNotFormattedException;
 import org.apache.hadoop.hdfs.qjournal.protocol.JournalOutOfSyncException;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocol;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos;
+import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournaledEditsResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.NewEpochResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.PersistedRecoveryPaxosData;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.PrepareRecoveryResponseProto;
@@ -147,6 +149,12 @@ public class Journal implements Closeable {
    */
   private static final int WARN_SYNC_MILLIS_THRESHOLD = 1000;
 
+  /**
+   * Recently written edits of the current segment, served to tailing
+   * NameNodes by {@link #getJournaledEdits(long, int)}.
+   */
+  private final JournaledEditsCache cache;
+
   Journal(Configuration conf, File logDir, String journalId,
       StartupOption startOpt, StorageErrorReporter errorReporter)
       throws IOException {
@@ -158,6 +166,10 @@ public class Journal implements Closeable {
     this.fjm = storage.getJournalManager();
     
     this.metrics = JournalMetrics.create(this);
+
+    this.cache = new JournaledEditsCache(conf.getInt(
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_KEY,
+        DFSConfigKeys.DFS_JOURNALNODE_EDIT_CACHE_SIZE_DEFAULT));
     
     EditLogFile latest = scanStorageForLatestEdits();
     if (latest != null) {
@@ -234,6 +246,7 @@ void format(NamespaceInfo nsInfo) throws IOException {
         nsInfo);
     storage.format(nsInfo);
     refreshCachedData();
+    cache.invalidate();
   }
 
   /**
@@ -328,6 +341,9 @@ synchronized NewEpochResponseProto newEpoch(
     
     updateLastPromisedEpoch(epoch);
     abortCurSegment();
+    // The new writer may replace the end of the last segment during
+    // recovery, even if it has been finalized.
+    cache.invalidate();
     
     NewEpochResponseProto.Builder builder =
         NewEpochResponseProto.newBuilder();
@@ -359,6 +375,7 @@ private void abortCurSegment() throws IOException {
     curSegment.abort();
     curSegment = null;
     curSegmentTxId = HdfsServerConstants.INVALID_TXID;
+    cache.invalidate();
   }
 
   /**
@@ -435,7 +452,8 @@ synchronized void journal(RequestInfo reqInfo,
     metrics.batchesWritten.incr(1);
     metrics.bytesWritten.incr(records.length);
     metrics.txnsWritten.incr(numTxns);
-    
+
+    cache.storeEdits(records, firstTxnId, lastTxnId);
     updateHighestWrittenTxId(lastTxnId);
     nextTxId = lastTxnId + 1;
     lastJournalTimestamp = Time.now();
@@ -584,6 +602,7 @@ public synchronized void startLogSegment(RequestInfo reqInfo, long txid,
     purgePaxosDecision(txid);
     
     curSegment = fjm.startLogSegment(txid, layoutVersion);
+    cache.startSegment(txid, layoutVersion, reqInfo.getEpoch());
     curSegmentTxId = txid;
     nextTxId = txid;
   }
@@ -639,6 +658,9 @@ public synchronized void finalizeLogSegment(RequestInfo reqInfo, long startTxId,
               elf + " with different endTxId " + endTxId);
     }
 
+    // The edits cache keeps the edits of the finalized segment until the
+    // next segment is started, as they can no longer change.
+
     // Once logs are finalized, a different length will never be decided.
     // During recovery, we treat a finalized segment the same as an accepted
     // recovery. Thus, we no longer need to keep track of the previously-
@@ -701,6 +723,22 @@ public RemoteEditLogManifest getEditLogManifest(long sinceTxId,
     return new RemoteEditLogManifest(logs, getCommittedTxnId());
   }
 
+  /**
+   * @see QJournalProtocol#getJournaledEdits(String, String, long, int)
+   */
+  public GetJournaledEditsResponseProto getJournaledEdits(long sinceTxId,
+      int maxTxns) throws IOException {
+    // Like getEditLogManifest(), anyone may read the edits; this is
+    // deliberately not synchronized so that it does not wait on writes.
+    checkFormatted();
+    JournaledEditsCache.Edits edits = cache.getEdits(sinceTxId, maxTxns);
+    return GetJournaledEditsResponseProto.newBuilder()
+        .setTxnCount(edits.getTxnCount())
+        .setEditLog(edits.getData())
+        .setEpoch(edits.getEpoch())
+        .build();
+  }
+
   /**
    * @return the current state of the given segment, or null if the
    * segment does not exist.
@@ -888,6 +926,8 @@ public synchronized void acceptRecovery(RequestInfo reqInfo,
       FileUtil.replaceFile(syncedFile,
           storage.getInProgressEditLog(segmentTxId));
     }
+    // The cached edits may be of the segment which was just replaced.
+    cache.invalidate();
 
     LOG.info("Accepted recovery for segment " + segmentTxId + ": " +
         TextFormat.shortDebugString(newData));
@@ -0,0 +1,226 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.qjournal.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hdfs.server.common.HdfsServerConstants;
+import org.apache.hadoop.hdfs.server.namenode.EditLogFileOutputStream;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
+
+/**
+ * An in-memory cache of the most recent edits of the current segment of a
+ * {@link Journal}, so that they can be served to tailing NameNodes over RPC
+ * without reading them back from disk or going through the HTTP servlet.
+ *
+ * Edits are kept in the batches in which they were written, keyed by the
+ * first transaction id of each batch, up to a fixed number of bytes; the
+ * oldest batches are evicted first. The cache only ever holds a contiguous
+ * range of transactions of a single segment; starting a new segment or
+ * writing a discontiguous batch clears it. A request for transactions older
+ * than the cached range fails with a {@link CacheMissException}, and the
+ * reader is expected to fall back to reading the edit log files.
+ */
+class JournaledEditsCache {
+  private static final Log LOG = LogFactory.getLog(JournaledEditsCache.class);
+
+  private final int capacity;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final NavigableMap<Long, byte[]> batches = new TreeMap<>();
+  private int size = 0;
+  /** The first transaction id which may be served, if any. */
+  private long lowestTxId = HdfsServerConstants.INVALID_TXID;
+  /** The last transaction id which has been cached. */
+  private long highestTxId = HdfsServerConstants.INVALID_TXID;
+  private byte[] layoutHeader;
+  /** The epoch of the writer of the cached segment. */
+  private long epoch;
+
+  JournaledEditsCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Start caching a new segment, dropping any edits cached so far.
+   *
+   * @param epoch the epoch of the writer of the segment.
+   */
+  void startSegment(long segmentTxId, int layoutVersion, long epoch)
+      throws IOException {
+    ByteArrayOutputStream header = new ByteArrayOutputStream();
+    EditLogFileOutputStream.writeHeader(layoutVersion,
+        new DataOutputStream(header));
+    lock.writeLock().lock();
+    try {
+      clear();
+      layoutHeader = header.toByteArray();
+      this.epoch = epoch;
+      lowestTxId = segmentTxId;
+      highestTxId = segmentTxId - 1;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Add a batch of serialized edits, which must directly follow the edits
+   * cached so far.
+   */
+  void storeEdits(byte[] records, long firstTxId, long lastTxId) {
+    lock.writeLock().lock();
+    try {
+      if (layoutHeader == null || firstTxId != highestTxId + 1) {
+        LOG.debug("Invalidating the edits cache: got txid " + firstTxId +
+            " but expected " + (highestTxId + 1));
+        clear();
+        return;
+      }
+      if (records.length > capacity) {
+        // Cannot hold even this batch; start over after it.
+        batches.clear();
+        size = 0;
+        lowestTxId = lastTxId + 1;
+        highestTxId = lastTxId;
+        return;
+      }
+      batches.put(firstTxId, records);
+      size += records.length;
+      highestTxId = lastTxId;
+      while (size > capacity) {
+        Map.Entry<Long, byte[]> oldest = batches.pollFirstEntry();
+        size -= oldest.getValue().length;
+        lowestTxId = batches.isEmpty() ? highestTxId + 1 :
+            batches.firstKey();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Drop all cached edits, e.g. when the segment is aborted or replaced by
+   * recovery, a new writer takes over, or the journal is formatted.
+   * Finalizing a segment does not drop its edits: they remain valid for
+   * tailers which are behind, until the next segment is started.
+   */
+  void invalidate() {
+    lock.writeLock().lock();
+    try {
+      clear();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void clear() {
+    batches.clear();
+    size = 0;
+    layoutHeader = null;
+    lowestTxId = HdfsServerConstants.INVALID_TXID;
+    highestTxId = HdfsServerConstants.INVALID_TXID;
+  }
+
+  /**
+   * Edits fetched from the cache. The serialized data starts with a log
+   * header and may begin with a few transactions before the requested one,
+   * since whole batches are returned.
+   */
+  static class Edits {
+    private final int txnCount;
+    private final ByteString data;
+    private final long epoch;
+
+    Edits(int txnCount, ByteString data, long epoch) {
+      this.txnCount = txnCount;
+      this.data = data;
+      this.epoch = epoch;
+    }
+
+    /** @return the number of transactions from the requested one on. */
+    int getTxnCount() {
+      return txnCount;
+    }
+
+    ByteString getData() {
+      return data;
+    }
+
+    /** @return the epoch of the writer of the edits. */
+    long getEpoch() {
+      return epoch;
+    }
+  }
+
+  /**
+   * Fetch cached edits starting at the given transaction id.
+   *
+   * @param sinceTxId the first transaction id to return.
+   * @param maxTxns the maximum number of transactions to return.
+   * @throws CacheMissException if the transaction is no longer or not yet
+   *         known to be in the cache.
+   */
+  Edits getEdits(long sinceTxId, int maxTxns) throws CacheMissException {
+    lock.readLock().lock();
+    try {
+      if (layoutHeader == null || sinceTxId < lowestTxId) {
+        throw new CacheMissException("Transaction " + sinceTxId +
+            " is not in the edits cache, which holds [" + lowestTxId + ", " +
+            highestTxId + "]");
+      }
+      if (sinceTxId > highestTxId) {
+        return new Edits(0, ByteString.EMPTY, epoch);
+      }
+      final long lastTxId = Math.min(highestTxId, sinceTxId + maxTxns - 1);
+      ByteString data = ByteString.copyFrom(layoutHeader);
+      final Long start = batches.floorKey(sinceTxId);
+      for (Map.Entry<Long, byte[]> e :
+          batches.subMap(start, true, lastTxId, true).entrySet()) {
+        data = data.concat(ByteString.copyFrom(e.getValue()));
+      }
+      return new Edits((int) (lastTxId - sinceTxId + 1), data, epoch);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @VisibleForTesting
+  int getCacheSize() {
+    return size;
+  }
+
+  /**
+   * Thrown when the requested edits are not cached.
+   */
+  static class CacheMissException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    CacheMissException(String msg) {
+      super(msg);
+    }
+  }
+}
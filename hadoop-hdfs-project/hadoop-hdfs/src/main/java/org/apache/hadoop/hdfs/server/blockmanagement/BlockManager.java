@@ -43,6 +43,7 @@
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadLocalRandom;
@@ -104,6 +105,7 @@
 import org.apache.hadoop.hdfs.server.protocol.ReceivedDeletedBlockInfo;
 import org.apache.hadoop.hdfs.server.protocol.StorageReceivedDeletedBlocks;
 import org.apache.hadoop.hdfs.util.FoldedTreeSet;
+import org.apache.hadoop.hdfs.util.RwLockMode;
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicy;
 import org.apache.hadoop.hdfs.server.namenode.CacheManager;
 
@@ -313,8 +315,7 @@ public long getTotalECBlockGroups() {
       new Daemon(new StorageInfoDefragmenter());
   
   /** Block report thread for handling async reports. */
-  private final BlockReportProcessingThread blockReportThread =
-      new BlockReportProcessingThread();
+  private final BlockReportProcessingThread blockReportThread;
 
   /** Store blocks -> datanodedescriptor(s) map of corrupt replicas */
   final CorruptReplicasMap corruptReplicas = new CorruptReplicasMap();
@@ -358,6 +359,13 @@ public long getTotalECBlockGroups() {
   /** Stores information about block recovery attempts. */
   private final PendingRecoveryBlocks pendingRecoveryBlocks;
 
+  /**
+   * Committed blocks that reached their minimal storage while only the block
+   * management lock was held, see {@link #completeOrDeferBlock}.
+   */
+  private final Queue<BlockInfo> deferredCompleteBlocks =
+      new ConcurrentLinkedQueue<>();
+
   /** The maximum number of replicas allowed for a block */
   public final short maxReplication;
   /**
@@ -386,6 +394,9 @@ public long getTotalECBlockGroups() {
   // Max number of blocks to log info about during a block report.
   private final long maxNumBlocksToLog;
 
+  // Whether to diff full block reports under the read lock.
+  private final boolean diffFullReportsUnderReadLock;
+
   /**
    * When running inside a Standby node, the node may receive block reports
    * from datanodes before receiving the corresponding namespace edits from
@@ -529,6 +540,9 @@ public BlockManager(final Namesystem namesystem, boolean haEnabled,
     this.maxNumBlocksToLog =
         conf.getLong(DFSConfigKeys.DFS_MAX_NUM_BLOCKS_TO_LOG_KEY,
             DFSConfigKeys.DFS_MAX_NUM_BLOCKS_TO_LOG_DEFAULT);
+    this.diffFullReportsUnderReadLock = conf.getBoolean(
+        DFSConfigKeys.DFS_NAMENODE_FULL_BLOCK_REPORT_READ_LOCK_DIFF_KEY,
+        DFSConfigKeys.DFS_NAMENODE_FULL_BLOCK_REPORT_READ_LOCK_DIFF_DEFAULT);
     this.numBlocksPerIteration = conf.getInt(
         DFSConfigKeys.DFS_BLOCK_MISREPLICATION_PROCESSING_LIMIT,
         DFSConfigKeys.DFS_BLOCK_MISREPLICATION_PROCESSING_LIMIT_DEFAULT);
@@ -536,6 +550,22 @@ public BlockManager(final Namesystem namesystem, boolean haEnabled,
         DFSConfigKeys.DFS_BALANCER_GETBLOCKS_MIN_BLOCK_SIZE_KEY,
         DFSConfigKeys.DFS_BALANCER_GETBLOCKS_MIN_BLOCK_SIZE_DEFAULT);
 
+    final int blockReportQueueSize = conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_QUEUE_SIZE_KEY,
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_QUEUE_SIZE_DEFAULT);
+    final int maxBlockOpsPerBatch = conf.getInt(
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_OPS_KEY,
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_OPS_DEFAULT);
+    final long maxBlockOpsLockHoldMs = conf.getLong(
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_LOCK_HOLD_MS_KEY,
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_BATCH_MAX_LOCK_HOLD_MS_DEFAULT);
+    Preconditions.checkArgument(blockReportQueueSize > 0,
+        "%s must be positive: %s",
+        DFSConfigKeys.DFS_NAMENODE_BLOCKREPORT_QUEUE_SIZE_KEY,
+        blockReportQueueSize);
+    this.blockReportThread = new BlockReportProcessingThread(
+        blockReportQueueSize, maxBlockOpsPerBatch, maxBlockOpsLockHoldMs);
+
     final int minMaintenanceR = conf.getInt(
         DFSConfigKeys.DFS_NAMENODE_MAINTENANCE_REPLICATION_MIN_KEY,
         DFSConfigKeys.DFS_NAMENODE_MAINTENANCE_REPLICATION_MIN_DEFAULT);
@@ -571,6 +601,8 @@ public BlockManager(final Namesystem namesystem, boolean haEnabled,
     LOG.info("redundancyRecheckInterval  = {}ms", redundancyRecheckIntervalMs);
     LOG.info("encryptDataTransfer        = {}", encryptDataTransfer);
     LOG.info("maxNumBlocksToLog          = {}", maxNumBlocksToLog);
+    LOG.info("diffFullReportsUnderReadLock = {}",
+        diffFullReportsUnderReadLock);
   }
 
   private static BlockTokenSecretManager createBlockTokenSecretManager(
@@ -720,7 +752,7 @@ public BlockPlacementPolicy getBlockPlacementPolicy() {
 
   /** Dump meta data to out. */
   public void metaSave(PrintWriter out) {
-    assert namesystem.hasWriteLock(); // TODO: block manager read lock and NS write lock
+    assert namesystem.hasWriteLock(RwLockMode.GLOBAL);
     final List<DatanodeDescriptor> live = new ArrayList<DatanodeDescriptor>();
     final List<DatanodeDescriptor> dead = new ArrayList<DatanodeDescriptor>();
     datanodeManager.fetchDatanodes(live, dead, false);
@@ -1077,6 +1109,52 @@ private void convertToCompleteBlock(BlockInfo curBlock, INodesInPath iip)
     namesystem.getFSDirectory().updateSpaceForCompleteBlock(curBlock, iip);
   }
 
+  /**
+   * Complete the given committed block, which has reached its minimal
+   * storage. Completing a block updates the space consumed in the namespace,
+   * so a thread holding only the block management lock queues the block
+   * instead, to be completed by {@link #completeDeferredBlocks()}.
+   */
+  private void completeOrDeferBlock(BlockInfo storedBlock)
+      throws IOException {
+    if (namesystem.hasWriteLock(RwLockMode.FS)) {
+      completeBlock(storedBlock, null, false);
+    } else {
+      deferredCompleteBlocks.add(storedBlock);
+    }
+  }
+
+  /**
+   * Complete the blocks queued by the threads that held only the block
+   * management lock. This takes the global write lock, so it is a no-op if
+   * the current thread still holds the block management lock; the blocks
+   * are then completed by the next caller.
+   */
+  public void completeDeferredBlocks() {
+    if (deferredCompleteBlocks.isEmpty()
+        || namesystem.hasReadLock(RwLockMode.BM)) {
+      return;
+    }
+    namesystem.writeLock();
+    try {
+      BlockInfo block;
+      while ((block = deferredCompleteBlocks.poll()) != null) {
+        if (block.isDeleted()
+            || block.getBlockUCState() != BlockUCState.COMMITTED) {
+          continue;
+        }
+        try {
+          completeBlock(block, null, false);
+        } catch (IOException e) {
+          blockLog.debug("BLOCK* completeDeferredBlocks: cannot complete {}",
+              block, e);
+        }
+      }
+    } finally {
+      namesystem.writeUnlock("completeDeferredBlocks");
+    }
+  }
+
   /**
    * Force the given block in the given file to be marked as complete,
    * regardless of whether enough replicas are present. This is necessary
@@ -1312,7 +1390,7 @@ public LocatedBlocks createLocatedBlocks(final BlockInfo[] blocks,
       final boolean inSnapshot, FileEncryptionInfo feInfo,
       ErasureCodingPolicy ecPolicy)
       throws IOException {
-    assert namesystem.hasReadLock();
+    assert namesystem.hasReadLock(RwLockMode.BM);
     if (blocks == null) {
       return null;
     } else if (blocks.length == 0) {
@@ -1519,7 +1597,7 @@ void removeBlocksAssociatedTo(final DatanodeDescriptor node) {
 
   /** Remove the blocks associated to the given DatanodeStorageInfo. */
   void removeBlocksAssociatedTo(final DatanodeStorageInfo storageInfo) {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     final Iterator<BlockInfo> it = storageInfo.getBlockIterator();
     DatanodeDescriptor node = storageInfo.getDatanodeDescriptor();
     Collection<BlockInfo> toRemove = new ArrayList<>();
@@ -1593,7 +1671,7 @@ private Block getBlockOnStorage(BlockInfo storedBlock,
    */
   public void findAndMarkBlockAsCorrupt(final ExtendedBlock blk,
       final DatanodeInfo dn, String storageID, String reason) throws IOException {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     final Block reportedBlock = blk.getLocalBlock();
     final BlockInfo storedBlock = getStoredBlock(reportedBlock);
     if (storedBlock == null) {
@@ -1781,13 +1859,13 @@ int computeInvalidateWork(int nodesToProcess) {
    */
   int computeBlockReconstructionWork(int blocksToProcess) {
     List<List<BlockInfo>> blocksToReconstruct = null;
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     try {
       // Choose the blocks to be reconstructed
       blocksToReconstruct = neededReconstruction
           .chooseLowRedundancyBlocks(blocksToProcess);
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "computeBlockReconstructionWork");
     }
     return computeReconstructionWorkForBlocks(blocksToReconstruct);
   }
@@ -1806,7 +1884,7 @@ int computeReconstructionWorkForBlocks(
     List<BlockReconstructionWork> reconWork = new LinkedList<>();
 
     // Step 1: categorize at-risk blocks into replication and EC tasks
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     try {
       synchronized (neededReconstruction) {
         for (int priority = 0; priority < blocksToReconstruct
@@ -1821,7 +1899,8 @@ int computeReconstructionWorkForBlocks(
         }
       }
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM,
+          "computeReconstructionWorkForBlocks");
     }
 
     // Step 2: choose target nodes for each reconstruction task
@@ -1841,7 +1920,7 @@ int computeReconstructionWorkForBlocks(
     }
 
     // Step 3: add tasks to the DN
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     try {
       for(BlockReconstructionWork rw : reconWork){
         final DatanodeStorageInfo[] targets = rw.getTargets();
@@ -1857,7 +1936,8 @@ int computeReconstructionWorkForBlocks(
         }
       }
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM,
+          "computeReconstructionWorkForBlocks");
     }
 
     if (blockLog.isDebugEnabled()) {
@@ -2258,7 +2338,7 @@ DatanodeDescriptor[] chooseSourceDatanodes(BlockInfo block,
   private void processPendingReconstructions() {
     BlockInfo[] timedOutItems = pendingReconstruction.getTimedOutBlocks();
     if (timedOutItems != null) {
-      namesystem.writeLock();
+      namesystem.writeLock(RwLockMode.BM);
       try {
         for (int i = 0; i < timedOutItems.length; i++) {
           /*
@@ -2277,7 +2357,7 @@ private void processPendingReconstructions() {
           }
         }
       } finally {
-        namesystem.writeUnlock();
+        namesystem.writeUnlock(RwLockMode.BM, "processPendingReconstructions");
       }
       /* If we know the target datanodes where the replication timedout,
        * we could invoke decBlocksScheduled() on it. Its ok for now.
@@ -2286,7 +2366,7 @@ private void processPendingReconstructions() {
   }
 
   public long requestBlockReportLeaseId(DatanodeRegistration nodeReg) {
-    assert namesystem.hasReadLock();
+    assert namesystem.hasReadLock(RwLockMode.BM);
     DatanodeDescriptor node = null;
     try {
       node = datanodeManager.getDatanode(nodeReg);
@@ -2308,7 +2388,7 @@ public long requestBlockReportLeaseId(DatanodeRegistration nodeReg) {
 
   public void registerDatanode(DatanodeRegistration nodeReg)
       throws IOException {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     datanodeManager.registerDatanode(nodeReg);
     bmSafeMode.checkSafeMode();
   }
@@ -2358,7 +2438,7 @@ public long getBytesInFutureECBlockGroups() {
    *               list of blocks that need to be removed from blocksMap
    */
   public void removeBlocksAndUpdateSafemodeTotal(BlocksMapUpdateInfo blocks) {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     // In the case that we are a Standby tailing edits from the
     // active while in safe-mode, we need to track the total number
     // of blocks and safe blocks in the system.
@@ -2414,6 +2494,29 @@ private static class BlockInfoToAdd {
     }
   }
 
+  /**
+   * The difference between a full block report and the blocks map, computed
+   * under the read lock by {@link #diffReport} and applied under the write
+   * lock by {@link #processReport}. Only the replicas which needed an update
+   * and the stored blocks missing from the report are kept, and both are
+   * checked again against the blocks map when the diff is applied.
+   */
+  public static final class ReportDiff {
+    private final DatanodeDescriptor node;
+    private final DatanodeStorageInfo storageInfo;
+    private final int blockReportCount;
+    private final List<BlockReportReplica> toRecheck = new ArrayList<>();
+    private final Collection<BlockInfo> toRemove = new TreeSet<>();
+    private long diffTime;
+
+    private ReportDiff(DatanodeDescriptor node,
+        DatanodeStorageInfo storageInfo) {
+      this.node = node;
+      this.storageInfo = storageInfo;
+      this.blockReportCount = storageInfo.getBlockReportCount();
+    }
+  }
+
   /**
    * The given storage is reporting all its blocks.
    * Update the (storage-->block list) and (block-->storage list) maps.
@@ -2425,7 +2528,69 @@ public boolean processReport(final DatanodeID nodeID,
       final DatanodeStorage storage,
       final BlockListAsLongs newReport,
       BlockReportContext context) throws IOException {
-    namesystem.writeLock();
+    return processReport(nodeID, storage, newReport, context, null);
+  }
+
+  /**
+   * Diff a full block report of the given storage against the blocks map,
+   * holding only the read lock, so that {@link #processReport} only has to
+   * apply the resulting updates under the write lock.
+   *
+   * @return the diff to pass to {@link #processReport}, or null if the
+   *         report has to be processed entirely under the write lock, for
+   *         example because it is the first report of the storage.
+   */
+  public ReportDiff diffReport(final DatanodeID nodeID,
+      final DatanodeStorage storage, final BlockListAsLongs newReport,
+      BlockReportContext context) throws IOException {
+    if (!diffFullReportsUnderReadLock) {
+      return null;
+    }
+    namesystem.readLock(RwLockMode.BM);
+    final long startTime = Time.monotonicNow();
+    try {
+      // A standby queues reported blocks, which needs the write lock.
+      if (shouldPostponeBlocksFromFuture || namesystem.isInStartupSafeMode()) {
+        return null;
+      }
+      DatanodeDescriptor node = datanodeManager.getDatanode(nodeID);
+      if (node == null || !node.isRegistered()) {
+        return null;
+      }
+      DatanodeStorageInfo storageInfo =
+          node.getStorageInfo(storage.getStorageID());
+      if (storageInfo == null || storageInfo.getBlockReportCount() == 0) {
+        return null;
+      }
+      // Do not spend a diff on a report which processReport will reject.
+      if (context != null && !blockReportLeaseManager.checkLease(node,
+          startTime, context.getLeaseId())) {
+        return null;
+      }
+      ReportDiff diff = new ReportDiff(node, storageInfo);
+      reportDiffSorted(storageInfo, sortReport(storageInfo, newReport, context),
+          new ArrayList<BlockInfoToAdd>(), diff.toRemove,
+          new ArrayList<Block>(), new ArrayList<BlockToMarkCorrupt>(),
+          new ArrayList<StatefulBlockInfo>(), diff.toRecheck);
+      diff.diffTime = Time.monotonicNow() - startTime;
+      return diff;
+    } finally {
+      namesystem.readUnlock(RwLockMode.BM, "diffReport");
+    }
+  }
+
+  /**
+   * The given storage is reporting all its blocks, and the report may have
+   * been diffed against the blocks map ahead of time by {@link #diffReport}.
+   *
+   * @return true if all known storages of the given DN have finished reporting.
+   * @throws IOException
+   */
+  public boolean processReport(final DatanodeID nodeID,
+      final DatanodeStorage storage,
+      final BlockListAsLongs newReport,
+      BlockReportContext context, ReportDiff diff) throws IOException {
+    namesystem.writeLock(RwLockMode.BM);
     final long startTime = Time.monotonicNow(); //after acquiring write lock
     final long endTime;
     DatanodeDescriptor node;
@@ -2473,15 +2638,22 @@ public boolean processReport(final DatanodeID nodeID,
             storageInfo.getStorageID(),
             nodeID.getDatanodeUuid());
         processFirstBlockReport(storageInfo, newReport);
+      } else if (diff != null && diff.node == node
+          && diff.storageInfo == storageInfo
+          && diff.blockReportCount == storageInfo.getBlockReportCount()
+          && !shouldPostponeBlocksFromFuture) {
+        invalidatedBlocks = processReportDiff(diff, strBlockReportId);
       } else {
+        diff = null;
         invalidatedBlocks = processReport(storageInfo, newReport, context);
       }
       
       storageInfo.receivedBlockReport();
     } finally {
       endTime = Time.monotonicNow();
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "processReport");
     }
+    completeDeferredBlocks();
 
     for (Block b : invalidatedBlocks) {
       blockLog.debug("BLOCK* processReport 0x{}: {} on node {} size {} does not"
@@ -2492,19 +2664,23 @@ public boolean processReport(final DatanodeID nodeID,
     final NameNodeMetrics metrics = NameNode.getNameNodeMetrics();
     if (metrics != null) {
       metrics.addStorageBlockReport((int) (endTime - startTime));
+      if (diff != null) {
+        metrics.incrStorageBlockReportDiffs();
+      }
     }
     blockLog.info("BLOCK* processReport 0x{}: from storage {} node {}, " +
         "blocks: {}, hasStaleStorage: {}, processing time: {} msecs, " +
-        "invalidatedBlocks: {}", strBlockReportId, storage.getStorageID(),
+        "diff time under read lock: {} msecs, invalidatedBlocks: {}",
+        strBlockReportId, storage.getStorageID(),
         nodeID, newReport.getNumberOfBlocks(),
         node.hasStaleStorages(), (endTime - startTime),
-        invalidatedBlocks.size());
+        diff != null ? diff.diffTime : 0, invalidatedBlocks.size());
     return !node.hasStaleStorages();
   }
 
   public void removeBRLeaseIfNeeded(final DatanodeID nodeID,
       final BlockReportContext context) throws IOException {
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     DatanodeDescriptor node;
     try {
       node = datanodeManager.getDatanode(nodeID);
@@ -2521,7 +2697,7 @@ public void removeBRLeaseIfNeeded(final DatanodeID nodeID,
             context.getTotalRpcs(), Long.toHexString(context.getReportId()));
       }
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "removeBRLeaseIfNeeded");
     }
   }
 
@@ -2532,7 +2708,7 @@ void rescanPostponedMisreplicatedBlocks() {
     if (getPostponedMisreplicatedBlocksCount() == 0) {
       return;
     }
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     long startTime = Time.monotonicNow();
     long startSize = postponedMisreplicatedBlocks.size();
     try {
@@ -2559,7 +2735,8 @@ void rescanPostponedMisreplicatedBlocks() {
       postponedMisreplicatedBlocks.addAll(rescannedMisreplicatedBlocks);
       rescannedMisreplicatedBlocks.clear();
       long endSize = postponedMisreplicatedBlocks.size();
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM,
+          "rescanPostponedMisreplicatedBlocks");
       LOG.info("Rescan of postponedMisreplicatedBlocks completed in {}" +
           " msecs. {} blocks are left. {} blocks were removed.",
           (Time.monotonicNow() - startTime), endSize, (startSize - endSize));
@@ -2580,6 +2757,57 @@ private Collection<Block> processReport(
     Collection<BlockToMarkCorrupt> toCorrupt = new LinkedList<>();
     Collection<StatefulBlockInfo> toUC = new LinkedList<>();
 
+    String strBlockReportId = "";
+    if (context != null) {
+      strBlockReportId = Long.toHexString(context.getReportId());
+    }
+
+    reportDiffSorted(storageInfo, sortReport(storageInfo, report, context),
+                     toAdd, toRemove, toInvalidate, toCorrupt, toUC, null);
+
+    applyReportDiff(storageInfo, toAdd, toRemove, toInvalidate, toCorrupt,
+        toUC, strBlockReportId);
+    return toInvalidate;
+  }
+
+  /**
+   * Apply a diff computed under the read lock, after checking each replica
+   * which needed an update at the time against the current blocks map.
+   * Stored blocks which were missing from the report are only removed if
+   * they are still in the blocks map and still on the reporting storage.
+   */
+  private Collection<Block> processReportDiff(ReportDiff diff,
+      String strBlockReportId) throws IOException {
+    assert namesystem.hasWriteLock(RwLockMode.BM);
+    Collection<BlockInfoToAdd> toAdd = new LinkedList<>();
+    Collection<Block> toInvalidate = new LinkedList<>();
+    Collection<BlockToMarkCorrupt> toCorrupt = new LinkedList<>();
+    Collection<StatefulBlockInfo> toUC = new LinkedList<>();
+
+    for (BlockReportReplica replica : diff.toRecheck) {
+      BlockInfo storedBlock = getStoredBlock(replica);
+      if (storedBlock == null) {
+        toInvalidate.add(new Block(replica));
+      } else {
+        reportDiffSortedInner(diff.storageInfo, replica, replica.getState(),
+            storedBlock, toAdd, toCorrupt, toUC);
+      }
+    }
+    Collection<BlockInfo> toRemove = new ArrayList<>(diff.toRemove.size());
+    for (BlockInfo storedBlock : diff.toRemove) {
+      if (getStoredBlock(storedBlock) == storedBlock
+          && storedBlock.findStorageInfo(diff.storageInfo) >= 0) {
+        toRemove.add(storedBlock);
+      }
+    }
+    applyReportDiff(diff.storageInfo, toAdd, toRemove, toInvalidate,
+        toCorrupt, toUC, strBlockReportId);
+    return toInvalidate;
+  }
+
+  private Iterable<BlockReportReplica> sortReport(
+      DatanodeStorageInfo storageInfo, BlockListAsLongs report,
+      BlockReportContext context) {
     boolean sorted = false;
     String strBlockReportId = "";
     if (context != null) {
@@ -2605,11 +2833,14 @@ private Collection<Block> processReport(
     } else {
       sortedReport = report;
     }
+    return sortedReport;
+  }
 
-    reportDiffSorted(storageInfo, sortedReport,
-                     toAdd, toRemove, toInvalidate, toCorrupt, toUC);
-
-
+  private void applyReportDiff(DatanodeStorageInfo storageInfo,
+      Collection<BlockInfoToAdd> toAdd, Collection<BlockInfo> toRemove,
+      Collection<Block> toInvalidate, Collection<BlockToMarkCorrupt> toCorrupt,
+      Collection<StatefulBlockInfo> toUC, String strBlockReportId)
+      throws IOException {
     DatanodeDescriptor node = storageInfo.getDatanodeDescriptor();
     // Process the blocks on each queue
     for (StatefulBlockInfo b : toUC) { 
@@ -2634,8 +2865,6 @@ private Collection<Block> processReport(
     for (BlockToMarkCorrupt b : toCorrupt) {
       markBlockAsCorrupt(b, storageInfo, node);
     }
-
-    return toInvalidate;
   }
 
   /**
@@ -2646,7 +2875,7 @@ public void markBlockReplicasAsCorrupt(Block oldBlock,
       BlockInfo block,
       long oldGenerationStamp, long oldNumBytes, 
       DatanodeStorageInfo[] newStorages) throws IOException {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     BlockToMarkCorrupt b = null;
     if (block.getGenerationStamp() != oldGenerationStamp) {
       b = new BlockToMarkCorrupt(oldBlock, block, oldGenerationStamp,
@@ -2694,7 +2923,7 @@ private void processFirstBlockReport(
       final DatanodeStorageInfo storageInfo,
       final BlockListAsLongs report) throws IOException {
     if (report == null) return;
-    assert (namesystem.hasWriteLock());
+    assert (namesystem.hasWriteLock(RwLockMode.BM));
     assert (storageInfo.getBlockReportCount() == 0);
 
     for (BlockReportReplica iblk : report) {
@@ -2744,7 +2973,10 @@ private void processFirstBlockReport(
         // OpenFileBlocks only inside snapshots also will be added to safemode
         // threshold. So we need to update such blocks to safemode
         // refer HDFS-5283
-        if (namesystem.isInSnapshot(storedBlock.getBlockCollectionId())) {
+        // The namespace cannot change in safe mode, so it is looked up
+        // under the block management lock only while in safe mode.
+        if (bmSafeMode.isInSafeMode()
+            && namesystem.isInSnapshot(storedBlock.getBlockCollectionId())) {
           int numOfReplicas = storedBlock.getUnderConstructionFeature()
               .getNumExpectedLocations();
           bmSafeMode.incrementSafeBlockCount(numOfReplicas, storedBlock);
@@ -2764,7 +2996,9 @@ private void reportDiffSorted(DatanodeStorageInfo storageInfo,
       Collection<BlockInfo> toRemove,       // remove from DatanodeDescriptor
       Collection<Block> toInvalidate,       // should be removed from DN
       Collection<BlockToMarkCorrupt> toCorrupt, // add to corrupt replicas list
-      Collection<StatefulBlockInfo> toUC) { // add to under-construction list
+      Collection<StatefulBlockInfo> toUC, // add to under-construction list
+      Collection<BlockReportReplica> toRecheck) { // if not null, replicas
+                                                  // needing an update
 
     // The blocks must be sorted and the storagenodes blocks must be sorted
     Iterator<BlockInfo> storageBlocksIterator = storageInfo.getBlockIterator();
@@ -2803,17 +3037,24 @@ && isGenStampInFuture(replica)) {
           // Check if block is available in NN but not yet on this storage
           BlockInfo nnBlock = blocksMap.getStoredBlock(new Block(replicaID));
           if (nnBlock != null) {
-            reportDiffSortedInner(storageInfo, replica, reportedState,
-                                  nnBlock, toAdd, toCorrupt, toUC);
+            if (reportDiffSortedInner(storageInfo, replica, reportedState,
+                nnBlock, toAdd, toCorrupt, toUC) && toRecheck != null) {
+              toRecheck.add(new BlockReportReplica(replica));
+            }
           } else {
             // Replica not found anywhere so it should be invalidated
             toInvalidate.add(new Block(replica));
+            if (toRecheck != null) {
+              toRecheck.add(new BlockReportReplica(replica));
+            }
           }
           break;
         } else if (cmp == 0) {
           // Replica matched current storageblock
-          reportDiffSortedInner(storageInfo, replica, reportedState,
-                                storageBlock, toAdd, toCorrupt, toUC);
+          if (reportDiffSortedInner(storageInfo, replica, reportedState,
+              storageBlock, toAdd, toCorrupt, toUC) && toRecheck != null) {
+            toRecheck.add(new BlockReportReplica(replica));
+          }
           storageBlock = null;
         } else {
           // replica has higher ID than storedBlock
@@ -2834,7 +3075,10 @@ && isGenStampInFuture(replica)) {
     }
   }
 
-  private void reportDiffSortedInner(
+  /**
+   * @return true if the replica was queued for an update.
+   */
+  private boolean reportDiffSortedInner(
       final DatanodeStorageInfo storageInfo,
       final BlockReportReplica replica, final ReplicaState reportedState,
       final BlockInfo storedBlock,
@@ -2853,7 +3097,7 @@ private void reportDiffSortedInner(
 
     // Ignore replicas already scheduled to be removed from the DN
     if (invalidateBlocks.contains(dn, replica)) {
-      return;
+      return false;
     }
 
     BlockToMarkCorrupt c = checkReplicaCorrupt(replica, reportedState,
@@ -2880,7 +3124,10 @@ private void reportDiffSortedInner(
       // Add replica if appropriate. If the replica was previously corrupt
       // but now okay, it might need to be updated.
       toAdd.add(new BlockInfoToAdd(storedBlock, new Block(replica)));
+    } else {
+      return false;
     }
+    return true;
   }
 
   /**
@@ -3092,7 +3339,7 @@ void addStoredBlockUnderConstruction(StatefulBlockInfo ucBlock,
   private void addStoredBlockImmediate(BlockInfo storedBlock, Block reported,
       DatanodeStorageInfo storageInfo)
   throws IOException {
-    assert (storedBlock != null && namesystem.hasWriteLock());
+    assert (storedBlock != null && namesystem.hasWriteLock(RwLockMode.BM));
     if (!namesystem.isInStartupSafeMode()
         || isPopulatingReplQueues()) {
       addStoredBlock(storedBlock, reported, storageInfo, null, false);
@@ -3106,7 +3353,7 @@ private void addStoredBlockImmediate(BlockInfo storedBlock, Block reported,
     int numCurrentReplica = countLiveNodes(storedBlock);
     if (storedBlock.getBlockUCState() == BlockUCState.COMMITTED
         && hasMinStorage(storedBlock, numCurrentReplica)) {
-      completeBlock(storedBlock, null, false);
+      completeOrDeferBlock(storedBlock);
     } else if (storedBlock.isComplete() && result == AddBlockResult.ADDED) {
       // check whether safe replication is reached for the block
       // only complete blocks are counted towards that.
@@ -3127,7 +3374,7 @@ private Block addStoredBlock(final BlockInfo block,
                                DatanodeDescriptor delNodeHint,
                                boolean logEveryBlock)
   throws IOException {
-    assert block != null && namesystem.hasWriteLock();
+    assert block != null && namesystem.hasWriteLock(RwLockMode.BM);
     BlockInfo storedBlock;
     DatanodeDescriptor node = storageInfo.getDatanodeDescriptor();
     if (!block.isComplete()) {
@@ -3181,7 +3428,7 @@ private Block addStoredBlock(final BlockInfo block,
     if(storedBlock.getBlockUCState() == BlockUCState.COMMITTED &&
         hasMinStorage(storedBlock, numLiveReplicas)) {
       addExpectedReplicasToPending(storedBlock);
-      completeBlock(storedBlock, null, false);
+      completeOrDeferBlock(storedBlock);
     } else if (storedBlock.isComplete() && result == AddBlockResult.ADDED) {
       // check whether safe replication is reached for the block
       // only complete blocks are counted towards that
@@ -3285,7 +3532,7 @@ private void invalidateCorruptReplicas(BlockInfo blk, Block reported,
    * extra or low redundancy. Place it into the respective queue.
    */
   public void processMisReplicatedBlocks() {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     stopReconstructionInitializer();
     neededReconstruction.clear();
     reconstructionQueuesInitializer = new Daemon() {
@@ -3500,7 +3747,7 @@ public void setReplication(
   private void processExtraRedundancyBlock(final BlockInfo block,
       final short replication, final DatanodeDescriptor addedNode,
       DatanodeDescriptor delNodeHint) {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     if (addedNode == delNodeHint) {
       delNodeHint = null;
     }
@@ -3537,7 +3784,7 @@ private void chooseExcessRedundancies(
       BlockInfo storedBlock, short replication,
       DatanodeDescriptor addedNode,
       DatanodeDescriptor delNodeHint) {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     // first form a rack to datanodes map and
     BlockCollection bc = getBlockCollection(storedBlock);
     if (storedBlock.isStriped()) {
@@ -3692,7 +3939,7 @@ private void removeStoredBlock(DatanodeStorageInfo storageInfo, Block block,
    */
   public void removeStoredBlock(BlockInfo storedBlock, DatanodeDescriptor node) {
     blockLog.debug("BLOCK* removeStoredBlock: {} from {}", storedBlock, node);
-    assert (namesystem.hasWriteLock());
+    assert (namesystem.hasWriteLock(RwLockMode.BM));
     {
       if (storedBlock == null || !blocksMap.removeNode(storedBlock, node)) {
         blockLog.debug("BLOCK* removeStoredBlock: {} has already been" +
@@ -3894,7 +4141,7 @@ private void processAndHandleReportedBlock(
    */
   public void processIncrementalBlockReport(final DatanodeID nodeID,
       final StorageReceivedDeletedBlocks srdb) throws IOException {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     final DatanodeDescriptor node = datanodeManager.getDatanode(nodeID);
     if (node == null || !node.isRegistered()) {
       blockLog.warn("BLOCK* processIncrementalBlockReport"
@@ -4164,7 +4411,7 @@ public int getTotalBlocks() {
   }
 
   public void removeBlock(BlockInfo block) {
-    assert namesystem.hasWriteLock();
+    assert namesystem.hasWriteLock(RwLockMode.BM);
     // No need to ACK blocks that are being removed entirely
     // from the namespace, since the removal of the associated
     // file already removes them from the block map below.
@@ -4203,7 +4450,7 @@ public void updateLastBlock(BlockInfo lastBlock, ExtendedBlock newBlock) {
   /** updates a block in needed reconstruction queue. */
   private void updateNeededReconstructions(final BlockInfo block,
       final int curReplicasDelta, int expectedReplicasDelta) {
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     try {
       if (!isPopulatingReplQueues() || !block.isComplete()) {
         return;
@@ -4222,7 +4469,7 @@ private void updateNeededReconstructions(final BlockInfo block,
             repl.outOfServiceReplicas(), oldExpectedReplicas);
       }
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "updateNeededReconstructions");
     }
   }
 
@@ -4255,7 +4502,8 @@ public void checkRedundancy(BlockCollection bc) {
   private int invalidateWorkForOneNode(DatanodeInfo dn) {
     final List<Block> toInvalidate;
     
-    namesystem.writeLock();
+    // only block management state is touched here
+    namesystem.writeLock(RwLockMode.BM);
     try {
       // blocks should not be replicated or removed if safe mode is on
       if (namesystem.isInSafeMode()) {
@@ -4279,7 +4527,7 @@ private int invalidateWorkForOneNode(DatanodeInfo dn) {
         return 0;
       }
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "invalidateWorkForOneNode");
     }
     blockLog.debug("BLOCK* {}: ask {} to delete {}", getClass().getSimpleName(),
         dn, toInvalidate);
@@ -4505,7 +4753,7 @@ private void scanAndCompactStorages() throws InterruptedException {
           : datanodeManager.getDatanodeListForReport(DatanodeReportType.ALL)) {
         for (DatanodeStorageInfo storage : node.getStorageInfos()) {
           try {
-            namesystem.readLock();
+            namesystem.readLock(RwLockMode.BM);
             double ratio = storage.treeSetFillRatio();
             if (ratio < storageInfoDefragmentRatio) {
               datanodesAndStorages.add(node.getDatanodeUuid());
@@ -4516,13 +4764,13 @@ private void scanAndCompactStorages() throws InterruptedException {
                      (ratio < storageInfoDefragmentRatio)
                      ? " (queued for defragmentation)" : "");
           } finally {
-            namesystem.readUnlock();
+            namesystem.readUnlock(RwLockMode.BM, "scanAndCompactStorages");
           }
         }
       }
       if (!datanodesAndStorages.isEmpty()) {
         for (int i = 0; i < datanodesAndStorages.size(); i += 2) {
-          namesystem.writeLock();
+          namesystem.writeLock(RwLockMode.BM);
           try {
             final DatanodeDescriptor dn = datanodeManager.
                 getDatanode(datanodesAndStorages.get(i));
@@ -4544,7 +4792,7 @@ private void scanAndCompactStorages() throws InterruptedException {
                        aborted ? " (aborted)" : "");
             }
           } finally {
-            namesystem.writeUnlock();
+            namesystem.writeUnlock(RwLockMode.BM, "scanAndCompactStorages");
           }
           // Wait between each iteration
           Thread.sleep(1000);
@@ -4578,12 +4826,12 @@ int computeDatanodeWork() {
     int workFound = this.computeBlockReconstructionWork(blocksToProcess);
 
     // Update counters
-    namesystem.writeLock();
+    namesystem.writeLock(RwLockMode.BM);
     try {
       this.updateState();
       this.scheduledReplicationBlocksCount = workFound;
     } finally {
-      namesystem.writeUnlock();
+      namesystem.writeUnlock(RwLockMode.BM, "computeDatanodeWork");
     }
     workFound += this.computeInvalidateWork(nodesToProcess);
     return workFound;
@@ -4780,15 +5028,20 @@ public int getBlockOpQueueLength() {
   }
 
   private class BlockReportProcessingThread extends Thread {
-    private static final long MAX_LOCK_HOLD_MS = 4;
+    /** Max number of ops applied per write lock hold, 0 if unbounded. */
+    private final int maxOpsPerBatch;
+    private final long maxLockHoldMs;
     private long lastFull = 0;
 
-    private final BlockingQueue<Runnable> queue =
-        new ArrayBlockingQueue<Runnable>(1024);
+    private final BlockingQueue<Runnable> queue;
 
-    BlockReportProcessingThread() {
+    BlockReportProcessingThread(int queueSize, int maxOpsPerBatch,
+        long maxLockHoldMs) {
       super("Block report processor");
       setDaemon(true);
+      this.queue = new ArrayBlockingQueue<Runnable>(queueSize);
+      this.maxOpsPerBatch = maxOpsPerBatch;
+      this.maxLockHoldMs = maxLockHoldMs;
     }
 
     @Override
@@ -4807,24 +5060,28 @@ private void processQueue() {
         try {
           Runnable action = queue.take();
           // batch as many operations in the write lock until the queue
-          // runs dry, or the max lock hold is reached.
+          // runs dry, or the max batch size or max lock hold is reached.
           int processed = 0;
-          namesystem.writeLock();
+          namesystem.writeLock(RwLockMode.BM);
           metrics.setBlockOpsQueued(queue.size() + 1);
+          long start = Time.monotonicNow();
           try {
-            long start = Time.monotonicNow();
             do {
               processed++;
               action.run();
-              if (Time.monotonicNow() - start > MAX_LOCK_HOLD_MS) {
+              if (Time.monotonicNow() - start > maxLockHoldMs ||
+                  processed == maxOpsPerBatch) {
                 break;
               }
               action = queue.poll();
             } while (action != null);
           } finally {
-            namesystem.writeUnlock();
+            namesystem.writeUnlock(RwLockMode.BM, "processQueue");
             metrics.addBlockOpsBatched(processed - 1);
+            metrics.addBlockOpsBatch(processed,
+                Time.monotonicNow() - start);
           }
+          completeDeferredBlocks();
         } catch (InterruptedException e) {
           // ignore unless thread was specifically interrupted.
           if (Thread.interrupted()) {
@@ -110,6 +110,10 @@ class BlockReceiver implements Closeable {
   private boolean syncBehindWrites;
   private boolean syncBehindWritesInBackground;
 
+  /** Batches packets into larger writes, null if coalescing is disabled. */
+  private PacketWriteCoalescer writeCoalescer = null;
+  private long writeCoalesceMaxDelayMs;
+
   /** The client name.  It is empty if a datanode is the client */
   private final String clientname;
   private final boolean isClient; 
@@ -271,6 +275,12 @@ class BlockReceiver implements Closeable {
       if (isCreate) {
         BlockMetadataHeader.writeHeader(checksumOut, diskChecksum);
       } 
+      if (datanode.getDnConf().writeCoalesceBytes > 0) {
+        this.writeCoalescer = new PacketWriteCoalescer(
+            datanode.getDnConf().writeCoalesceBytes, diskChecksum);
+        this.writeCoalesceMaxDelayMs =
+            datanode.getDnConf().writeCoalesceMaxDelayMs;
+      }
     } catch (ReplicaAlreadyExistsException bae) {
       throw bae;
     } catch (ReplicaNotFoundException bne) {
@@ -316,6 +326,19 @@ public void close() throws IOException {
     packetReceiver.close();
 
     IOException ioe = null;
+    // write out coalesced packets before closing the files
+    if (writeCoalescer != null) {
+      synchronized (writeCoalescer) {
+        try {
+          writeCoalescer.checkFlushError();
+          flushCoalescedPackets(false);
+        } catch (IOException e) {
+          ioe = e;
+        } finally {
+          writeCoalescer.clear();
+        }
+      }
+    }
     if (syncOnClose && (streams.getDataOut() != null || checksumOut != null)) {
       datanode.metrics.incrFsyncCount();      
     }
@@ -338,7 +361,9 @@ public void close() throws IOException {
         checksumOut = null;
       }
     } catch(IOException e) {
-      ioe = e;
+      if (ioe == null) {
+        ioe = e;
+      }
     }
     finally {
       IOUtils.closeStream(checksumOut);
@@ -359,7 +384,9 @@ public void close() throws IOException {
         streams.closeDataStream();
       }
     } catch (IOException e) {
-      ioe = e;
+      if (ioe == null) {
+        ioe = e;
+      }
     }
     finally{
       streams.close();
@@ -607,6 +634,15 @@ private int receivePacket() throws IOException {
       if(LOG.isDebugEnabled()) {
         LOG.debug("Receiving an empty packet or the end of the block " + block);
       }
+      // write out coalesced packets, no more data follows them for now. A
+      // batch the flusher failed to write fails the pipeline, rather than
+      // let the block be finalized without it.
+      if (writeCoalescer != null) {
+        synchronized (writeCoalescer) {
+          writeCoalescer.checkFlushError();
+          flushCoalescedPackets(false);
+        }
+      }
       // sync block if requested
       if (syncBlock) {
         flushOrSync(true);
@@ -656,8 +692,14 @@ private int receivePacket() throws IOException {
       final boolean shouldNotWriteChecksum = checksumReceivedLen == 0
           && streams.isTransientStorage();
       try {
+        final boolean coalesced = writeCoalescer != null
+            && coalescePacket(dataBuf, checksumBuf, firstByteInBlock,
+                syncBlock, shouldNotWriteChecksum);
         long onDiskLen = replicaInfo.getBytesOnDisk();
-        if (onDiskLen<offsetInBlock) {
+        if (coalesced) {
+          // the packet is written to disk along with the rest of its batch
+          datanode.metrics.incrBytesWritten(len);
+        } else if (onDiskLen<offsetInBlock) {
           // Normally the beginning of an incoming packet is aligned with the
           // existing data on disk. If the beginning packet data offset is not
           // checksum chunk aligned, the end of packet will not go beyond the
@@ -870,6 +912,96 @@ private void trackSendPacketToLastNodeInPipeline(final long elapsedMs) {
     }
   }
 
+  /**
+   * Add a packet to the current batch of coalesced packets if it continues
+   * the batch. Otherwise the batch is written out, so that the packet can be
+   * written to disk on its own.
+   *
+   * @return true if the packet was added to the batch.
+   */
+  private boolean coalescePacket(ByteBuffer dataBuf, ByteBuffer checksumBuf,
+      long firstByteInBlock, boolean syncBlock, boolean shouldNotWriteChecksum)
+      throws IOException {
+    final int len = dataBuf.remaining();
+    synchronized (writeCoalescer) {
+      writeCoalescer.checkFlushError();
+      if (shouldNotWriteChecksum
+          || !writeCoalescer.canAppend(firstByteInBlock, len)) {
+        flushCoalescedPackets(false);
+      }
+      // a new batch must start at the end of the data on disk
+      if (shouldNotWriteChecksum
+          || (writeCoalescer.isEmpty()
+              && firstByteInBlock != replicaInfo.getBytesOnDisk())
+          || !writeCoalescer.canAppend(firstByteInBlock, len)) {
+        return false;
+      }
+      final boolean newBatch = writeCoalescer.isEmpty();
+      writeCoalescer.append(dataBuf, checksumBuf, firstByteInBlock);
+      if (syncBlock || writeCoalescer.isFull()) {
+        flushCoalescedPackets(syncBlock);
+        manageWriterOsCache(replicaInfo.getBytesOnDisk());
+      } else if (newBatch) {
+        scheduleCoalescedFlush();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Write out the current batch of coalesced packets if the writer does not
+   * complete it within the max delay. This bounds the time for which data
+   * acknowledged to the client is not visible to readers.
+   */
+  private void scheduleCoalescedFlush() {
+    final long generation = writeCoalescer.getGeneration();
+    PacketWriteCoalescer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        synchronized (writeCoalescer) {
+          if (writeCoalescer.getGeneration() != generation) {
+            return; // the batch has been written already
+          }
+          try {
+            flushCoalescedPackets(false);
+          } catch (IOException e) {
+            LOG.warn("Failed to write coalesced packets of " + block, e);
+            writeCoalescer.setFlushError(e);
+            writeCoalescer.clear();
+          }
+        }
+      }
+    }, writeCoalesceMaxDelayMs, getVolumeStorageId());
+  }
+
+  /**
+   * Write the current batch of coalesced packets to disk and flush it, and
+   * sync it if requested. The caller must hold the lock of the coalescer.
+   */
+  private void flushCoalescedPackets(boolean isSync) throws IOException {
+    if (writeCoalescer.isEmpty()) {
+      return;
+    }
+    long begin = Time.monotonicNow();
+    writeCoalescer.writeTo(streams, checksumOut);
+    long duration = Time.monotonicNow() - begin;
+    if (duration > datanodeSlowLogThresholdMs && LOG.isWarnEnabled()) {
+      LOG.warn("Slow BlockReceiver write coalesced packets to disk cost:"
+          + duration + "ms (threshold=" + datanodeSlowLogThresholdMs + "ms), "
+          + "bytes=" + writeCoalescer.getDataLength()
+          + ", volume=" + getVolumeBaseUri()
+          + ", blockId=" + replicaInfo.getBlockId());
+    }
+    if (duration > maxWriteToDiskMs) {
+      maxWriteToDiskMs = duration;
+    }
+    flushOrSync(isSync);
+    replicaInfo.setLastChecksumAndDataLen(writeCoalescer.getEndOffset(),
+        writeCoalescer.getLastChecksum());
+    datanode.metrics.incrTotalWriteTime(duration);
+    writeCoalescer.clear();
+  }
+
   private static byte[] copyLastChunkChecksum(byte[] array, int size, int end) {
     return Arrays.copyOfRange(array, end - size, end);
   }
@@ -1103,6 +1235,14 @@ private String getVolumeBaseUri() {
     return "unavailable";
   }
 
+  private String getVolumeStorageId() {
+    final ReplicaInfo ri = replicaInfo.getReplicaInfo();
+    if (ri != null && ri.getVolume() != null) {
+      return ri.getVolume().getStorageID();
+    }
+    return "unavailable";
+  }
+
   /** Cleanup a partial block 
    * if this write is for a replication request (and not from a client)
    */
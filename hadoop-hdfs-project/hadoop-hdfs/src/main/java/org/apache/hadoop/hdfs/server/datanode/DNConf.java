@@ -85,6 +85,8 @@ public class DNConf {
   final boolean dropCacheBehindWrites;
   final boolean syncBehindWrites;
   final boolean syncBehindWritesInBackground;
+  final int writeCoalesceBytes;
+  final long writeCoalesceMaxDelayMs;
   final boolean dropCacheBehindReads;
   final boolean syncOnClose;
   final boolean encryptDataTransfer;
@@ -163,6 +165,12 @@ public DNConf(final Configurable dn) {
     syncBehindWritesInBackground = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_KEY,
         DFSConfigKeys.DFS_DATANODE_SYNC_BEHIND_WRITES_IN_BACKGROUND_DEFAULT);
+    writeCoalesceBytes = getConf().getInt(
+        DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_BYTES_KEY,
+        DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_BYTES_DEFAULT);
+    writeCoalesceMaxDelayMs = getConf().getLong(
+        DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_MAX_DELAY_MS_KEY,
+        DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_MAX_DELAY_MS_DEFAULT);
     dropCacheBehindReads = getConf().getBoolean(
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_KEY,
         DFSConfigKeys.DFS_DATANODE_DROP_CACHE_BEHIND_READS_DEFAULT);
@@ -325,6 +325,7 @@ public static InetSocketAddress createSocketAddr(String target) {
   Daemon dataXceiverServer = null;
   DataXceiverServer xserver = null;
   Daemon localDataXceiverServer = null;
+  private DataXceiverServer localXserver = null;
   ShortCircuitRegistry shortCircuitRegistry = null;
   ThreadGroup threadGroup = null;
   private DNConf dnConf;
@@ -1155,8 +1156,9 @@ private void initDataXceiver() throws IOException {
       DomainPeerServer domainPeerServer =
                 getDomainPeerServer(getConf(), streamingAddr.getPort());
       if (domainPeerServer != null) {
-        this.localDataXceiverServer = new Daemon(threadGroup,
-            new DataXceiverServer(domainPeerServer, getConf(), this));
+        localXserver = new DataXceiverServer(domainPeerServer, getConf(),
+            this);
+        this.localDataXceiverServer = new Daemon(threadGroup, localXserver);
         LOG.info("Listening on UNIX domain socket: " +
             domainPeerServer.getBindPath());
       }
@@ -2167,7 +2169,17 @@ private void handleDiskError(String failedVolumes) {
   /** Number of concurrent xceivers per node. */
   @Override // DataNodeMXBean
   public int getXceiverCount() {
-    return threadGroup == null ? 0 : threadGroup.activeCount();
+    if (threadGroup == null) {
+      return 0;
+    }
+    int count = threadGroup.activeCount();
+    if (xserver != null) {
+      count += xserver.getNumActivePoolXceivers();
+    }
+    if (localXserver != null) {
+      count += localXserver.getNumActivePoolXceivers();
+    }
+    return count;
   }
 
   @Override // DataNodeMXBean
@@ -2977,7 +2989,7 @@ void transferReplicaForPipelineRecovery(final ExtendedBlock b,
     final BlockConstructionStage stage;
 
     //get replica information
-    try(AutoCloseableLock lock = data.acquireDatasetLock()) {
+    try(AutoCloseableLock lock = data.acquireDatasetReadLock()) {
       Block storedBlock = data.getStoredBlock(b.getBlockPoolId(),
           b.getBlockId());
       if (null == storedBlock) {
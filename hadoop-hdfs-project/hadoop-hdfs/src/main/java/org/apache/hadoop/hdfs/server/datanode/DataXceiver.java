@@ -118,6 +118,13 @@ class DataXceiver extends Receiver implements Runnable {
   private final int ioFileBufferSize;
   private final int smallBufferSize;
   private Thread xceiver = null;
+  /** Ops processed on this connection, across threads if it was parked. */
+  private int opsProcessed = 0;
+  /**
+   * Whether the streams are not wrapped for SASL, so that no buffered input
+   * can be hidden from the idle watcher.
+   */
+  private boolean canPark = false;
 
   /**
    * Client Name used in previous operation. Not available on first request
@@ -219,46 +226,59 @@ private synchronized BlockReceiver getCurrentBlockReceiver() {
    */
   @Override
   public void run() {
-    int opsProcessed = 0;
     Op op = null;
+    // A connection resumed after being parked has its next op to read.
+    boolean resumed = opsProcessed != 0;
+    boolean parked = false;
 
     try {
       synchronized(this) {
         xceiver = Thread.currentThread();
       }
       dataXceiverServer.addPeer(peer, Thread.currentThread(), this);
-      peer.setWriteTimeout(datanode.getDnConf().socketWriteTimeout);
-      InputStream input = socketIn;
-      try {
-        IOStreamPair saslStreams = datanode.saslServer.receive(peer, socketOut,
-          socketIn, datanode.getXferAddress().getPort(),
-          datanode.getDatanodeId());
-        input = new BufferedInputStream(saslStreams.in,
-            smallBufferSize);
-        socketOut = saslStreams.out;
-      } catch (InvalidMagicNumberException imne) {
-        if (imne.isHandshake4Encryption()) {
-          LOG.info("Failed to read expected encryption handshake from client " +
-              "at " + peer.getRemoteAddressString() + ". Perhaps the client " +
-              "is running an older version of Hadoop which does not support " +
-              "encryption", imne);
-        } else {
-          LOG.info("Failed to read expected SASL data transfer protection " +
-              "handshake from client at " + peer.getRemoteAddressString() + 
-              ". Perhaps the client is running an older version of Hadoop " +
-              "which does not support SASL data transfer protection", imne);
+      if (!resumed) {
+        peer.setWriteTimeout(datanode.getDnConf().socketWriteTimeout);
+        InputStream input = socketIn;
+        try {
+          IOStreamPair saslStreams = datanode.saslServer.receive(peer,
+              socketOut, socketIn, datanode.getXferAddress().getPort(),
+              datanode.getDatanodeId());
+          input = new BufferedInputStream(saslStreams.in,
+              smallBufferSize);
+          socketOut = saslStreams.out;
+          canPark = saslStreams.in == socketIn;
+        } catch (InvalidMagicNumberException imne) {
+          if (imne.isHandshake4Encryption()) {
+            LOG.info("Failed to read expected encryption handshake from " +
+                "client at " + peer.getRemoteAddressString() + ". Perhaps " +
+                "the client is running an older version of Hadoop which " +
+                "does not support encryption", imne);
+          } else {
+            LOG.info("Failed to read expected SASL data transfer protection " +
+                "handshake from client at " + peer.getRemoteAddressString() +
+                ". Perhaps the client is running an older version of Hadoop " +
+                "which does not support SASL data transfer protection", imne);
+          }
+          return;
         }
-        return;
+
+        super.initialize(new DataInputStream(input));
       }
       
-      super.initialize(new DataInputStream(input));
-      
       // We process requests in a loop, and stay around for a short timeout.
       // This optimistic behaviour allows the other end to reuse connections.
       // Setting keepalive timeout to 0 disable this behavior.
       do {
         updateCurrentThreadName("Waiting for operation #" + (opsProcessed + 1));
 
+        if (opsProcessed != 0 && !resumed && canPark &&
+            in.available() == 0 && dataXceiverServer.parkIdlePeer(peer, this)) {
+          // The next op is served from the idle watcher, on another thread.
+          parked = true;
+          return;
+        }
+        resumed = false;
+
         try {
           if (opsProcessed != 0) {
             assert dnConf.socketKeepaliveTimeout > 0;
@@ -328,14 +348,29 @@ public void run() {
         LOG.debug(datanode.getDisplayName() + ":Number of active connections is: "
             + datanode.getXceiverCount());
       }
-      updateCurrentThreadName("Cleaning up");
-      if (peer != null) {
-        dataXceiverServer.closePeer(peer);
-        IOUtils.closeStream(in);
+      if (parked) {
+        updateCurrentThreadName("Parked");
+      } else {
+        updateCurrentThreadName("Cleaning up");
+        if (peer != null) {
+          dataXceiverServer.closePeer(peer);
+          IOUtils.closeStream(in);
+        }
       }
     }
   }
 
+  /**
+   * Close a connection that was parked while waiting for its next op, and
+   * so is no longer tracked by the DataXceiverServer.
+   */
+  void closeIdleConnection() {
+    LOG.debug("Cached {} closing after {} ops.  " +
+        "This message is usually benign.", peer, opsProcessed);
+    IOUtils.cleanup(null, peer);
+    IOUtils.closeStream(in);
+  }
+
   /**
    * In this short living thread, any local states should be collected before
    * the thread dies away.
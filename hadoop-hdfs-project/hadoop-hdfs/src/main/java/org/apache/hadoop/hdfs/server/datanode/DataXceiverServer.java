@@ -20,7 +20,14 @@
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.util.HashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.hadoop.conf.Configuration;
@@ -29,6 +36,7 @@
 import org.apache.hadoop.hdfs.net.PeerServer;
 import org.apache.hadoop.hdfs.util.DataTransferThrottler;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.net.SocketInputStream;
 import org.apache.hadoop.util.Daemon;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -115,10 +123,20 @@ synchronized void release() {
    * For older clients we just use the server-side default block size.
    */
   final long estimateBlockSize;
-  
+
+  /**
+   * In event driven mode, the pool running DataXceivers, and the watcher of
+   * connections idle between ops. Both are null otherwise, and each
+   * DataXceiver runs on its own thread for the life of its connection.
+   */
+  private final ThreadPoolExecutor xceiverPool;
+  private final IdleXceiverWatcher idleWatcher;
+
+  /** How long an idle pool thread waits for a new connection to serve. */
+  private static final long XCEIVER_POOL_KEEPALIVE_SECONDS = 10;
   
   DataXceiverServer(PeerServer peerServer, Configuration conf,
-      DataNode datanode) {
+      DataNode datanode) throws IOException {
     this.peerServer = peerServer;
     this.datanode = datanode;
     
@@ -135,11 +153,37 @@ synchronized void release() {
             DFSConfigKeys.DFS_DATANODE_BALANCE_BANDWIDTHPERSEC_DEFAULT),
         conf.getInt(DFSConfigKeys.DFS_DATANODE_BALANCE_MAX_NUM_CONCURRENT_MOVES_KEY,
             DFSConfigKeys.DFS_DATANODE_BALANCE_MAX_NUM_CONCURRENT_MOVES_DEFAULT));
+
+    if (conf.getBoolean(DFSConfigKeys.DFS_DATANODE_TRANSFER_EVENT_DRIVEN_KEY,
+        DFSConfigKeys.DFS_DATANODE_TRANSFER_EVENT_DRIVEN_DEFAULT)) {
+      // Worker threads stay out of the datanode's thread group, whose size
+      // is the xceiver count: a worker kept alive without a connection, or
+      // the idle watcher, must not make the DataNode look busier to block
+      // placement. Busy workers are counted by getNumActivePoolXceivers.
+      this.xceiverPool = new ThreadPoolExecutor(0, maxXceiverCount,
+          XCEIVER_POOL_KEEPALIVE_SECONDS, TimeUnit.SECONDS,
+          new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+              return new Daemon(r);
+            }
+          });
+      this.idleWatcher = new IdleXceiverWatcher(this,
+          datanode.getDnConf().socketKeepaliveTimeout);
+      LOG.info("Event driven data transfer is enabled with at most "
+          + maxXceiverCount + " worker threads");
+    } else {
+      this.xceiverPool = null;
+      this.idleWatcher = null;
+    }
   }
 
   @Override
   public void run() {
     Peer peer = null;
+    if (idleWatcher != null) {
+      new Daemon(idleWatcher).start();
+    }
     while (datanode.shouldRun && !datanode.shutdownForUpgrade) {
       try {
         peer = peerServer.accept();
@@ -152,9 +196,17 @@ public void run() {
               + maxXceiverCount);
         }
 
-        new Daemon(datanode.threadGroup,
-            DataXceiver.create(peer, datanode, this))
-            .start();
+        DataXceiver xceiver = DataXceiver.create(peer, datanode, this);
+        if (xceiverPool != null) {
+          try {
+            xceiverPool.execute(xceiver);
+          } catch (RejectedExecutionException e) {
+            throw new IOException("All " + maxXceiverCount
+                + " xceiver threads are busy", e);
+          }
+        } else {
+          new Daemon(datanode.threadGroup, xceiver).start();
+        }
       } catch (SocketTimeoutException ignored) {
         // wake up to see if should continue to run
       } catch (AsynchronousCloseException ace) {
@@ -211,6 +263,12 @@ public void run() {
     }
     // Close all peers.
     closeAllPeers();
+    if (idleWatcher != null) {
+      idleWatcher.close();
+      // Interrupt busy workers, as DataNode#shutdown does for the threads
+      // of the datanode's thread group.
+      xceiverPool.shutdownNow();
+    }
   }
 
   void kill() {
@@ -309,6 +367,65 @@ synchronized void releasePeer(Peer peer) {
     datanode.metrics.decrDataNodeActiveXceiversCount();
   }
 
+  /**
+   * Hand a connection which is waiting for its next op to the idle watcher,
+   * releasing it from the calling DataXceiver thread.
+   *
+   * @return true if the connection was parked, and the caller must return
+   *         without closing it; false if the caller must keep serving it.
+   */
+  boolean parkIdlePeer(Peer peer, DataXceiver xceiver) throws IOException {
+    if (idleWatcher == null) {
+      return false;
+    }
+    SelectableChannel channel = getSelectableChannel(peer);
+    if (channel == null) {
+      return false;
+    }
+    // Release before parking, since the connection may be resumed on
+    // another thread as soon as it is parked.
+    releasePeer(peer);
+    if (idleWatcher.park(channel, xceiver)) {
+      return true;
+    }
+    addPeer(peer, Thread.currentThread(), xceiver);
+    return false;
+  }
+
+  /** Serve the next op of a parked connection on a pool thread. */
+  void resumeIdlePeer(DataXceiver xceiver) {
+    try {
+      xceiverPool.execute(xceiver);
+    } catch (RejectedExecutionException e) {
+      LOG.warn(datanode.getDisplayName() + ":DataXceiverServer: all "
+          + maxXceiverCount + " xceiver threads are busy, closing an idle "
+          + "connection");
+      xceiver.closeIdleConnection();
+    }
+  }
+
+  private static SelectableChannel getSelectableChannel(Peer peer) {
+    ReadableByteChannel channel = peer.getInputStreamChannel();
+    if (channel instanceof SocketInputStream) {
+      channel = ((SocketInputStream) channel).getChannel();
+    }
+    return channel instanceof SelectableChannel ?
+        (SelectableChannel) channel : null;
+  }
+
+  /**
+   * @return the number of pool threads serving a connection, which are not
+   *         in the datanode's thread group; 0 if event driven mode is off.
+   */
+  int getNumActivePoolXceivers() {
+    return xceiverPool == null ? 0 : xceiverPool.getActiveCount();
+  }
+
+  @VisibleForTesting
+  int getNumIdlePeers() {
+    return idleWatcher == null ? 0 : idleWatcher.getNumIdlePeers();
+  }
+
   public void updateBalancerMaxConcurrentMovers(int movers) {
     balanceThrottler.setMaxConcurrentMovers(movers);
   }
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.apache.hadoop.util.Time.monotonicNow;
+
+import java.io.IOException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.io.IOUtils;
+import org.slf4j.Logger;
+
+/**
+ * Watches connections which are kept open between data transfer ops, so
+ * that no thread has to block waiting for the next op on each of them.
+ * When a parked connection becomes readable, its {@link DataXceiver} is
+ * handed back to the {@link DataXceiverServer} to process the op. If
+ * nothing arrives within the keepalive timeout, the connection is closed.
+ */
+class IdleXceiverWatcher implements Runnable {
+  public static final Logger LOG = DataNode.LOG;
+
+  /** How often to wake up to close expired connections. */
+  private static final long SELECT_TIMEOUT_MS = 100;
+
+  /** A parked connection waiting for its next op. */
+  private static final class IdlePeer {
+    private final SelectableChannel channel;
+    private final DataXceiver xceiver;
+    private final long deadline;
+
+    IdlePeer(SelectableChannel channel, DataXceiver xceiver, long deadline) {
+      this.channel = channel;
+      this.xceiver = xceiver;
+      this.deadline = deadline;
+    }
+  }
+
+  private final DataXceiverServer server;
+  private final Selector selector;
+  private final long idleTimeoutMs;
+  /** Connections parked but not yet registered with the selector. */
+  private final Queue<IdlePeer> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger numIdlePeers = new AtomicInteger(0);
+  private boolean closed = false;
+
+  IdleXceiverWatcher(DataXceiverServer server, long idleTimeoutMs)
+      throws IOException {
+    this.server = server;
+    this.idleTimeoutMs = idleTimeoutMs;
+    this.selector = Selector.open();
+  }
+
+  /**
+   * Park a connection until its next op arrives. The channel must be in
+   * non-blocking mode.
+   *
+   * @return false if the watcher has been closed, in which case the caller
+   *         still owns the connection.
+   */
+  synchronized boolean park(SelectableChannel channel, DataXceiver xceiver) {
+    if (closed) {
+      return false;
+    }
+    numIdlePeers.incrementAndGet();
+    pending.add(new IdlePeer(channel, xceiver,
+        monotonicNow() + idleTimeoutMs));
+    selector.wakeup();
+    return true;
+  }
+
+  /** Stop watching, closing all parked connections. */
+  synchronized void close() {
+    closed = true;
+    selector.wakeup();
+  }
+
+  private synchronized boolean isClosed() {
+    return closed;
+  }
+
+  /** @return the number of connections currently parked. */
+  int getNumIdlePeers() {
+    return numIdlePeers.get();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (!isClosed()) {
+        selector.select(SELECT_TIMEOUT_MS);
+        // Keys cancelled in the previous round were deregistered by the
+        // select, so a connection parked again can be registered again.
+        registerPending();
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+          SelectionKey key = it.next();
+          it.remove();
+          key.cancel();
+          numIdlePeers.decrementAndGet();
+          server.resumeIdlePeer(((IdlePeer) key.attachment()).xceiver);
+        }
+        closeExpired();
+      }
+    } catch (Throwable t) {
+      LOG.error("{} exiting due to: ", this, t);
+    } finally {
+      synchronized (this) {
+        closed = true;
+      }
+      for (SelectionKey key : selector.keys()) {
+        // Cancelled keys belong to connections already resumed or closed.
+        if (key.isValid()) {
+          closeIdle((IdlePeer) key.attachment());
+        }
+      }
+      IdlePeer idle;
+      while ((idle = pending.poll()) != null) {
+        closeIdle(idle);
+      }
+      IOUtils.cleanup(null, selector);
+    }
+  }
+
+  private void registerPending() {
+    IdlePeer idle;
+    while ((idle = pending.poll()) != null) {
+      try {
+        idle.channel.register(selector, SelectionKey.OP_READ, idle);
+      } catch (IOException | RuntimeException e) {
+        LOG.debug("Failed to watch an idle connection", e);
+        closeIdle(idle);
+      }
+    }
+  }
+
+  private void closeExpired() {
+    long now = monotonicNow();
+    for (SelectionKey key : selector.keys()) {
+      IdlePeer idle = (IdlePeer) key.attachment();
+      if (key.isValid() && idle.deadline <= now) {
+        key.cancel();
+        closeIdle(idle);
+      }
+    }
+  }
+
+  private void closeIdle(IdlePeer idle) {
+    numIdlePeers.decrementAndGet();
+    idle.xceiver.closeIdleConnection();
+  }
+
+  @Override
+  public String toString() {
+    return "DataXceiver idle connection watcher";
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hdfs.server.datanode.fsdataset.ReplicaOutputStreams;
+import org.apache.hadoop.util.DataChecksum;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Collects the data and checksums of consecutive packets of a block write,
+ * so that a {@link BlockReceiver} can write them to the block and meta files
+ * with one write call each instead of one per packet.
+ * <p>
+ * A batch always starts at a checksum chunk boundary and only grows by
+ * packets which continue it at a chunk boundary, so the checksums of the
+ * batch can be appended to the meta file as they are. A packet which ends
+ * within a chunk is the last one of its batch.
+ * </p>
+ * <p>
+ * The coalescer is not thread safe. The receiver synchronizes on it, since a
+ * batch may also be written out by the flusher thread of its volume when
+ * the writer pauses, see {@link #schedule(Runnable, long, String)}.
+ * </p>
+ */
+class PacketWriteCoalescer {
+  /** How long the flusher thread of an idle volume is kept. */
+  private static final long FLUSHER_KEEP_ALIVE_SECS = 60;
+  /** The flusher threads by storage ID of their volume. */
+  private static final ConcurrentMap<String, ScheduledThreadPoolExecutor>
+      FLUSHERS = new ConcurrentHashMap<>();
+
+  private final byte[] data;
+  private final byte[] checksums;
+  private final int bytesPerChecksum;
+  private final int checksumSize;
+  private int dataLen = 0;
+  private int checksumLen = 0;
+  /** The offset in the block just after the last byte of the batch. */
+  private long endOffset = 0;
+  /** Incremented whenever the batch is emptied. */
+  private long generation = 0;
+  /** A failure to write the batch on the flusher thread. */
+  private IOException flushError = null;
+
+  /**
+   * @param capacity the maximum number of data bytes in a batch. It is
+   *                 rounded down to a whole number of checksum chunks.
+   * @param checksum the checksum of the replica on disk.
+   */
+  PacketWriteCoalescer(int capacity, DataChecksum checksum) {
+    this.bytesPerChecksum = checksum.getBytesPerChecksum();
+    this.checksumSize = checksum.getChecksumSize();
+    final int chunks = Math.max(1, capacity / bytesPerChecksum);
+    this.data = new byte[chunks * bytesPerChecksum];
+    this.checksums = new byte[chunks * checksumSize];
+  }
+
+  boolean isEmpty() {
+    return dataLen == 0;
+  }
+
+  /** @return true if the batch cannot take another packet. */
+  boolean isFull() {
+    return dataLen % bytesPerChecksum != 0
+        || data.length - dataLen < bytesPerChecksum;
+  }
+
+  int getCapacity() {
+    return data.length;
+  }
+
+  int getDataLength() {
+    return dataLen;
+  }
+
+  long getEndOffset() {
+    return endOffset;
+  }
+
+  long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Check whether a packet can be added to the batch.
+   *
+   * @param offset the offset in the block of the first byte of the packet.
+   * @param len the number of data bytes in the packet.
+   */
+  boolean canAppend(long offset, int len) {
+    if (isEmpty()) {
+      return offset % bytesPerChecksum == 0 && len <= data.length;
+    }
+    return offset == endOffset && !isFull() && len <= data.length - dataLen;
+  }
+
+  /**
+   * Add the data and checksums of a packet to the batch. The caller must
+   * have checked {@link #canAppend(long, int)}.
+   *
+   * @param dataBuf the data of the packet.
+   * @param checksumBuf the checksums of the data, in the disk checksum.
+   * @param offset the offset in the block of the first byte of the packet.
+   */
+  void append(ByteBuffer dataBuf, ByteBuffer checksumBuf, long offset) {
+    final int len = dataBuf.remaining();
+    final int numChecksums = (len + bytesPerChecksum - 1) / bytesPerChecksum;
+    dataBuf.duplicate().get(data, dataLen, len);
+    checksumBuf.duplicate().get(checksums, checksumLen,
+        numChecksums * checksumSize);
+    dataLen += len;
+    checksumLen += numChecksums * checksumSize;
+    endOffset = offset + len;
+  }
+
+  /** @return the checksum of the last chunk in the batch. */
+  byte[] getLastChecksum() {
+    return Arrays.copyOfRange(checksums, checksumLen - checksumSize,
+        checksumLen);
+  }
+
+  /**
+   * Write the batch to the block and meta files. The streams are not
+   * flushed, and the batch is kept until {@link #clear()} is called.
+   */
+  void writeTo(ReplicaOutputStreams streams, OutputStream checksumOut)
+      throws IOException {
+    streams.writeDataToDisk(data, 0, dataLen);
+    checksumOut.write(checksums, 0, checksumLen);
+  }
+
+  /** Empty the batch. */
+  void clear() {
+    dataLen = 0;
+    checksumLen = 0;
+    generation++;
+  }
+
+  void setFlushError(IOException e) {
+    flushError = e;
+  }
+
+  /** Rethrow the failure of a previous write on the flusher thread. */
+  void checkFlushError() throws IOException {
+    if (flushError != null) {
+      throw new IOException("Failed to write coalesced packets", flushError);
+    }
+  }
+
+  /**
+   * Run a flush of a batch on the flusher thread of its volume after a
+   * delay. There is one flusher thread per volume, so a slow volume only
+   * delays the batches written to it. It only writes out batches of writers
+   * which did not send another packet in time.
+   *
+   * @param storageId the storage ID of the volume the batch is written to.
+   */
+  static void schedule(Runnable flush, long delayMs, String storageId) {
+    getFlusher(storageId).schedule(flush, delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  private static ScheduledThreadPoolExecutor getFlusher(String storageId) {
+    return FLUSHERS.computeIfAbsent(storageId, id -> {
+      ScheduledThreadPoolExecutor flusher = new ScheduledThreadPoolExecutor(1,
+          new ThreadFactoryBuilder()
+              .setDaemon(true)
+              .setNameFormat("PacketWriteCoalescer flusher for " + id)
+              .build());
+      flusher.setKeepAliveTime(FLUSHER_KEEP_ALIVE_SECS, TimeUnit.SECONDS);
+      flusher.allowCoreThreadTimeOut(true);
+      return flusher;
+    });
+  }
+}
@@ -239,7 +239,7 @@ StorageReport[] getStorageReports(String bpid)
    * Gets a list of references to the finalized blocks for the given block pool.
    * <p>
    * Callers of this function should call
-   * {@link FsDatasetSpi#acquireDatasetLock} to avoid blocks' status being
+   * {@link FsDatasetSpi#acquireDatasetReadLock} to avoid blocks' status being
    * changed during list iteration.
    * </p>
    * @return a list of references to the finalized blocks for the given block
@@ -660,4 +660,11 @@ ReplicaInfo moveBlockAcrossVolumes(final ExtendedBlock block,
    * Acquire the lock of the data set.
    */
   AutoCloseableLock acquireDatasetLock();
+
+  /**
+   * Acquire the read lock of the data set. This is shared with other readers
+   * but excludes {@link #acquireDatasetLock}, and must not be held while
+   * calling any method which modifies the data set.
+   */
+  AutoCloseableLock acquireDatasetReadLock();
 }
@@ -17,6 +17,8 @@
  */
 package org.apache.hadoop.hdfs.server.federation.router;
 
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_ROUTER_ASYNC_HANDLER_COUNT_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_ROUTER_ASYNC_HANDLER_COUNT_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_ROUTER_HANDLER_COUNT_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_ROUTER_HANDLER_COUNT_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_ROUTER_HANDLER_QUEUE_SIZE_DEFAULT;
@@ -205,6 +207,10 @@ public RouterRpcServer(Configuration configuration, Router router,
     int handlerCount = this.conf.getInt(DFS_ROUTER_HANDLER_COUNT_KEY,
         DFS_ROUTER_HANDLER_COUNT_DEFAULT);
 
+    int asyncHandlerCount = this.conf.getInt(
+        DFS_ROUTER_ASYNC_HANDLER_COUNT_KEY,
+        DFS_ROUTER_ASYNC_HANDLER_COUNT_DEFAULT);
+
     int readerCount = this.conf.getInt(DFS_ROUTER_READER_COUNT_KEY,
         DFS_ROUTER_READER_COUNT_DEFAULT);
 
@@ -232,8 +238,9 @@ public RouterRpcServer(Configuration configuration, Router router,
         DFSConfigKeys.DFS_ROUTER_RPC_ADDRESS_KEY,
         DFSConfigKeys.DFS_ROUTER_RPC_ADDRESS_DEFAULT,
         DFSConfigKeys.DFS_ROUTER_RPC_PORT_DEFAULT);
-    LOG.info("RPC server binding to {} with {} handlers for Router {}",
-        confRpcAddress, handlerCount, this.router.getRouterId());
+    LOG.info("RPC server binding to {} with {} handlers and {} async " +
+        "handlers for Router {}", confRpcAddress, handlerCount,
+        asyncHandlerCount, this.router.getRouterId());
 
     this.rpcServer = new RPC.Builder(this.conf)
         .setProtocol(ClientNamenodeProtocolPB.class)
@@ -245,6 +252,8 @@ public RouterRpcServer(Configuration configuration, Router router,
         .setQueueSizePerHandler(handlerQueueSize)
         .setVerbose(false)
         .build();
+    // Free the handlers while the requests wait for the Namenodes
+    this.rpcServer.setAsyncHandlerCount(asyncHandlerCount);
     // We don't want the server to log the full stack trace for some exceptions
     this.rpcServer.addTerseExceptions(
         RemoteException.class,
@@ -1927,6 +1936,11 @@ public BatchedEntries<OpenFileEntry> listOpenFiles(long arg0)
     return null;
   }
 
+  @Override
+  public void msync() throws IOException {
+    checkOperation(OperationCategory.READ, false);
+  }
+
   /**
    * Locate the location with the matching block pool id.
    *
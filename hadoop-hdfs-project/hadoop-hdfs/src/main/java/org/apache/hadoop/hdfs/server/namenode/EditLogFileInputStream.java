@@ -47,6 +47,7 @@
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.protobuf.ByteString;
 
 /**
  * An implementation of the abstract class {@link EditLogInputStream}, which
@@ -69,6 +70,7 @@ static private enum State {
   private InputStream fStream = null;
   private int logVersion = 0;
   private FSEditLogOp.Reader reader = null;
+  private boolean opCacheEnabled = true;
   private FSEditLogLoader.PositionTrackingInputStream tracker = null;
   private DataInputStream dataIn = null;
   static final Log LOG = LogFactory.getLog(EditLogInputStream.class);
@@ -119,6 +121,26 @@ public static EditLogInputStream fromUrl(
     return new EditLogFileInputStream(new URLLog(connectionFactory, url),
         startTxId, endTxId, inProgress);
   }
+
+  /**
+   * Open an EditLogInputStream for edits which have already been read into
+   * memory, e.g. fetched from a JournalNode over RPC.
+   *
+   * @param edits
+   *          the serialized edits, starting with a log header
+   * @param startTxId
+   *          the expected starting txid
+   * @param endTxId
+   *          the expected ending txid
+   * @param inProgress
+   *          whether the log is in-progress
+   * @return a stream from which edits may be read
+   */
+  public static EditLogInputStream fromByteString(ByteString edits,
+      long startTxId, long endTxId, boolean inProgress) {
+    return new EditLogFileInputStream(new ByteStringLog(edits,
+        "ByteStringEditLog:" + startTxId), startTxId, endTxId, inProgress);
+  }
   
   private EditLogFileInputStream(LogSource log,
       long firstTxId, long lastTxId,
@@ -158,6 +180,9 @@ private void init(boolean verifyLayoutVersion)
       }
       reader = FSEditLogOp.Reader.create(dataIn, tracker, logVersion);
       reader.setMaxOpSize(maxOpSize);
+      if (!opCacheEnabled) {
+        reader.disableOpCache();
+      }
       state = State.OPEN;
     } finally {
       if (reader == null) {
@@ -377,6 +402,31 @@ private interface LogSource {
     public String getName();
   }
   
+  private static class ByteStringLog implements LogSource {
+    private final ByteString bytes;
+    private final String name;
+
+    public ByteStringLog(ByteString bytes, String name) {
+      this.bytes = bytes;
+      this.name = name;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return bytes.newInput();
+    }
+
+    @Override
+    public long length() {
+      return bytes.size();
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+  }
+
   private static class FileLog implements LogSource {
     private final File file;
     
@@ -464,6 +514,15 @@ public String getName() {
     }
   }
 
+  @Override
+  boolean disableOpCache() {
+    opCacheEnabled = false;
+    if (reader != null) {
+      reader.disableOpCache();
+    }
+    return true;
+  }
+
   @Override
   public void setMaxOpSize(int maxOpSize) {
     this.maxOpSize = maxOpSize;
@@ -209,4 +209,15 @@ FSEditLogOp getCachedOp() {
    * even faster data source (e.g. a byte buffer).
    */
   public abstract boolean isLocalLog();
+
+  /**
+   * Decode each op read from now on into a new instance, rather than reusing
+   * the instances of previously read ops. This lets a caller hold on to ops
+   * it has read ahead of the one it is processing.
+   *
+   * @return true if the stream supports this, false otherwise.
+   */
+  boolean disableOpCache() {
+    return false;
+  }
 }
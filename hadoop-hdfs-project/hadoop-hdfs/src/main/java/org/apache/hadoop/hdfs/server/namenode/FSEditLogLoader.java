@@ -129,6 +129,8 @@ public class FSEditLogLoader {
   private long lastAppliedTxId;
   /** Total number of end transactions loaded. */
   private int totalEdits = 0;
+  /** Number of ops to decode ahead of the op being applied, 0 for none. */
+  private int readAheadOps = 0;
   
   public FSEditLogLoader(FSNamesystem fsNamesys, long lastAppliedTxId) {
     this.fsNamesys = fsNamesys;
@@ -136,6 +138,14 @@ public FSEditLogLoader(FSNamesystem fsNamesys, long lastAppliedTxId) {
     this.lastAppliedTxId = lastAppliedTxId;
   }
   
+  /**
+   * Set the number of ops to decode on a separate thread ahead of the op
+   * being applied.
+   */
+  void setReadAheadOps(int readAheadOps) {
+    this.readAheadOps = readAheadOps;
+  }
+
   long loadFSEdits(EditLogInputStream edits, long expectedStartingTxId)
       throws IOException {
     return loadFSEdits(edits, expectedStartingTxId, null, null);
@@ -157,9 +167,12 @@ long loadFSEdits(EditLogInputStream edits, long expectedStartingTxId,
       FSImage.LOG.info("Start loading edits file " + edits.getName());
       long numEdits = loadEditRecords(edits, false, expectedStartingTxId,
           startOpt, recovery);
+      long elapsed = monotonicNow() - startTime;
       FSImage.LOG.info("Edits file " + edits.getName() 
           + " of size " + edits.length() + " edits # " + numEdits 
-          + " loaded in " + (monotonicNow()-startTime)/1000 + " seconds");
+          + " loaded in " + elapsed/1000 + " seconds ("
+          + (elapsed > 0 ? numEdits * 1000 / elapsed : numEdits)
+          + " edits/s)");
       return numEdits;
     } finally {
       edits.close();
@@ -196,6 +209,12 @@ long loadEditRecords(EditLogInputStream in, boolean closeOnExit,
     Counter counter = prog.getCounter(Phase.LOADING_EDITS, step);
     long lastLogTime = monotonicNow();
     long lastInodeId = fsNamesys.dir.getLastInodeId();
+
+    ReadAheadEditLogInputStream readAhead = null;
+    if (readAheadOps > 0 && in.disableOpCache()) {
+      readAhead = new ReadAheadEditLogInputStream(in, readAheadOps);
+      in = readAhead;
+    }
     
     try {
       while (true) {
@@ -298,6 +317,8 @@ long loadEditRecords(EditLogInputStream in, boolean closeOnExit,
       fsNamesys.dir.resetLastInodeId(lastInodeId);
       if(closeOnExit) {
         in.close();
+      } else if (readAhead != null) {
+        readAhead.stopReadAhead();
       }
       fsDir.writeUnlock();
       fsNamesys.writeUnlock("loadEditRecords");
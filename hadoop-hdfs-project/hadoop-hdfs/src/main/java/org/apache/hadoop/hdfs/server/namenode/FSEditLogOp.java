@@ -4902,6 +4902,14 @@ public void setMaxOpSize(int maxOpSize) {
       this.maxOpSize = maxOpSize;
     }
 
+    /**
+     * Decode each op into a new instance rather than reusing the instances
+     * of previously read ops.
+     */
+    void disableOpCache() {
+      cache.disableCache();
+    }
+
     /**
      * Read an operation from the input stream.
      * 
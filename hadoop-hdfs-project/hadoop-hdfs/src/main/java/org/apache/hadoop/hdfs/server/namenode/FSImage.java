@@ -873,6 +873,9 @@ private long loadEdits(Iterable<EditLogInputStream> editStreams,
     long prevLastAppliedTxId = lastAppliedTxId;  
     try {    
       FSEditLogLoader loader = new FSEditLogLoader(target, lastAppliedTxId);
+      loader.setReadAheadOps(conf.getInt(
+          DFSConfigKeys.DFS_NAMENODE_EDITS_READ_AHEAD_OPS_KEY,
+          DFSConfigKeys.DFS_NAMENODE_EDITS_READ_AHEAD_OPS_DEFAULT));
       
       // Load latest edits
       for (EditLogInputStream editIn : editStreams) {
@@ -952,7 +955,8 @@ void saveFSImage(SaveNamespaceContext context, StorageDirectory sd,
     File newFile = NNStorage.getStorageFile(sd, NameNodeFile.IMAGE_NEW, txid);
     File dstFile = NNStorage.getStorageFile(sd, dstType, txid);
     
-    FSImageFormatProtobuf.Saver saver = new FSImageFormatProtobuf.Saver(context);
+    FSImageFormatProtobuf.Saver saver = new FSImageFormatProtobuf.Saver(context,
+        conf);
     FSImageCompression compression = FSImageCompression.createCompression(conf);
     saver.save(newFile, compression);
     
@@ -20,11 +20,16 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -67,6 +72,7 @@
 import org.apache.hadoop.hdfs.server.namenode.startupprogress.Step;
 import org.apache.hadoop.hdfs.util.EnumCounters;
 import org.apache.hadoop.hdfs.util.ReadOnlyList;
+import org.apache.hadoop.io.IOUtils;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
@@ -226,6 +232,9 @@ public static void updateBlocksMap(INodeFile file, BlockManager bm) {
       }
     }
 
+    /** Number of INodes added to the INode map at a time. */
+    private static final int INODE_BATCH_SIZE = 1000;
+
     private final FSDirectory dir;
     private final FSNamesystem fsn;
     private final FSImageFormatProtobuf.Loader parent;
@@ -237,8 +246,43 @@ public static void updateBlocksMap(INodeFile file, BlockManager bm) {
     }
 
     void loadINodeDirectorySection(InputStream in) throws IOException {
+      loadINodeDirectoriesInSection(in);
+    }
+
+    /**
+     * Load the sub-sections of the INode directory section with the given
+     * executor, one task per sub-section.
+     */
+    void loadINodeDirectorySectionInParallel(ExecutorService service,
+        List<FileSummary.Section> sections, String compressionCodec)
+        throws IOException {
+      LOG.info("Loading the INode directory section in parallel with "
+          + sections.size() + " sub-sections");
+      List<Future<Integer>> futures = new ArrayList<>(sections.size());
+      for (final FileSummary.Section s : sections) {
+        final InputStream in = parent.getInputStreamForSection(s,
+            compressionCodec);
+        futures.add(service.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws IOException {
+            try {
+              return loadINodeDirectoriesInSection(in);
+            } finally {
+              IOUtils.cleanup(LOG, in);
+            }
+          }
+        }));
+      }
+      int total = waitForSubSections(futures);
+      LOG.info("Loaded " + total + " INode directories from "
+          + sections.size() + " sub-sections");
+    }
+
+    private int loadINodeDirectoriesInSection(InputStream in)
+        throws IOException {
       final List<INodeReference> refList = parent.getLoaderContext()
           .getRefList();
+      int count = 0;
       while (true) {
         INodeDirectorySection.DirEntry e = INodeDirectorySection.DirEntry
             .parseDelimitedFrom(in);
@@ -247,6 +291,8 @@ void loadINodeDirectorySection(InputStream in) throws IOException {
           break;
         }
         INodeDirectory p = dir.getInode(e.getParent()).asDirectory();
+        p.ensureChildrenCapacity(p.getChildrenNum(Snapshot.CURRENT_STATE_ID)
+            + e.getChildrenCount() + e.getRefChildrenCount());
         for (long id : e.getChildrenList()) {
           INode child = dir.getInode(id);
           addToParent(p, child);
@@ -255,16 +301,14 @@ void loadINodeDirectorySection(InputStream in) throws IOException {
           INodeReference ref = refList.get(refId);
           addToParent(p, ref);
         }
+        count++;
       }
+      return count;
     }
 
     void loadINodeSection(InputStream in, StartupProgress prog,
         Step currentStep) throws IOException {
-      INodeSection s = INodeSection.parseDelimitedFrom(in);
-      fsn.dir.resetLastInodeId(s.getLastInodeId());
-      long numInodes = s.getNumInodes();
-      LOG.info("Loading " + numInodes + " INodes.");
-      prog.setTotal(Phase.LOADING_FSIMAGE, currentStep, numInodes);
+      long numInodes = loadINodeSectionHeader(in, prog, currentStep);
       Counter counter = prog.getCounter(Phase.LOADING_FSIMAGE, currentStep);
       for (int i = 0; i < numInodes; ++i) {
         INodeSection.INode p = INodeSection.INode.parseDelimitedFrom(in);
@@ -278,6 +322,124 @@ void loadINodeSection(InputStream in, StartupProgress prog,
       }
     }
 
+    private long loadINodeSectionHeader(InputStream in, StartupProgress prog,
+        Step currentStep) throws IOException {
+      INodeSection s = INodeSection.parseDelimitedFrom(in);
+      fsn.dir.resetLastInodeId(s.getLastInodeId());
+      long numInodes = s.getNumInodes();
+      LOG.info("Loading " + numInodes + " INodes.");
+      prog.setTotal(Phase.LOADING_FSIMAGE, currentStep, numInodes);
+      return numInodes;
+    }
+
+    /**
+     * Load the sub-sections of the INode section with the given executor, one
+     * task per sub-section. The section header is at the start of the first
+     * sub-section.
+     */
+    void loadINodeSectionInParallel(ExecutorService service,
+        List<FileSummary.Section> sections, String compressionCodec,
+        StartupProgress prog, Step currentStep) throws IOException {
+      LOG.info("Loading the INode section in parallel with "
+          + sections.size() + " sub-sections");
+      final Counter counter = prog.getCounter(Phase.LOADING_FSIMAGE,
+          currentStep);
+      long numInodes = -1;
+      List<Future<Integer>> futures = new ArrayList<>(sections.size());
+      for (final FileSummary.Section s : sections) {
+        final InputStream in = parent.getInputStreamForSection(s,
+            compressionCodec);
+        if (numInodes < 0) {
+          try {
+            numInodes = loadINodeSectionHeader(in, prog, currentStep);
+          } catch (IOException e) {
+            IOUtils.cleanup(LOG, in);
+            throw e;
+          }
+        }
+        futures.add(service.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws IOException {
+            try {
+              return loadINodesInSection(in, counter);
+            } finally {
+              IOUtils.cleanup(LOG, in);
+            }
+          }
+        }));
+      }
+      int total = waitForSubSections(futures);
+      if (total != numInodes) {
+        throw new IOException("Expected to load " + numInodes
+            + " INodes from the image but loaded " + total);
+      }
+    }
+
+    /**
+     * Load the INodes up to the end of the given stream. INodes are added to
+     * the INode map in batches, holding the lock on this loader.
+     *
+     * @return the number of INodes loaded.
+     */
+    private int loadINodesInSection(InputStream in, Counter counter)
+        throws IOException {
+      List<INode> batch = new ArrayList<>(INODE_BATCH_SIZE);
+      int count = 0;
+      while (true) {
+        INodeSection.INode p = INodeSection.INode.parseDelimitedFrom(in);
+        // note that in is a LimitedInputStream
+        if (p == null) {
+          break;
+        }
+        if (p.getId() == INodeId.ROOT_INODE_ID) {
+          synchronized (this) {
+            loadRootINode(p);
+          }
+        } else {
+          batch.add(loadINode(p));
+          if (batch.size() == INODE_BATCH_SIZE) {
+            addToInodeMap(batch);
+          }
+        }
+        count++;
+        counter.increment();
+      }
+      addToInodeMap(batch);
+      return count;
+    }
+
+    private synchronized void addToInodeMap(List<INode> inodes) {
+      for (INode n : inodes) {
+        dir.addToInodeMap(n);
+      }
+      inodes.clear();
+    }
+
+    private static int waitForSubSections(List<Future<Integer>> futures)
+        throws IOException {
+      int total = 0;
+      try {
+        for (Future<Integer> f : futures) {
+          total += f.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(
+            "Interrupted while loading image sub-sections");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        }
+        throw new IOException("Failed to load image sub-section", cause);
+      } finally {
+        for (Future<Integer> f : futures) {
+          f.cancel(true);
+        }
+      }
+      return total;
+    }
+
     /**
      * Load the under-construction files section, and update the lease map
      */
@@ -304,10 +466,13 @@ private void addToParent(INodeDirectory parent, INode child) {
       if (!parent.addChild(child)) {
         return;
       }
-      dir.cacheName(child);
+      // The name cache and blocks map are shared by the sub-section loaders
+      synchronized (this) {
+        dir.cacheName(child);
 
-      if (child.isFile()) {
-        updateBlocksMap(child.asFile(), fsn.getBlockManager());
+        if (child.isFile()) {
+          updateBlocksMap(child.asFile(), fsn.getBlockManager());
+        }
       }
     }
 
@@ -558,6 +723,9 @@ public static INodeSection.INodeDirectory.Builder buildINodeDirectory(
     private final SaveNamespaceContext context;
     private final FSImageFormatProtobuf.Saver parent;
 
+    /** Set while saving the INode section, to split the directory section. */
+    private int numDirectoriesWithChildren;
+
     Saver(FSImageFormatProtobuf.Saver parent, FileSummary.Builder summary) {
       this.parent = parent;
       this.summary = summary;
@@ -570,7 +738,12 @@ void serializeINodeDirectorySection(OutputStream out) throws IOException {
           .getINodeMap().getMapIterator();
       final ArrayList<INodeReference> refList = parent.getSaverContext()
           .getRefList();
+      int subSections = parent.getNumSubSections(
+          fsn.dir.getINodeMap().size());
+      int entriesPerSubSection = subSections > 0
+          ? Math.max(numDirectoriesWithChildren / subSections, 1) : 0;
       int i = 0;
+      int entries = 0;
       while (iter.hasNext()) {
         INodeWithAdditionalFields n = iter.next();
         if (!n.isDirectory()) {
@@ -592,6 +765,12 @@ void serializeINodeDirectorySection(OutputStream out) throws IOException {
           }
           INodeDirectorySection.DirEntry e = b.build();
           e.writeDelimitedTo(out);
+          ++entries;
+          if (entriesPerSubSection > 0
+              && entries % entriesPerSubSection == 0) {
+            parent.commitSubSection(summary,
+                FSImageFormatProtobuf.SectionName.INODE_DIR_SUB);
+          }
         }
 
         ++i;
@@ -599,6 +778,10 @@ void serializeINodeDirectorySection(OutputStream out) throws IOException {
           context.checkCancelled();
         }
       }
+      if (entriesPerSubSection > 0) {
+        parent.commitSubSection(summary,
+            FSImageFormatProtobuf.SectionName.INODE_DIR_SUB);
+      }
       parent.commitSection(summary,
           FSImageFormatProtobuf.SectionName.INODE_DIR);
     }
@@ -611,16 +794,32 @@ void serializeINodeSection(OutputStream out) throws IOException {
       INodeSection s = b.build();
       s.writeDelimitedTo(out);
 
+      int subSections = parent.getNumSubSections(inodesMap.size());
+      int inodesPerSubSection = subSections > 0
+          ? Math.max(inodesMap.size() / subSections, 1) : 0;
       int i = 0;
+      numDirectoriesWithChildren = 0;
       Iterator<INodeWithAdditionalFields> iter = inodesMap.getMapIterator();
       while (iter.hasNext()) {
         INodeWithAdditionalFields n = iter.next();
         save(out, n);
+        if (n.isDirectory() && n.asDirectory().getChildrenList(
+            Snapshot.CURRENT_STATE_ID).size() > 0) {
+          numDirectoriesWithChildren++;
+        }
         ++i;
+        if (inodesPerSubSection > 0 && i % inodesPerSubSection == 0) {
+          parent.commitSubSection(summary,
+              FSImageFormatProtobuf.SectionName.INODE_SUB);
+        }
         if (i % FSImageFormatProtobuf.Saver.CHECK_CANCEL_INTERVAL == 0) {
           context.checkCancelled();
         }
       }
+      if (inodesPerSubSection > 0) {
+        parent.commitSubSection(summary,
+            FSImageFormatProtobuf.SectionName.INODE_SUB);
+      }
       parent.commitSection(summary, FSImageFormatProtobuf.SectionName.INODE);
     }
 
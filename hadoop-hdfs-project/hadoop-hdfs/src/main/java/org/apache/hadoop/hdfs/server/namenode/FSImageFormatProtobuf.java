@@ -40,6 +40,8 @@
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicyInfo;
 import org.apache.hadoop.hdfs.protocolPB.PBHelperClient;
@@ -48,6 +50,7 @@
 import org.slf4j.LoggerFactory;
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.CacheDirectiveInfoProto;
 import org.apache.hadoop.hdfs.protocol.proto.ClientNamenodeProtocolProtos.CachePoolInfoProto;
 import org.apache.hadoop.hdfs.protocol.proto.HdfsProtos.ErasureCodingPolicyProto;
@@ -74,6 +77,7 @@
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.CodedOutputStream;
 
 /**
@@ -156,6 +160,8 @@ public static final class Loader implements FSImageFormat.AbstractLoader {
      * when we're doing (rollingUpgrade rollback).
      */
     private final boolean requireSameLayoutVersion;
+    /** The image file being loaded, opened again to read sub-sections. */
+    private File filename;
 
     Loader(Configuration conf, FSNamesystem fsn,
         boolean requireSameLayoutVersion) {
@@ -182,6 +188,7 @@ public LoaderContext getLoaderContext() {
     void load(File file) throws IOException {
       long start = Time.monotonicNow();
       imgDigest = MD5FileUtils.computeMd5ForFile(file);
+      filename = file;
       RandomAccessFile raFile = new RandomAccessFile(file, "r");
       FileInputStream fin = new FileInputStream(file);
       try {
@@ -239,6 +246,42 @@ public int compare(FileSummary.Section s1, FileSummary.Section s2) {
        */
       Step currentStep = null;
 
+      ExecutorService executorService = null;
+      if (conf.getBoolean(DFSConfigKeys.DFS_IMAGE_PARALLEL_LOAD_KEY,
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_LOAD_DEFAULT)) {
+        executorService = getParallelExecutorService();
+      }
+      try {
+        loadSections(sections, summary, fin, channel, inodeLoader,
+            snapshotLoader, executorService, prog, currentStep);
+      } finally {
+        if (executorService != null) {
+          executorService.shutdown();
+        }
+      }
+    }
+
+    private ExecutorService getParallelExecutorService() {
+      int threads = conf.getInt(DFSConfigKeys.DFS_IMAGE_PARALLEL_THREADS_KEY,
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_THREADS_DEFAULT);
+      if (threads < 1) {
+        LOG.warn("Parallel image loading is enabled, but {} is set to {}." +
+            " Using a single thread.",
+            DFSConfigKeys.DFS_IMAGE_PARALLEL_THREADS_KEY, threads);
+        threads = 1;
+      }
+      LOG.info("Parallel image loading is enabled with {} threads", threads);
+      return Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("FSImageLoader-%d").build());
+    }
+
+    private void loadSections(ArrayList<FileSummary.Section> sections,
+        FileSummary summary, FileInputStream fin, FileChannel channel,
+        FSImageFormatPBINode.Loader inodeLoader,
+        FSImageFormatPBSnapshot.Loader snapshotLoader,
+        ExecutorService executorService, StartupProgress prog,
+        Step currentStep) throws IOException {
       for (FileSummary.Section s : sections) {
         channel.position(s.getOffset());
         InputStream in = new BufferedInputStream(new LimitInputStream(fin,
@@ -259,14 +302,33 @@ public int compare(FileSummary.Section s1, FileSummary.Section s2) {
         case INODE: {
           currentStep = new Step(StepType.INODES);
           prog.beginStep(Phase.LOADING_FSIMAGE, currentStep);
-          inodeLoader.loadINodeSection(in, prog, currentStep);
+          ArrayList<FileSummary.Section> subSections =
+              getSubSectionsOfName(sections, SectionName.INODE_SUB);
+          if (executorService != null && subSections.size() > 1) {
+            inodeLoader.loadINodeSectionInParallel(executorService,
+                subSections, summary.getCodec(), prog, currentStep);
+          } else {
+            inodeLoader.loadINodeSection(in, prog, currentStep);
+          }
         }
           break;
+        case INODE_SUB:
+        case INODE_DIR_SUB:
+          // Loaded together with their parent section
+          break;
         case INODE_REFERENCE:
           snapshotLoader.loadINodeReferenceSection(in);
           break;
-        case INODE_DIR:
-          inodeLoader.loadINodeDirectorySection(in);
+        case INODE_DIR: {
+          ArrayList<FileSummary.Section> subSections =
+              getSubSectionsOfName(sections, SectionName.INODE_DIR_SUB);
+          if (executorService != null && subSections.size() > 1) {
+            inodeLoader.loadINodeDirectorySectionInParallel(executorService,
+                subSections, summary.getCodec());
+          } else {
+            inodeLoader.loadINodeDirectorySection(in);
+          }
+        }
           break;
         case FILES_UNDERCONSTRUCTION:
           inodeLoader.loadFilesUnderConstructionSection(in);
@@ -305,6 +367,40 @@ public int compare(FileSummary.Section s1, FileSummary.Section s2) {
       }
     }
 
+    /**
+     * @return the sub-sections of the given name, in the order in which they
+     *         appear in the image.
+     */
+    private static ArrayList<FileSummary.Section> getSubSectionsOfName(
+        ArrayList<FileSummary.Section> sections, SectionName name) {
+      ArrayList<FileSummary.Section> subSections = Lists.newArrayList();
+      for (FileSummary.Section s : sections) {
+        if (SectionName.fromString(s.getName()) == name) {
+          subSections.add(s);
+        }
+      }
+      return subSections;
+    }
+
+    /**
+     * Open a new stream over the given section of the image file, so that
+     * several sections can be read at the same time.
+     */
+    InputStream getInputStreamForSection(FileSummary.Section section,
+        String compressionCodec) throws IOException {
+      FileInputStream fin = new FileInputStream(filename);
+      try {
+        fin.getChannel().position(section.getOffset());
+        InputStream in = new BufferedInputStream(new LimitInputStream(fin,
+            section.getLength()));
+        return FSImageUtil.wrapInputStreamForCompression(conf,
+            compressionCodec, in);
+      } catch (IOException e) {
+        fin.close();
+        throw e;
+      }
+    }
+
     private void loadNameSystemSection(InputStream in) throws IOException {
       NameSystemSection s = NameSystemSection.parseDelimitedFrom(in);
       BlockIdManager blockIdManager = fsn.getBlockManager().getBlockIdManager();
@@ -403,10 +499,29 @@ public static final class Saver {
     private OutputStream sectionOutputStream;
     private CompressionCodec codec;
     private OutputStream underlyingOutputStream;
+    /** Start of the sub-section being written, if any. */
+    private long subSectionOffset = currentOffset;
+    private final boolean parallelEnabled;
+    private final int parallelTargetSections;
+    private final int parallelInodeThreshold;
+    private boolean writeSubSections = false;
 
     Saver(SaveNamespaceContext context) {
+      this(context, new Configuration(false));
+    }
+
+    Saver(SaveNamespaceContext context, Configuration conf) {
       this.context = context;
       this.saverContext = new SaverContext();
+      this.parallelEnabled = conf.getBoolean(
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_LOAD_KEY,
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_LOAD_DEFAULT);
+      this.parallelTargetSections = conf.getInt(
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_TARGET_SECTIONS_KEY,
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_TARGET_SECTIONS_DEFAULT);
+      this.parallelInodeThreshold = conf.getInt(
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_INODE_THRESHOLD_KEY,
+          DFSConfigKeys.DFS_IMAGE_PARALLEL_INODE_THRESHOLD_DEFAULT);
     }
 
     public MD5Hash getSavedDigest() {
@@ -421,6 +536,43 @@ public SaverContext getSaverContext() {
       return saverContext;
     }
 
+    /**
+     * @return the number of sub-sections to split the INode and INode
+     *         directory sections of an image with the given number of INodes
+     *         into, or 0 if they should not be split.
+     */
+    int getNumSubSections(long numINodes) {
+      if (!writeSubSections || numINodes < parallelInodeThreshold) {
+        return 0;
+      }
+      return parallelTargetSections;
+    }
+
+    /**
+     * Close the current sub-section of the section being written and record
+     * it in the file summary. The sub-sections of a section are recorded
+     * before the section itself, which still spans all of them. When the
+     * image is compressed, the codec stream is finished and a new one is
+     * started, so that each sub-section can be decompressed on its own.
+     */
+    public void commitSubSection(FileSummary.Builder summary,
+        SectionName name) throws IOException {
+      if (!writeSubSections) {
+        return;
+      }
+      flushSectionOutputStream();
+      if (codec != null) {
+        sectionOutputStream = codec.createOutputStream(underlyingOutputStream);
+      }
+      long length = fileChannel.position() - subSectionOffset;
+      if (length == 0) {
+        return;
+      }
+      summary.addSections(FileSummary.Section.newBuilder().setName(name.name)
+          .setLength(length).setOffset(subSectionOffset));
+      subSectionOffset += length;
+    }
+
     public void commitSection(FileSummary.Builder summary, SectionName name)
         throws IOException {
       long oldOffset = currentOffset;
@@ -435,6 +587,7 @@ public void commitSection(FileSummary.Builder summary, SectionName name)
       summary.addSections(FileSummary.Section.newBuilder().setName(name.name)
           .setLength(length).setOffset(currentOffset));
       currentOffset += length;
+      subSectionOffset = currentOffset;
     }
 
     private void flushSectionOutputStream() throws IOException {
@@ -505,6 +658,11 @@ private void saveInternal(FileOutputStream fout,
           .setLayoutVersion(
               context.getSourceNamesystem().getEffectiveLayoutVersion());
 
+      // Only loading is parallel. The image is still saved by a single
+      // thread, as the string table and the reference list are filled in
+      // the order in which the INodes are serialized. Each sub-section of a
+      // compressed image gets its own codec stream, see commitSubSection.
+      writeSubSections = parallelEnabled;
       codec = compression.getImageCodec();
       if (codec != null) {
         b.setCodec(codec.getClass().getCanonicalName());
@@ -653,9 +811,11 @@ public enum SectionName {
     EXTENDED_ACL("EXTENDED_ACL"),
     ERASURE_CODING("ERASURE_CODING"),
     INODE("INODE"),
+    INODE_SUB("INODE_SUB"),
     INODE_REFERENCE("INODE_REFERENCE"),
     SNAPSHOT("SNAPSHOT"),
     INODE_DIR("INODE_DIR"),
+    INODE_DIR_SUB("INODE_DIR_SUB"),
     FILES_UNDERCONSTRUCTION("FILES_UNDERCONSTRUCTION"),
     SNAPSHOT_DIFF("SNAPSHOT_DIFF"),
     SECRET_MANAGER("SECRET_MANAGER"),
@@ -276,6 +276,7 @@
 import org.apache.hadoop.hdfs.server.protocol.StorageReceivedDeletedBlocks;
 import org.apache.hadoop.hdfs.server.protocol.StorageReport;
 import org.apache.hadoop.hdfs.server.protocol.VolumeFailureSummary;
+import org.apache.hadoop.hdfs.util.RwLockMode;
 import org.apache.hadoop.hdfs.web.JsonUtil;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.io.Text;
@@ -1604,13 +1605,47 @@ public void writeUnlock(String opName, boolean suppressWriteLockReport) {
     this.fsLock.writeUnlock(opName, suppressWriteLockReport);
   }
 
+  /**
+   * Check if the current thread holds the namespace write lock. Use
+   * {@link #hasWriteLock(RwLockMode)} to check for the block management
+   * lock, which may be held without the namespace lock.
+   */
   @Override
   public boolean hasWriteLock() {
-    return this.fsLock.isWriteLockedByCurrentThread();
+    return hasWriteLock(RwLockMode.FS);
   }
+  /**
+   * Check if the current thread holds the namespace read or write lock. Use
+   * {@link #hasReadLock(RwLockMode)} to check for the block management lock.
+   */
   @Override
   public boolean hasReadLock() {
-    return this.fsLock.getReadHoldCount() > 0 || hasWriteLock();
+    return hasReadLock(RwLockMode.FS);
+  }
+
+  @Override
+  public void readLock(RwLockMode lockMode) {
+    this.fsLock.readLock(lockMode);
+  }
+  @Override
+  public void readUnlock(RwLockMode lockMode, String opName) {
+    this.fsLock.readUnlock(lockMode, opName);
+  }
+  @Override
+  public boolean hasReadLock(RwLockMode lockMode) {
+    return this.fsLock.isReadLockedByCurrentThread(lockMode);
+  }
+  @Override
+  public void writeLock(RwLockMode lockMode) {
+    this.fsLock.writeLock(lockMode);
+  }
+  @Override
+  public void writeUnlock(RwLockMode lockMode, String opName) {
+    this.fsLock.writeUnlock(lockMode, opName);
+  }
+  @Override
+  public boolean hasWriteLock(RwLockMode lockMode) {
+    return this.fsLock.isWriteLockedByCurrentThread(lockMode);
   }
 
   public int getReadHoldCount() {
@@ -3002,7 +3037,9 @@ HdfsFileStatus getFileInfo(final String src, boolean resolveLink)
     final String operationName = "getfileinfo";
     checkOperation(OperationCategory.READ);
     HdfsFileStatus stat = null;
-    readLock();
+    // the file length is computed from block state, which is changed under
+    // the block management lock, so both locks are needed here
+    readLock(RwLockMode.GLOBAL);
     try {
       checkOperation(OperationCategory.READ);
       stat = FSDirStatAndListingOp.getFileInfo(dir, src, resolveLink);
@@ -3010,7 +3047,7 @@ HdfsFileStatus getFileInfo(final String src, boolean resolveLink)
       logAuditEvent(false, operationName, src);
       throw e;
     } finally {
-      readUnlock(operationName);
+      readUnlock(RwLockMode.GLOBAL, operationName);
     }
     logAuditEvent(true, operationName, src);
     return stat;
@@ -3420,7 +3457,7 @@ BlockInfo getStoredBlock(Block block) {
   
   @Override
   public boolean isInSnapshot(long blockCollectionID) {
-    assert hasReadLock();
+    assert hasReadLock(RwLockMode.BM);
     final INodeFile bc = getBlockCollection(blockCollectionID);
     if (bc == null || !bc.isUnderConstruction()) {
       return false;
@@ -3677,7 +3714,8 @@ DirectoryListing getListing(String src, byte[] startAfter,
     checkOperation(OperationCategory.READ);
     final String operationName = "listStatus";
     DirectoryListing dl = null;
-    readLock();
+    // listed file lengths and locations read block state
+    readLock(RwLockMode.GLOBAL);
     try {
       checkOperation(NameNode.OperationCategory.READ);
       dl = getListingInt(dir, src, startAfter, needLocation);
@@ -3685,7 +3723,7 @@ DirectoryListing getListing(String src, byte[] startAfter,
       logAuditEvent(false, operationName, src);
       throw e;
     } finally {
-      readUnlock(operationName);
+      readUnlock(RwLockMode.GLOBAL, operationName);
     }
     logAuditEvent(true, operationName, src);
     return dl;
@@ -4576,12 +4614,13 @@ NamenodeCommand startCheckpoint(NamenodeRegistration backupNode,
   public void processIncrementalBlockReport(final DatanodeID nodeID,
       final StorageReceivedDeletedBlocks srdb)
       throws IOException {
-    writeLock();
+    writeLock(RwLockMode.BM);
     try {
       blockManager.processIncrementalBlockReport(nodeID, srdb);
     } finally {
-      writeUnlock("processIncrementalBlockReport");
+      writeUnlock(RwLockMode.BM, "processIncrementalBlockReport");
     }
+    blockManager.completeDeferredBlocks();
   }
   
   void endCheckpoint(NamenodeRegistration registration,
@@ -22,10 +22,14 @@
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.util.RwLockMode;
+import org.apache.hadoop.ipc.ProcessingDetails;
+import org.apache.hadoop.ipc.Server;
 import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.util.Timer;
@@ -34,6 +38,8 @@
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_LOCK_SUPPRESS_WARNING_INTERVAL_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_FAIR_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_FAIR_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_DEFAULT;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_DETAILED_METRICS_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_LOCK_DETAILED_METRICS_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_READ_LOCK_REPORTING_THRESHOLD_MS_DEFAULT;
@@ -55,11 +61,23 @@
  * most recent snapshot will be lost due to the use of
  * {@link MutableRatesWithAggregation}. However since threads are re-used
  * between operations this should not generally be an issue.
+ *
+ * If {@link org.apache.hadoop.hdfs.DFSConfigKeys#DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY}
+ * is true, the block management state is guarded by a second lock. Callers
+ * pick the state they need with a {@link RwLockMode}: {@link RwLockMode#FS}
+ * only takes the namespace lock, {@link RwLockMode#BM} only takes the block
+ * management lock and {@link RwLockMode#GLOBAL} takes both, always namespace
+ * lock first. A thread holding only the block management lock must therefore
+ * not acquire the namespace lock. When the locks are not separate every mode
+ * maps to the single namespace lock.
  */
 class FSNamesystemLock {
   @VisibleForTesting
   protected ReentrantReadWriteLock coarseLock;
 
+  /** Lock for the block management state, null if not separate. */
+  private final ReentrantReadWriteLock bmLock;
+
   private final boolean metricsEnabled;
   private final MutableRatesWithAggregation detailedHoldTimeMetrics;
   private final Timer timer;
@@ -119,6 +137,11 @@ public Long initialValue() {
         DFS_NAMENODE_FSLOCK_FAIR_DEFAULT);
     FSNamesystem.LOG.info("fsLock is fair: " + fair);
     this.coarseLock = new ReentrantReadWriteLock(fair);
+    boolean separateBMLock = conf.getBoolean(
+        DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY,
+        DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_DEFAULT);
+    FSNamesystem.LOG.info("Separate block management lock: " + separateBMLock);
+    this.bmLock = separateBMLock ? new ReentrantReadWriteLock(fair) : null;
     this.timer = timer;
 
     this.writeLockReportingThresholdMs = conf.getLong(
@@ -138,18 +161,53 @@ public Long initialValue() {
     this.detailedHoldTimeMetrics = detailedHoldTimeMetrics;
   }
 
+  /** Whether the given mode needs the namespace lock. */
+  private boolean usesCoarseLock(RwLockMode lockMode) {
+    return bmLock == null || lockMode != RwLockMode.BM;
+  }
+
+  /** Whether the given mode needs the separate block management lock. */
+  private boolean usesBMLock(RwLockMode lockMode) {
+    return bmLock != null && lockMode != RwLockMode.FS;
+  }
+
   public void readLock() {
-    coarseLock.readLock().lock();
+    readLock(RwLockMode.GLOBAL);
+  }
+
+  public void readLock(RwLockMode lockMode) {
+    if (usesCoarseLock(lockMode)) {
+      coarseReadLock();
+    }
+    if (usesBMLock(lockMode)) {
+      lock(bmLock.readLock());
+    }
+  }
+
+  private void coarseReadLock() {
+    lock(coarseLock.readLock());
     if (coarseLock.getReadHoldCount() == 1) {
       readLockHeldTimeStampNanos.set(timer.monotonicNowNanos());
     }
   }
 
   public void readUnlock() {
-    readUnlock(OP_NAME_OTHER);
+    readUnlock(RwLockMode.GLOBAL, OP_NAME_OTHER);
   }
 
   public void readUnlock(String opName) {
+    readUnlock(RwLockMode.GLOBAL, opName);
+  }
+
+  public void readUnlock(RwLockMode lockMode, String opName) {
+    if (usesBMLock(lockMode)) {
+      bmLock.readLock().unlock();
+    }
+    if (!usesCoarseLock(lockMode)) {
+      return;
+    }
+    // The namespace lock is released inline so that the stack trace of the
+    // long holding report starts right at the caller.
     final boolean needReport = coarseLock.getReadHoldCount() == 1;
     final long readLockIntervalNanos =
         timer.monotonicNowNanos() - readLockHeldTimeStampNanos.get();
@@ -194,17 +252,67 @@ public void readUnlock(String opName) {
   }
   
   public void writeLock() {
-    coarseLock.writeLock().lock();
-    if (coarseLock.getWriteHoldCount() == 1) {
-      writeLockHeldTimeStampNanos = timer.monotonicNowNanos();
+    writeLock(RwLockMode.GLOBAL);
+  }
+
+  public void writeLock(RwLockMode lockMode) {
+    if (usesCoarseLock(lockMode)) {
+      lock(coarseLock.writeLock());
+      if (coarseLock.getWriteHoldCount() == 1) {
+        writeLockHeldTimeStampNanos = timer.monotonicNowNanos();
+      }
+    }
+    if (usesBMLock(lockMode)) {
+      lock(bmLock.writeLock());
+    }
+  }
+
+  /**
+   * Acquire the given lock. If the current RPC call is timed, the time spent
+   * waiting for the lock is added to its lock wait time.
+   */
+  private void lock(Lock lock) {
+    final ProcessingDetails details = Server.getProcessingDetails();
+    if (details == null) {
+      lock.lock();
+      return;
+    }
+    final long startNanos = timer.monotonicNowNanos();
+    lock.lock();
+    details.addLockWaitTime(timer.monotonicNowNanos() - startNanos);
+  }
+
+  /**
+   * Acquire the given lock unless interrupted, adding the time spent waiting
+   * for it to the current RPC call like {@link #lock(Lock)}.
+   */
+  private void lockInterruptibly(Lock lock) throws InterruptedException {
+    final ProcessingDetails details = Server.getProcessingDetails();
+    if (details == null) {
+      lock.lockInterruptibly();
+      return;
+    }
+    final long startNanos = timer.monotonicNowNanos();
+    try {
+      lock.lockInterruptibly();
+    } finally {
+      details.addLockWaitTime(timer.monotonicNowNanos() - startNanos);
     }
   }
 
   public void writeLockInterruptibly() throws InterruptedException {
-    coarseLock.writeLock().lockInterruptibly();
+    lockInterruptibly(coarseLock.writeLock());
     if (coarseLock.getWriteHoldCount() == 1) {
       writeLockHeldTimeStampNanos = timer.monotonicNowNanos();
     }
+    if (bmLock != null) {
+      try {
+        lockInterruptibly(bmLock.writeLock());
+      } catch (InterruptedException e) {
+        coarseWriteUnlock(OP_NAME_OTHER, true);
+        throw e;
+      }
+    }
   }
 
   /**
@@ -233,6 +341,25 @@ public void writeUnlock(String opName) {
    * for long time will be logged in logs and metrics.
    */
   public void writeUnlock(String opName, boolean suppressWriteLockReport) {
+    writeUnlock(RwLockMode.GLOBAL, opName, suppressWriteLockReport);
+  }
+
+  public void writeUnlock(RwLockMode lockMode, String opName) {
+    writeUnlock(lockMode, opName, false);
+  }
+
+  public void writeUnlock(RwLockMode lockMode, String opName,
+      boolean suppressWriteLockReport) {
+    if (usesBMLock(lockMode)) {
+      bmLock.writeLock().unlock();
+    }
+    if (usesCoarseLock(lockMode)) {
+      coarseWriteUnlock(opName, suppressWriteLockReport);
+    }
+  }
+
+  private void coarseWriteUnlock(String opName,
+      boolean suppressWriteLockReport) {
     final boolean needReport = !suppressWriteLockReport && coarseLock
         .getWriteHoldCount() == 1 && coarseLock.isWriteLockedByCurrentThread();
     final long currentTimeNanos = timer.monotonicNowNanos();
@@ -291,6 +418,25 @@ public boolean isWriteLockedByCurrentThread() {
     return coarseLock.isWriteLockedByCurrentThread();
   }
 
+  public boolean isWriteLockedByCurrentThread(RwLockMode lockMode) {
+    if (usesCoarseLock(lockMode) &&
+        !coarseLock.isWriteLockedByCurrentThread()) {
+      return false;
+    }
+    return !usesBMLock(lockMode) || bmLock.isWriteLockedByCurrentThread();
+  }
+
+  public boolean isReadLockedByCurrentThread(RwLockMode lockMode) {
+    if (usesCoarseLock(lockMode) && !isHeldByCurrentThread(coarseLock)) {
+      return false;
+    }
+    return !usesBMLock(lockMode) || isHeldByCurrentThread(bmLock);
+  }
+
+  private static boolean isHeldByCurrentThread(ReentrantReadWriteLock lock) {
+    return lock.getReadHoldCount() > 0 || lock.isWriteLockedByCurrentThread();
+  }
+
   public Condition newWriteLockCondition() {
     return coarseLock.writeLock().newCondition();
   }
@@ -22,7 +22,6 @@
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.hadoop.fs.PathIsNotDirectoryException;
@@ -73,7 +72,7 @@ public static INodeDirectory valueOf(INode inode, Object path
 
   static final byte[] ROOT_NAME = DFSUtil.string2Bytes("");
 
-  private List<INode> children = null;
+  private ArrayList<INode> children = null;
   
   /** constructor */
   public INodeDirectory(long id, byte[] name, PermissionStatus permissions,
@@ -565,6 +564,19 @@ public boolean addChild(INode node, final boolean setModTime,
     return true;
   }
 
+  /**
+   * Size the children list for the given number of children, so that a
+   * directory whose children are all known up front, e.g. when loading the
+   * fsimage, does not carry the slack of a grown list.
+   */
+  void ensureChildrenCapacity(int numChildren) {
+    if (children == null) {
+      children = new ArrayList<>(numChildren);
+    } else {
+      children.ensureCapacity(numChildren);
+    }
+  }
+
   public boolean addChild(INode node) {
     final int low = searchChildren(node.getLocalNameBytes());
     if (low >= 0) {
@@ -19,8 +19,6 @@
 
 import java.util.Iterator;
 
-import org.apache.hadoop.fs.permission.FsPermission;
-import org.apache.hadoop.fs.permission.PermissionStatus;
 import org.apache.hadoop.hdfs.protocol.HdfsConstants;
 import org.apache.hadoop.hdfs.server.blockmanagement.BlockStoragePolicySuite;
 import org.apache.hadoop.util.GSet;
@@ -88,48 +86,7 @@ public int size() {
    *         such {@link INode} in the map.
    */
   public INode get(long id) {
-    INode inode = new INodeWithAdditionalFields(id, null, new PermissionStatus(
-        "", "", new FsPermission((short) 0)), 0, 0) {
-      
-      @Override
-      void recordModification(int latestSnapshotId) {
-      }
-      
-      @Override
-      public void destroyAndCollectBlocks(ReclaimContext reclaimContext) {
-        // Nothing to do
-      }
-
-      @Override
-      public QuotaCounts computeQuotaUsage(
-          BlockStoragePolicySuite bsps, byte blockStoragePolicyId,
-          boolean useCache, int lastSnapshotId) {
-        return null;
-      }
-
-      @Override
-      public ContentSummaryComputationContext computeContentSummary(
-          int snapshotId, ContentSummaryComputationContext summary) {
-        return null;
-      }
-      
-      @Override
-      public void cleanSubtree(
-          ReclaimContext reclaimContext, int snapshotId, int priorSnapshotId) {
-      }
-
-      @Override
-      public byte getStoragePolicyID(){
-        return HdfsConstants.BLOCK_STORAGE_POLICY_ID_UNSPECIFIED;
-      }
-
-      @Override
-      public byte getLocalStoragePolicyID() {
-        return HdfsConstants.BLOCK_STORAGE_POLICY_ID_UNSPECIFIED;
-      }
-    };
-      
-    return map.get(inode);
+    return map.get(new IdKey(id));
   }
   
   /**
@@ -138,4 +95,52 @@ public byte getLocalStoragePolicyID() {
   public void clear() {
     map.clear();
   }
+
+  /**
+   * A key to look up an {@link INode} by id. {@link #get(long)} is on the
+   * path of every block to file lookup, so the key carries no permission
+   * status or other state beyond the id.
+   */
+  private static final class IdKey extends INodeWithAdditionalFields {
+    IdKey(long id) {
+      super(id, null, 0L, 0L, 0L);
+    }
+
+    @Override
+    void recordModification(int latestSnapshotId) {
+    }
+
+    @Override
+    public void destroyAndCollectBlocks(ReclaimContext reclaimContext) {
+      // Nothing to do
+    }
+
+    @Override
+    public QuotaCounts computeQuotaUsage(
+        BlockStoragePolicySuite bsps, byte blockStoragePolicyId,
+        boolean useCache, int lastSnapshotId) {
+      return null;
+    }
+
+    @Override
+    public ContentSummaryComputationContext computeContentSummary(
+        int snapshotId, ContentSummaryComputationContext summary) {
+      return null;
+    }
+
+    @Override
+    public void cleanSubtree(
+        ReclaimContext reclaimContext, int snapshotId, int priorSnapshotId) {
+    }
+
+    @Override
+    public byte getStoragePolicyID(){
+      return HdfsConstants.BLOCK_STORAGE_POLICY_ID_UNSPECIFIED;
+    }
+
+    @Override
+    public byte getLocalStoragePolicyID() {
+      return HdfsConstants.BLOCK_STORAGE_POLICY_ID_UNSPECIFIED;
+    }
+  }
 }
@@ -116,6 +116,12 @@ private INodeWithAdditionalFields(INode parent, long id, byte[] name,
     this(null, id, name, PermissionStatusFormat.toLong(permissions),
         modificationTime, accessTime);
   }
+
+  /** @param permission permission already encoded as a long */
+  INodeWithAdditionalFields(long id, byte[] name, long permission,
+      long modificationTime, long accessTime) {
+    this(null, id, name, permission, modificationTime, accessTime);
+  }
   
   /** @param other Other node to be copied */
   INodeWithAdditionalFields(INodeWithAdditionalFields other) {
@@ -163,6 +163,8 @@
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IPC_BACKOFF_ENABLE;
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IPC_NAMESPACE;
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IPC_BACKOFF_ENABLE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT;
 
 /**********************************************************
  * NameNode serves as both directory namespace manager and
@@ -289,7 +291,8 @@ public enum OperationCategory {
           DFS_HEARTBEAT_INTERVAL_KEY,
           DFS_NAMENODE_HEARTBEAT_RECHECK_INTERVAL_KEY,
           FS_PROTECTED_DIRECTORIES,
-          HADOOP_CALLER_CONTEXT_ENABLED_KEY));
+          HADOOP_CALLER_CONTEXT_ENABLED_KEY,
+          RPC_METRICS_PHASE_TIMING_ENABLE));
 
   private static final String USAGE = "Usage: hdfs namenode ["
       + StartupOption.BACKUP.getName() + "] | \n\t["
@@ -367,6 +370,7 @@ public long getProtocolVersion(String protocol,
   private final boolean haEnabled;
   private final HAContext haContext;
   protected final boolean allowStaleStandbyReads;
+  private final boolean allowConsistentStandbyReads;
   private AtomicBoolean started = new AtomicBoolean(false);
 
   private final static int HEALTH_MONITOR_WARN_THRESHOLD_MS = 5000;
@@ -944,6 +948,9 @@ protected NameNode(Configuration conf, NamenodeRole role)
     this.haEnabled = HAUtil.isHAEnabled(conf, nsId);
     state = createHAState(getStartupOption(conf));
     this.allowStaleStandbyReads = HAUtil.shouldAllowStandbyReads(conf);
+    this.allowConsistentStandbyReads = conf.getBoolean(
+        DFSConfigKeys.DFS_HA_STANDBY_CONSISTENT_READS_KEY,
+        DFSConfigKeys.DFS_HA_STANDBY_CONSISTENT_READS_DEFAULT);
     this.haContext = createHAContext();
     try {
       initializeGenericKeys(conf, nsId, namenodeId);
@@ -1967,6 +1974,22 @@ public boolean allowStaleReads() {
       return allowStaleStandbyReads;
     }
 
+    @Override
+    public boolean allowCoordinatedReads() {
+      if (!allowConsistentStandbyReads) {
+        return false;
+      }
+      Server.Call call = Server.getCurCall().get();
+      return call != null && call.isCallCoordinated();
+    }
+
+    @Override
+    public void editsApplied() {
+      if (rpcServer != null) {
+        rpcServer.getClientRpcServer().stateIdAdvanced();
+      }
+    }
+
   }
   
   public boolean isStandbyState() {
@@ -2050,6 +2073,8 @@ protected String reconfigurePropertyImpl(String property, String newVal)
       return reconfCallerContextEnabled(newVal);
     } else if (property.equals(ipcClientRPCBackoffEnable)) {
       return reconfigureIPCBackoffEnabled(newVal);
+    } else if (property.equals(RPC_METRICS_PHASE_TIMING_ENABLE)) {
+      return reconfRpcPhaseTimingEnabled(newVal);
     } else {
       throw new ReconfigurationException(property, newVal, getConf().get(
           property));
@@ -2133,6 +2158,21 @@ String reconfigureIPCBackoffEnabled(String newVal) {
     return Boolean.toString(clientBackoffEnabled);
   }
 
+  private String reconfRpcPhaseTimingEnabled(String newVal) {
+    boolean phaseTimingEnabled;
+    if (newVal == null) {
+      phaseTimingEnabled = RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT;
+    } else {
+      phaseTimingEnabled = Boolean.parseBoolean(newVal);
+    }
+    rpcServer.getClientRpcServer().setPhaseTimingEnabled(phaseTimingEnabled);
+    if (rpcServer.getServiceRpcServer() != null) {
+      rpcServer.getServiceRpcServer()
+          .setPhaseTimingEnabled(phaseTimingEnabled);
+    }
+    return Boolean.toString(phaseTimingEnabled);
+  }
+
   @Override  // ReconfigurableBase
   protected Configuration getNewConf() {
     return new HdfsConfiguration();
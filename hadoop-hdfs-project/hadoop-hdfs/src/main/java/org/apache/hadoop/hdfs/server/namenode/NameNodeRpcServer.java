@@ -525,6 +525,7 @@ public NameNodeRpcServer(Configuration conf, NameNode nn)
         UnresolvedPathException.class);
 
     clientRpcServer.setTracer(nn.tracer);
+    clientRpcServer.setAlignmentContext(new GlobalStateIdContext(namesystem));
     if (serviceRpcServer != null) {
       serviceRpcServer.setTracer(nn.tracer);
     }
@@ -1490,11 +1491,13 @@ public DatanodeCommand blockReport(final DatanodeRegistration nodeReg,
       // call of this loop is the final updated value for noStaleStorage.
       //
       final int index = r;
+      final BlockManager.ReportDiff diff = bm.diffReport(nodeReg,
+          reports[index].getStorage(), blocks, context);
       noStaleStorages = bm.runBlockOp(new Callable<Boolean>() {
         @Override
         public Boolean call() throws IOException {
           return bm.processReport(nodeReg, reports[index].getStorage(),
-              blocks, context);
+              blocks, context, diff);
         }
       });
     }
@@ -2180,6 +2183,14 @@ public void checkAccess(String path, FsAction mode) throws IOException {
     namesystem.checkAccess(path, mode);
   }
 
+  @Override // ClientProtocol
+  public void msync() throws IOException {
+    checkNNStartup();
+    // Only the active knows the latest state; the state id itself is
+    // returned in the response header.
+    namesystem.checkOperation(OperationCategory.WRITE);
+  }
+
   @Override // ClientProtocol
   public long getCurrentEditLogTxid() throws IOException {
     checkNNStartup();
@@ -0,0 +1,320 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An {@link EditLogInputStream} which reads and decodes the ops of another
+ * stream on a background thread, keeping up to a fixed number of decoded ops
+ * ahead of the reader. This overlaps the decoding and checksumming of the
+ * edit log with the application of the ops by {@link FSEditLogLoader}.
+ *
+ * The underlying stream must have had its op cache disabled, see
+ * {@link EditLogInputStream#disableOpCache()}. On {@link #resync()}, read-ahead
+ * stops: the ops decoded so far are returned first, then the underlying
+ * stream skips the damaged section and is read directly from then on.
+ *
+ * The ops are still applied one at a time, in transaction id order. Applying
+ * ops concurrently would need to know which ops conflict, and ops such as
+ * rename, snapshot and quota updates touch several paths and shared
+ * counters that {@link FSEditLogLoader} expects a single writer to update.
+ */
+class ReadAheadEditLogInputStream extends EditLogInputStream {
+  static final Log LOG = LogFactory.getLog(ReadAheadEditLogInputStream.class);
+
+  /** An op, or the end of the stream or an error, with its position. */
+  private static final class Entry {
+    private final FSEditLogOp op;
+    private final long position;
+    private final int version;
+    private final Throwable error;
+
+    Entry(FSEditLogOp op, long position, int version, Throwable error) {
+      this.op = op;
+      this.position = position;
+      this.version = version;
+      this.error = error;
+    }
+  }
+
+  private static final long PUT_WAIT_MS = 100;
+
+  private final EditLogInputStream in;
+  private final BlockingQueue<Entry> queue;
+  private Thread readerThread;
+  private volatile boolean stopped = false;
+  /** An entry read after read-ahead was stopped, see {@link #put(Entry)}. */
+  private Entry unqueued;
+  /**
+   * The last entry returned, or null before the first op is read or when
+   * reading directly from the underlying stream.
+   */
+  private Entry current;
+  private boolean endOfStream = false;
+  /** Whether the stream was resynchronized and is no longer read ahead. */
+  private boolean resynced = false;
+
+  ReadAheadEditLogInputStream(EditLogInputStream in, int readAheadOps) {
+    Preconditions.checkArgument(readAheadOps > 0);
+    this.in = in;
+    this.queue = new ArrayBlockingQueue<Entry>(readAheadOps);
+  }
+
+  private void startReaderThread() throws IOException {
+    final int version = in.getVersion(true);
+    readerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        readAhead(version);
+      }
+    }, "Edit log read-ahead for " + in.getName());
+    readerThread.setDaemon(true);
+    readerThread.start();
+  }
+
+  private void readAhead(int version) {
+    Entry e;
+    do {
+      if (stopped) {
+        return;
+      }
+      try {
+        FSEditLogOp op = in.readOp();
+        // A redundant stream may fail over to a log of another version
+        version = in.getVersion(true);
+        e = new Entry(op, in.getPosition(), version, null);
+      } catch (Throwable t) {
+        e = new Entry(null, in.getPosition(), version, t);
+      }
+      if (!put(e)) {
+        // Keep what was read from the stream for nextValidOp
+        unqueued = e;
+        return;
+      }
+    } while (e.op != null);
+  }
+
+  /**
+   * Queue an entry for the reader, waiting for space unless stopped. The
+   * thread is not interrupted to stop it, since an interrupt closes the
+   * channel of a file being read.
+   *
+   * @return false if read-ahead was stopped.
+   */
+  private boolean put(Entry e) {
+    try {
+      while (!queue.offer(e, PUT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+        if (stopped) {
+          return false;
+        }
+      }
+      return true;
+    } catch (InterruptedException ie) {
+      return false;
+    }
+  }
+
+  @Override
+  protected FSEditLogOp nextOp() throws IOException {
+    if (resynced) {
+      Entry e = pollDecoded();
+      if (e == null) {
+        current = null;
+        return in.readOp();
+      }
+      return consume(e);
+    }
+    if (endOfStream) {
+      return null;
+    }
+    if (readerThread == null) {
+      startReaderThread();
+    }
+    Entry e;
+    try {
+      e = queue.take();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading edits from "
+          + in.getName());
+    }
+    return consume(e);
+  }
+
+  /** Return the op of an entry, or throw its error. */
+  private FSEditLogOp consume(Entry e) throws IOException {
+    current = e;
+    if (e.error != null) {
+      endOfStream = true;
+      if (e.error instanceof IOException) {
+        throw (IOException) e.error;
+      } else if (e.error instanceof RuntimeException) {
+        throw (RuntimeException) e.error;
+      } else if (e.error instanceof Error) {
+        throw (Error) e.error;
+      }
+      throw new IOException(e.error);
+    }
+    if (e.op == null) {
+      endOfStream = true;
+    }
+    return e.op;
+  }
+
+  /**
+   * Stop reading ahead and return the ops decoded so far, up to the first
+   * one which failed to decode. After that, the underlying stream skips over
+   * the damaged section itself.
+   */
+  @Override
+  protected FSEditLogOp nextValidOp() {
+    if (!resynced) {
+      resynced = true;
+      stopReaderThread();
+    }
+    Entry e = pollDecoded();
+    if (e != null && e.error == null) {
+      current = e;
+      return e.op;
+    }
+    current = null;
+    return in.nextValidOp();
+  }
+
+  /**
+   * @return the next entry decoded before read-ahead was stopped, or null if
+   *         there are none left.
+   */
+  private Entry pollDecoded() {
+    Entry e = queue.poll();
+    if (e == null && unqueued != null) {
+      e = unqueued;
+      unqueued = null;
+    }
+    return e;
+  }
+
+  @Override
+  public int getVersion(boolean verifyVersion) throws IOException {
+    if (current != null) {
+      return current.version;
+    }
+    if (readerThread == null || resynced) {
+      return in.getVersion(verifyVersion);
+    }
+    // The reader thread owns the stream; wait for its first op to arrive.
+    throw new IOException("No op has been read from " + in.getName());
+  }
+
+  @Override
+  public long getPosition() {
+    if (current != null) {
+      return current.position;
+    }
+    return readerThread == null || resynced ? in.getPosition() : 0;
+  }
+
+  /**
+   * Stop reading ahead, without closing the underlying stream. Ops read
+   * ahead and not yet returned are discarded.
+   */
+  void stopReadAhead() {
+    stopReaderThread();
+    queue.clear();
+    unqueued = null;
+  }
+
+  /**
+   * Stop the reader thread and wait for it to exit. The ops it decoded stay
+   * in the queue, or in {@link #unqueued} if the queue was full.
+   */
+  private void stopReaderThread() {
+    stopped = true;
+    if (readerThread != null) {
+      try {
+        readerThread.join();
+      } catch (InterruptedException e) {
+        LOG.warn("Interrupted while stopping " + readerThread.getName());
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    stopReadAhead();
+    in.close();
+  }
+
+  @Override
+  public String getCurrentStreamName() {
+    return in.getCurrentStreamName();
+  }
+
+  @Override
+  public String getName() {
+    return in.getName();
+  }
+
+  @Override
+  public long getFirstTxId() {
+    return in.getFirstTxId();
+  }
+
+  @Override
+  public long getLastTxId() {
+    return in.getLastTxId();
+  }
+
+  @Override
+  public long length() throws IOException {
+    return in.length();
+  }
+
+  @Override
+  public boolean isInProgress() {
+    return in.isInProgress();
+  }
+
+  @Override
+  public void setMaxOpSize(int maxOpSize) {
+    Preconditions.checkState(readerThread == null,
+        "Cannot set the maximum op size once reading has started");
+    in.setMaxOpSize(maxOpSize);
+  }
+
+  @Override
+  public boolean isLocalLog() {
+    return in.isLocalLog();
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
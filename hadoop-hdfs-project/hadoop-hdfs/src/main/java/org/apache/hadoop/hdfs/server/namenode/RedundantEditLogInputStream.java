@@ -285,4 +285,13 @@ public void setMaxOpSize(int maxOpSize) {
   public boolean isLocalLog() {
     return streams[curIdx].isLocalLog();
   }
+
+  @Override
+  boolean disableOpCache() {
+    boolean disabled = true;
+    for (EditLogInputStream elis : streams) {
+      disabled &= elis.disableOpCache();
+    }
+    return disabled;
+  }
 }
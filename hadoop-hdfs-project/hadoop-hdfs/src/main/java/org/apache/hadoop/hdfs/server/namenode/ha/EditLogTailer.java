@@ -173,9 +173,12 @@ public EditLogTailer(FSNamesystem namesystem, Configuration conf) {
           DFSConfigKeys.DFS_HA_LOGROLL_PERIOD_KEY + " is negative.");
     }
     
+    // Values without a suffix are seconds, but sub-second periods such as
+    // "100ms" are allowed for tailing in-progress edits.
     sleepTimeMs = conf.getTimeDuration(
         DFSConfigKeys.DFS_HA_TAILEDITS_PERIOD_KEY,
-        DFSConfigKeys.DFS_HA_TAILEDITS_PERIOD_DEFAULT, TimeUnit.SECONDS) * 1000;
+        DFSConfigKeys.DFS_HA_TAILEDITS_PERIOD_DEFAULT,
+        TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
 
     rollEditsTimeoutMs = conf.getInt(
         DFSConfigKeys.DFS_HA_TAILEDITS_ROLLEDITS_TIMEOUT_KEY,
@@ -303,6 +306,9 @@ void doTailEdits() throws IOException, InterruptedException {
 
       if (editsLoaded > 0) {
         lastLoadTimeMs = monotonicNow();
+        if (namesystem.getHAContext() != null) {
+          namesystem.getHAContext().editsApplied();
+        }
       }
       lastLoadedTxnId = image.getLastAppliedTxId();
     } finally {
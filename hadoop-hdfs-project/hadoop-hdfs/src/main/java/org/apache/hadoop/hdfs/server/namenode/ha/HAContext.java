@@ -83,4 +83,17 @@ public interface HAContext {
    * while the namespace is not up to date)
    */
   boolean allowStaleReads();
+
+  /**
+   * @return true if the node should allow reads from clients which sent
+   * the last state id they have seen. Such calls are only run once the
+   * namespace has caught up with that state id.
+   */
+  boolean allowCoordinatedReads();
+
+  /**
+   * Called after edits have been applied to the namespace by the edit log
+   * tailer, so that the reads waiting for them are served without delay.
+   */
+  void editsApplied();
 }
@@ -84,6 +84,12 @@ public class NameNodeMetrics {
   MutableGaugeInt blockOpsQueued;
   @Metric("Number of blockReports and blockReceivedAndDeleted batch processed")
   MutableCounterLong blockOpsBatched;
+  @Metric("Number of block ops processed per write lock acquisition")
+  MutableRate blockOpsBatchSize;
+  final MutableQuantiles[] blockOpsBatchSizeQuantiles;
+  @Metric("Write lock hold time for a batch of block ops")
+  MutableRate blockOpsBatchLockHoldTime;
+  final MutableQuantiles[] blockOpsBatchLockHoldTimeQuantiles;
 
   @Metric("Number of file system operations")
   public long totalFileOps(){
@@ -120,6 +126,9 @@ public long totalFileOps(){
   @Metric("Number of blockReports from individual storages")
   MutableRate storageBlockReport;
   final MutableQuantiles[] storageBlockReportQuantiles;
+  @Metric("Number of blockReports from individual storages diffed under " +
+      "the read lock")
+  MutableCounterLong storageBlockReportDiffs;
   @Metric("Cache report") MutableRate cacheReport;
   final MutableQuantiles[] cacheReportQuantiles;
   @Metric("Generate EDEK time") private MutableRate generateEDEKTime;
@@ -152,6 +161,8 @@ public long totalFileOps(){
     syncsQuantiles = new MutableQuantiles[len];
     numTransactionsBatchedInSync = new MutableQuantiles[len];
     storageBlockReportQuantiles = new MutableQuantiles[len];
+    blockOpsBatchSizeQuantiles = new MutableQuantiles[len];
+    blockOpsBatchLockHoldTimeQuantiles = new MutableQuantiles[len];
     cacheReportQuantiles = new MutableQuantiles[len];
     generateEDEKTimeQuantiles = new MutableQuantiles[len];
     warmUpEDEKTimeQuantiles = new MutableQuantiles[len];
@@ -169,6 +180,14 @@ public long totalFileOps(){
       storageBlockReportQuantiles[i] = registry.newQuantiles(
           "storageBlockReport" + interval + "s",
           "Storage block report", "ops", "latency", interval);
+      blockOpsBatchSizeQuantiles[i] = registry.newQuantiles(
+          "blockOpsBatchSize" + interval + "s",
+          "Number of block ops processed per write lock acquisition", "ops",
+          "count", interval);
+      blockOpsBatchLockHoldTimeQuantiles[i] = registry.newQuantiles(
+          "blockOpsBatchLockHoldTime" + interval + "s",
+          "Write lock hold time for a batch of block ops", "ops",
+          "latency", interval);
       cacheReportQuantiles[i] = registry.newQuantiles(
           "cacheReport" + interval + "s",
           "Cache report", "ops", "latency", interval);
@@ -305,6 +324,17 @@ public void addBlockOpsBatched(int count) {
     blockOpsBatched.incr(count);
   }
 
+  public void addBlockOpsBatch(int size, long lockHoldTime) {
+    blockOpsBatchSize.add(size);
+    blockOpsBatchLockHoldTime.add(lockHoldTime);
+    for (MutableQuantiles q : blockOpsBatchSizeQuantiles) {
+      q.add(size);
+    }
+    for (MutableQuantiles q : blockOpsBatchLockHoldTimeQuantiles) {
+      q.add(lockHoldTime);
+    }
+  }
+
   public void addTransaction(long latency) {
     transactions.add(latency);
   }
@@ -346,6 +376,10 @@ public void addStorageBlockReport(long latency) {
     }
   }
 
+  public void incrStorageBlockReportDiffs() {
+    storageBlockReportDiffs.incr();
+  }
+
   public void addCacheBlockReport(long latency) {
     cacheReport.add(latency);
     for (MutableQuantiles q : cacheReportQuantiles) {
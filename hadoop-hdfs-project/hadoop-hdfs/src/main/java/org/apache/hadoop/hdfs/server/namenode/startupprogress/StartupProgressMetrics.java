@@ -79,9 +79,23 @@ public void getMetrics(MetricsCollector collector, boolean all) {
       addCounter(builder, phase, "Total", " total", prog.getTotal(phase));
       addGauge(builder, phase, "PercentComplete", " percent complete",
         prog.getPercentComplete(phase));
+      addGauge(builder, phase, "Rate", " count per second",
+        getRate(prog.getCount(phase), prog.getElapsedTime(phase)));
     }
   }
 
+  /**
+   * Returns the number of items completed per second, e.g. the number of edit
+   * log ops replayed per second while loading edits.
+   *
+   * @param count long number of items completed
+   * @param elapsedTime long elapsed time in milliseconds
+   * @return float items per second, 0 if no time has elapsed
+   */
+  private static float getRate(long count, long elapsedTime) {
+    return elapsedTime > 0 ? count * 1000.0f / elapsedTime : 0.0f;
+  }
+
   /**
    * Adds a counter with a name built by using the specified phase's name as
    * prefix and then appending the specified suffix.
@@ -39,4 +39,22 @@ public interface RwLock {
 
   /** Check if the current thread holds write lock. */
   public boolean hasWriteLock();
+
+  /** Acquire read lock for the given part of the state. */
+  void readLock(RwLockMode lockMode);
+
+  /** Release read lock for the given part of the state. */
+  void readUnlock(RwLockMode lockMode, String opName);
+
+  /** Check if the current thread holds read lock for the given mode. */
+  boolean hasReadLock(RwLockMode lockMode);
+
+  /** Acquire write lock for the given part of the state. */
+  void writeLock(RwLockMode lockMode);
+
+  /** Release write lock for the given part of the state. */
+  void writeUnlock(RwLockMode lockMode, String opName);
+
+  /** Check if the current thread holds write lock for the given mode. */
+  boolean hasWriteLock(RwLockMode lockMode);
 }
@@ -289,6 +289,75 @@ public void testZeroCopyReadsNoFallback() throws Exception {
     }
   }
 
+  /**
+   * Test that ALLOW_UNCACHED_MMAP allows zero-copy reads of replicas which
+   * are not cached, while checksums are verified, unless the checksums of
+   * the replica do not match.
+   */
+  @Test
+  public void testZeroCopyReadsOfUncachedReplica() throws Exception {
+    HdfsConfiguration conf = initZeroCopyTest();
+    conf.setBoolean(HdfsClientConfigKeys.Read.ShortCircuit.SKIP_CHECKSUM_KEY,
+        false);
+    MiniDFSCluster cluster = null;
+    final Path TEST_PATH = new Path("/a");
+    final Path CORRUPT_PATH = new Path("/b");
+    FSDataInputStream fsIn = null;
+    final int TEST_FILE_LENGTH = 3 * BLOCK_SIZE;
+
+    FileSystem fs = null;
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).numDataNodes(1).build();
+      cluster.waitActive();
+      fs = cluster.getFileSystem();
+      DFSTestUtil.createFile(fs, TEST_PATH,
+          TEST_FILE_LENGTH, (short)1, 7567L);
+      DFSTestUtil.createFile(fs, CORRUPT_PATH,
+          TEST_FILE_LENGTH, (short)1, 7568L);
+      DFSTestUtil.waitReplication(fs, TEST_PATH, (short)1);
+      DFSTestUtil.waitReplication(fs, CORRUPT_PATH, (short)1);
+      fsIn = fs.open(TEST_PATH);
+      byte original[] = new byte[TEST_FILE_LENGTH];
+      IOUtils.readFully(fsIn, original, 0, TEST_FILE_LENGTH);
+      fsIn.close();
+      fsIn = fs.open(TEST_PATH);
+      HdfsDataInputStream dfsIn = (HdfsDataInputStream)fsIn;
+      try {
+        dfsIn.read(null, BLOCK_SIZE, EnumSet.noneOf(ReadOption.class));
+        Assert.fail("expected UnsupportedOperationException");
+      } catch (UnsupportedOperationException e) {
+        // expected: the replica is neither cached nor read without checksums
+      }
+      ByteBuffer result = dfsIn.read(null, BLOCK_SIZE,
+          EnumSet.of(ReadOption.ALLOW_UNCACHED_MMAP));
+      Assert.assertEquals(BLOCK_SIZE, result.remaining());
+      Assert.assertEquals(BLOCK_SIZE,
+          dfsIn.getReadStatistics().getTotalZeroCopyBytesRead());
+      Assert.assertArrayEquals(Arrays.copyOfRange(original, 0, BLOCK_SIZE),
+          byteBufferToArray(result));
+      dfsIn.releaseBuffer(result);
+      fsIn.close();
+
+      ExtendedBlock block = DFSTestUtil.getFirstBlock(fs, CORRUPT_PATH);
+      Assert.assertEquals(1, cluster.corruptBlockOnDataNodes(block));
+      fsIn = fs.open(CORRUPT_PATH);
+      dfsIn = (HdfsDataInputStream)fsIn;
+      try {
+        dfsIn.read(null, BLOCK_SIZE,
+            EnumSet.of(ReadOption.ALLOW_UNCACHED_MMAP));
+        Assert.fail("expected UnsupportedOperationException");
+      } catch (UnsupportedOperationException e) {
+        // expected: the checksums of the replica do not match
+      }
+      Assert.assertEquals(0,
+          dfsIn.getReadStatistics().getTotalZeroCopyBytesRead());
+    } finally {
+      if (fsIn != null) fsIn.close();
+      if (fs != null) fs.close();
+      if (cluster != null) cluster.shutdown();
+    }
+  }
+
   private static class CountingVisitor implements CacheVisitor {
     private final int expectedNumOutstandingMmaps;
     private final int expectedNumReplicas;
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.util.FakeTimer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the thresholds and budget of 'hedged' reads in
+ * {@link DFSHedgedReadThresholds}.
+ */
+public class TestDFSHedgedReadThresholds {
+  private final DatanodeInfo dn1 = DFSTestUtil.getLocalDatanodeInfo(1001);
+  private final DatanodeInfo dn2 = DFSTestUtil.getLocalDatanodeInfo(1002);
+  private final FakeTimer timer = new FakeTimer();
+
+  @Test
+  public void testFixedThreshold() {
+    DFSHedgedReadThresholds thresholds =
+        new DFSHedgedReadThresholds(500, 0, 1, 1.0, timer,
+            DFSHedgedReadThresholds.MAX_DATANODES);
+    for (int i = 0; i < 100; i++) {
+      thresholds.addLatency(dn1, 5);
+    }
+    assertEquals(500, thresholds.getThresholdMillis(dn1));
+    thresholds.readStarted();
+    assertTrue(thresholds.tryHedge());
+    assertTrue(thresholds.tryHedge());
+  }
+
+  @Test
+  public void testPercentileThreshold() {
+    final long window = 200;
+    DFSHedgedReadThresholds thresholds =
+        new DFSHedgedReadThresholds(500, 90, window, 1.0, timer,
+            DFSHedgedReadThresholds.MAX_DATANODES);
+    for (int i = 1; i <= 100; i++) {
+      thresholds.addLatency(dn1, i);
+    }
+    // the latencies are used once their window is over
+    assertEquals(500, thresholds.getThresholdMillis(dn1));
+    timer.advance(window);
+    long threshold = thresholds.getThresholdMillis(dn1);
+    assertTrue("Threshold " + threshold, threshold >= 85 && threshold <= 95);
+    assertEquals(500, thresholds.getThresholdMillis(dn2));
+
+    // a window without reads keeps the threshold
+    timer.advance(window);
+    assertEquals(threshold, thresholds.getThresholdMillis(dn1));
+  }
+
+  @Test
+  public void testHedgedReadBudget() {
+    final long window = 200;
+    DFSHedgedReadThresholds thresholds =
+        new DFSHedgedReadThresholds(500, 0, window, 0.1, timer,
+            DFSHedgedReadThresholds.MAX_DATANODES);
+    for (int i = 0; i < 20; i++) {
+      thresholds.readStarted();
+    }
+    assertTrue(thresholds.tryHedge());
+    assertTrue(thresholds.tryHedge());
+    assertFalse(thresholds.tryHedge());
+
+    // the budget is renewed with the window
+    timer.advance(window);
+    for (int i = 0; i < 10; i++) {
+      thresholds.readStarted();
+    }
+    assertTrue(thresholds.tryHedge());
+    assertFalse(thresholds.tryHedge());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedDatanodesDropped() {
+    final long window = 200;
+    DFSHedgedReadThresholds thresholds =
+        new DFSHedgedReadThresholds(500, 90, window, 1.0, timer, 2);
+    DatanodeInfo dn3 = DFSTestUtil.getLocalDatanodeInfo(1003);
+    thresholds.addLatency(dn1, 10);
+    thresholds.addLatency(dn2, 20);
+    timer.advance(window);
+    assertEquals(10, thresholds.getThresholdMillis(dn1));
+    assertEquals(20, thresholds.getThresholdMillis(dn2));
+
+    // dn1 was used less recently than dn2, so it makes room for dn3
+    thresholds.addLatency(dn3, 30);
+    assertEquals(2, thresholds.getNumDatanodes());
+    assertEquals(500, thresholds.getThresholdMillis(dn1));
+    assertEquals(20, thresholds.getThresholdMillis(dn2));
+  }
+}
@@ -40,7 +40,9 @@
 import org.apache.hadoop.fs.StreamCapabilities.StreamCapability;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.DataStreamer.LastExceptionInStreamer;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
 import org.apache.hadoop.hdfs.client.impl.DfsClientConf;
+import org.apache.hadoop.hdfs.client.impl.metrics.PacketBufferPoolMetrics;
 import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
 import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
 import org.apache.hadoop.hdfs.protocol.ExtendedBlock;
@@ -52,7 +54,9 @@
 import org.apache.hadoop.hdfs.server.blockmanagement.DatanodeDescriptor;
 import org.apache.hadoop.hdfs.server.blockmanagement.DatanodeManager;
 import org.apache.hadoop.hdfs.server.protocol.DatanodeStorage;
+import org.apache.hadoop.io.BoundedByteBufferPool;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.test.PathUtils;
 import org.apache.htrace.core.SpanId;
@@ -78,6 +82,8 @@
 
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CLIENT_WRITE_PACKET_SIZE_DEFAULT;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CLIENT_WRITE_PACKET_SIZE_KEY;
+import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 
 public class TestDFSOutputStream {
   static MiniDFSCluster cluster;
@@ -371,6 +377,39 @@ public void testStreamFlush() throws Exception {
     os.close();
   }
 
+  @Test
+  public void testWriteWithDirectBufferPool() throws Exception {
+    Configuration conf = new Configuration(cluster.getConfiguration(0));
+    conf.setBoolean(
+        HdfsClientConfigKeys.Write.DirectBufferPool.ENABLED_KEY, true);
+    conf.set(HdfsClientConfigKeys.DFS_CLIENT_CONTEXT,
+        "testWriteWithDirectBufferPool");
+    DistributedFileSystem fs = (DistributedFileSystem)
+        FileSystem.newInstance(cluster.getURI(), conf);
+    try {
+      BoundedByteBufferPool pool =
+          fs.getClient().getClientContext().getPacketBufferPool();
+      Assert.assertNotNull(pool);
+      Path path = new Path("/direct-buffer-pool-file");
+      byte[] data = new byte[3 * DFS_CLIENT_WRITE_PACKET_SIZE_DEFAULT + 100];
+      new Random().nextBytes(data);
+      try (FSDataOutputStream os = fs.create(path)) {
+        os.write(data, 0, 1000);
+        os.hflush();
+        os.write(data, 1000, data.length - 1000);
+      }
+      Assert.assertArrayEquals(data, DFSTestUtil.readFileAsBytes(fs, path));
+      Assert.assertTrue(pool.getHits() > 0);
+      Assert.assertTrue(pool.getPooledBytes() > 0);
+      MetricsRecordBuilder rb = getMetrics(PacketBufferPoolMetrics
+          .getSourceName("testWriteWithDirectBufferPool"));
+      assertCounter("Hits", pool.getHits(), rb);
+      assertCounter("Allocations", pool.getAllocations(), rb);
+    } finally {
+      fs.close();
+    }
+  }
+
   @AfterClass
   public static void tearDown() {
     if (cluster != null) {
@@ -58,18 +58,18 @@ public class TestDFSStripedInputStream {
   public static final Log LOG =
       LogFactory.getLog(TestDFSStripedInputStream.class);
 
-  private MiniDFSCluster cluster;
+  MiniDFSCluster cluster;
   private Configuration conf = new Configuration();
-  private DistributedFileSystem fs;
+  DistributedFileSystem fs;
   private final Path dirPath = new Path("/striped");
-  private Path filePath = new Path(dirPath, "file");
-  private ErasureCodingPolicy ecPolicy;
-  private short dataBlocks;
-  private short parityBlocks;
-  private int cellSize;
-  private final int stripesPerBlock = 2;
+  Path filePath = new Path(dirPath, "file");
+  ErasureCodingPolicy ecPolicy;
+  short dataBlocks;
+  short parityBlocks;
+  int cellSize;
+  int stripesPerBlock;
   private int blockSize;
-  private int blockGroupSize;
+  int blockGroupSize;
 
   @Rule
   public Timeout globalTimeout = new Timeout(300000);
@@ -78,6 +78,15 @@ public ErasureCodingPolicy getEcPolicy() {
     return StripedFileTestUtil.getDefaultECPolicy();
   }
 
+  /** Hook for subclasses to tune the configuration of the client. */
+  protected void configure(Configuration config) {
+  }
+
+  /** @return the number of stripes of each block group of the test files. */
+  protected int getStripesPerBlock() {
+    return 2;
+  }
+
   @Before
   public void setup() throws IOException {
     /*
@@ -87,6 +96,7 @@ public void setup() throws IOException {
     dataBlocks = (short) ecPolicy.getNumDataUnits();
     parityBlocks = (short) ecPolicy.getNumParityUnits();
     cellSize = ecPolicy.getCellSize();
+    stripesPerBlock = getStripesPerBlock();
     blockSize = stripesPerBlock * cellSize;
     blockGroupSize =  dataBlocks * blockSize;
     System.out.println("EC policy = " + ecPolicy);
@@ -99,6 +109,7 @@ public void setup() throws IOException {
           NativeRSRawErasureCoderFactory.CODER_NAME);
     }
     SimulatedFSDataset.setFactory(conf);
+    configure(conf);
     cluster = new MiniDFSCluster.Builder(conf).numDataNodes(
         dataBlocks + parityBlocks).build();
     cluster.waitActive();
@@ -385,6 +396,56 @@ private void testStatefulRead(boolean useByteBuffer,
     fs.delete(filePath, true);
   }
 
+  /**
+   * Test stateful reads which seek within a stripe, to a following stripe of
+   * the same block group, back and into another block group.
+   */
+  @Test
+  public void testStatefulReadWithSeek() throws Exception {
+    final int numBlocks = 2;
+    final int fileLen = blockGroupSize * numBlocks;
+    final int stripeLen = cellSize * dataBlocks;
+    DFSTestUtil.createStripedFile(cluster, filePath, null, numBlocks,
+        stripesPerBlock, false, ecPolicy);
+    LocatedBlocks lbs = fs.getClient().namenode.getBlockLocations(
+        filePath.toString(), 0, fileLen);
+    for (LocatedBlock lb : lbs.getLocatedBlocks()) {
+      LocatedStripedBlock bg = (LocatedStripedBlock) lb;
+      for (int i = 0; i < dataBlocks; i++) {
+        Block blk = new Block(bg.getBlock().getBlockId() + i,
+            stripesPerBlock * cellSize,
+            bg.getBlock().getGenerationStamp());
+        blk.setGenerationStamp(bg.getBlock().getGenerationStamp());
+        cluster.injectBlocks(i, Arrays.asList(blk),
+            bg.getBlock().getBlockPoolId());
+      }
+    }
+
+    DFSStripedInputStream in = new DFSStripedInputStream(fs.getClient(),
+        filePath.toString(), false, ecPolicy, null);
+    // positional reads do not read ahead, so they give the expected data
+    byte[] expected = new byte[fileLen];
+    assertEquals(fileLen, in.read(0, expected, 0, fileLen));
+
+    final int readLen = cellSize / 2 + 7;
+    int[] seekOffsets = {0, 10, stripeLen + 3, 20, blockGroupSize - 5,
+        blockGroupSize + stripeLen, stripeLen - 1, fileLen - readLen};
+    byte[] buf = new byte[readLen];
+    for (int seekOffset : seekOffsets) {
+      in.seek(seekOffset);
+      // read a few times, crossing into the next stripe for most offsets
+      for (int i = 0; i < 3 && in.getPos() < fileLen; i++) {
+        long pos = in.getPos();
+        int ret = in.read(buf, 0, readLen);
+        assertTrue(ret > 0);
+        assertArrayEquals("Bytes at " + pos,
+            Arrays.copyOfRange(expected, (int) pos, (int) pos + ret),
+            Arrays.copyOf(buf, ret));
+      }
+    }
+    in.close();
+  }
+
   @Test
   public void testStatefulReadWithDNFailure() throws Exception {
     final int numBlocks = 4;
@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.Block;
+import org.apache.hadoop.hdfs.protocol.LocatedBlocks;
+import org.apache.hadoop.hdfs.protocol.LocatedStripedBlock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This tests read operation of DFS striped file with the stripes following
+ * the current one read ahead in the background.
+ */
+public class TestDFSStripedInputStreamWithPrefetch extends
+    TestDFSStripedInputStream {
+
+  @Override
+  protected void configure(Configuration config) {
+    config.setInt(HdfsClientConfigKeys.StripedRead.PREFETCH_STRIPES_KEY, 3);
+  }
+
+  /**
+   * More stripes than are read ahead, so that several stripes are read ahead
+   * at once, and reading ahead also stops at the end of the block groups.
+   */
+  @Override
+  protected int getStripesPerBlock() {
+    return 8;
+  }
+
+  /**
+   * Positional reads and a prefetching sequential read of the same stream
+   * both decode stripes with a missing data block at the same time.
+   */
+  @Test
+  public void testConcurrentPreadWithPrefetchAndDNFailure() throws Exception {
+    final int failedDNIdx = dataBlocks - 1;
+    DFSTestUtil.createStripedFile(cluster, filePath, null, 1,
+        stripesPerBlock, false, ecPolicy);
+    LocatedBlocks lbs = fs.getClient().namenode.getBlockLocations(
+        filePath.toString(), 0, blockGroupSize);
+    assertTrue(lbs.get(0) instanceof LocatedStripedBlock);
+    LocatedStripedBlock bg = (LocatedStripedBlock) (lbs.get(0));
+    for (int i = 0; i < dataBlocks + parityBlocks; i++) {
+      Block blk = new Block(bg.getBlock().getBlockId() + i,
+          stripesPerBlock * cellSize,
+          bg.getBlock().getGenerationStamp());
+      cluster.injectBlocks(i, Arrays.asList(blk),
+          bg.getBlock().getBlockPoolId());
+    }
+    cluster.stopDataNode(failedDNIdx);
+
+    // The simulated parity does not match the data, so take the decoded
+    // content of a single threaded read as the expected one.
+    final byte[] expected = new byte[blockGroupSize];
+    try (DFSStripedInputStream in = new DFSStripedInputStream(fs.getClient(),
+        filePath.toString(), false, ecPolicy, null)) {
+      in.readFully(0, expected);
+    }
+
+    final int rounds = 10;
+    final DFSStripedInputStream in = new DFSStripedInputStream(
+        fs.getClient(), filePath.toString(), false, ecPolicy, null);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Void> stateful = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          byte[] buf = new byte[blockGroupSize];
+          for (int r = 0; r < rounds; r++) {
+            in.seek(0);
+            int done = 0;
+            while (done < buf.length) {
+              int ret = in.read(buf, done,
+                  Math.min(cellSize / 2, buf.length - done));
+              assertTrue(ret > 0);
+              done += ret;
+            }
+            assertArrayEquals(expected, buf);
+          }
+          return null;
+        }
+      });
+      Future<Void> pread = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          byte[] buf = new byte[cellSize];
+          for (int r = 0; r < rounds * stripesPerBlock; r++) {
+            // the cells of the missing block, across stripes
+            int pos = (r % stripesPerBlock) * cellSize * dataBlocks
+                + failedDNIdx * cellSize;
+            assertEquals(buf.length, in.read(pos, buf, 0, buf.length));
+            assertArrayEquals(
+                Arrays.copyOfRange(expected, pos, pos + buf.length), buf);
+          }
+          return null;
+        }
+      });
+      stateful.get();
+      pread.get();
+    } finally {
+      executor.shutdownNow();
+      in.close();
+    }
+  }
+}
@@ -57,8 +57,8 @@ public class TestDFSStripedOutputStream {
   private int dataBlocks;
   private int parityBlocks;
 
-  private MiniDFSCluster cluster;
-  private DistributedFileSystem fs;
+  MiniDFSCluster cluster;
+  DistributedFileSystem fs;
   private Configuration conf;
   private int cellSize;
   private final int stripesPerBlock = 4;
@@ -71,6 +71,10 @@ public ErasureCodingPolicy getEcPolicy() {
     return StripedFileTestUtil.getDefaultECPolicy();
   }
 
+  /** Set additional configuration for the cluster and its clients. */
+  protected void configure(Configuration config) {
+  }
+
   @Before
   public void setup() throws IOException {
     /*
@@ -94,6 +98,7 @@ public void setup() throws IOException {
           CodecUtil.IO_ERASURECODE_CODEC_RS_RAWCODERS_KEY,
           NativeRSRawErasureCoderFactory.CODER_NAME);
     }
+    configure(conf);
     cluster = new MiniDFSCluster.Builder(conf).numDataNodes(numDNs).build();
     fs = cluster.getFileSystem();
     DFSTestUtil.enableAllECPolicies(fs);
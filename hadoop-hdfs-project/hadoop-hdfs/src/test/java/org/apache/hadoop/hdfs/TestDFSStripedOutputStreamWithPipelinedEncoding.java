@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.DatanodeInfo;
+import org.apache.hadoop.hdfs.protocol.ErasureCodingPolicy;
+import org.junit.Test;
+
+/**
+ * This tests write operation of DFS striped file when the parity cells are
+ * computed by the encoding thread pool, while the following stripes are
+ * written.
+ */
+public class TestDFSStripedOutputStreamWithPipelinedEncoding extends
+    TestDFSStripedOutputStream {
+
+  @Override
+  protected void configure(Configuration config) {
+    config.setInt(
+        HdfsClientConfigKeys.StripedWrite.ENCODE_THREADPOOL_SIZE_KEY, 4);
+    config.setInt(
+        HdfsClientConfigKeys.StripedWrite.MAX_PENDING_STRIPES_KEY, 3);
+  }
+
+  /**
+   * Stop a datanode of a parity block while stripes are pending, so that the
+   * pending parity cells are written before the pipeline is updated.
+   */
+  @Test
+  public void testParityDatanodeFailureWithPendingStripes() throws Exception {
+    final ErasureCodingPolicy policy = getEcPolicy();
+    final int numDataBlocks = policy.getNumDataUnits();
+    final int stripeSize = numDataBlocks * policy.getCellSize();
+    final int length = stripeSize * 6 + 123;
+    final byte[] expected = StripedFileTestUtil.generateBytes(length);
+    final Path src = new Path("/testParityDatanodeFailureWithPendingStripes");
+
+    try (FSDataOutputStream out = fs.create(src)) {
+      final DFSStripedOutputStream stripedOut =
+          (DFSStripedOutputStream) out.getWrappedStream();
+      out.write(expected, 0, stripeSize * 2);
+      final DatanodeInfo dn = TestDFSStripedOutputStreamWithFailure
+          .getDatanodes(stripedOut.getStripedDataStreamer(numDataBlocks));
+      cluster.stopDataNode(dn.getXferAddr());
+      out.write(expected, stripeSize * 2, length - stripeSize * 2);
+    }
+    assertEquals(length, fs.getFileStatus(src).getLen());
+    StripedFileTestUtil.verifyStatefulRead(fs, src, length, expected,
+        new byte[length]);
+  }
+
+  /**
+   * Abort a stream while stripes are being encoded. The stream waits for
+   * the encodings in progress, releases its buffers and encoders, and
+   * rejects further writes.
+   */
+  @Test(timeout = 60000)
+  public void testAbortWithPendingStripes() throws Exception {
+    final ErasureCodingPolicy policy = getEcPolicy();
+    final int stripeSize = policy.getNumDataUnits() * policy.getCellSize();
+    final byte[] bytes = StripedFileTestUtil.generateBytes(stripeSize * 3);
+    final Path src = new Path("/testAbortWithPendingStripes");
+
+    final FSDataOutputStream out = fs.create(src);
+    final DFSStripedOutputStream stripedOut =
+        (DFSStripedOutputStream) out.getWrappedStream();
+    out.write(bytes);
+    stripedOut.abort();
+    assertTrue(stripedOut.isClosed());
+    try {
+      out.write(bytes, 0, stripeSize);
+      fail("Writing to an aborted stream should fail");
+    } catch (IOException e) {
+      LOG.info("Expected exception", e);
+    }
+    // aborting again is a no-op
+    stripedOut.abort();
+  }
+}
@@ -22,6 +22,7 @@
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_CLIENT_SOCKET_CACHE_EXPIRY_MSEC_KEY;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DATANODE_SOCKET_REUSE_KEEPALIVE_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_DATANODE_TRANSFER_EVENT_DRIVEN_KEY;
 import static org.apache.hadoop.hdfs.client.HdfsClientConfigKeys.DFS_DATANODE_SOCKET_WRITE_TIMEOUT_KEY;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -37,6 +38,7 @@
 import org.apache.hadoop.hdfs.MiniDFSCluster.DataNodeProperties;
 import org.apache.hadoop.hdfs.net.Peer;
 import org.apache.hadoop.hdfs.server.datanode.DataNode;
+import org.apache.hadoop.hdfs.server.datanode.DataNodeTestUtils;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.util.ReflectionUtils;
@@ -204,6 +206,57 @@ public Boolean get() {
     IOUtils.closeStream(stm);
   }
   
+  /**
+   * Test that with event driven data transfer, a connection kept open for
+   * reuse is parked without a thread, can be reused, and is still closed
+   * after the keepalive timeout.
+   */
+  @Test(timeout=30000)
+  public void testEventDrivenKeepAlive() throws Exception {
+    DataNodeProperties props = cluster.stopDataNode(0);
+    props.conf.setBoolean(DFS_DATANODE_TRANSFER_EVENT_DRIVEN_KEY, true);
+    assertTrue(cluster.restartDataNode(props, true));
+    dn = cluster.getDataNodes().get(0);
+    cluster.triggerHeartbeats();
+
+    Configuration clientConf = new Configuration(conf);
+    clientConf.setLong(DFS_CLIENT_SOCKET_CACHE_EXPIRY_MSEC_KEY, 60000L);
+    clientConf.set(DFS_CLIENT_CONTEXT, "testEventDrivenKeepAlive");
+    DistributedFileSystem fs =
+        (DistributedFileSystem)FileSystem.get(cluster.getURI(),
+            clientConf);
+    PeerCache peerCache = ClientContext.getFromConf(clientConf).getPeerCache();
+    DFSTestUtil.createFile(fs, TEST_FILE, 1L, (short)1, 0L);
+
+    // The connection of each read is cached by the client and parked by
+    // the datanode, and the second read reuses it. A parked connection, and
+    // the pool threads left without one, are not counted as xceivers.
+    for (int i = 0; i < 2; i++) {
+      DFSTestUtil.readFile(fs, TEST_FILE);
+      assertEquals(1, peerCache.size());
+      waitForIdleXceiverPeers(1);
+      GenericTestUtils.waitFor(new Supplier<Boolean>() {
+        public Boolean get() {
+          return getXceiverCountWithoutServer() == 0;
+        }
+      }, 10, 10000);
+    }
+
+    // The datanode closes the parked connection after the keepalive timeout.
+    waitForIdleXceiverPeers(0);
+    Peer peer = peerCache.get(dn.getDatanodeId(), false);
+    assertNotNull(peer);
+    assertEquals(-1, peer.getInputStream().read());
+  }
+
+  private void waitForIdleXceiverPeers(final int expected) throws Exception {
+    GenericTestUtils.waitFor(new Supplier<Boolean>() {
+      public Boolean get() {
+        return DataNodeTestUtils.getNumIdleXceiverPeers(dn) == expected;
+      }
+    }, 10, 10000);
+  }
+
   @Test(timeout=30000)
   public void testManyClosedSocketsInCache() throws Exception {
     // Make a small file
@@ -97,6 +97,26 @@ public void hFlush_03() throws IOException {
         EnumSet.noneOf(SyncFlag.class));
   }
 
+  /**
+   * The test uses
+   * {@link #doTheJob(Configuration, String, long, short, boolean, EnumSet)}
+   * to write a file across block's and checksum' boundaries while the
+   * DataNodes coalesce the received packets into larger writes
+   */
+  @Test
+  public void hFlush_04() throws IOException {
+    Configuration conf = new HdfsConfiguration();
+    int customPerChecksumSize = 400;
+    int customBlockSize = customPerChecksumSize * 3;
+    conf.setInt(DFSConfigKeys.DFS_BYTES_PER_CHECKSUM_KEY, customPerChecksumSize);
+    conf.setLong(DFSConfigKeys.DFS_BLOCK_SIZE_KEY, customBlockSize);
+    conf.setInt(DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_BYTES_KEY,
+        customPerChecksumSize * 2);
+
+    doTheJob(conf, fName, customBlockSize, (short) 2, false,
+        EnumSet.noneOf(SyncFlag.class));
+  }
+
   /**
    * Test hsync (with updating block length in NameNode) while no data is
    * actually written yet
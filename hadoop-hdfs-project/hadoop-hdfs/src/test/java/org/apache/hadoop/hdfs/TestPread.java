@@ -22,6 +22,7 @@
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -39,6 +40,7 @@
 import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
@@ -508,6 +510,68 @@ public void testPreadLocalFS() throws IOException {
     }
   }
 
+  @Test
+  public void testVectoredReadDFS() throws Exception {
+    vectoredReadTest(new HdfsConfiguration());
+  }
+
+  @Test
+  public void testVectoredReadDFSWithoutThreadPool() throws Exception {
+    Configuration conf = new HdfsConfiguration();
+    conf.setInt(HdfsClientConfigKeys.VectoredRead.THREADPOOL_SIZE_KEY, 0);
+    vectoredReadTest(conf);
+  }
+
+  private void vectoredReadTest(Configuration conf) throws Exception {
+    conf.setInt(HdfsClientConfigKeys.VectoredRead.MIN_SEEK_SIZE_KEY, 1024);
+    conf.setInt(HdfsClientConfigKeys.VectoredRead.MAX_MERGED_SIZE_KEY,
+        2 * blockSize);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(3).build();
+    FileSystem fileSys = cluster.getFileSystem();
+    try {
+      Path file1 = new Path("/vectoredReadTest.dat");
+      writeFile(fileSys, file1);
+      byte[] expected = new byte[fileSize];
+      Random rand = new Random(seed);
+      rand.nextBytes(expected);
+
+      List<FileRange> ranges = Arrays.asList(
+          // across a block boundary
+          FileRange.createFileRange(blockSize - 100, 200),
+          // out of order, and close enough to be read together
+          FileRange.createFileRange(10, 100),
+          FileRange.createFileRange(200, 300),
+          FileRange.createFileRange(250, 10),
+          // larger than the merged size
+          FileRange.createFileRange(3 * blockSize, 3 * blockSize),
+          FileRange.createFileRange(fileSize - 2000, 10),
+          FileRange.createFileRange(fileSize - 10, 20));
+      try (FSDataInputStream stm = fileSys.open(file1)) {
+        stm.readVectored(ranges, ByteBuffer::allocate);
+        for (FileRange range : ranges.subList(0, ranges.size() - 1)) {
+          ByteBuffer buf = range.getData().get();
+          assertEquals(range.toString(), range.getLength(), buf.remaining());
+          byte[] actual = new byte[range.getLength()];
+          buf.get(actual);
+          checkAndEraseData(actual, (int) range.getOffset(), expected,
+              "Vectored read of " + range);
+        }
+        try {
+          ranges.get(ranges.size() - 1).getData().get();
+          Assert.fail("Reading past the end of the file should fail");
+        } catch (ExecutionException e) {
+          assertTrue(e.toString(), e.getCause() instanceof EOFException);
+        }
+        assertEquals(0, stm.getPos());
+      }
+      cleanupFile(fileSys, file1);
+    } finally {
+      fileSys.close();
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testTruncateWhileReading() throws Exception {
     Path path = new Path("/testfile");
@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.protocol.Block;
+import org.apache.hadoop.hdfs.server.blockmanagement.BlockIdManager;
+import org.apache.hadoop.util.Time;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.hadoop.hdfs.ReadStripedFileWithDecodingHelper.BLOCK_SIZE;
+import static org.apache.hadoop.hdfs.ReadStripedFileWithDecodingHelper.CELL_SIZE;
+import static org.apache.hadoop.hdfs.ReadStripedFileWithDecodingHelper.NUM_DATA_UNITS;
+import static org.apache.hadoop.hdfs.ReadStripedFileWithDecodingHelper.initializeCluster;
+import static org.apache.hadoop.hdfs.ReadStripedFileWithDecodingHelper.tearDownCluster;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test positional reads of striped files which reconstruct the cells of a
+ * slow DataNode instead of waiting for them.
+ */
+public class TestReadStripedFileWithHedgedReads {
+  private static final long THRESHOLD_MILLIS = 100;
+  /** An upper bound of the time to read and decode a stripe. */
+  private static final long MAX_DECODE_MILLIS = 5000;
+  /** How long a slow DataNode takes to send a packet. */
+  private static final long SLOW_READ_MILLIS = 30000;
+
+  private MiniDFSCluster cluster;
+  private DistributedFileSystem dfs;
+  private DFSClientFaultInjector oldInjector;
+
+  @Rule
+  public Timeout globalTimeout = new Timeout(300000);
+
+  @Before
+  public void setup() throws IOException {
+    cluster = initializeCluster();
+    Configuration conf = new Configuration(cluster.getConfiguration(0));
+    conf.setLong(
+        HdfsClientConfigKeys.StripedRead.HEDGED_THRESHOLD_MILLIS_KEY,
+        THRESHOLD_MILLIS);
+    dfs = (DistributedFileSystem) FileSystem.newInstance(cluster.getURI(),
+        conf);
+    oldInjector = DFSClientFaultInjector.get();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    DFSClientFaultInjector.set(oldInjector);
+    if (dfs != null) {
+      dfs.close();
+    }
+    tearDownCluster(cluster);
+  }
+
+  @Test
+  public void testPreadWithSlowDataNode() throws Exception {
+    final int fileLength = BLOCK_SIZE * NUM_DATA_UNITS + 123;
+    final Path testPath = new Path("/slowDataNode");
+    final byte[] bytes = StripedFileTestUtil.generateBytes(fileLength);
+    DFSTestUtil.writeFile(dfs, testPath, bytes);
+    StripedFileTestUtil.waitBlockGroupsReported(dfs, testPath.toString());
+
+    // reads of the first internal block are slow
+    DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+      @Override
+      public void delayWhenReadingPacket(long blockId) {
+        if (BlockIdManager.getBlockIndex(new Block(blockId)) == 0) {
+          try {
+            Thread.sleep(1000);
+          } catch (InterruptedException e) {
+            // let the read fail, as a blocked socket read would
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    });
+    DFSHedgedReadMetrics metrics = dfs.getClient().getHedgedReadMetrics();
+    final long ops = metrics.getHedgedReadOps();
+    final long wins = metrics.getHedgedReadWins();
+
+    StripedFileTestUtil.verifyPread(dfs, testPath, fileLength, bytes,
+        new byte[fileLength + 100]);
+    assertTrue(metrics.getHedgedReadOps() > ops);
+    assertTrue(metrics.getHedgedReadWins() > wins);
+  }
+
+  /**
+   * A positional read is not held up by a slow DataNode once its cells have
+   * been reconstructed. The read waits for the slow read to end before
+   * decoding, so this also checks that the slow read is interrupted rather
+   * than left to wait for its packets.
+   */
+  @Test
+  public void testPreadLatencyWithSlowDataNode() throws Exception {
+    final int fileLength = BLOCK_SIZE * NUM_DATA_UNITS;
+    final Path testPath = new Path("/slowDataNodeLatency");
+    final byte[] bytes = StripedFileTestUtil.generateBytes(fileLength);
+    DFSTestUtil.writeFile(dfs, testPath, bytes);
+    StripedFileTestUtil.waitBlockGroupsReported(dfs, testPath.toString());
+
+    // packets of the first internal block are sent once the read is over
+    final CountDownLatch readDone = new CountDownLatch(1);
+    DFSClientFaultInjector.set(new DFSClientFaultInjector() {
+      @Override
+      public void delayWhenReadingPacket(long blockId) {
+        if (BlockIdManager.getBlockIndex(new Block(blockId)) == 0) {
+          try {
+            readDone.await(SLOW_READ_MILLIS, TimeUnit.MILLISECONDS);
+          } catch (InterruptedException e) {
+            // let the read fail, as a blocked socket read would
+            Thread.currentThread().interrupt();
+          }
+        }
+      }
+    });
+    final byte[] buf = new byte[CELL_SIZE * NUM_DATA_UNITS];
+    try (FSDataInputStream in = dfs.open(testPath)) {
+      long start = Time.monotonicNow();
+      in.readFully(0, buf);
+      long elapsed = Time.monotonicNow() - start;
+      assertTrue("The read took " + elapsed + "ms",
+          elapsed < THRESHOLD_MILLIS + MAX_DECODE_MILLIS);
+    } finally {
+      readDone.countDown();
+    }
+    assertArrayEquals(Arrays.copyOf(bytes, buf.length), buf);
+  }
+}
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileRange;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * This class benchmarks reading many small ranges of a file, as columnar
+ * readers do, with one positional readFully per range against a single
+ * vectored read of all the ranges. The file is read from a MiniDFSCluster,
+ * or from any filesystem if a path is given.
+ */
+public class VectoredReadBenchmark extends Configured implements Tool {
+
+  private long fileSize;
+  private int rangeSize;
+  private int rangeCount;
+  private int rangeGap;
+
+  private static void printUsage() {
+    ToolRunner.printGenericCommandUsage(System.err);
+    System.err.println("Usage: vectoredread [#reps] [path]");
+    System.err.println("Config properties:\n" +
+        "  vectoredread.file.size:\tsize of the file read (256MB)\n" +
+        "  vectoredread.range.size:\tsize of each range (16k)\n" +
+        "  vectoredread.range.count:\tnumber of ranges per read (256)\n" +
+        "  vectoredread.range.gap:\tmaximum gap between ranges (32k)\n");
+  }
+
+  private void writeFile(FileSystem fs, Path path) throws IOException {
+    if (fs.exists(path) && fs.getFileStatus(path).getLen() >= fileSize) {
+      return;
+    }
+    System.out.print("Writing " + path);
+    long start = Time.monotonicNow();
+    byte[] data = new byte[64 * 1024];
+    new Random(0).nextBytes(data);
+    try (FSDataOutputStream out = fs.create(path, true)) {
+      for (long size = 0; size < fileSize; size += data.length) {
+        out.write(data, 0, (int) Math.min(data.length, fileSize - size));
+      }
+    }
+    System.out.println(" time: " + (Time.monotonicNow() - start) + "ms");
+  }
+
+  /**
+   * @return sorted ranges, separated by random gaps, starting at a random
+   * offset of the file.
+   */
+  private List<FileRange> createRanges(Random random) {
+    long span = (long) rangeCount * (rangeSize + rangeGap);
+    long offset = span >= fileSize ? 0
+        : (long) (random.nextDouble() * (fileSize - span));
+    List<FileRange> ranges = new ArrayList<>(rangeCount);
+    for (int i = 0; i < rangeCount; i++) {
+      if (offset + rangeSize > fileSize) {
+        break;
+      }
+      ranges.add(FileRange.createFileRange(offset, rangeSize));
+      offset += rangeSize + random.nextInt(rangeGap + 1);
+    }
+    return ranges;
+  }
+
+  private long readFullyRanges(FSDataInputStream in, List<FileRange> ranges)
+      throws IOException {
+    long start = Time.monotonicNow();
+    byte[] buffer = new byte[rangeSize];
+    for (FileRange range : ranges) {
+      in.readFully(range.getOffset(), buffer, 0, range.getLength());
+    }
+    return Time.monotonicNow() - start;
+  }
+
+  private long readVectoredRanges(FSDataInputStream in,
+      List<FileRange> ranges) throws IOException {
+    long start = Time.monotonicNow();
+    in.readVectored(ranges, ByteBuffer::allocate);
+    for (FileRange range : ranges) {
+      try {
+        range.getData().get();
+      } catch (InterruptedException | ExecutionException e) {
+        throw new IOException("Failed to read " + range, e);
+      }
+    }
+    return Time.monotonicNow() - start;
+  }
+
+  private void benchmark(FileSystem fs, Path path, int reps)
+      throws IOException {
+    writeFile(fs, path);
+    Random random = new Random();
+    long bytes = 0;
+    long readFullyTime = 0;
+    long vectoredTime = 0;
+    try (FSDataInputStream in = fs.open(path)) {
+      for (int i = 0; i < reps; i++) {
+        // read different ranges each time, so neither read is served by
+        // caches warmed up by the other
+        List<FileRange> ranges = createRanges(random);
+        readFullyTime += readFullyRanges(in, ranges);
+        vectoredTime += readVectoredRanges(in, createRanges(random));
+        bytes += (long) ranges.size() * rangeSize;
+      }
+    }
+    System.out.println(fs.getUri() + ": read " + bytes + " bytes in ranges"
+        + " of " + rangeSize + " bytes");
+    System.out.println("  readFully:    " + readFullyTime + "ms, "
+        + throughput(bytes, readFullyTime) + " MB/s");
+    System.out.println("  readVectored: " + vectoredTime + "ms, "
+        + throughput(bytes, vectoredTime) + " MB/s");
+  }
+
+  private static long throughput(long bytes, long millis) {
+    return millis == 0 ? 0 : bytes * 1000 / millis / (1024 * 1024);
+  }
+
+  @Override
+  public int run(String[] args) throws IOException {
+    int reps = 10;
+    Path path = null;
+    try {
+      if (args.length >= 1) {
+        reps = Integer.parseInt(args[0]);
+      }
+      if (args.length == 2) {
+        path = new Path(args[1]);
+      } else if (args.length > 2) {
+        printUsage();
+        return -1;
+      }
+    } catch (NumberFormatException e) {
+      printUsage();
+      return -1;
+    }
+    Configuration conf = getConf();
+    fileSize = conf.getLongBytes("vectoredread.file.size", 256L << 20);
+    rangeSize = (int) conf.getLongBytes("vectoredread.range.size", 16 << 10);
+    rangeCount = conf.getInt("vectoredread.range.count", 256);
+    rangeGap = (int) conf.getLongBytes("vectoredread.range.gap", 32 << 10);
+
+    if (path != null) {
+      benchmark(path.getFileSystem(conf), path, reps);
+      return 0;
+    }
+    MiniDFSCluster cluster = null;
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).numDataNodes(3).build();
+      cluster.waitActive();
+      benchmark(cluster.getFileSystem(),
+          new Path("/vectoredReadBenchmark.dat"), reps);
+    } finally {
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @param args arguments
+   */
+  public static void main(String[] args) throws Exception {
+    int res = ToolRunner.run(new HdfsConfiguration(),
+        new VectoredReadBenchmark(), args);
+    System.exit(res);
+  }
+}
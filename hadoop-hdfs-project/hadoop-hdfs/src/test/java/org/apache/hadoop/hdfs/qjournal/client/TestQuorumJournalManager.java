@@ -44,6 +44,7 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.qjournal.MiniJournalCluster;
 import org.apache.hadoop.hdfs.qjournal.QJMTestUtil;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.SegmentStateProto;
@@ -933,6 +934,40 @@ public void testSelectInputStreamsNotOnBoundary() throws Exception {
     
     verifyEdits(streams, 25, 50);
   }
+
+  @Test
+  public void testSelectViaRpcWithDurableTransactions() throws Exception {
+    // Two finalized segments, then an in-progress one
+    writeSegment(cluster, qjm, 1, 3, true);
+    writeSegment(cluster, qjm, 4, 3, true);
+    EditLogOutputStream stm = writeSegment(cluster, qjm, 7, 5, false);
+    waitForAllPendingCalls(qjm.getLoggerSetForTests());
+
+    // Edits of the current segment are served from the JournalNode caches
+    List<EditLogInputStream> streams = Lists.newArrayList();
+    qjm.selectInputStreams(streams, 8, true, true);
+    verifyEdits(streams, 8, 11);
+    for (AsyncLogger logger : spies) {
+      Mockito.verify(logger).getJournaledEdits(8,
+          DFSConfigKeys.DFS_HA_TAILEDITS_QJM_RPC_MAX_TXNS_DEFAULT);
+      Mockito.verify(logger, Mockito.never()).getEditLogManifest(
+          Mockito.anyLong(), Mockito.anyBoolean());
+    }
+
+    // Nothing new to read
+    streams.clear();
+    qjm.selectInputStreams(streams, 12, true, true);
+    assertTrue(streams.isEmpty());
+
+    // Edits which are no longer cached are streamed over HTTP instead
+    streams.clear();
+    qjm.selectInputStreams(streams, 2, true, true);
+    assertEquals(2, streams.get(0).readOp().getTransactionId());
+    for (AsyncLogger logger : spies) {
+      Mockito.verify(logger).getEditLogManifest(2, true);
+    }
+    stm.abort();
+  }
   
   
   private QuorumJournalManager createSpyingQJM()
@@ -23,6 +23,7 @@
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Assert;
@@ -32,10 +33,13 @@
 import org.apache.hadoop.hdfs.qjournal.client.QuorumException;
 import org.apache.hadoop.hdfs.qjournal.client.QuorumJournalManager;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournalStateResponseProto;
+import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.GetJournaledEditsResponseProto;
 import org.apache.hadoop.hdfs.qjournal.protocol.QJournalProtocolProtos.NewEpochResponseProto;
+import org.apache.hadoop.hdfs.server.namenode.EditLogInputStream;
 import org.apache.hadoop.hdfs.server.namenode.EditLogOutputStream;
 import org.apache.hadoop.hdfs.server.namenode.NameNodeLayoutVersion;
 import org.apache.hadoop.hdfs.server.protocol.NamespaceInfo;
+import org.apache.hadoop.hdfs.server.protocol.RemoteEditLogManifest;
 import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.log4j.Level;
 import org.junit.Before;
@@ -47,6 +51,7 @@
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.protobuf.ByteString;
 
 import static org.apache.hadoop.hdfs.qjournal.QJMTestUtil.writeOp;
 
@@ -215,6 +220,34 @@ public void testWriteEditsOneSlow() throws Exception {
     Mockito.verify(spyLoggers.get(0)).setCommittedTxId(1L);
   }
 
+  @Test
+  public void testSelectRpcInputStreamsIgnoresOldEpochs() throws Exception {
+    // Only logger 0 has heard from the latest writer; the others still
+    // cache edits of the previous writer, which may have been replaced.
+    futureReturns(GetJournaledEditsResponseProto.newBuilder()
+        .setTxnCount(1).setEditLog(ByteString.EMPTY).setEpoch(2).build())
+        .when(spyLoggers.get(0)).getJournaledEdits(eq(1L),
+            Mockito.anyInt());
+    for (int i = 1; i < 3; i++) {
+      futureReturns(GetJournaledEditsResponseProto.newBuilder()
+          .setTxnCount(3).setEditLog(ByteString.EMPTY).setEpoch(1).build())
+          .when(spyLoggers.get(i)).getJournaledEdits(eq(1L),
+              Mockito.anyInt());
+    }
+    for (AsyncLogger logger : spyLoggers) {
+      futureReturns(new RemoteEditLogManifest(new ArrayList<>(), 0L))
+          .when(logger).getEditLogManifest(1, true);
+    }
+
+    List<EditLogInputStream> streams = new ArrayList<>();
+    qjm.selectInputStreams(streams, 1, true, true);
+    // falls back to streaming, as no quorum returned the latest epoch
+    Assert.assertTrue(streams.isEmpty());
+    for (AsyncLogger logger : spyLoggers) {
+      Mockito.verify(logger).getEditLogManifest(1, true);
+    }
+  }
+
   private EditLogOutputStream createLogSegment() throws IOException {
     futureReturns(null).when(spyLoggers.get(0)).startLogSegment(Mockito.anyLong(),
         Mockito.eq(NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION));
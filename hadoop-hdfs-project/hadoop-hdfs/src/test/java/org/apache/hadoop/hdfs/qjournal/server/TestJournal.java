@@ -233,6 +233,50 @@ public void testNewEpochAtBeginningOfSegment() throws Exception {
     assertEquals(1, resp.getLastSegmentTxId());
   }
   
+  @Test (timeout = 10000)
+  public void testJournaledEditsAcrossFinalize() throws Exception {
+    journal.newEpoch(FAKE_NSINFO, 1);
+    journal.startLogSegment(makeRI(1), 1,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    journal.journal(makeRI(2), 1, 1, 3,
+        QJMTestUtil.createTxnData(1, 3));
+    journal.finalizeLogSegment(makeRI(3), 1, 3);
+    // the edits of the finalized segment are still served
+    assertEquals(2, journal.getJournaledEdits(2, 10).getTxnCount());
+    assertEquals(0, journal.getJournaledEdits(4, 10).getTxnCount());
+
+    // until the next segment starts
+    journal.startLogSegment(makeRI(4), 4,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    try {
+      journal.getJournaledEdits(2, 10);
+      fail("Edits of the previous segment should no longer be cached");
+    } catch (JournaledEditsCache.CacheMissException e) {
+      // expected
+    }
+    assertEquals(0, journal.getJournaledEdits(4, 10).getTxnCount());
+  }
+
+  @Test (timeout = 10000)
+  public void testNewEpochInvalidatesJournaledEdits() throws Exception {
+    journal.newEpoch(FAKE_NSINFO, 1);
+    journal.startLogSegment(makeRI(1), 1,
+        NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+    journal.journal(makeRI(2), 1, 1, 3,
+        QJMTestUtil.createTxnData(1, 3));
+    journal.finalizeLogSegment(makeRI(3), 1, 3);
+    assertEquals(1, journal.getJournaledEdits(1, 10).getEpoch());
+
+    // the next writer may replace the edits during recovery
+    journal.newEpoch(FAKE_NSINFO, 2);
+    try {
+      journal.getJournaledEdits(1, 10);
+      fail("Edits of the previous writer should no longer be cached");
+    } catch (JournaledEditsCache.CacheMissException e) {
+      // expected
+    }
+  }
+
   @Test (timeout = 10000)
   public void testJournalLocking() throws Exception {
     Assume.assumeTrue(journal.getStorage().getStorageDir(0).isLockSupported());
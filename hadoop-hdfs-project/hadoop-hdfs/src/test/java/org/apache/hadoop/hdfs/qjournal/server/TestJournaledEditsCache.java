@@ -0,0 +1,159 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.qjournal.server;
+
+import static org.apache.hadoop.hdfs.qjournal.QJMTestUtil.createTxnData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.hadoop.hdfs.server.common.HdfsServerConstants;
+import org.apache.hadoop.hdfs.server.namenode.EditLogFileInputStream;
+import org.apache.hadoop.hdfs.server.namenode.EditLogInputStream;
+import org.apache.hadoop.hdfs.server.namenode.FSEditLogOp;
+import org.apache.hadoop.hdfs.server.namenode.NameNodeLayoutVersion;
+import org.apache.hadoop.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JournaledEditsCache}.
+ */
+public class TestJournaledEditsCache {
+  private static final int LAYOUT_VERSION =
+      NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION;
+
+  private static void storeEdits(JournaledEditsCache cache, int firstTxId,
+      int numTxns) throws Exception {
+    cache.storeEdits(createTxnData(firstTxId, numTxns), firstTxId,
+        firstTxId + numTxns - 1);
+  }
+
+  /**
+   * Check that the cache returns the given number of transactions from
+   * sinceTxId on, and that the data decodes to consecutive transactions
+   * covering them.
+   */
+  private static void assertEdits(JournaledEditsCache cache, long sinceTxId,
+      int maxTxns, int expectedCount) throws IOException {
+    JournaledEditsCache.Edits edits = cache.getEdits(sinceTxId, maxTxns);
+    assertEquals(expectedCount, edits.getTxnCount());
+    if (expectedCount == 0) {
+      return;
+    }
+    EditLogInputStream in = EditLogFileInputStream.fromByteString(
+        edits.getData(), HdfsServerConstants.INVALID_TXID,
+        HdfsServerConstants.INVALID_TXID, true);
+    try {
+      long prevTxId = HdfsServerConstants.INVALID_TXID;
+      long firstTxId = HdfsServerConstants.INVALID_TXID;
+      FSEditLogOp op;
+      while ((op = in.readOp()) != null) {
+        if (prevTxId == HdfsServerConstants.INVALID_TXID) {
+          firstTxId = op.getTransactionId();
+        } else {
+          assertEquals(prevTxId + 1, op.getTransactionId());
+        }
+        prevTxId = op.getTransactionId();
+      }
+      assertTrue(firstTxId <= sinceTxId);
+      assertTrue(prevTxId >= sinceTxId + expectedCount - 1);
+    } finally {
+      IOUtils.closeStream(in);
+    }
+  }
+
+  private static void assertCacheMiss(JournaledEditsCache cache,
+      long sinceTxId) {
+    try {
+      cache.getEdits(sinceTxId, 100);
+      fail("Expected a cache miss for txid " + sinceTxId);
+    } catch (JournaledEditsCache.CacheMissException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCacheSingleSegment() throws Exception {
+    JournaledEditsCache cache = new JournaledEditsCache(1024 * 1024);
+    assertCacheMiss(cache, 1);
+    cache.startSegment(1, LAYOUT_VERSION, 1);
+    assertEdits(cache, 1, 100, 0);
+
+    storeEdits(cache, 1, 5);
+    storeEdits(cache, 6, 5);
+    assertEdits(cache, 1, 100, 10);
+    assertEdits(cache, 3, 100, 8);
+    // whole batches are returned, but only maxTxns are counted
+    assertEdits(cache, 6, 2, 2);
+    assertEdits(cache, 11, 100, 0);
+  }
+
+  @Test
+  public void testEvictOldestBatches() throws Exception {
+    // room for exactly the last two batches
+    int capacity = createTxnData(6, 5).length + createTxnData(11, 5).length;
+    JournaledEditsCache cache = new JournaledEditsCache(capacity);
+    cache.startSegment(1, LAYOUT_VERSION, 1);
+    storeEdits(cache, 1, 5);
+    storeEdits(cache, 6, 5);
+    storeEdits(cache, 11, 5);
+
+    assertCacheMiss(cache, 5);
+    assertEdits(cache, 6, 100, 10);
+    assertEquals(capacity, cache.getCacheSize());
+  }
+
+  @Test
+  public void testBatchLargerThanCapacity() throws Exception {
+    JournaledEditsCache cache = new JournaledEditsCache(
+        createTxnData(1, 5).length);
+    cache.startSegment(1, LAYOUT_VERSION, 1);
+    storeEdits(cache, 1, 5);
+    storeEdits(cache, 6, 20);
+    assertCacheMiss(cache, 6);
+    assertEquals(0, cache.getCacheSize());
+    assertEdits(cache, 26, 100, 0);
+
+    // caching resumes after the oversized batch
+    storeEdits(cache, 26, 2);
+    assertEdits(cache, 26, 100, 2);
+  }
+
+  @Test
+  public void testInvalidation() throws Exception {
+    JournaledEditsCache cache = new JournaledEditsCache(1024 * 1024);
+    cache.startSegment(1, LAYOUT_VERSION, 1);
+    storeEdits(cache, 1, 5);
+    // a gap in the transactions clears the cache
+    storeEdits(cache, 10, 5);
+    assertCacheMiss(cache, 1);
+    assertCacheMiss(cache, 10);
+    assertEquals(0, cache.getCacheSize());
+
+    // a new segment starts caching again
+    cache.startSegment(15, LAYOUT_VERSION, 1);
+    storeEdits(cache, 15, 5);
+    assertEdits(cache, 15, 100, 5);
+    assertCacheMiss(cache, 14);
+
+    cache.invalidate();
+    assertCacheMiss(cache, 15);
+  }
+}
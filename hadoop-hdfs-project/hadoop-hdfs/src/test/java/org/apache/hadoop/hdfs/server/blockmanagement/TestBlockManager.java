@@ -1212,6 +1212,12 @@ public void run() {
       MetricsRecordBuilder rb = getMetrics("NameNodeActivity");
       long batched = MetricsAsserts.getLongCounter("BlockOpsBatched", rb);
       assertTrue(batched > 0);
+      // every write lock acquisition records its batch size and hold time
+      long batches =
+          MetricsAsserts.getLongCounter("BlockOpsBatchSizeNumOps", rb);
+      assertTrue(batches > 0);
+      assertEquals(batches,
+          MetricsAsserts.getLongCounter("BlockOpsBatchLockHoldTimeNumOps", rb));
     } finally {
       cluster.shutdown();
     }
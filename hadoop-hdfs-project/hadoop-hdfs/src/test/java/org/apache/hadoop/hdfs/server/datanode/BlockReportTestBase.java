@@ -105,7 +105,7 @@ public abstract class BlockReportTestBase {
 
   private static final Random rand = new Random(RAND_LIMIT);
 
-  private static Configuration conf;
+  protected static Configuration conf;
 
   static {
     initLoggers();
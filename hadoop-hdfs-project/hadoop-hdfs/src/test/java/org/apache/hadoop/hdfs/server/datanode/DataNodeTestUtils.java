@@ -119,6 +119,14 @@ public static FsDatasetSpi<?> getFSDataset(DataNode dn) {
     return dn.getFSDataset();
   }
 
+  /**
+   * @return the number of data transfer connections of the datanode which
+   *         are parked while waiting for their next operation.
+   */
+  public static int getNumIdleXceiverPeers(DataNode dn) {
+    return dn.xserver.getNumIdlePeers();
+  }
+
   /**
    * Fetch a copy of ReplicaInfo from a datanode by block id
    * @param dn datanode to retrieve a replicainfo object from
@@ -1451,5 +1451,11 @@ public ReplicaInfo moveBlockAcrossVolumes(ExtendedBlock block,
   public AutoCloseableLock acquireDatasetLock() {
     return datasetLock.acquire();
   }
+
+  @Override
+  public AutoCloseableLock acquireDatasetReadLock() {
+    // No RW lock implementation in simulated dataset currently.
+    return datasetLock.acquire();
+  }
 }
 
@@ -31,6 +31,7 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.permission.FsPermission;
 import org.apache.hadoop.hdfs.AppendTestUtil;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
 import org.apache.hadoop.hdfs.HdfsConfiguration;
 import org.apache.hadoop.hdfs.MiniDFSCluster;
@@ -61,8 +62,20 @@ public void testHSyncWithAppend() throws Exception {
     testHSyncOperation(true);
   }
 
-  private void testHSyncOperation(boolean testWithAppend) throws IOException {
+  /** Test that hsync syncs packets which the DataNode coalesces. */
+  @Test
+  public void testHSyncWithWriteCoalescing() throws Exception {
     Configuration conf = new HdfsConfiguration();
+    conf.setInt(DFSConfigKeys.DFS_DATANODE_WRITE_COALESCE_BYTES_KEY, 1 << 20);
+    testHSyncOperation(false, conf);
+  }
+
+  private void testHSyncOperation(boolean testWithAppend) throws IOException {
+    testHSyncOperation(testWithAppend, new HdfsConfiguration());
+  }
+
+  private void testHSyncOperation(boolean testWithAppend, Configuration conf)
+      throws IOException {
     MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf).build();
     final DistributedFileSystem fs = cluster.getFileSystem();
 
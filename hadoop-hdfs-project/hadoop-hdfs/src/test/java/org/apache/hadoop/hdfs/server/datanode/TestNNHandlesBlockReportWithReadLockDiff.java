@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.apache.hadoop.test.MetricsAsserts.getLongCounter;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.protocol.BlockListAsLongs;
+import org.apache.hadoop.hdfs.server.protocol.BlockReportContext;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeRegistration;
+import org.apache.hadoop.hdfs.server.protocol.DatanodeStorage;
+import org.apache.hadoop.hdfs.server.protocol.StorageBlockReport;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs all tests in BlockReportTestBase with the NameNode diffing full
+ * block reports under the read lock before applying them.
+ */
+public class TestNNHandlesBlockReportWithReadLockDiff
+    extends BlockReportTestBase {
+
+  /**
+   * Some tests reset the configuration and restart the cluster, so the
+   * option is set again before every start.
+   */
+  @Before
+  @Override
+  public void startUpCluster() throws IOException {
+    conf.setBoolean(
+        DFSConfigKeys.DFS_NAMENODE_FULL_BLOCK_REPORT_READ_LOCK_DIFF_KEY, true);
+    super.startUpCluster();
+  }
+
+  @AfterClass
+  public static void restoreConfiguration() {
+    resetConfiguration();
+  }
+
+  @Test(timeout=300000)
+  public void testReportIsDiffedUnderReadLock() throws Exception {
+    DFSTestUtil.createFile(cluster.getFileSystem(),
+        new Path("/testReportIsDiffedUnderReadLock.dat"), 4096, (short) 1, 0L);
+    DataNode dn = cluster.getDataNodes().get(0);
+    String poolId = cluster.getNamesystem().getBlockPoolId();
+    DatanodeRegistration dnR = dn.getDNRegistrationForBP(poolId);
+    Map<DatanodeStorage, BlockListAsLongs> perVolumeBlockLists =
+        dn.getFSDataset().getBlockReports(poolId);
+    StorageBlockReport[] reports =
+        new StorageBlockReport[perVolumeBlockLists.size()];
+    int i = 0;
+    for (Map.Entry<DatanodeStorage, BlockListAsLongs> kvPair :
+        perVolumeBlockLists.entrySet()) {
+      reports[i++] = new StorageBlockReport(kvPair.getKey(), kvPair.getValue());
+    }
+
+    // The first report of a storage is never diffed, so make sure every
+    // storage has reported once before counting.
+    sendBlockReports(dnR, poolId, reports);
+    long diffs = getLongCounter("StorageBlockReportDiffs",
+        getMetrics("NameNodeActivity"));
+    sendBlockReports(dnR, poolId, reports);
+    assertEquals(diffs + reports.length, getLongCounter(
+        "StorageBlockReportDiffs", getMetrics("NameNodeActivity")));
+  }
+
+  @Override
+  protected void sendBlockReports(DatanodeRegistration dnR, String poolId,
+      StorageBlockReport[] reports) throws IOException {
+    int i = 0;
+    for (StorageBlockReport report : reports) {
+      LOG.info("Sending block report for storage " +
+          report.getStorage().getStorageID());
+      StorageBlockReport[] singletonReport = { report };
+      cluster.getNameNodeRpc().blockReport(dnR, poolId, singletonReport,
+          new BlockReportContext(reports.length, i, System.nanoTime(), 0L,
+              true));
+      i++;
+    }
+  }
+}
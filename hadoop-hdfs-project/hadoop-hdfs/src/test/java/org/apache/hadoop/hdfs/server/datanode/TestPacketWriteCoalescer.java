@@ -0,0 +1,134 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.datanode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.util.DataChecksum;
+import org.junit.Test;
+
+/** Test the batching rules and flushers of {@link PacketWriteCoalescer}. */
+public class TestPacketWriteCoalescer {
+  private static final int BYTES_PER_CHECKSUM = 512;
+  private final DataChecksum checksum = DataChecksum.newDataChecksum(
+      DataChecksum.Type.CRC32C, BYTES_PER_CHECKSUM);
+
+  private ByteBuffer checksumsOf(ByteBuffer data) {
+    ByteBuffer sums = ByteBuffer.allocate(
+        checksum.getChecksumSize(data.remaining()));
+    checksum.calculateChunkedSums(data, sums);
+    return sums;
+  }
+
+  @Test
+  public void testCapacityIsRoundedToChunks() {
+    PacketWriteCoalescer coalescer = new PacketWriteCoalescer(
+        BYTES_PER_CHECKSUM * 4 + 100, checksum);
+    assertEquals(BYTES_PER_CHECKSUM * 4, coalescer.getCapacity());
+    coalescer = new PacketWriteCoalescer(1, checksum);
+    assertEquals(BYTES_PER_CHECKSUM, coalescer.getCapacity());
+  }
+
+  @Test
+  public void testAppendContiguousPackets() {
+    PacketWriteCoalescer coalescer = new PacketWriteCoalescer(
+        BYTES_PER_CHECKSUM * 4, checksum);
+    assertTrue(coalescer.isEmpty());
+    // a batch must start at a chunk boundary
+    assertFalse(coalescer.canAppend(100, BYTES_PER_CHECKSUM));
+    assertTrue(coalescer.canAppend(BYTES_PER_CHECKSUM, BYTES_PER_CHECKSUM));
+
+    ByteBuffer data = ByteBuffer.allocate(BYTES_PER_CHECKSUM * 2);
+    Arrays.fill(data.array(), (byte) 1);
+    coalescer.append(data, checksumsOf(data), BYTES_PER_CHECKSUM);
+    assertEquals(BYTES_PER_CHECKSUM * 2, coalescer.getDataLength());
+    assertEquals(BYTES_PER_CHECKSUM * 3, coalescer.getEndOffset());
+    assertFalse(coalescer.isFull());
+
+    // only a packet continuing the batch can be added
+    assertFalse(coalescer.canAppend(BYTES_PER_CHECKSUM * 2, 100));
+    assertTrue(coalescer.canAppend(BYTES_PER_CHECKSUM * 3, 100));
+    assertFalse(coalescer.canAppend(BYTES_PER_CHECKSUM * 3,
+        BYTES_PER_CHECKSUM * 2 + 1));
+
+    // a packet ending within a chunk completes the batch
+    ByteBuffer tail = ByteBuffer.allocate(100);
+    Arrays.fill(tail.array(), (byte) 2);
+    ByteBuffer tailSums = checksumsOf(tail);
+    coalescer.append(tail, tailSums, BYTES_PER_CHECKSUM * 3);
+    assertTrue(coalescer.isFull());
+    assertFalse(coalescer.canAppend(BYTES_PER_CHECKSUM * 3 + 100, 100));
+    assertArrayEquals(tailSums.array(), coalescer.getLastChecksum());
+
+    long generation = coalescer.getGeneration();
+    coalescer.clear();
+    assertTrue(coalescer.isEmpty());
+    assertEquals(generation + 1, coalescer.getGeneration());
+  }
+
+  @Test
+  public void testCheckFlushError() throws IOException {
+    PacketWriteCoalescer coalescer = new PacketWriteCoalescer(
+        BYTES_PER_CHECKSUM, checksum);
+    coalescer.checkFlushError();
+    IOException cause = new IOException("Disk failed");
+    coalescer.setFlushError(cause);
+    try {
+      coalescer.checkFlushError();
+      fail("The failure of the flusher should be rethrown");
+    } catch (IOException e) {
+      assertEquals(cause, e.getCause());
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testSlowVolumeDoesNotDelayOtherFlushes() throws Exception {
+    final CountDownLatch slowVolume = new CountDownLatch(1);
+    final CountDownLatch flushed = new CountDownLatch(1);
+    try {
+      PacketWriteCoalescer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            slowVolume.await();
+          } catch (InterruptedException ignored) {
+          }
+        }
+      }, 0, "DS-slow");
+      PacketWriteCoalescer.schedule(new Runnable() {
+        @Override
+        public void run() {
+          flushed.countDown();
+        }
+      }, 10, "DS-fast");
+      assertTrue(flushed.await(30, TimeUnit.SECONDS));
+    } finally {
+      slowVolume.countDown();
+    }
+  }
+}
@@ -24,6 +24,7 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.StorageType;
 import org.apache.hadoop.hdfs.DFSClientAdapter;
 import org.apache.hadoop.hdfs.DFSTestUtil;
 import org.apache.hadoop.hdfs.DistributedFileSystem;
@@ -141,4 +142,63 @@ public void testTransferRbw() throws Exception {
       cluster.shutdown();
     }
   }
+
+  /**
+   * Test transferring a finalized replica for pipeline recovery. The replica
+   * is looked up under the dataset read lock, which must not take the write
+   * lock on the way.
+   */
+  @Test(timeout = 120000)
+  public void testTransferFinalizedForPipelineRecovery() throws Exception {
+    final HdfsConfiguration conf = new HdfsConfiguration();
+    final MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf
+        ).numDataNodes(REPLICATION).build();
+    try {
+      cluster.waitActive();
+      final DistributedFileSystem fs = cluster.getFileSystem();
+      final Path p = new Path("/finalized");
+      final int size = (1 << 16) + RAN.nextInt(1 << 16);
+      DFSTestUtil.createFile(fs, p, size, REPLICATION, RAN.nextLong());
+
+      final String bpid = cluster.getNamesystem().getBlockPoolId();
+      final long blockId = DFSTestUtil.getFirstBlock(fs, p).getBlockId();
+      final DataNode oldnode = cluster.getDataNodes().get(0);
+      final ReplicaInfo oldreplica = FsDatasetTestUtil.fetchReplicaInfo(
+          oldnode.getFSDataset(), bpid, blockId);
+      LOG.info("oldreplica = " + oldreplica);
+      Assert.assertEquals(ReplicaState.FINALIZED, oldreplica.getState());
+
+      cluster.startDataNodes(conf, 1, true, null, null);
+      cluster.waitActive();
+      final DataNode newnode = cluster.getDataNodes().get(REPLICATION);
+      DatanodeInfo newnodeinfo = null;
+      for (DatanodeInfo info : cluster.getNameNodeRpc().getDatanodeReport(
+          DatanodeReportType.LIVE)) {
+        if (info.equals(newnode.getDNRegistrationForBP(bpid))) {
+          newnodeinfo = info;
+        }
+      }
+      Assert.assertNotNull(newnodeinfo);
+
+      // The client's block may have an older length, the stored one is sent
+      final ExtendedBlock b = new ExtendedBlock(bpid, blockId, 0,
+          oldreplica.getGenerationStamp());
+      oldnode.transferReplicaForPipelineRecovery(b,
+          new DatanodeInfo[] {newnodeinfo},
+          new StorageType[] {StorageType.DEFAULT}, new String[0],
+          DFSClientAdapter.getDFSClient(fs).getClientName());
+      Assert.assertEquals(size, b.getNumBytes());
+
+      final ReplicaInfo newreplica = FsDatasetTestUtil.fetchReplicaInfo(
+          newnode.getFSDataset(), bpid, blockId);
+      LOG.info("newreplica = " + newreplica);
+      Assert.assertNotNull(newreplica);
+      Assert.assertEquals(ReplicaState.FINALIZED, newreplica.getState());
+      Assert.assertEquals(oldreplica.getGenerationStamp(),
+          newreplica.getGenerationStamp());
+      Assert.assertEquals(size, newreplica.getNumBytes());
+    } finally {
+      cluster.shutdown();
+    }
+  }
 }
@@ -453,4 +453,9 @@ public ReplicaInfo moveBlockAcrossVolumes(ExtendedBlock block,
   public AutoCloseableLock acquireDatasetLock() {
     return null;
   }
+
+  @Override
+  public AutoCloseableLock acquireDatasetReadLock() {
+    return null;
+  }
 }
@@ -56,6 +56,7 @@
 import org.apache.hadoop.hdfs.server.protocol.NamespaceInfo;
 import org.apache.hadoop.io.MultipleIOException;
 import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.util.AutoCloseableLock;
 import org.apache.hadoop.util.FakeTimer;
 import org.apache.hadoop.util.StringUtils;
 import org.junit.Assert;
@@ -225,6 +226,41 @@ public void testAddVolumes() throws IOException {
     assertTrue(actualVolumes.containsAll(expectedVolumes));
   }
 
+  /**
+   * Start a thread which looks up a replica, counting down the returned latch
+   * once the lookup has completed.
+   */
+  private CountDownLatch lookUpReplicaInThread(final String bpid) {
+    final CountDownLatch done = new CountDownLatch(1);
+    Thread t = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        dataset.getReplicaString(bpid, 0);
+        done.countDown();
+      }
+    });
+    t.setDaemon(true);
+    t.start();
+    return done;
+  }
+
+  @Test(timeout = 30000)
+  public void testDatasetReadLockIsShared() throws Exception {
+    try (AutoCloseableLock lock = dataset.acquireDatasetReadLock()) {
+      // Lookups take the read lock, so they proceed alongside other readers.
+      CountDownLatch done = lookUpReplicaInThread(BLOCK_POOL_IDS[0]);
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    CountDownLatch done;
+    try (AutoCloseableLock lock = dataset.acquireDatasetLock()) {
+      // ... but wait for the write lock to be released.
+      done = lookUpReplicaInThread(BLOCK_POOL_IDS[0]);
+      assertFalse(done.await(500, TimeUnit.MILLISECONDS));
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+  }
+
   @Test
   public void testAddVolumeWithSameStorageUuid() throws IOException {
     HdfsConfiguration conf = new HdfsConfiguration();
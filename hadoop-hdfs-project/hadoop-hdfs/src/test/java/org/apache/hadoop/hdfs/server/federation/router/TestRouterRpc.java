@@ -110,13 +110,23 @@ public class TestRouterRpc {
 
   @BeforeClass
   public static void globalSetUp() throws Exception {
+    // Start routers with only an RPC service
+    startCluster((new RouterConfigBuilder()).rpc().build());
+  }
+
+  /**
+   * Start the federated cluster.
+   *
+   * @param routerConf Configuration overrides for the Routers.
+   */
+  protected static void startCluster(Configuration routerConf)
+      throws Exception {
     cluster = new RouterDFSCluster(false, 2);
 
     // Start NNs and DNs and wait until ready
     cluster.startCluster();
 
-    // Start routers with only an RPC service
-    cluster.addRouterOverrides((new RouterConfigBuilder()).rpc().build());
+    cluster.addRouterOverrides(routerConf);
     cluster.startRouters();
 
     // Register and verify all NNs with all routers
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.federation.router;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.server.federation.RouterConfigBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * The RPC interface of the {@link Router} when the handlers hand the
+ * requests over to async handlers.
+ */
+public class TestRouterRpcAsyncHandlers extends TestRouterRpc {
+
+  @BeforeClass
+  public static void globalSetUp() throws Exception {
+    Configuration routerConf = new RouterConfigBuilder().rpc().build();
+    routerConf.setInt(DFSConfigKeys.DFS_ROUTER_ASYNC_HANDLER_COUNT_KEY, 20);
+    startCluster(routerConf);
+  }
+
+  @Test
+  public void testAsyncHandlersStarted() {
+    Router router = getRouterContext().getRouter();
+    assertNotNull(router.getRpcServer().getServer()
+        .getAsyncHandlerExecutor());
+  }
+}
@@ -19,6 +19,7 @@
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doNothing;
@@ -107,8 +108,20 @@ private static Configuration getConf() {
 
   @Test
   public void testDisplayRecentEditLogOpCodes() throws IOException {
-    // start a cluster
+    displayRecentEditLogOpCodes(getConf());
+  }
+
+  @Test
+  public void testDisplayRecentEditLogOpCodesWithReadAhead()
+      throws IOException {
     Configuration conf = getConf();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_EDITS_READ_AHEAD_OPS_KEY, 4);
+    displayRecentEditLogOpCodes(conf);
+  }
+
+  private void displayRecentEditLogOpCodes(Configuration conf)
+      throws IOException {
+    // start a cluster
     MiniDFSCluster cluster = null;
     FileSystem fileSys = null;
     cluster = new MiniDFSCluster.Builder(conf).numDataNodes(NUM_DATA_NODES)
@@ -150,6 +163,46 @@ public void testDisplayRecentEditLogOpCodes() throws IOException {
     }
   }
   
+  /**
+   * Test that edits decoded ahead of the op being applied are replayed in
+   * order, leaving the same namespace as when they were written.
+   */
+  @Test
+  public void testReplayWithReadAhead() throws IOException {
+    Configuration conf = getConf();
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_EDITS_READ_AHEAD_OPS_KEY, 4);
+    MiniDFSCluster cluster = new MiniDFSCluster.Builder(conf)
+        .numDataNodes(NUM_DATA_NODES).enableManagedDfsDirsRedundancy(false)
+        .build();
+    try {
+      cluster.waitActive();
+      DistributedFileSystem fs = cluster.getFileSystem();
+      for (int i = 0; i < 20; i++) {
+        Path dir = new Path("/readahead/dir" + i);
+        fs.mkdirs(dir);
+        DFSTestUtil.createFile(fs, new Path(dir, "file"), 0, (short) 1, 0L);
+        fs.setPermission(dir, new FsPermission((short) 0700));
+        if (i % 2 == 0) {
+          fs.rename(new Path(dir, "file"), new Path(dir, "renamed"));
+        } else {
+          fs.delete(new Path(dir, "file"), false);
+        }
+      }
+
+      cluster.restartNameNode();
+      cluster.waitActive();
+      fs = cluster.getFileSystem();
+      for (int i = 0; i < 20; i++) {
+        Path dir = new Path("/readahead/dir" + i);
+        assertEquals(0700, fs.getFileStatus(dir).getPermission().toShort());
+        assertEquals(i % 2 == 0, fs.exists(new Path(dir, "renamed")));
+        assertFalse(fs.exists(new Path(dir, "file")));
+      }
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   /**
    * Test that, if the NN restarts with a new minimum replication,
    * any files created with the old replication count will get
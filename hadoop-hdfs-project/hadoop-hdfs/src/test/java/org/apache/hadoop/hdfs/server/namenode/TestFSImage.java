@@ -32,6 +32,7 @@
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.EnumSet;
 
 import org.apache.hadoop.hdfs.StripedFileTestUtil;
@@ -69,6 +70,8 @@
 import org.apache.hadoop.hdfs.server.common.HdfsServerConstants.BlockUCState;
 import org.apache.hadoop.hdfs.server.namenode.LeaseManager.Lease;
 import org.apache.hadoop.hdfs.server.namenode.NNStorage.NameNodeDirType;
+import org.apache.hadoop.hdfs.server.namenode.FSImageFormatProtobuf.SectionName;
+import org.apache.hadoop.hdfs.server.namenode.FsImageProto.FileSummary;
 import org.apache.hadoop.hdfs.server.namenode.FsImageProto.INodeSection;
 import org.apache.hadoop.hdfs.util.MD5FileUtils;
 import org.apache.hadoop.test.GenericTestUtils;
@@ -102,6 +105,92 @@ public void testCompression() throws IOException {
     setCompressCodec(conf, "org.apache.hadoop.io.compress.Lz4Codec");
   }
 
+  @Test
+  public void testParallelSaveAndLoad() throws IOException {
+    testParallelSaveAndLoadHelper(new Configuration());
+  }
+
+  @Test
+  public void testParallelSaveAndLoadWithCompression() throws IOException {
+    Configuration conf = new Configuration();
+    conf.setBoolean(DFSConfigKeys.DFS_IMAGE_COMPRESS_KEY, true);
+    conf.set(DFSConfigKeys.DFS_IMAGE_COMPRESSION_CODEC_KEY,
+        "org.apache.hadoop.io.compress.GzipCodec");
+    testParallelSaveAndLoadHelper(conf);
+  }
+
+  private void testParallelSaveAndLoadHelper(Configuration conf)
+      throws IOException {
+    conf.setBoolean(DFSConfigKeys.DFS_IMAGE_PARALLEL_LOAD_KEY, true);
+    conf.setInt(DFSConfigKeys.DFS_IMAGE_PARALLEL_INODE_THRESHOLD_KEY, 0);
+    conf.setInt(DFSConfigKeys.DFS_IMAGE_PARALLEL_TARGET_SECTIONS_KEY, 3);
+    conf.setInt(DFSConfigKeys.DFS_IMAGE_PARALLEL_THREADS_KEY, 2);
+    MiniDFSCluster cluster = null;
+    try {
+      cluster = new MiniDFSCluster.Builder(conf).build();
+      cluster.waitActive();
+      DistributedFileSystem fs = cluster.getFileSystem();
+      for (int i = 0; i < 10; i++) {
+        Path dir = new Path("/parallel/dir" + i);
+        for (int j = 0; j < 5; j++) {
+          DFSTestUtil.createFile(fs, new Path(dir, "f" + j), 1, (short) 1, 0L);
+        }
+      }
+      Path ucFile = new Path("/parallel/uc");
+      FSDataOutputStream out = fs.create(ucFile);
+      out.writeBytes("hello");
+      ((DFSOutputStream) out.getWrappedStream()).hsync(EnumSet
+          .of(SyncFlag.UPDATE_LENGTH));
+
+      fs.setSafeMode(SafeModeAction.SAFEMODE_ENTER);
+      fs.saveNamespace();
+      fs.setSafeMode(SafeModeAction.SAFEMODE_LEAVE);
+
+      File imageFile = FSImageTestUtil.findLatestImageFile(FSImageTestUtil
+          .getFSImage(cluster.getNameNode()).getStorage().getStorageDir(0));
+      int inodeSubSections = 0;
+      int dirSubSections = 0;
+      RandomAccessFile raFile = new RandomAccessFile(imageFile, "r");
+      try {
+        for (FileSummary.Section section : FSImageUtil.loadSummary(raFile)
+            .getSectionsList()) {
+          if (section.getName().equals(SectionName.INODE_SUB.name())) {
+            inodeSubSections++;
+          } else if (section.getName().equals(
+              SectionName.INODE_DIR_SUB.name())) {
+            dirSubSections++;
+          }
+        }
+      } finally {
+        raFile.close();
+      }
+      assertTrue(inodeSubSections >= 3);
+      assertTrue(dirSubSections >= 3);
+
+      long numInodes = cluster.getNamesystem().dir.getInodeMapSize();
+      cluster.restartNameNode();
+      cluster.waitActive();
+      fs = cluster.getFileSystem();
+      FSNamesystem fsn = cluster.getNamesystem();
+      assertEquals(numInodes, fsn.dir.getInodeMapSize());
+      for (int i = 0; i < 10; i++) {
+        for (int j = 0; j < 5; j++) {
+          Path file = new Path("/parallel/dir" + i + "/f" + j);
+          assertEquals(1, fs.getFileStatus(file).getLen());
+          assertEquals(1, fsn.dir.getINode(file.toString()).asFile()
+              .getBlocks().length);
+        }
+      }
+      INodeFile ucNode = fsn.dir.getINode4Write(ucFile.toString()).asFile();
+      assertTrue(ucNode.isUnderConstruction());
+      assertNotNull(fsn.leaseManager.getLease(ucNode));
+    } finally {
+      if (cluster != null) {
+        cluster.shutdown();
+      }
+    }
+  }
+
   private void setCompressCodec(Configuration conf, String compressCodec)
       throws IOException {
     conf.set(DFSConfigKeys.DFS_IMAGE_COMPRESSION_CODEC_KEY, compressCodec);
@@ -20,7 +20,12 @@
 
 import com.google.common.base.Supplier;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DFSTestUtil;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.util.RwLockMode;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
 import org.apache.hadoop.metrics2.lib.MetricsRegistry;
 import org.apache.hadoop.metrics2.lib.MutableRatesWithAggregation;
@@ -34,6 +39,7 @@
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
@@ -42,6 +48,7 @@
 
 import static org.junit.Assert.*;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_FAIR_KEY;
+import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY;
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
 import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
 
@@ -100,6 +107,109 @@ public void testFSNamesystemLockCompatibility() {
     assertEquals(0, rwLock.getWriteHoldCount());
   }
 
+  @Test(timeout = 30000)
+  public void testSeparateBlockManagerLock() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setBoolean(DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY, true);
+    final FSNamesystemLock rwLock = new FSNamesystemLock(conf, null);
+    ExecutorService helper = Executors.newSingleThreadExecutor();
+    try {
+      rwLock.writeLock(RwLockMode.BM);
+      assertTrue(rwLock.isWriteLockedByCurrentThread(RwLockMode.BM));
+      assertFalse(rwLock.isWriteLockedByCurrentThread(RwLockMode.GLOBAL));
+      assertFalse(rwLock.isWriteLockedByCurrentThread());
+      // namespace only operations do not wait for block management
+      Future<?> fsWriter = helper.submit(new Runnable() {
+        @Override
+        public void run() {
+          rwLock.writeLock(RwLockMode.FS);
+          rwLock.writeUnlock(RwLockMode.FS, "test");
+        }
+      });
+      fsWriter.get(10, TimeUnit.SECONDS);
+      // but global operations do
+      Future<?> globalReader = helper.submit(new Runnable() {
+        @Override
+        public void run() {
+          rwLock.readLock(RwLockMode.GLOBAL);
+          rwLock.readUnlock(RwLockMode.GLOBAL, "test");
+        }
+      });
+      try {
+        globalReader.get(500, TimeUnit.MILLISECONDS);
+        fail("Global lock should wait for the block management lock");
+      } catch (TimeoutException e) {
+        // expected
+      }
+      rwLock.writeUnlock(RwLockMode.BM, "test");
+      globalReader.get(10, TimeUnit.SECONDS);
+
+      rwLock.readLock();
+      assertTrue(rwLock.isReadLockedByCurrentThread(RwLockMode.GLOBAL));
+      assertTrue(rwLock.isReadLockedByCurrentThread(RwLockMode.BM));
+      rwLock.readUnlock();
+      assertFalse(rwLock.isReadLockedByCurrentThread(RwLockMode.FS));
+      assertFalse(rwLock.isReadLockedByCurrentThread(RwLockMode.BM));
+    } finally {
+      helper.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testBlockManagerLockNotSeparateByDefault() {
+    FSNamesystemLock rwLock = new FSNamesystemLock(new Configuration(), null);
+    rwLock.writeLock(RwLockMode.BM);
+    assertTrue(rwLock.isWriteLockedByCurrentThread());
+    assertTrue(rwLock.isWriteLockedByCurrentThread(RwLockMode.FS));
+    rwLock.writeUnlock(RwLockMode.BM, "test");
+    assertFalse(rwLock.isWriteLockedByCurrentThread());
+  }
+
+  @Test(timeout = 120000)
+  public void testBlockReportsUnderSeparateBlockManagerLock()
+      throws Exception {
+    Configuration conf = new Configuration();
+    conf.setBoolean(DFS_NAMENODE_FSLOCK_SEPARATE_BM_LOCK_KEY, true);
+    conf.setInt(DFSConfigKeys.DFS_NAMENODE_SAFEMODE_EXTENSION_KEY, 0);
+    MiniDFSCluster cluster =
+        new MiniDFSCluster.Builder(conf).numDataNodes(3).build();
+    try {
+      cluster.waitActive();
+      FSNamesystem fsn = cluster.getNamesystem();
+      fsn.writeLock(RwLockMode.BM);
+      try {
+        assertTrue(fsn.hasWriteLock(RwLockMode.BM));
+        assertTrue(fsn.hasReadLock(RwLockMode.BM));
+        assertFalse(fsn.hasWriteLock());
+        assertFalse(fsn.hasReadLock());
+      } finally {
+        fsn.writeUnlock(RwLockMode.BM, "test");
+      }
+
+      // the file is closed once its blocks are complete, which needs the
+      // incremental block reports processed under the block management lock
+      DistributedFileSystem fs = cluster.getFileSystem();
+      Path file = new Path("/testBlockReportsUnderSeparateBlockManagerLock");
+      DFSTestUtil.createFile(fs, file, 1024, (short) 3, 0L);
+      DFSTestUtil.waitReplication(fs, file, (short) 3);
+      INodeFile inode = fsn.getFSDirectory().getINode(file.toString())
+          .asFile();
+      assertTrue(inode.getLastBlock().isComplete());
+
+      // the full block reports after a restart let the NameNode leave safe
+      // mode, through the monitor as the reports hold the BM lock only
+      cluster.restartNameNode(true);
+      cluster.waitActive();
+      fsn = cluster.getNamesystem();
+      assertFalse(fsn.isInSafeMode());
+      assertEquals(0, fsn.getMissingBlocksCount());
+      assertEquals(1024, DFSTestUtil.readFileBuffer(
+          cluster.getFileSystem(), file).length);
+    } finally {
+      cluster.shutdown();
+    }
+  }
+
   @Test
   public void testFSLockGetWaiterCount() throws InterruptedException {
     final int threadCount = 3;
@@ -69,6 +69,7 @@
 import org.apache.hadoop.hdfs.server.blockmanagement.BlockManager;
 import org.apache.hadoop.hdfs.server.namenode.snapshot.Snapshot;
 import org.apache.hadoop.hdfs.server.protocol.NamenodeProtocols;
+import org.apache.hadoop.hdfs.util.ReadOnlyList;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.util.Time;
 import org.junit.Assert;
@@ -1225,6 +1226,71 @@ public void testXAttrFeature() {
     assertEquals(f1, null);
   }
 
+  /**
+   * Test {@link INodeMap#get(long)} for directories, files, removed and
+   * unknown ids.
+   */
+  @Test
+  public void testINodeMapGetById() {
+    INodeDirectory root = new INodeDirectory(
+        HdfsConstants.GRANDFATHER_INODE_ID + 1, INodeDirectory.ROOT_NAME,
+        perm, 0L);
+    INodeMap inodeMap = INodeMap.newInstance(root);
+    INodeFile[] files = new INodeFile[10];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = createINodeFile(HdfsConstants.GRANDFATHER_INODE_ID + 2 + i);
+      inodeMap.put(files[i]);
+    }
+    assertEquals(files.length + 1, inodeMap.size());
+
+    assertSame(root, inodeMap.get(root.getId()));
+    for (INodeFile file : files) {
+      assertSame(file, inodeMap.get(file.getId()));
+    }
+    assertEquals(null, inodeMap.get(HdfsConstants.GRANDFATHER_INODE_ID));
+    assertEquals(null, inodeMap.get(Long.MAX_VALUE));
+
+    inodeMap.remove(files[0]);
+    assertEquals(null, inodeMap.get(files[0].getId()));
+    assertSame(files[1], inodeMap.get(files[1].getId()));
+  }
+
+  /**
+   * Test {@link INodeDirectory#ensureChildrenCapacity(int)} on a directory
+   * without children and on one that already has children.
+   */
+  @Test
+  public void testEnsureChildrenCapacity() {
+    INodeDirectory dir = new INodeDirectory(HdfsConstants.GRANDFATHER_INODE_ID,
+        DFSUtil.string2Bytes("d"), perm, 0L);
+    assertEquals(0, dir.getChildrenList(Snapshot.CURRENT_STATE_ID).size());
+
+    dir.ensureChildrenCapacity(3);
+    assertEquals(0, dir.getChildrenList(Snapshot.CURRENT_STATE_ID).size());
+    assertEquals(null, dir.getChild(DFSUtil.string2Bytes("f1"),
+        Snapshot.CURRENT_STATE_ID));
+
+    INodeFile[] files = createINodeFiles(5, "f");
+    // Add in reverse order, the children must still be kept sorted.
+    for (int i = 2; i >= 0; i--) {
+      assertTrue(dir.addChild(files[i]));
+    }
+    dir.ensureChildrenCapacity(files.length);
+    for (int i = 3; i < files.length; i++) {
+      assertTrue(dir.addChild(files[i]));
+    }
+    assertFalse(dir.addChild(files[0]));
+
+    ReadOnlyList<INode> children =
+        dir.getChildrenList(Snapshot.CURRENT_STATE_ID);
+    assertEquals(files.length, children.size());
+    for (int i = 0; i < files.length; i++) {
+      assertSame(files[i], children.get(i));
+      assertSame(files[i], dir.getChild(files[i].getLocalNameBytes(),
+          Snapshot.CURRENT_STATE_ID));
+    }
+  }
+
   @Test
   public void testClearBlocks() {
     INodeFile toBeCleared = createINodeFiles(1, "toBeCleared")[0];
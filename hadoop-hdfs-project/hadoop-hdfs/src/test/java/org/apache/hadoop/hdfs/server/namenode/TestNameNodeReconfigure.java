@@ -42,6 +42,8 @@
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_NAMENODE_HEARTBEAT_RECHECK_INTERVAL_DEFAULT;
 import static org.apache.hadoop.hdfs.DFSConfigKeys.DFS_BLOCK_INVALIDATE_LIMIT_KEY;
 import static org.apache.hadoop.fs.CommonConfigurationKeys.IPC_BACKOFF_ENABLE_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT;
 
 public class TestNameNodeReconfigure {
 
@@ -140,6 +142,31 @@ void verifyReconfigureIPCBackoff(final NameNode nameNode,
         .getBoolean(property, IPC_BACKOFF_ENABLE_DEFAULT));
   }
 
+  /**
+   * Test to reconfigure enable/disable timing the phases of the RPC calls.
+   */
+  @Test
+  public void testReconfigureRpcPhaseTiming()
+      throws ReconfigurationException {
+    final NameNode nameNode = cluster.getNameNode();
+    NameNodeRpcServer nnrs = (NameNodeRpcServer) nameNode.getRpcServer();
+    assertFalse(nnrs.getClientRpcServer().isPhaseTimingEnabled());
+
+    nameNode.reconfigureProperty(RPC_METRICS_PHASE_TIMING_ENABLE, "true");
+    assertTrue(nnrs.getClientRpcServer().isPhaseTimingEnabled());
+    assertTrue(nnrs.getServiceRpcServer() == null
+        || nnrs.getServiceRpcServer().isPhaseTimingEnabled());
+    assertEquals("true",
+        nameNode.getConf().get(RPC_METRICS_PHASE_TIMING_ENABLE));
+
+    // revert to default
+    nameNode.reconfigureProperty(RPC_METRICS_PHASE_TIMING_ENABLE, null);
+    assertFalse(nnrs.getClientRpcServer().isPhaseTimingEnabled());
+    assertFalse(nameNode.getConf().getBoolean(
+        RPC_METRICS_PHASE_TIMING_ENABLE,
+        RPC_METRICS_PHASE_TIMING_ENABLE_DEFAULT));
+  }
+
   /**
    * Test to reconfigure interval of heart beat check and re-check.
    */
@@ -95,11 +95,20 @@ private static Configuration getConf() {
   }
 
   static void runEditLogTest(EditLogTestSetup elts) throws IOException {
+    runEditLogTest(elts, 0);
+  }
+
+  /**
+   * Run an edit log test, reading the log through a
+   * {@link ReadAheadEditLogInputStream} if readAheadOps is positive.
+   */
+  static void runEditLogTest(EditLogTestSetup elts, int readAheadOps)
+      throws IOException {
     final File TEST_LOG_NAME = new File(TEST_DIR, "test_edit_log");
     final OpInstanceCache cache = new OpInstanceCache();
     
     EditLogFileOutputStream elfos = null;
-    EditLogFileInputStream elfis = null;
+    EditLogInputStream elfis = null;
     try {
       elfos = new EditLogFileOutputStream(getConf(), TEST_LOG_NAME, 0);
       elfos.create(NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
@@ -111,6 +120,10 @@ static void runEditLogTest(EditLogTestSetup elts) throws IOException {
       elfos = null;
       elfis = new EditLogFileInputStream(TEST_LOG_NAME);
       elfis.setMaxOpSize(elts.getMaxOpSize());
+      if (readAheadOps > 0) {
+        assertTrue(elfis.disableOpCache());
+        elfis = new ReadAheadEditLogInputStream(elfis, readAheadOps);
+      }
       
       // reading through normally will get you an exception
       Set<Long> validTxIds = elts.getValidTxIds();
@@ -398,6 +411,54 @@ public void testSkipEdit() throws IOException {
     runEditLogTest(new EltsTestGarbageInEditLog());
   }
 
+  /** Test that garbage in the middle of the edit log can be skipped when the
+   * ops are read ahead of the reader. */
+  @Test(timeout=180000)
+  public void testSkipEditWithReadAhead() throws IOException {
+    runEditLogTest(new EltsTestGarbageInEditLog(), 1);
+    runEditLogTest(new EltsTestGarbageInEditLog(), 4);
+  }
+
+  /** Test that ops decoded ahead of the reader are returned before the
+   * underlying stream resyncs past the garbage in the edit log. */
+  @Test(timeout=180000)
+  public void testResyncAfterReadAhead() throws IOException {
+    final File logFile = new File(TEST_DIR, "test_edit_log_read_ahead");
+    EltsTestGarbageInEditLog elts = new EltsTestGarbageInEditLog();
+    EditLogFileOutputStream elfos = null;
+    EditLogInputStream elis = null;
+    try {
+      elfos = new EditLogFileOutputStream(getConf(), logFile, 0);
+      elfos.create(NameNodeLayoutVersion.CURRENT_LAYOUT_VERSION);
+      elts.addTransactionsToLog(elfos, new OpInstanceCache());
+      elfos.setReadyToFlush();
+      elfos.flushAndSync(true);
+      elfos.close();
+      elfos = null;
+
+      EditLogFileInputStream elfis = new EditLogFileInputStream(logFile);
+      assertTrue(elfis.disableOpCache());
+      elis = new ReadAheadEditLogInputStream(elfis, 8);
+      assertEquals(1L, elis.readOp().getTransactionId());
+
+      // Resync while the ops up to the garbage may still be queued.
+      Set<Long> validTxIds = elts.getValidTxIds();
+      validTxIds.remove(1L);
+      long prevTxId = 1;
+      FSEditLogOp op;
+      while ((op = elis.nextValidOp()) != null) {
+        assertTrue("txid " + op.getTransactionId() + " after " + prevTxId,
+            op.getTransactionId() > prevTxId);
+        assertTrue(validTxIds.remove(op.getTransactionId()));
+        prevTxId = op.getTransactionId();
+      }
+      assertTrue(validTxIds.isEmpty());
+      assertEquals(null, elis.readOp());
+    } finally {
+      IOUtils.cleanup(LOG, elfos, elis);
+    }
+  }
+
   /**
    * An algorithm for corrupting an edit log.
    */
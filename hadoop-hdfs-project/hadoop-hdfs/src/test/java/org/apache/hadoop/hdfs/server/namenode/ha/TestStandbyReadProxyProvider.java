@@ -0,0 +1,136 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hdfs.server.namenode.ha;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DFSConfigKeys;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.apache.hadoop.hdfs.client.HdfsClientConfigKeys;
+import org.apache.hadoop.hdfs.qjournal.MiniQJMHACluster;
+import org.apache.hadoop.hdfs.server.namenode.FSNamesystem;
+import org.apache.hadoop.hdfs.server.namenode.NameNode;
+import org.apache.hadoop.test.GenericTestUtils;
+import org.apache.hadoop.test.GenericTestUtils.LogCapturer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+/**
+ * Tests reading from the standby NameNode through
+ * {@link StandbyReadProxyProvider}.
+ */
+public class TestStandbyReadProxyProvider {
+  private MiniQJMHACluster qjmhaCluster;
+  private MiniDFSCluster cluster;
+  private DistributedFileSystem dfs;
+
+  @Before
+  public void startUp() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(DFSConfigKeys.DFS_HA_TAILEDITS_PERIOD_KEY, 1);
+    conf.setBoolean(DFSConfigKeys.DFS_HA_TAILEDITS_INPROGRESS_KEY, true);
+    conf.setBoolean(DFSConfigKeys.DFS_HA_STANDBY_CONSISTENT_READS_KEY, true);
+    qjmhaCluster = new MiniQJMHACluster.Builder(conf).build();
+    cluster = qjmhaCluster.getDfsCluster();
+    cluster.transitionToActive(0);
+
+    Configuration clientConf = new Configuration(conf);
+    String logicalName = HATestUtil.getLogicalHostname(cluster);
+    HATestUtil.setFailoverConfigurations(cluster, clientConf, logicalName);
+    clientConf.set(HdfsClientConfigKeys.Failover.PROXY_PROVIDER_KEY_PREFIX +
+        "." + logicalName, StandbyReadProxyProvider.class.getName());
+    dfs = (DistributedFileSystem) FileSystem.get(
+        HATestUtil.getLogicalUri(cluster), clientConf);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (dfs != null) {
+      dfs.close();
+    }
+    if (qjmhaCluster != null) {
+      qjmhaCluster.shutdown();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testReadYourWritesFromStandby() throws Exception {
+    NameNode standby = cluster.getNameNode(1);
+    Path dir = new Path("/testReadYourWrites");
+    assertTrue(dfs.mkdirs(dir));
+
+    // the standby may not have tailed the mkdir yet, but must not answer
+    // until it has
+    LogCapturer auditLog = LogCapturer.captureLogs(FSNamesystem.auditLog);
+    try {
+      assertTrue(dfs.getFileStatus(dir).isDirectory());
+    } finally {
+      auditLog.stopCapturing();
+    }
+    // the audit entry is logged by a handler of the standby
+    assertTrue(auditLog.getOutput(), auditLog.getOutput().matches(
+        "(?s).*on " + standby.getNameNodeAddress().getPort() +
+        "\\].*cmd=getfileinfo\tsrc=" + dir + "\t.*"));
+  }
+
+  @Test(timeout = 60000)
+  public void testMsync() throws Exception {
+    dfs.getClient().getNamenode().msync();
+    assertNotNull(dfs.getClient().getNamenode().getFileInfo("/"));
+  }
+
+  @Test(timeout = 60000)
+  public void testFallBackToActive() throws Exception {
+    Path dir = new Path("/testFallBackToActive");
+    assertTrue(dfs.mkdirs(dir));
+    cluster.shutdownNameNode(1);
+    assertTrue(dfs.getFileStatus(dir).isDirectory());
+  }
+
+  @Test(timeout = 60000)
+  public void testBackOffFromFailedStandby() throws Exception {
+    Path dir = new Path("/testBackOffFromFailedStandby");
+    assertTrue(dfs.mkdirs(dir));
+    cluster.shutdownNameNode(1);
+    GenericTestUtils.setLogLevel(
+        LoggerFactory.getLogger(StandbyReadProxyProvider.class), Level.DEBUG);
+    LogCapturer log = LogCapturer.captureLogs(
+        LoggerFactory.getLogger(StandbyReadProxyProvider.class));
+    try {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(dfs.getFileStatus(dir).isDirectory());
+      }
+    } finally {
+      log.stopCapturing();
+    }
+    // only the first read tries the failed standby
+    assertEquals(log.getOutput(), 2,
+        log.getOutput().split("Failed to read getFileInfo").length);
+  }
+}
@@ -48,18 +48,22 @@ public void testInitialState() {
     assertCounter("LoadingFsImageElapsedTime", 0L, builder);
     assertCounter("LoadingFsImageTotal", 0L, builder);
     assertGauge("LoadingFsImagePercentComplete", 0.0f, builder);
+    assertGauge("LoadingFsImageRate", 0.0f, builder);
     assertCounter("LoadingEditsCount", 0L, builder);
     assertCounter("LoadingEditsElapsedTime", 0L, builder);
     assertCounter("LoadingEditsTotal", 0L, builder);
     assertGauge("LoadingEditsPercentComplete", 0.0f, builder);
+    assertGauge("LoadingEditsRate", 0.0f, builder);
     assertCounter("SavingCheckpointCount", 0L, builder);
     assertCounter("SavingCheckpointElapsedTime", 0L, builder);
     assertCounter("SavingCheckpointTotal", 0L, builder);
     assertGauge("SavingCheckpointPercentComplete", 0.0f, builder);
+    assertGauge("SavingCheckpointRate", 0.0f, builder);
     assertCounter("SafeModeCount", 0L, builder);
     assertCounter("SafeModeElapsedTime", 0L, builder);
     assertCounter("SafeModeTotal", 0L, builder);
     assertGauge("SafeModePercentComplete", 0.0f, builder);
+    assertGauge("SafeModeRate", 0.0f, builder);
   }
 
   @Test
@@ -73,6 +77,7 @@ public void testRunningState() {
     assertTrue(getLongCounter("LoadingFsImageElapsedTime", builder) >= 0L);
     assertCounter("LoadingFsImageTotal", 100L, builder);
     assertGauge("LoadingFsImagePercentComplete", 1.0f, builder);
+    assertRate("LoadingFsImageRate", LOADING_FSIMAGE, builder);
     assertCounter("LoadingEditsCount", 100L, builder);
     assertTrue(getLongCounter("LoadingEditsElapsedTime", builder) >= 0L);
     assertCounter("LoadingEditsTotal", 200L, builder);
@@ -81,10 +86,12 @@ public void testRunningState() {
     assertCounter("SavingCheckpointElapsedTime", 0L, builder);
     assertCounter("SavingCheckpointTotal", 0L, builder);
     assertGauge("SavingCheckpointPercentComplete", 0.0f, builder);
+    assertGauge("SavingCheckpointRate", 0.0f, builder);
     assertCounter("SafeModeCount", 0L, builder);
     assertCounter("SafeModeElapsedTime", 0L, builder);
     assertCounter("SafeModeTotal", 0L, builder);
     assertGauge("SafeModePercentComplete", 0.0f, builder);
+    assertGauge("SafeModeRate", 0.0f, builder);
   }
 
   @Test
@@ -98,17 +105,59 @@ public void testFinalState() {
     assertTrue(getLongCounter("LoadingFsImageElapsedTime", builder) >= 0L);
     assertCounter("LoadingFsImageTotal", 100L, builder);
     assertGauge("LoadingFsImagePercentComplete", 1.0f, builder);
+    assertRate("LoadingFsImageRate", LOADING_FSIMAGE, builder);
     assertCounter("LoadingEditsCount", 200L, builder);
     assertTrue(getLongCounter("LoadingEditsElapsedTime", builder) >= 0L);
     assertCounter("LoadingEditsTotal", 200L, builder);
     assertGauge("LoadingEditsPercentComplete", 1.0f, builder);
+    assertRate("LoadingEditsRate", LOADING_EDITS, builder);
     assertCounter("SavingCheckpointCount", 300L, builder);
     assertTrue(getLongCounter("SavingCheckpointElapsedTime", builder) >= 0L);
     assertCounter("SavingCheckpointTotal", 300L, builder);
     assertGauge("SavingCheckpointPercentComplete", 1.0f, builder);
+    assertRate("SavingCheckpointRate", SAVING_CHECKPOINT, builder);
     assertCounter("SafeModeCount", 400L, builder);
     assertTrue(getLongCounter("SafeModeElapsedTime", builder) >= 0L);
     assertCounter("SafeModeTotal", 400L, builder);
     assertGauge("SafeModePercentComplete", 1.0f, builder);
+    assertRate("SafeModeRate", SAFEMODE, builder);
+  }
+
+  /**
+   * The rate of edit log replay is the number of ops replayed per second of
+   * the elapsed time of the phase.
+   */
+  @Test
+  public void testLoadingEditsRate() throws Exception {
+    startupProgress.beginPhase(LOADING_EDITS);
+    Step loadingEditsFile = new Step("file", 1000L);
+    startupProgress.beginStep(LOADING_EDITS, loadingEditsFile);
+    startupProgress.setTotal(LOADING_EDITS, loadingEditsFile, 200L);
+    incrementCounter(startupProgress, LOADING_EDITS, loadingEditsFile, 200L);
+    // make sure some time elapses, so that the rate is not 0
+    Thread.sleep(10);
+    startupProgress.endStep(LOADING_EDITS, loadingEditsFile);
+    startupProgress.endPhase(LOADING_EDITS);
+
+    long elapsedTime =
+        startupProgress.createView().getElapsedTime(LOADING_EDITS);
+    assertTrue(elapsedTime >= 10L);
+    MetricsRecordBuilder builder = getMetrics(metrics, true);
+    float rate = getFloatGauge("LoadingEditsRate", builder);
+    assertTrue(rate > 0.0f);
+    assertEquals(200L * 1000.0f / elapsedTime, rate, 0.0f);
+  }
+
+  /**
+   * Asserts that the rate gauge of a completed phase is its count per second
+   * of elapsed time.
+   */
+  private void assertRate(String name, Phase phase,
+      MetricsRecordBuilder builder) {
+    StartupProgressView view = startupProgress.createView();
+    long elapsedTime = view.getElapsedTime(phase);
+    float expected = elapsedTime > 0
+        ? view.getCount(phase) * 1000.0f / elapsedTime : 0.0f;
+    assertEquals(expected, getFloatGauge(name, builder), 0.0f);
   }
 }
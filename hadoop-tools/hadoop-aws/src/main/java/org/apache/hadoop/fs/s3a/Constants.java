@@ -284,6 +284,37 @@ private Constants() {
   public static final String READAHEAD_RANGE = "fs.s3a.readahead.range";
   public static final long DEFAULT_READAHEAD_RANGE = 64 * 1024;
 
+  /**
+   * The largest gap between two ranges of a vectored read which is read
+   * through, so that both ranges are read with the same GET request.
+   * Value: {@value}
+   */
+  @InterfaceStability.Unstable
+  public static final String VECTORED_READ_MIN_SEEK_SIZE =
+      "fs.s3a.vectored.read.min.seek.size";
+  public static final long DEFAULT_VECTORED_READ_MIN_SEEK_SIZE = 4 * 1024;
+
+  /**
+   * The largest size of the ranges of a vectored read combined into a
+   * single GET request.
+   * Value: {@value}
+   */
+  @InterfaceStability.Unstable
+  public static final String VECTORED_READ_MAX_MERGED_SIZE =
+      "fs.s3a.vectored.read.max.merged.size";
+  public static final long DEFAULT_VECTORED_READ_MAX_MERGED_SIZE =
+      1024 * 1024;
+
+  /**
+   * Maximum number of GET requests of the vectored reads of a single input
+   * stream which may be active, or queued to the shared thread pool of the
+   * filesystem instance. Value: {@value}
+   */
+  @InterfaceStability.Unstable
+  public static final String VECTORED_ACTIVE_RANGED_READS =
+      "fs.s3a.vectored.active.ranged.reads";
+  public static final int DEFAULT_VECTORED_ACTIVE_RANGED_READS = 4;
+
   /**
    * Which input strategy to use for buffering, seeking and similar when
    * reading data.
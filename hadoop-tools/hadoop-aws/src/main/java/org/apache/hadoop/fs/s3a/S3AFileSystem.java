@@ -185,6 +185,9 @@ public class S3AFileSystem extends FileSystem implements StreamCapabilities {
       createStorageStatistics();
   private long readAhead;
   private S3AInputPolicy inputPolicy;
+  private int vectoredReadMinSeek;
+  private int vectoredReadMaxMergedSize;
+  private int vectoredActiveRangedReads;
   private final AtomicBoolean closed = new AtomicBoolean(false);
   private MetadataStore metadataStore;
   private boolean allowAuthoritative;
@@ -261,6 +264,15 @@ public void initialize(URI name, Configuration originalConf)
 
       readAhead = longBytesOption(conf, READAHEAD_RANGE,
           DEFAULT_READAHEAD_RANGE, 0);
+      vectoredReadMinSeek = (int) longBytesOption(conf,
+          VECTORED_READ_MIN_SEEK_SIZE, DEFAULT_VECTORED_READ_MIN_SEEK_SIZE,
+          0);
+      vectoredReadMaxMergedSize = (int) longBytesOption(conf,
+          VECTORED_READ_MAX_MERGED_SIZE,
+          DEFAULT_VECTORED_READ_MAX_MERGED_SIZE, 1);
+      vectoredActiveRangedReads = intOption(conf,
+          VECTORED_ACTIVE_RANGED_READS, DEFAULT_VECTORED_ACTIVE_RANGED_READS,
+          1);
 
       int maxThreads = conf.getInt(MAX_THREADS, DEFAULT_MAX_THREADS);
       if (maxThreads < 2) {
@@ -695,7 +707,11 @@ public FSDataInputStream open(Path f, int bufferSize)
             instrumentation,
             readAhead,
             inputPolicy,
-            invoker));
+            invoker,
+            new SemaphoredDelegatingExecutor(boundedThreadPool,
+                vectoredActiveRangedReads, true),
+            vectoredReadMinSeek,
+            vectoredReadMaxMergedSize));
   }
 
   /**
@@ -28,15 +28,22 @@
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.fs.CanSetReadahead;
+import org.apache.hadoop.fs.CombinedFileRange;
 import org.apache.hadoop.fs.FSExceptionMessages;
 import org.apache.hadoop.fs.FSInputStream;
+import org.apache.hadoop.fs.FileRange;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.VectoredReadUtils;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
 
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
@@ -87,6 +94,14 @@ public class S3AInputStream extends FSInputStream implements CanSetReadahead {
   private long readahead = Constants.DEFAULT_READAHEAD_RANGE;
   private final Invoker invoker;
 
+  /**
+   * Executor of the GET requests of vectored reads; null if they are
+   * issued by the calling thread.
+   */
+  private final Executor vectoredReadExecutor;
+  private final int vectoredReadMinSeek;
+  private final int vectoredReadMaxMergedSize;
+
   /**
    * This is the actual position within the object, used by
    * lazy seek to decide whether to seek on the next read or not.
@@ -116,6 +131,12 @@ public class S3AInputStream extends FSInputStream implements CanSetReadahead {
    * @param readahead readahead bytes
    * @param inputPolicy IO policy
    * @param invoker preconfigured invoker
+   * @param vectoredReadExecutor executor of the GET requests of vectored
+   * reads; null to issue them in the calling thread
+   * @param vectoredReadMinSeek largest gap between two ranges of a vectored
+   * read to read through
+   * @param vectoredReadMaxMergedSize largest size of the ranges of a
+   * vectored read combined into a single GET request
    */
   public S3AInputStream(S3ObjectAttributes s3Attributes,
       long contentLength,
@@ -124,7 +145,10 @@ public S3AInputStream(S3ObjectAttributes s3Attributes,
       S3AInstrumentation instrumentation,
       long readahead,
       S3AInputPolicy inputPolicy,
-      Invoker invoker) {
+      Invoker invoker,
+      Executor vectoredReadExecutor,
+      int vectoredReadMinSeek,
+      int vectoredReadMaxMergedSize) {
     Preconditions.checkArgument(isNotEmpty(s3Attributes.getBucket()),
         "No Bucket");
     Preconditions.checkArgument(isNotEmpty(s3Attributes.getKey()), "No Key");
@@ -142,6 +166,9 @@ public S3AInputStream(S3ObjectAttributes s3Attributes,
     this.inputPolicy = inputPolicy;
     setReadahead(readahead);
     this.invoker = invoker;
+    this.vectoredReadExecutor = vectoredReadExecutor;
+    this.vectoredReadMinSeek = vectoredReadMinSeek;
+    this.vectoredReadMaxMergedSize = vectoredReadMaxMergedSize;
   }
 
   /**
@@ -653,6 +680,129 @@ public void readFully(long position, byte[] buffer, int offset, int length)
     }
   }
 
+  /**
+   * Read the ranges close to each other with a single ranged GET request,
+   * independent of the stream of sequential reads. The requests are issued
+   * in parallel if there is an executor for them.
+   *
+   * The ranges past the end of the object fail with an EOFException
+   * without any request.
+   */
+  @Override
+  public void readVectored(List<? extends FileRange> ranges,
+      IntFunction<ByteBuffer> allocate) throws IOException {
+    checkNotClosed();
+    List<FileRange> rangesInFile =
+        VectoredReadUtils.prepareRanges(ranges, contentLength);
+    List<CombinedFileRange> combinedRanges =
+        VectoredReadUtils.mergeSortedRanges(rangesInFile,
+            vectoredReadMinSeek, vectoredReadMaxMergedSize);
+    for (CombinedFileRange combined : combinedRanges) {
+      if (vectoredReadExecutor == null) {
+        readCombinedRange(combined, allocate);
+      } else {
+        vectoredReadExecutor.execute(
+            () -> readCombinedRange(combined, allocate));
+      }
+    }
+  }
+
+  /**
+   * Read a combined range of a vectored read with a single GET request,
+   * retrying it as a whole on failures, and complete the futures of the
+   * ranges it covers.
+   * @param combined the combined range
+   * @param allocate the function allocating the buffer
+   */
+  private void readCombinedRange(CombinedFileRange combined,
+      IntFunction<ByteBuffer> allocate) {
+    try {
+      ByteBuffer buffer = allocate.apply(combined.getLength());
+      final int start = buffer.position();
+      if (combined.getLength() > 0) {
+        String text = String.format("Failed to read %s of %s",
+            combined, uri);
+        long bytesRead = invoker.retry(text, uri, true,
+            () -> readRangeInto(combined, buffer, start));
+        synchronized (this) {
+          streamStatistics.streamOpened();
+          streamStatistics.streamClose(false, 0);
+          incrementBytesRead(bytesRead);
+        }
+      }
+      buffer.position(start);
+      buffer.limit(start + combined.getLength());
+      VectoredReadUtils.completeUnderlying(combined, buffer);
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Failed to read {} of {}", combined, uri, e);
+      VectoredReadUtils.failUnderlying(combined, e);
+    }
+  }
+
+  /**
+   * Issue a ranged GET request and read all of its content into a buffer.
+   * @param range the range of the object to read
+   * @param buffer the buffer to read into
+   * @param start the position in the buffer of the first byte of the range
+   * @return the number of bytes read
+   * @throws IOException on any failure to read the range
+   */
+  private long readRangeInto(FileRange range, ByteBuffer buffer, int start)
+      throws IOException {
+    GetObjectRequest request = new GetObjectRequest(bucket, key)
+        .withRange(range.getOffset(),
+            range.getOffset() + range.getLength() - 1);
+    if (S3AEncryptionMethods.SSE_C.equals(serverSideEncryptionAlgorithm) &&
+        StringUtils.isNotBlank(serverSideEncryptionKey)){
+      request.setSSECustomerKey(new SSECustomerKey(serverSideEncryptionKey));
+    }
+    S3Object object = client.getObject(request);
+    S3ObjectInputStream in = object.getObjectContent();
+    if (in == null) {
+      throw new IOException("Null IO stream reading " + range + " of "
+          + uri);
+    }
+    boolean complete = false;
+    try {
+      final int length = range.getLength();
+      int nread = 0;
+      if (buffer.hasArray()) {
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset() + start;
+        while (nread < length) {
+          int nbytes = in.read(array, offset + nread, length - nread);
+          if (nbytes < 0) {
+            throw new EOFException(uri + ": "
+                + FSExceptionMessages.EOF_IN_READ_FULLY + " " + range);
+          }
+          nread += nbytes;
+        }
+      } else {
+        byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+        ByteBuffer target = buffer.duplicate();
+        target.position(start);
+        while (nread < length) {
+          int nbytes = in.read(chunk, 0,
+              Math.min(chunk.length, length - nread));
+          if (nbytes < 0) {
+            throw new EOFException(uri + ": "
+                + FSExceptionMessages.EOF_IN_READ_FULLY + " " + range);
+          }
+          target.put(chunk, 0, nbytes);
+          nread += nbytes;
+        }
+      }
+      complete = true;
+      return nread;
+    } finally {
+      if (complete) {
+        in.close();
+      } else {
+        in.abort();
+      }
+    }
+  }
+
   /**
    * Access the input stream statistics.
    * This is for internal testing and may be removed without warning.
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.fs.s3a;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileRange;
+import org.apache.hadoop.fs.Path;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * S3A tests for vectored reads using mock S3 client.
+ */
+public class TestS3AVectoredRead extends AbstractS3AMockTest {
+
+  private static final int LENGTH = 64 * 1024;
+
+  private final Path path = new Path("/file");
+  private final byte[] bytes = new byte[LENGTH];
+  /** The number of bytes the next GET responses are short of. */
+  private final AtomicInteger shortResponses = new AtomicInteger();
+
+  @Before
+  public void setupObject() {
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) (i % 251);
+    }
+    ObjectMetadata meta = new ObjectMetadata();
+    meta.setContentLength(LENGTH);
+    meta.setLastModified(new Date(2L));
+    when(s3.getObjectMetadata(any(GetObjectMetadataRequest.class)))
+        .thenReturn(meta);
+    when(s3.getObject(any(GetObjectRequest.class)))
+        .thenAnswer(new Answer<S3Object>() {
+          @Override
+          public S3Object answer(InvocationOnMock invocation)
+              throws Throwable {
+            GetObjectRequest request =
+                (GetObjectRequest) invocation.getArguments()[0];
+            return getRange(request.getRange());
+          }
+        });
+  }
+
+  /**
+   * @return an object with the bytes of an inclusive range, short of bytes
+   *         for the first response after {@link #shortResponses} is set.
+   */
+  private S3Object getRange(long[] range) throws Exception {
+    int start = (int) range[0];
+    int end = (int) Math.min(range[1] + 1, LENGTH)
+        - shortResponses.getAndSet(0);
+    final ByteArrayInputStream content =
+        new ByteArrayInputStream(bytes, start, end - start);
+    S3ObjectInputStream in = mock(S3ObjectInputStream.class);
+    when(in.read(any(byte[].class), anyInt(), anyInt()))
+        .thenAnswer(new Answer<Integer>() {
+          @Override
+          public Integer answer(InvocationOnMock invocation) {
+            Object[] args = invocation.getArguments();
+            return content.read((byte[]) args[0], (Integer) args[1],
+                (Integer) args[2]);
+          }
+        });
+    S3Object object = new S3Object();
+    object.setObjectContent(in);
+    return object;
+  }
+
+  private void assertRangeData(FileRange range) throws Exception {
+    ByteBuffer buf = range.getData().get();
+    assertEquals(range.getLength(), buf.remaining());
+    for (int i = 0; i < range.getLength(); i++) {
+      assertEquals("Byte " + i + " of " + range,
+          bytes[(int) range.getOffset() + i], buf.get());
+    }
+  }
+
+  /** @return the ranges of the GET requests issued. */
+  private List<GetObjectRequest> verifyGets(int count) {
+    ArgumentCaptor<GetObjectRequest> captor =
+        ArgumentCaptor.forClass(GetObjectRequest.class);
+    verify(s3, times(count)).getObject(captor.capture());
+    return captor.getAllValues();
+  }
+
+  @Test
+  public void testMergedRanges() throws Exception {
+    List<FileRange> ranges = Arrays.asList(
+        FileRange.createFileRange(30000, 100),
+        FileRange.createFileRange(0, 100),
+        FileRange.createFileRange(200, 100));
+    try (FSDataInputStream in = fs.open(path)) {
+      in.readVectored(ranges, ByteBuffer::allocate);
+      for (FileRange range : ranges) {
+        assertRangeData(range);
+      }
+    }
+    // the two ranges close to each other are read with a single GET
+    List<GetObjectRequest> gets = verifyGets(2);
+    long[] first = gets.get(0).getRange();
+    long[] second = gets.get(1).getRange();
+    if (first[0] != 0) {
+      long[] tmp = first;
+      first = second;
+      second = tmp;
+    }
+    assertArrayEquals(new long[] {0, 299}, first);
+    assertArrayEquals(new long[] {30000, 30099}, second);
+  }
+
+  @Test
+  public void testRangePastEOF() throws Exception {
+    FileRange inFile = FileRange.createFileRange(LENGTH - 200, 100);
+    FileRange pastEOF = FileRange.createFileRange(LENGTH - 50, 100);
+    try (FSDataInputStream in = fs.open(path)) {
+      in.readVectored(Arrays.asList(inFile, pastEOF), ByteBuffer::allocate);
+      try {
+        pastEOF.getData().get();
+        fail("A range past the end of the object should fail");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof EOFException);
+      }
+      // the range in the object is not failed by the one past its end
+      assertRangeData(inFile);
+    }
+    List<GetObjectRequest> gets = verifyGets(1);
+    assertArrayEquals(new long[] {LENGTH - 200, LENGTH - 101},
+        gets.get(0).getRange());
+  }
+
+  @Test
+  public void testPartialGetRetried() throws Exception {
+    FileRange range = FileRange.createFileRange(1000, 5000);
+    shortResponses.set(1000);
+    try (FSDataInputStream in = fs.open(path)) {
+      in.readVectored(Arrays.asList(range), ByteBuffer::allocateDirect);
+      assertRangeData(range);
+    }
+    // the short response is read again as a whole
+    List<GetObjectRequest> gets = verifyGets(2);
+    for (GetObjectRequest get : gets) {
+      assertArrayEquals(new long[] {1000, 5999}, get.getRange());
+    }
+  }
+
+  @Test
+  public void testInvalidRange() throws Exception {
+    FileRange valid = FileRange.createFileRange(0, 100);
+    try (FSDataInputStream in = fs.open(path)) {
+      try {
+        in.readVectored(Arrays.asList(valid,
+            FileRange.createFileRange(-1, 100)), ByteBuffer::allocate);
+        fail("A negative offset should be rejected");
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+    assertNull(valid.getData());
+    verify(s3, never()).getObject(any(GetObjectRequest.class));
+  }
+}